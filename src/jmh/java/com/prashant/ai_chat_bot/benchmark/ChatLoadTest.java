@@ -0,0 +1,148 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.AiChatBotApplication;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load harness for the blocking chat endpoint: starts the application against a
+ * local stub LLM with fixed latency and fires concurrent POST /chatmodel/chat
+ * requests at it.
+ *
+ * With platform threads every in-flight request holds a Tomcat worker for the whole
+ * provider call, so concurrency tops out at server.tomcat.threads.max and the rest
+ * queue. With virtual threads the same setting no longer bounds it. Compare the
+ * "stub max concurrent" line and the latency percentiles of both runs:
+ *
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.prashant.ai_chat_bot.benchmark.ChatLoadTest \
+ *     -Djmh.args="--virtual=false --requests=400 --concurrency=200 --latency=PT1S"
+ *   ./mvnw -Pbenchmark,java21 test-compile exec:exec -Dbench.main=com.prashant.ai_chat_bot.benchmark.ChatLoadTest \
+ *     -Djmh.args="--virtual=true --requests=400 --concurrency=200 --latency=PT1S"
+ *
+ * Chat memory, the response cache and admission control are switched off so every
+ * request reaches the stub.
+ */
+public class ChatLoadTest {
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = options(args);
+    boolean virtual = Boolean.parseBoolean(options.getOrDefault("virtual", "false"));
+    int requests = Integer.parseInt(options.getOrDefault("requests", "400"));
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+    Duration latency = Duration.parse(options.getOrDefault("latency", "PT1S"));
+    int tomcatThreads = Integer.parseInt(options.getOrDefault("tomcat-threads", "50"));
+
+    try (StubOpenAiServer stub = new StubOpenAiServer().reply("pong").firstTokenDelay(latency)) {
+      ConfigurableApplicationContext context = start(stub, virtual, tomcatThreads);
+      try {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        run(URI.create("http://127.0.0.1:" + port + "/chatmodel/chat"), requests, concurrency, stub, virtual,
+          latency, tomcatThreads);
+      } finally {
+        context.close();
+      }
+    }
+  }
+
+  private static ConfigurableApplicationContext start(StubOpenAiServer stub, boolean virtual, int tomcatThreads) {
+    SpringApplication application = new SpringApplication(AiChatBotApplication.class);
+    application.setDefaultProperties(Map.of(
+      "OPEN_API_KEY", "load-test",
+      "GEMINI_API_KEY", "load-test"));
+    return application.run(
+      "--server.port=0",
+      "--server.tomcat.threads.max=" + tomcatThreads,
+      "--server.tomcat.max-connections=10000",
+      "--server.tomcat.accept-count=10000",
+      "--spring.threads.virtual.enabled=" + virtual,
+      "--spring.ai.providers.ollama.base-url=" + stub.baseUrl(),
+      "--spring.ai.providers.ollama.completion-path=" + StubOpenAiServer.COMPLETIONS_PATH,
+      "--app.ai.chat-memory.enabled=false",
+      "--app.ai.response-cache.enabled=false",
+      "--app.ai.admission.enabled=false",
+      "--logging.level.root=WARN");
+  }
+
+  private static void run(URI uri, int requests, int concurrency, StubOpenAiServer stub, boolean virtual,
+      Duration latency, int tomcatThreads) {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger failures = new AtomicInteger();
+    AtomicInteger next = new AtomicInteger();
+
+    long start = System.nanoTime();
+    //each lane sends its next request as soon as the previous one returns
+    List<CompletableFuture<Void>> lanes = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      lanes.add(lane(client, uri, requests, next, latencies, failures));
+    }
+    CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).join();
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    System.out.printf("%n threads          : %s (tomcat max %d)%n", virtual ? "virtual" : "platform", tomcatThreads);
+    System.out.printf(" stub latency     : %d ms%n", latency.toMillis());
+    System.out.printf(" requests         : %d (%d failed), %d concurrent clients%n", requests, failures.get(),
+      concurrency);
+    System.out.printf(" throughput       : %.1f req/s%n", sorted.size() / seconds);
+    System.out.printf(" latency p50/p99  : %d / %d ms%n", percentile(sorted, 0.50), percentile(sorted, 0.99));
+    System.out.printf(" stub max concurrent: %d%n%n", stub.maxConcurrent());
+  }
+
+  private static CompletableFuture<Void> lane(HttpClient client, URI uri, int requests, AtomicInteger next,
+      List<Long> latencies, AtomicInteger failures) {
+    if (next.getAndIncrement() >= requests) {
+      return CompletableFuture.completedFuture(null);
+    }
+    HttpRequest request = HttpRequest.newBuilder(uri)
+      .timeout(Duration.ofMinutes(2))
+      .header("Content-Type", "text/plain")
+      .POST(HttpRequest.BodyPublishers.ofString("ping"))
+      .build();
+    long sent = System.nanoTime();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+      .handle((response, error) -> {
+        if (error != null || response.statusCode() != 200) {
+          failures.incrementAndGet();
+        } else {
+          latencies.add((System.nanoTime() - sent) / 1_000_000);
+        }
+        return null;
+      })
+      .thenCompose(ignored -> lane(client, uri, requests, next, latencies, failures));
+  }
+
+  private static long percentile(List<Long> sorted, double percentile) {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+    return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+  }
+
+  private static Map<String, String> options(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--") && arg.contains("=")) {
+        options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      }
+    }
+    return options;
+  }
+}
@@ -0,0 +1,100 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.memory.MappedLogChatMemoryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Append and window-read throughput of the memory-mapped log against Spring AI's
+ * InMemoryChatMemoryRepository, using the save pattern of a 10 message window
+ * memory (full window saved after every turn).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatMemoryRepositoryBenchmark {
+
+  private static final int WINDOW = 10;
+  private static final int CONVERSATIONS = 1000;
+
+  @Param({"in-memory", "mapped-log"})
+  private String store;
+
+  private ChatMemoryRepository repository;
+  private Path directory;
+  private final List<List<Message>> windows = new ArrayList<>();
+  private final AtomicInteger turn = new AtomicInteger();
+
+  @Setup
+  public void setUp() throws IOException {
+    if ("mapped-log".equals(store)) {
+      directory = Files.createTempDirectory("chat-memory-bench");
+      repository = new MappedLogChatMemoryRepository(directory, 64 << 20, CONVERSATIONS * 2, Duration.ofHours(1),
+        64, 0.5, Duration.ofSeconds(10), Duration.ofSeconds(1));
+    } else {
+      repository = new InMemoryChatMemoryRepository();
+    }
+    for (int c = 0; c < CONVERSATIONS; c++) {
+      List<Message> window = new ArrayList<>();
+      for (int m = 0; m < WINDOW; m++) {
+        window.add(message(m));
+      }
+      windows.add(window);
+      repository.saveAll(String.valueOf(c), window);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (repository instanceof MappedLogChatMemoryRepository mapped) {
+      mapped.destroy();
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void appendTurn() {
+    int next = turn.getAndIncrement();
+    int conversation = next % CONVERSATIONS;
+    List<Message> window = windows.get(conversation);
+    List<Message> updated;
+    synchronized (window) {
+      window.remove(0);
+      window.add(message(next));
+      updated = List.copyOf(window);
+    }
+    repository.saveAll(String.valueOf(conversation), updated);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public List<Message> readWindow() {
+    return repository.findByConversationId(String.valueOf(turn.getAndIncrement() % CONVERSATIONS));
+  }
+
+  private static Message message(int n) {
+    String text = "Message " + n + ": how do I configure a connection pool for the OpenAI compatible client?";
+    return n % 2 == 0 ? new UserMessage(text) : new AssistantMessage(text);
+  }
+}
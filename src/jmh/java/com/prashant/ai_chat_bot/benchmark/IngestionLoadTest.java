@@ -0,0 +1,189 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.AiChatBotApplication;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Memory per request for large request bodies: starts the application against a
+ * local stub LLM and fires concurrent multi-megabyte POST /chatmodel/chat requests.
+ *
+ * Reported per request:
+ * - bytes allocated on the Tomcat worker threads, which read, sanitize and count
+ *   the body and then call the provider (request serialization included)
+ * - the status codes, e.g. 413 for bodies over app.ai.input.max-tokens
+ * and for the whole run the GC count and time, throughput and latency.
+ *
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.prashant.ai_chat_bot.benchmark.IngestionLoadTest \
+ *     -Djmh.args="--requests=200 --concurrency=16 --size=2097152"
+ *
+ * --max-tokens sets app.ai.input.max-tokens (e.g. 100000 to see over-budget bodies
+ * rejected) and --crlf=true sends Windows line endings, which the sanitizer rewrites.
+ * Chat memory, the response cache and admission control are switched off.
+ */
+public class IngestionLoadTest {
+
+  private static final String LINES = """
+      public BigDecimal total(List<OrderLine> lines) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderLine line : lines) {
+          total = total.add(line.price().multiply(BigDecimal.valueOf(line.quantity())));
+        }
+        return total;
+      }
+    """;
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = options(args);
+    int requests = Integer.parseInt(options.getOrDefault("requests", "200"));
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+    int size = Integer.parseInt(options.getOrDefault("size", String.valueOf(2 * 1024 * 1024)));
+    Duration latency = Duration.parse(options.getOrDefault("latency", "PT0.1S"));
+    String maxTokens = options.getOrDefault("max-tokens", "1000000");
+    boolean crlf = Boolean.parseBoolean(options.getOrDefault("crlf", "false"));
+
+    String code = LINES.repeat(size / LINES.length() + 1).substring(0, size);
+    String body = crlf ? code.replace("\n", "\r\n").substring(0, size) : code;
+
+    try (StubOpenAiServer stub = new StubOpenAiServer().reply("looks fine").firstTokenDelay(latency)) {
+      ConfigurableApplicationContext context = start(stub, concurrency, maxTokens);
+      try {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        URI uri = URI.create("http://127.0.0.1:" + port + "/chatmodel/chat");
+        //warm up the JIT and let Tomcat start its worker threads
+        run(uri, body, concurrency * 4, concurrency);
+
+        Map<Long, Long> allocatedBefore = workerAllocations();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        long start = System.nanoTime();
+        Result result = run(uri, body, requests, concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = workerAllocations().entrySet().stream()
+          .mapToLong(entry -> entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L))
+          .sum();
+
+        List<Long> sorted = new ArrayList<>(result.latencies);
+        Collections.sort(sorted);
+        System.out.printf("%n body             : %d KB%s, max-tokens %s%n", size / 1024, crlf ? " (CRLF)" : "", maxTokens);
+        System.out.printf(" requests         : %d, %d concurrent clients, status %s%n", requests, concurrency,
+          result.statuses);
+        System.out.printf(" allocated/request: %.1f MB on worker threads (%.1fx the body)%n",
+          allocated / (double) requests / (1024 * 1024), allocated / (double) requests / size);
+        System.out.printf(" gc               : %d collections, %d ms%n", gcCount() - gcCountBefore,
+          gcTime() - gcTimeBefore);
+        System.out.printf(" throughput       : %.1f req/s%n", requests / seconds);
+        System.out.printf(" latency p50/p99  : %d / %d ms%n%n", percentile(sorted, 0.50), percentile(sorted, 0.99));
+      } finally {
+        context.close();
+      }
+    }
+  }
+
+  private static ConfigurableApplicationContext start(StubOpenAiServer stub, int concurrency, String maxTokens) {
+    SpringApplication application = new SpringApplication(AiChatBotApplication.class);
+    application.setDefaultProperties(Map.of(
+      "OPEN_API_KEY", "load-test",
+      "GEMINI_API_KEY", "load-test"));
+    return application.run(
+      "--server.port=0",
+      "--server.tomcat.threads.max=" + concurrency,
+      "--spring.threads.virtual.enabled=false",
+      "--spring.ai.providers.ollama.base-url=" + stub.baseUrl(),
+      "--spring.ai.providers.ollama.completion-path=" + StubOpenAiServer.COMPLETIONS_PATH,
+      "--app.ai.input.max-tokens=" + maxTokens,
+      "--app.ai.chat-memory.enabled=false",
+      "--app.ai.response-cache.enabled=false",
+      "--app.ai.admission.enabled=false",
+      "--logging.level.root=WARN");
+  }
+
+  private record Result(List<Long> latencies, Map<Integer, Integer> statuses) {
+  }
+
+  private static Result run(URI uri, String body, int requests, int concurrency) {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    Result result = new Result(Collections.synchronizedList(new ArrayList<>()), new ConcurrentHashMap<>());
+    AtomicInteger next = new AtomicInteger();
+    List<CompletableFuture<Void>> lanes = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      lanes.add(lane(client, uri, body, requests, next, result));
+    }
+    CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).join();
+    return result;
+  }
+
+  private static CompletableFuture<Void> lane(HttpClient client, URI uri, String body, int requests,
+      AtomicInteger next, Result result) {
+    if (next.getAndIncrement() >= requests) {
+      return CompletableFuture.completedFuture(null);
+    }
+    HttpRequest request = HttpRequest.newBuilder(uri)
+      .timeout(Duration.ofMinutes(2))
+      .header("Content-Type", "text/plain")
+      .POST(HttpRequest.BodyPublishers.ofString(body))
+      .build();
+    long sent = System.nanoTime();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+      .handle((response, error) -> {
+        result.statuses.merge(error != null ? -1 : response.statusCode(), 1, Integer::sum);
+        result.latencies.add((System.nanoTime() - sent) / 1_000_000);
+        return null;
+      })
+      .thenCompose(ignored -> lane(client, uri, body, requests, next, result));
+  }
+
+  //allocated bytes so far per Tomcat worker thread
+  private static Map<Long, Long> workerAllocations() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Map<Long, Long> allocations = new HashMap<>();
+    Thread.getAllStackTraces().keySet().stream()
+      .filter(thread -> thread.getName().startsWith("http-nio-") && thread.getName().contains("-exec-"))
+      .forEach(thread -> allocations.put(thread.getId(), threads.getThreadAllocatedBytes(thread.getId())));
+    return allocations;
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+  }
+
+  private static long gcTime() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  private static long percentile(List<Long> sorted, double percentile) {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+    return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+  }
+
+  private static Map<String, String> options(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--") && arg.contains("=")) {
+        options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      }
+    }
+    return options;
+  }
+}
@@ -0,0 +1,66 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.utils.InputSanitizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sanitizing code submissions of 1 KB, 100 KB and 5 MB:
+ * - legacy: the previous trim + replace + replaceAll regex
+ * - singlePass: InputSanitizer.sanitize(String)
+ * - reader: InputSanitizer.sanitize(Reader, maxChars, expectedChars), the streamed
+ *   body path, with the length known as it is from Content-Length
+ *
+ * clean input needs no change (LF line endings); crlf input has Windows line
+ * endings and a trailing newline, so every variant has to build a new string.
+ * Run with -prof gc to see the allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputSanitizerBenchmark {
+
+  private static final String LINES = """
+      public BigDecimal total(List<OrderLine> lines) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderLine line : lines) {
+          total = total.add(line.price().multiply(BigDecimal.valueOf(line.quantity())));
+        }
+        return total;
+      }
+    """;
+
+  @Param({"1024", "102400", "5242880"})
+  private int size;
+
+  @Param({"clean", "crlf"})
+  private String lineEndings;
+
+  private String input;
+
+  @Setup
+  public void setUp() {
+    String code = LINES.repeat(size / LINES.length() + 1).substring(0, size);
+    input = "clean".equals(lineEndings) ? code.strip() : code.replace("\n", "\r\n") + "\r\n";
+  }
+
+  @Benchmark
+  public String legacy() {
+    return input.trim().replace("\r\n", "\n").replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", "");
+  }
+
+  @Benchmark
+  public String singlePass() {
+    return InputSanitizer.sanitize(input);
+  }
+
+  @Benchmark
+  public String reader() {
+    return InputSanitizer.sanitize(new StringReader(input), Integer.MAX_VALUE, input.length());
+  }
+}
@@ -0,0 +1,59 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.utils.CompiledPromptTemplate;
+import com.prashant.ai_chat_bot.utils.PromptReaderUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old per-request path (classpath read + one String.replace per
+ * placeholder) with rendering a template compiled once at startup.
+ *
+ * Run with -prof gc to see the allocation difference per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptRenderingBenchmark {
+
+  private static final String CODE_REVIEW = "classpath:/prompts/code-review.txt";
+
+  @Param({"1024", "65536"})
+  private int codeSize;
+
+  private ResourceLoader resourceLoader;
+  private CompiledPromptTemplate compiled;
+  private Map<String, Object> values;
+
+  @Setup
+  public void setUp() {
+    resourceLoader = new DefaultResourceLoader();
+    compiled = CompiledPromptTemplate.compile(PromptReaderUtil.getPrompt(resourceLoader, CODE_REVIEW));
+    values = Map.of(
+      "language", "Java",
+      "code", "int x = 1;\n".repeat(codeSize / 11 + 1).substring(0, codeSize),
+      "businessRequirements", "Validate password strength"
+    );
+  }
+
+  @Benchmark
+  public String readAndReplace() {
+    String rendered = PromptReaderUtil.getPrompt(resourceLoader, CODE_REVIEW);
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      rendered = rendered.replace("{" + entry.getKey() + "}", entry.getValue().toString());
+    }
+    return rendered;
+  }
+
+  @Benchmark
+  public String compiledRender() {
+    return compiled.render(values);
+  }
+}
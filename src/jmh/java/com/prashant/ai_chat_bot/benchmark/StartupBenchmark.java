@@ -0,0 +1,110 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.prashant.ai_chat_bot.AiChatBotApplication;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold-start harness: starts the application once in this JVM, with every provider
+ * pointed at a local stub LLM, and reports
+ * - JVM start to context ready (includes JVM and class loading, so CDS shows here)
+ * - the first request to each provider, which builds its ChatClient when lazy
+ * - heap used after startup and a GC
+ *
+ * Each run is one fresh JVM, so repeat the command to get a spread:
+ *
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.prashant.ai_chat_bot.benchmark.StartupBenchmark \
+ *     -Djmh.args="--initialization=lazy"
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.prashant.ai_chat_bot.benchmark.StartupBenchmark \
+ *     -Djmh.args="--initialization=parallel"
+ */
+public class StartupBenchmark {
+
+  private static final List<String> PROVIDERS = List.of("gemini", "groq", "ollama", "cohere", "mistral");
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = options(args);
+    String initialization = options.getOrDefault("initialization", "lazy");
+
+    try (StubOpenAiServer stub = new StubOpenAiServer().reply("pong")) {
+      ConfigurableApplicationContext context = start(stub, initialization);
+      long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+      try {
+        System.gc();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        List<String> firstRequests = firstRequests(URI.create("http://127.0.0.1:" + port + "/chatmodel/chat"));
+
+        System.out.printf("%n initialization   : %s%n", initialization);
+        System.out.printf(" JVM to ready     : %d ms%n", readyMillis);
+        System.out.printf(" heap after GC    : %.1f MB%n", heap.getUsed() / (1024.0 * 1024.0));
+        System.out.printf(" first request    : %s%n%n", String.join(", ", firstRequests));
+      } finally {
+        context.close();
+      }
+    }
+  }
+
+  private static ConfigurableApplicationContext start(StubOpenAiServer stub, String initialization) {
+    SpringApplication application = new SpringApplication(AiChatBotApplication.class);
+    application.setDefaultProperties(Map.of(
+      "OPEN_API_KEY", "startup-test",
+      "GEMINI_API_KEY", "startup-test"));
+    List<String> arguments = new ArrayList<>(List.of(
+      "--server.port=0",
+      "--app.ai.providers.initialization=" + initialization,
+      "--app.ai.chat-memory.enabled=false",
+      "--app.ai.response-cache.enabled=false",
+      "--app.ai.admission.enabled=false",
+      "--app.ai.usage.enabled=false",
+      "--logging.level.root=WARN"));
+    for (String provider : PROVIDERS) {
+      arguments.add("--spring.ai.providers." + provider + ".base-url=" + stub.baseUrl());
+      arguments.add("--spring.ai.providers." + provider + ".completion-path=" + StubOpenAiServer.COMPLETIONS_PATH);
+      arguments.add("--spring.ai.providers." + provider + ".http.warm-up-connections=0");
+    }
+    return application.run(arguments.toArray(String[]::new));
+  }
+
+  private static List<String> firstRequests(URI uri) throws Exception {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    List<String> results = new ArrayList<>();
+    for (String provider : PROVIDERS) {
+      HttpRequest request = HttpRequest.newBuilder(uri)
+        .timeout(Duration.ofSeconds(30))
+        .header("Content-Type", "text/plain")
+        .header("ai-provider", provider)
+        .POST(HttpRequest.BodyPublishers.ofString("ping"))
+        .build();
+      long sent = System.nanoTime();
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      results.add("%s %d ms%s".formatted(provider, (System.nanoTime() - sent) / 1_000_000,
+        response.statusCode() == 200 ? "" : " (" + response.statusCode() + ")"));
+    }
+    return results;
+  }
+
+  private static Map<String, String> options(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--") && arg.contains("=")) {
+        options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      }
+    }
+    return options;
+  }
+}
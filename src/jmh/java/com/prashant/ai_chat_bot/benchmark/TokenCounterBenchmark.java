@@ -0,0 +1,66 @@
+package com.prashant.ai_chat_bot.benchmark;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.prashant.ai_chat_bot.utils.PromptReaderUtil;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token counts per second for a system-prompt sized text and a long code text:
+ * - encode: the previous path, encoding.countTokens on every call
+ * - encodeOrdinary: the same encoding without the special-token check
+ * - cached: TokenCounter.countTokens, hitting the cache for repeated texts
+ * - approximate: the single-pass estimate used for providers without a local tokenizer
+ *
+ * Run with -prof gc to see the allocation per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenCounterBenchmark {
+
+  @Param({"system-prompt", "code-16k"})
+  private String text;
+
+  private String input;
+  private Encoding encoding;
+  private Tokenizer approximate;
+
+  @Setup
+  public void setUp() {
+    String codeReview = PromptReaderUtil.getPrompt(new DefaultResourceLoader(), "classpath:/prompts/code-review.txt");
+    input = "system-prompt".equals(text) ? codeReview
+      : "  public int total(int quantity, int price) {\n    return quantity * price;\n  }\n".repeat(250).substring(0, 16 * 1024);
+    encoding = Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    approximate = TokenCounter.forName(TokenCounter.APPROXIMATE);
+  }
+
+  @Benchmark
+  public int encode() {
+    return encoding.countTokens(input);
+  }
+
+  @Benchmark
+  public int encodeOrdinary() {
+    return encoding.countTokensOrdinary(input);
+  }
+
+  @Benchmark
+  public int cached() {
+    return TokenCounter.countTokens(input);
+  }
+
+  @Benchmark
+  public int approximate() {
+    return approximate.count(input);
+  }
+}
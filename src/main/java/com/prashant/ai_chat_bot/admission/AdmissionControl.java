@@ -0,0 +1,96 @@
+package com.prashant.ai_chat_bot.admission;
+
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side admission control per provider, so bursts wait (or fail fast) here
+ * instead of turning into 429s, retries and blocked request threads.
+ *
+ * Limits come from spring.ai.providers.<name>.admission; providers without an
+ * entry (openai) only get the adaptive concurrency limit with default bounds.
+ *
+ * METRICS (tag provider): llm.admission.queue.depth, llm.admission.inflight,
+ * llm.admission.concurrency.limit, llm.admission.wait, llm.admission.rejected{reason}
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+  private final boolean enabled;
+  private final AIProviderProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, ProviderAdmission> admissions = new ConcurrentHashMap<>();
+
+  public AdmissionControl(AIProviderProperties properties, MeterRegistry meterRegistry,
+      @Value("${app.ai.admission.enabled:false}") boolean enabled) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Blocks until the provider may take the request.
+   *
+   * @throws AdmissionRejectedException when the request cannot be admitted within its provider's limits
+   */
+  public ProviderAdmission.Permit admit(String provider, int estimatedTokens) {
+    try {
+      ProviderAdmission.Permit permit = admission(provider).acquire(estimatedTokens);
+      Timer.builder("llm.admission.wait")
+        .description("Time requests waited for admission")
+        .tag("provider", provider)
+        .register(meterRegistry)
+        .record(permit.waitNanos(), TimeUnit.NANOSECONDS);
+      return permit;
+    } catch (AdmissionRejectedException e) {
+      log.warn("{}, retry after {}", e.getMessage(), e.getRetryAfter());
+      Counter.builder("llm.admission.rejected")
+        .description("Requests rejected before reaching the provider")
+        .tag("provider", provider)
+        .tag("reason", e.getReason().name().toLowerCase())
+        .register(meterRegistry)
+        .increment();
+      throw e;
+    }
+  }
+
+  public ProviderAdmission admission(String provider) {
+    return admissions.computeIfAbsent(provider, this::create);
+  }
+
+  private ProviderAdmission create(String provider) {
+    AIProviderProperties.Provider settings = properties.getProviders() == null ? null
+      : properties.getProviders().get(provider);
+    ProviderAdmission admission = new ProviderAdmission(provider,
+      settings == null ? new AIProviderProperties.Admission() : settings.getAdmission());
+    Gauge.builder("llm.admission.queue.depth", admission, ProviderAdmission::queueDepth)
+      .description("Requests waiting for admission")
+      .tag("provider", provider)
+      .register(meterRegistry);
+    Gauge.builder("llm.admission.inflight", admission, ProviderAdmission::inFlight)
+      .description("Admitted requests still running")
+      .tag("provider", provider)
+      .register(meterRegistry);
+    Gauge.builder("llm.admission.concurrency.limit", admission, ProviderAdmission::concurrencyLimit)
+      .description("Current adaptive concurrency limit")
+      .tag("provider", provider)
+      .register(meterRegistry);
+    return admission;
+  }
+}
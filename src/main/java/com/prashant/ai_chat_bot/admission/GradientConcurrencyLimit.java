@@ -0,0 +1,70 @@
+package com.prashant.ai_chat_bot.admission;
+
+/**
+ * Adaptive concurrency limit in the style of Netflix's Gradient2 limiter.
+ *
+ * KEY CONCEPT: when a provider starts queueing our requests, latency rises before
+ * it starts returning 429s. The limit follows the ratio between the long-term and
+ * the recent latency:
+ *
+ *   gradient  = clamp(longLatency / shortLatency, 0.5, 1)
+ *   new limit = limit * gradient + sqrt(limit)
+ *
+ * So it shrinks while latency is above its baseline and grows by a small queue
+ * allowance otherwise. Failures shrink the limit multiplicatively, and the limit
+ * does not grow while less than half of it is in use.
+ *
+ * Samples are latency per output token, so long answers do not look like overload.
+ * Not thread safe: {@link ProviderAdmission} calls it under its lock.
+ */
+class GradientConcurrencyLimit {
+
+  private static final double SHORT_ALPHA = 0.2;
+  private static final double LONG_ALPHA = 0.02;
+  private static final double SMOOTHING = 0.2;
+  private static final double FAILURE_BACKOFF = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private double shortLatency = -1;
+  private double longLatency = -1;
+
+  GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = clamp(initialLimit);
+  }
+
+  int limit() {
+    return (int) limit;
+  }
+
+  void onSample(double latencyPerToken, int inFlight) {
+    if (shortLatency < 0) {
+      shortLatency = latencyPerToken;
+      longLatency = latencyPerToken;
+      return;
+    }
+    shortLatency = shortLatency * (1 - SHORT_ALPHA) + latencyPerToken * SHORT_ALPHA;
+    longLatency = longLatency * (1 - LONG_ALPHA) + latencyPerToken * LONG_ALPHA;
+    //after a lasting improvement let the baseline catch up instead of capping growth
+    if (longLatency / shortLatency > 2) {
+      longLatency *= 0.95;
+    }
+    if (inFlight < limit / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, longLatency / shortLatency));
+    double target = limit * gradient + Math.sqrt(limit);
+    limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+  }
+
+  void onFailure() {
+    limit = clamp(limit * FAILURE_BACKOFF);
+  }
+
+  private double clamp(double value) {
+    return Math.max(minLimit, Math.min(maxLimit, value));
+  }
+}
@@ -0,0 +1,190 @@
+package com.prashant.ai_chat_bot.admission;
+
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.exception.AdmissionRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission state of one provider: request and token buckets, the adaptive
+ * concurrency limit and the wait queue in front of them.
+ *
+ * A request is admitted once all three allow it. Until then it waits, at most
+ * max-wait, in a queue of at most max-queue requests; anything beyond that is
+ * rejected straight away instead of tying up a thread.
+ */
+public class ProviderAdmission {
+
+  private enum End { SUCCESS, FAILURE, CANCELLED }
+
+  private final String provider;
+  private final TokenBucket requestBucket;
+  private final TokenBucket tokenBucket;
+  private final GradientConcurrencyLimit concurrencyLimit;
+  private final int maxQueue;
+  private final long maxWaitNanos;
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition changed = lock.newCondition();
+  private volatile int inFlight;
+  private volatile int waiting;
+
+  ProviderAdmission(String provider, AIProviderProperties.Admission settings) {
+    this.provider = provider;
+    this.requestBucket = settings.getRequestsPerSecond() == null ? null
+      : new TokenBucket(Math.max(1, settings.getRequestsPerSecond()), settings.getRequestsPerSecond());
+    this.tokenBucket = settings.getTokensPerMinute() == null ? null
+      : new TokenBucket(settings.getTokensPerMinute(), settings.getTokensPerMinute() / 60d);
+    this.concurrencyLimit = new GradientConcurrencyLimit(settings.getInitialConcurrency(),
+      settings.getMinConcurrency(), settings.getMaxConcurrency());
+    this.maxQueue = settings.getMaxQueue();
+    this.maxWaitNanos = settings.getMaxWait().toNanos();
+  }
+
+  /**
+   * Blocks until the request may start.
+   *
+   * @param estimatedTokens prompt tokens plus the response tokens the request may use
+   * @throws AdmissionRejectedException when the queue is full or max-wait would be exceeded
+   */
+  public Permit acquire(int estimatedTokens) {
+    long start = System.nanoTime();
+    long deadline = start + maxWaitNanos;
+    lock.lock();
+    try {
+      if (waiting >= maxQueue) {
+        throw new AdmissionRejectedException(provider, AdmissionRejectedException.Reason.QUEUE_FULL, retryAfter());
+      }
+      waiting++;
+      try {
+        while (true) {
+          long remaining = deadline - System.nanoTime();
+          if (inFlight < concurrencyLimit.limit()) {
+            long rateWait = Math.max(nanosUntil(requestBucket, 1), nanosUntil(tokenBucket, estimatedTokens));
+            if (rateWait == 0) {
+              take(requestBucket, 1);
+              take(tokenBucket, estimatedTokens);
+              inFlight++;
+              return new Permit(estimatedTokens, System.nanoTime() - start);
+            }
+            //the buckets tell exactly how long the wait is, so fail now rather than at the deadline
+            if (rateWait > remaining) {
+              throw new AdmissionRejectedException(provider, AdmissionRejectedException.Reason.RATE_LIMITED,
+                Duration.ofNanos(rateWait));
+            }
+            changed.awaitNanos(rateWait);
+          } else {
+            if (remaining <= 0) {
+              throw new AdmissionRejectedException(provider, AdmissionRejectedException.Reason.CONCURRENCY_LIMITED,
+                retryAfter());
+            }
+            changed.awaitNanos(remaining);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AdmissionRejectedException(provider, AdmissionRejectedException.Reason.INTERRUPTED, retryAfter());
+      } finally {
+        waiting--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int queueDepth() {
+    return waiting;
+  }
+
+  public int inFlight() {
+    return inFlight;
+  }
+
+  public int concurrencyLimit() {
+    lock.lock();
+    try {
+      return concurrencyLimit.limit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(Permit permit, End end, long latencyNanos, int outputTokens, Integer actualTokens) {
+    lock.lock();
+    try {
+      if (end == End.SUCCESS) {
+        concurrencyLimit.onSample((double) latencyNanos / Math.max(1, outputTokens), inFlight);
+      } else if (end == End.FAILURE) {
+        concurrencyLimit.onFailure();
+      }
+      inFlight--;
+      if (tokenBucket != null && actualTokens != null) {
+        tokenBucket.adjust(permit.estimatedTokens - actualTokens);
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Duration retryAfter() {
+    return Duration.ofNanos(Math.max(TimeUnit.SECONDS.toNanos(1), nanosUntil(requestBucket, 1)));
+  }
+
+  private static long nanosUntil(TokenBucket bucket, double amount) {
+    return bucket == null ? 0 : bucket.nanosUntil(amount);
+  }
+
+  private static void take(TokenBucket bucket, double amount) {
+    if (bucket != null) {
+      bucket.take(amount);
+    }
+  }
+
+  /**
+   * An admitted request. Must be released exactly once when the provider call ends.
+   */
+  public final class Permit {
+
+    private final int estimatedTokens;
+    private final long waitNanos;
+    private final long admittedAt = System.nanoTime();
+    private boolean released;
+
+    private Permit(int estimatedTokens, long waitNanos) {
+      this.estimatedTokens = estimatedTokens;
+      this.waitNanos = waitNanos;
+    }
+
+    public long waitNanos() {
+      return waitNanos;
+    }
+
+    /**
+     * @param outputTokens generated tokens, used to normalise the latency sample
+     * @param totalTokens  tokens the provider reported, or null if unknown
+     */
+    public void succeeded(int outputTokens, Integer totalTokens) {
+      end(End.SUCCESS, outputTokens, totalTokens);
+    }
+
+    public void failed() {
+      end(End.FAILURE, 0, null);
+    }
+
+    //the caller went away: says nothing about the provider, so the limit is left alone
+    public void cancelled() {
+      end(End.CANCELLED, 0, null);
+    }
+
+    private synchronized void end(End end, int outputTokens, Integer totalTokens) {
+      if (released) {
+        return;
+      }
+      released = true;
+      release(this, end, System.nanoTime() - admittedAt, outputTokens, totalTokens);
+    }
+  }
+}
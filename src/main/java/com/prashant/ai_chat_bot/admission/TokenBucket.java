@@ -0,0 +1,57 @@
+package com.prashant.ai_chat_bot.admission;
+
+/**
+ * Continuously refilled token bucket. Not thread safe: {@link ProviderAdmission}
+ * only touches it while holding its lock.
+ *
+ * The balance may go negative when a request turns out to use more tokens than
+ * it reserved; later requests then wait until the debt is refilled.
+ */
+class TokenBucket {
+
+  private final double capacity;
+  private final double refillPerNano;
+  private double available;
+  private long refilledAt;
+
+  TokenBucket(double capacity, double refillPerSecond) {
+    this.capacity = capacity;
+    this.refillPerNano = refillPerSecond / 1_000_000_000d;
+    this.available = capacity;
+    this.refilledAt = System.nanoTime();
+  }
+
+  /**
+   * @return nanoseconds until the amount can be taken, 0 if it can be taken now.
+   * Amounts larger than the capacity only wait for a full bucket.
+   */
+  long nanosUntil(double amount) {
+    refill();
+    double needed = Math.min(amount, capacity) - available;
+    return needed <= 0 ? 0 : (long) Math.ceil(needed / refillPerNano);
+  }
+
+  void take(double amount) {
+    refill();
+    available -= amount;
+  }
+
+  /**
+   * Returns over-reserved tokens or charges under-reserved ones (negative amount).
+   */
+  void adjust(double amount) {
+    refill();
+    available = Math.min(capacity, available + amount);
+  }
+
+  double available() {
+    refill();
+    return available;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+    refilledAt = now;
+  }
+}
@@ -0,0 +1,171 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.admission.AdmissionControl;
+import com.prashant.ai_chat_bot.admission.ProviderAdmission;
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds each provider call until {@link AdmissionControl} admits it.
+ *
+ * ORDERING: right before the model call (only {@link ObservabilityAdvisor} runs
+ * inside it), so memory and cache advisors have already run: cache hits never
+ * queue, and the token estimate covers the conversation history that is
+ * actually sent.
+ *
+ * TOKEN ESTIMATE: prompt tokens (counted with the provider's {@link Tokenizer})
+ * plus the provider's max-tokens. The difference to the usage the provider
+ * reports is given back to the tokens-per-minute bucket when the call ends, and
+ * the reported prompt tokens calibrate approximate tokenizers.
+ */
+public class AdmissionControlAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private final AdmissionControl admissionControl;
+  private final String provider;
+  private final Tokenizer tokenizer;
+  private final int responseTokens;
+  private final Scheduler blockingScheduler;
+
+  public AdmissionControlAdvisor(AdmissionControl admissionControl, String provider, Tokenizer tokenizer,
+      Integer maxTokens, Scheduler blockingScheduler) {
+    this.admissionControl = admissionControl;
+    this.provider = provider;
+    this.tokenizer = tokenizer;
+    this.responseTokens = maxTokens == null ? 0 : maxTokens;
+    this.blockingScheduler = blockingScheduler;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    int promptTokens = UsageTokens.promptTokens(request, tokenizer);
+    ProviderAdmission.Permit permit = admissionControl.admit(provider, promptTokens + responseTokens);
+    ChatClientResponse response;
+    try {
+      response = chain.nextCall(request);
+    } catch (RuntimeException e) {
+      //a cancelled hedge or timeout is not a sign of provider overload
+      if (CallCancellation.isCancelled()) {
+        permit.cancelled();
+      } else {
+        permit.failed();
+      }
+      throw e;
+    }
+    ChatResponse chatResponse = response.chatResponse();
+    Usage usage = chatResponse == null ? null : chatResponse.getMetadata().getUsage();
+    permit.succeeded(outputTokens(usage, chatResponse), totalTokens(usage));
+    calibrate(promptTokens, usage);
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    //admission may block, so it waits on the blocking scheduler instead of the caller's thread
+    int promptTokens = UsageTokens.promptTokens(request, tokenizer);
+    return Flux.defer(() -> {
+      PendingPermit pending = new PendingPermit();
+      return Mono.fromCallable(() -> pending.admitted(admissionControl.admit(provider, promptTokens + responseTokens)))
+        .subscribeOn(blockingScheduler)
+        .doOnCancel(pending::cancel)
+        .flatMapMany(permit -> {
+          pending.handedOver();
+          AtomicInteger chunks = new AtomicInteger();
+          AtomicReference<Usage> usage = new AtomicReference<>();
+          return chain.nextStream(request)
+            .doOnNext(chunk -> {
+              chunks.incrementAndGet();
+              ChatResponse chatResponse = chunk.chatResponse();
+              if (chatResponse != null && totalTokens(chatResponse.getMetadata().getUsage()) != null) {
+                usage.set(chatResponse.getMetadata().getUsage());
+              }
+            })
+            //without reported usage, one streamed chunk is roughly one token
+            .doOnComplete(() -> {
+              permit.succeeded(
+                usage.get() != null && usage.get().getCompletionTokens() != null && usage.get().getCompletionTokens() > 0
+                  ? usage.get().getCompletionTokens() : chunks.get(),
+                totalTokens(usage.get()));
+              calibrate(promptTokens, usage.get());
+            })
+            .doOnError(error -> permit.failed())
+            .doOnCancel(permit::cancelled);
+        });
+    });
+  }
+
+  @Override
+  public String getName() {
+    return "AdmissionControlAdvisor";
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE - 2;
+  }
+
+  /**
+   * A permit admitted after the subscriber cancelled is released at once. Otherwise
+   * a cancel that arrives while admit() blocks would drop the permit it returns,
+   * and the provider's concurrency slot and reserved tokens would never come back.
+   */
+  private static final class PendingPermit {
+
+    private ProviderAdmission.Permit permit;
+    private boolean cancelled;
+
+    synchronized ProviderAdmission.Permit admitted(ProviderAdmission.Permit permit) {
+      if (cancelled) {
+        permit.cancelled();
+      } else {
+        this.permit = permit;
+      }
+      return permit;
+    }
+
+    //from here on the stream's own signals release the permit
+    synchronized void handedOver() {
+      permit = null;
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (permit != null) {
+        permit.cancelled();
+      }
+    }
+  }
+
+  private void calibrate(int promptTokens, Usage usage) {
+    if (usage != null && usage.getPromptTokens() != null) {
+      tokenizer.calibrate(promptTokens, usage.getPromptTokens());
+    }
+  }
+
+  private int outputTokens(Usage usage, ChatResponse chatResponse) {
+    if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+      return usage.getCompletionTokens();
+    }
+    if (chatResponse == null || chatResponse.getResult() == null || chatResponse.getResult().getOutput().getText() == null) {
+      return 0;
+    }
+    return tokenizer.count(chatResponse.getResult().getOutput().getText());
+  }
+
+  private static Integer totalTokens(Usage usage) {
+    return usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() <= 0 ? null : usage.getTotalTokens();
+  }
+}
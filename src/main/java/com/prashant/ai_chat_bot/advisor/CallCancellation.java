@@ -0,0 +1,45 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Tells call advisors that the routing layer cancelled the attempt they run in
+ * (a timeout or a losing hedge), so a cancelled call is not mistaken for a failed
+ * one. The thread's interrupt flag is no signal for that: not every scheduler
+ * interrupts, and any code on the way may clear the flag.
+ *
+ * ProviderRoutingService runs each blocking attempt inside {@link #run} and sets
+ * the flag before it cancels the attempt; advisors read it with
+ * {@link #isCancelled()} on the attempt's thread. Streams need none of this, they
+ * see the cancel signal itself.
+ */
+public final class CallCancellation {
+
+  private static final ThreadLocal<AtomicBoolean> CURRENT = new ThreadLocal<>();
+
+  private CallCancellation() {
+  }
+
+  public static <T> T run(AtomicBoolean cancelled, Supplier<T> call) {
+    AtomicBoolean previous = CURRENT.get();
+    CURRENT.set(cancelled);
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return true if the attempt running on this thread was cancelled by the routing layer
+   */
+  public static boolean isCancelled() {
+    AtomicBoolean cancelled = CURRENT.get();
+    return cancelled != null && cancelled.get();
+  }
+}
@@ -0,0 +1,307 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics and trace spans for every provider call, tagged with provider, model
+ * and endpoint (the matched request mapping, e.g. /chatmodel/chat):
+ * - llm.client.requests: an Observation per call or stream, so a timer with
+ *   mode (call/stream) and outcome (success/error/cancelled) tags, and a span
+ *   when a tracing bridge is on the classpath (child of the HTTP request span)
+ * - llm.client.time.to.first.token, llm.client.inter.token.latency: histograms for
+ *   streams, measured on chunks that carry text
+ * - llm.client.tokens: input and output tokens (type tag), as reported by the
+ *   provider; without reported usage, the provider's {@link Tokenizer} estimates
+ *   the prompt and one streamed chunk counts as one output token. type=cached
+ *   counts the input tokens served from the provider's prompt cache
+ * - the prompt_cache tag of llm.client.requests (hit/miss/none when not reported)
+ *   splits latency by whether the provider reused a cached prompt prefix
+ *
+ * ORDERING: innermost advisor, inside admission control, so the timers measure
+ * the provider and not the admission queue or cache hits.
+ *
+ * HOT PATH: per streamed chunk, one System.nanoTime() and one histogram record
+ * on meters looked up once per request. Observations, tags and token counts are
+ * handled once per request.
+ *
+ * ENDPOINT: the request mapping of the servlet request; streams get it through
+ * {@link #withRequestContext}, since their advisors run on other threads. Calls
+ * outside a servlet request (reactive deployment, background work) get the
+ * {@link #ENDPOINT} advisor param, or "none".
+ */
+public class ObservabilityAdvisor implements CallAdvisor, StreamAdvisor {
+
+  public static final String ENDPOINT = "observability_endpoint";
+
+  static final String REQUESTS = "llm.client.requests";
+  static final String TIME_TO_FIRST_TOKEN = "llm.client.time.to.first.token";
+  static final String INTER_TOKEN_LATENCY = "llm.client.inter.token.latency";
+  static final String TOKENS = "llm.client.tokens";
+
+  private static final String NONE = "none";
+  private static final String PARENT_OBSERVATION = ObservabilityAdvisor.class.getName() + ".parent";
+
+  private final MeterRegistry meterRegistry;
+  private final ObservationRegistry observationRegistry;
+  private final String provider;
+  private final String model;
+  private final Tokenizer tokenizer;
+  //endpoints are request mappings, so these stay as small as the set of routes
+  private final Map<String, EndpointMeters> meters = new ConcurrentHashMap<>();
+  //histograms only for endpoints that stream
+  private final Map<String, StreamMeters> streamMeters = new ConcurrentHashMap<>();
+
+  public ObservabilityAdvisor(MeterRegistry meterRegistry, ObservationRegistry observationRegistry, String provider,
+      String model, Tokenizer tokenizer) {
+    this.meterRegistry = meterRegistry;
+    this.observationRegistry = observationRegistry;
+    this.provider = provider;
+    this.model = model == null || model.isBlank() ? NONE : model;
+    this.tokenizer = tokenizer;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    String endpoint = endpoint(request);
+    Observation observation = observation(endpoint, "call", observationRegistry.getCurrentObservation()).start();
+    ChatClientResponse response;
+    try (Observation.Scope scope = observation.openScope()) {
+      response = chain.nextCall(request);
+    } catch (RuntimeException e) {
+      observation.error(e);
+      //a hedge loser or timed out attempt, as flagged by the routing layer
+      stop(observation, CallCancellation.isCancelled() ? "cancelled" : "error", null);
+      throw e;
+    }
+    ChatResponse chatResponse = response.chatResponse();
+    Usage usage = chatResponse == null ? null : chatResponse.getMetadata().getUsage();
+    stop(observation, "success", usage);
+
+    String text = chatResponse == null || chatResponse.getResult() == null
+      ? null : chatResponse.getResult().getOutput().getText();
+    recordTokens(meters(endpoint), request, usage, -1, text);
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return Flux.deferContextual(context -> {
+      //stream advisors run on other threads than the request, see withRequestContext
+      String endpoint = context.hasKey(ENDPOINT) ? context.get(ENDPOINT)
+        : request.context().get(ENDPOINT) instanceof String param ? param : NONE;
+      EndpointMeters endpointMeters = meters(endpoint);
+      Observation parent = context.getOrDefault(PARENT_OBSERVATION, observationRegistry.getCurrentObservation());
+      Observation observation = observation(endpoint, "stream", parent).start();
+      StreamTimings timings = new StreamTimings(streamMeters(endpoint));
+      //one operator for all signals; each is recorded before it travels on, so metrics
+      //are complete when the caller sees the end
+      return chain.nextStream(request)
+        .doOnEach(signal -> {
+          switch (signal.getType()) {
+            case ON_NEXT -> timings.onChunk(signal.get());
+            case ON_COMPLETE -> {
+              stop(observation, "success", timings.usage);
+              recordTokens(endpointMeters, request, timings.usage, timings.chunks, null);
+            }
+            case ON_ERROR -> {
+              observation.error(signal.getThrowable());
+              stop(observation, "error", null);
+            }
+            default -> {
+            }
+          }
+        })
+        //a cancelled stream was still processed by the provider up to that point
+        .doOnCancel(() -> {
+          stop(observation, "cancelled", timings.usage);
+          recordTokens(endpointMeters, request, timings.usage, timings.chunks, null);
+        });
+    });
+  }
+
+  /**
+   * Carries the request mapping (the endpoint tag) and the current observation
+   * (the parent of the stream's span) to the stream advisors, which run on the
+   * threads of the memory and admission advisors. Call on the request thread.
+   */
+  public static <T> Flux<T> withRequestContext(Flux<T> stream) {
+    String mapping = requestMapping();
+    return stream
+      .contextWrite(context -> {
+        //the advisor chain replaces the current observation with its own for each advisor
+        Context withParent = context.hasKey(ObservationThreadLocalAccessor.KEY)
+          ? context.put(PARENT_OBSERVATION, context.get(ObservationThreadLocalAccessor.KEY)) : context;
+        return mapping == null ? withParent : withParent.put(ENDPOINT, mapping);
+      })
+      //the servlet request's observation is a thread local
+      .contextCapture();
+  }
+
+  @Override
+  public String getName() {
+    return "ObservabilityAdvisor";
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE - 1;
+  }
+
+  private Observation observation(String endpoint, String mode, Observation parent) {
+    Observation observation = Observation.createNotStarted(REQUESTS, observationRegistry)
+      .contextualName("llm " + mode + " " + provider)
+      .lowCardinalityKeyValue("provider", provider)
+      .lowCardinalityKeyValue("model", model)
+      .lowCardinalityKeyValue("endpoint", endpoint)
+      .lowCardinalityKeyValue("mode", mode);
+    //a no-op parent (e.g. the advisor chain's own, when ChatClient observations are off) would hide the request span
+    if (parent != null && !parent.isNoop()) {
+      observation.parentObservation(parent);
+    }
+    return observation;
+  }
+
+  private static void stop(Observation observation, String outcome, Usage usage) {
+    int cachedTokens = UsageTokens.cachedTokens(usage);
+    observation.lowCardinalityKeyValue("outcome", outcome);
+    observation.lowCardinalityKeyValue("prompt_cache", cachedTokens > 0 ? "hit" : cachedTokens == 0 ? "miss" : NONE);
+    observation.stop();
+  }
+
+  private void recordTokens(EndpointMeters endpointMeters, ChatClientRequest request, Usage usage, int chunks,
+      String text) {
+    endpointMeters.inputTokens.increment(UsageTokens.inputTokens(usage,
+      () -> UsageTokens.promptTokens(request, tokenizer)));
+    endpointMeters.outputTokens.increment(UsageTokens.outputTokens(usage,
+      () -> chunks >= 0 ? chunks : tokenizer.count(text)));
+    int cachedTokens = UsageTokens.cachedTokens(usage);
+    if (cachedTokens > 0) {
+      endpointMeters.cachedTokens.increment(cachedTokens);
+    }
+  }
+
+  private static String endpoint(ChatClientRequest request) {
+    String mapping = requestMapping();
+    if (mapping != null) {
+      return mapping;
+    }
+    return request.context().get(ENDPOINT) instanceof String endpoint ? endpoint : NONE;
+  }
+
+  //the matched mapping of the servlet request bound to this thread, if any
+  private static String requestMapping() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes != null && attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+        RequestAttributes.SCOPE_REQUEST) instanceof String pattern) {
+      return pattern;
+    }
+    return null;
+  }
+
+  private EndpointMeters meters(String endpoint) {
+    EndpointMeters endpointMeters = meters.get(endpoint);
+    return endpointMeters != null ? endpointMeters : meters.computeIfAbsent(endpoint, this::register);
+  }
+
+  private StreamMeters streamMeters(String endpoint) {
+    StreamMeters meters = streamMeters.get(endpoint);
+    return meters != null ? meters : streamMeters.computeIfAbsent(endpoint, this::registerStream);
+  }
+
+  private EndpointMeters register(String endpoint) {
+    return new EndpointMeters(tokens(endpoint, "input"), tokens(endpoint, "output"), tokens(endpoint, "cached"));
+  }
+
+  private StreamMeters registerStream(String endpoint) {
+    return new StreamMeters(
+      Timer.builder(TIME_TO_FIRST_TOKEN)
+        .description("Time from the start of a stream to its first token")
+        .tags("provider", provider, "model", model, "endpoint", endpoint)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(10))
+        .maximumExpectedValue(Duration.ofSeconds(60))
+        .register(meterRegistry),
+      Timer.builder(INTER_TOKEN_LATENCY)
+        .description("Time between two streamed chunks")
+        .tags("provider", provider, "model", model, "endpoint", endpoint)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofSeconds(10))
+        .register(meterRegistry));
+  }
+
+  private Counter tokens(String endpoint, String type) {
+    return Counter.builder(TOKENS)
+      .baseUnit("tokens")
+      .tags("provider", provider, "model", model, "endpoint", endpoint, "type", type)
+      .register(meterRegistry);
+  }
+
+  private record EndpointMeters(Counter inputTokens, Counter outputTokens, Counter cachedTokens) {
+  }
+
+  private record StreamMeters(Timer timeToFirstToken, Timer interTokenLatency) {
+  }
+
+  //one per stream; reactive streams signal serially, so plain fields are enough
+  private static final class StreamTimings {
+
+    private final StreamMeters meters;
+    private final long start = System.nanoTime();
+    private long last;
+    private int chunks;
+    private Usage usage;
+
+    private StreamTimings(StreamMeters meters) {
+      this.meters = meters;
+    }
+
+    private void onChunk(ChatClientResponse chunk) {
+      ChatResponse chatResponse = chunk.chatResponse();
+      if (chatResponse == null) {
+        return;
+      }
+      Usage chunkUsage = chatResponse.getMetadata().getUsage();
+      if (UsageTokens.isReported(chunkUsage)) {
+        usage = chunkUsage;
+      }
+      //role-only and usage-only chunks carry no text
+      if (chatResponse.getResult() == null || chatResponse.getResult().getOutput().getText() == null
+          || chatResponse.getResult().getOutput().getText().isEmpty()) {
+        return;
+      }
+      long now = System.nanoTime();
+      if (chunks++ == 0) {
+        meters.timeToFirstToken.record(now - start, TimeUnit.NANOSECONDS);
+      } else {
+        meters.interTokenLatency.record(now - last, TimeUnit.NANOSECONDS);
+      }
+      last = now;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.prashant.ai_chat_bot.utils.PromptFingerprint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size and TTL bounded store of LLM responses shared by all provider clients.
+ *
+ * Two lookup tiers:
+ * 1. EXACT: hash of provider, model, options and the normalized prompt
+ * 2. SEMANTIC (optional): single-turn prompts whose context hash matches and whose
+ *    last user message embedding is at least similarity-threshold close
+ *
+ * The semantic tier is only consulted for prompts without conversation history,
+ * because two similar questions asked in different conversations can legitimately
+ * need different answers.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+  public enum Result { HIT_EXACT, HIT_SEMANTIC, MISS, BYPASS }
+
+  private final boolean enabled;
+  private final Cache<String, ChatResponse> responses;
+  private final Map<String, SemanticEntry> semanticIndex = new ConcurrentHashMap<>();
+  private final EmbeddingModel embeddingModel;
+  private final double similarityThreshold;
+  private final MeterRegistry meterRegistry;
+
+  public ResponseCache(MeterRegistry meterRegistry,
+      ObjectProvider<EmbeddingModel> embeddingModel,
+      @Value("${app.ai.response-cache.enabled:false}") boolean enabled,
+      @Value("${app.ai.response-cache.max-entries:10000}") long maxEntries,
+      @Value("${app.ai.response-cache.ttl:PT30M}") Duration ttl,
+      @Value("${app.ai.response-cache.semantic.enabled:false}") boolean semanticEnabled,
+      @Value("${app.ai.response-cache.semantic.similarity-threshold:0.95}") double similarityThreshold) {
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    this.similarityThreshold = similarityThreshold;
+    this.embeddingModel = semanticEnabled ? embeddingModel.getIfAvailable() : null;
+    if (semanticEnabled && this.embeddingModel == null) {
+      log.warn("Semantic response cache requested but no EmbeddingModel is available, using exact tier only");
+    }
+    this.responses = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(ttl)
+      //eviction listener runs synchronously, so the semantic index never outlives its entry
+      .evictionListener((String key, ChatResponse value, RemovalCause cause) ->
+        semanticIndex.remove(key))
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, responses, "llm-response-cache");
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public Optional<ChatResponse> get(String provider, PromptFingerprint fingerprint) {
+    ChatResponse exact = responses.getIfPresent(fingerprint.key());
+    if (exact != null) {
+      record(provider, Result.HIT_EXACT);
+      return Optional.of(exact);
+    }
+    if (embeddingModel != null && fingerprint.singleTurn() && fingerprint.lastUserText() != null) {
+      Optional<ChatResponse> similar = findSimilar(fingerprint);
+      if (similar.isPresent()) {
+        record(provider, Result.HIT_SEMANTIC);
+        return similar;
+      }
+    }
+    record(provider, Result.MISS);
+    return Optional.empty();
+  }
+
+  public void put(PromptFingerprint fingerprint, ChatResponse response) {
+    responses.put(fingerprint.key(), response);
+    if (embeddingModel != null && fingerprint.singleTurn() && fingerprint.lastUserText() != null) {
+      try {
+        semanticIndex.put(fingerprint.key(),
+          new SemanticEntry(fingerprint.contextKey(), embeddingModel.embed(fingerprint.lastUserText())));
+      } catch (RuntimeException e) {
+        log.warn("Failed to embed prompt for semantic cache, keeping exact entry only", e);
+      }
+    }
+  }
+
+  public void recordBypass(String provider) {
+    record(provider, Result.BYPASS);
+  }
+
+  private Optional<ChatResponse> findSimilar(PromptFingerprint fingerprint) {
+    float[] query;
+    try {
+      query = embeddingModel.embed(fingerprint.lastUserText());
+    } catch (RuntimeException e) {
+      log.warn("Failed to embed prompt for semantic cache lookup", e);
+      return Optional.empty();
+    }
+    for (Map.Entry<String, SemanticEntry> entry : semanticIndex.entrySet()) {
+      SemanticEntry candidate = entry.getValue();
+      if (candidate.contextKey().equals(fingerprint.contextKey())
+        && cosine(query, candidate.embedding()) >= similarityThreshold) {
+        ChatResponse similar = responses.getIfPresent(entry.getKey());
+        if (similar != null) {
+          return Optional.of(similar);
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private void record(String provider, Result result) {
+    Counter.builder("llm.cache.lookups")
+      .description("Response cache lookups by provider and outcome")
+      .tag("provider", provider)
+      .tag("result", result.name().toLowerCase())
+      .register(meterRegistry)
+      .increment();
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    if (a.length != b.length) {
+      return -1;
+    }
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? -1 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+  }
+
+  private record SemanticEntry(String contextKey, float[] embedding) {
+  }
+}
@@ -0,0 +1,116 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.utils.PromptFingerprint;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves repeated prompts from {@link ResponseCache} instead of calling the provider.
+ *
+ * ORDERING: runs right after the chat memory advisor, so the prompt it sees
+ * already contains the conversation history. The cache key therefore includes
+ * the memory state and a cached answer is only reused when the whole context
+ * the model would see is identical.
+ *
+ * Callers skip the cache by setting the {@link #BYPASS} advisor param. Every
+ * endpoint that calls a provider binds the x-cache-bypass header and passes it
+ * down to that param; it travels with the request, so it works on both web
+ * stacks and on whatever thread the advisor runs.
+ */
+public class ResponseCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+  public static final String BYPASS = "response_cache_bypass";
+
+  private final ResponseCache responseCache;
+  private final String provider;
+  private final String model;
+
+  public ResponseCacheAdvisor(ResponseCache responseCache, String provider, String model) {
+    this.responseCache = responseCache;
+    this.provider = provider;
+    this.model = model;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    if (isBypassed(request)) {
+      responseCache.recordBypass(provider);
+      return chain.nextCall(request);
+    }
+    PromptFingerprint fingerprint = PromptFingerprint.of(provider, model, request);
+    Optional<ChatResponse> cached = responseCache.get(provider, fingerprint);
+    if (cached.isPresent()) {
+      return ChatClientResponse.builder().chatResponse(cached.get()).context(request.context()).build();
+    }
+    ChatClientResponse response = chain.nextCall(request);
+    if (isCacheable(response.chatResponse())) {
+      responseCache.put(fingerprint, response.chatResponse());
+    }
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    if (isBypassed(request)) {
+      responseCache.recordBypass(provider);
+      return chain.nextStream(request);
+    }
+    return Flux.defer(() -> {
+      PromptFingerprint fingerprint = PromptFingerprint.of(provider, model, request);
+      Optional<ChatResponse> cached = responseCache.get(provider, fingerprint);
+      if (cached.isPresent()) {
+        return Flux.just(ChatClientResponse.builder().chatResponse(cached.get()).context(request.context()).build());
+      }
+      StringBuilder aggregated = new StringBuilder();
+      return chain.nextStream(request)
+        .doOnNext(chunk -> appendText(aggregated, chunk.chatResponse()))
+        //only completed streams are stored; a cancelled stream is a partial answer
+        .doOnComplete(() -> {
+          if (!aggregated.isEmpty()) {
+            responseCache.put(fingerprint,
+              new ChatResponse(List.of(new Generation(new AssistantMessage(aggregated.toString())))));
+          }
+        });
+    });
+  }
+
+  @Override
+  public String getName() {
+    return "ResponseCacheAdvisor";
+  }
+
+  @Override
+  public int getOrder() {
+    return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+  }
+
+  private boolean isBypassed(ChatClientRequest request) {
+    return !responseCache.isEnabled() || Boolean.TRUE.equals(request.context().get(BYPASS));
+  }
+
+  private static boolean isCacheable(ChatResponse response) {
+    return response != null
+      && response.getResult() != null
+      && !response.hasToolCalls()
+      && response.getResult().getOutput().getText() != null
+      && !response.getResult().getOutput().getText().isBlank();
+  }
+
+  private static void appendText(StringBuilder aggregated, ChatResponse chunk) {
+    if (chunk != null && chunk.getResult() != null && chunk.getResult().getOutput().getText() != null) {
+      aggregated.append(chunk.getResult().getOutput().getText());
+    }
+  }
+}
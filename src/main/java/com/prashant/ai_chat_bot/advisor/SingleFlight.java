@@ -0,0 +1,68 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Identical provider calls in flight right now, shared by all provider clients.
+ * {@link SingleFlightAdvisor} lets the first request (the leader) call the
+ * provider and every identical request that arrives before it ends (a follower)
+ * wait for the same answer, or subscribe to the same stream.
+ *
+ * Entries live only while their call runs; answers that should outlive the call
+ * belong in {@link ResponseCache}.
+ *
+ * METRICS: llm.singleflight.requests (tags provider, mode: call or stream, role:
+ * leader or follower). The collapse ratio is followers / (leaders + followers).
+ * llm.singleflight.inflight is the number of shared calls running.
+ */
+@Component
+public class SingleFlight {
+
+  public enum Role { LEADER, FOLLOWER }
+
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, CompletableFuture<ChatClientResponse>> calls = new ConcurrentHashMap<>();
+  private final Map<String, Flux<ChatClientResponse>> streams = new ConcurrentHashMap<>();
+
+  public SingleFlight(MeterRegistry meterRegistry,
+      @Value("${app.ai.single-flight.enabled:false}") boolean enabled) {
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("llm.singleflight.inflight", this, singleFlight -> singleFlight.calls.size() + singleFlight.streams.size())
+      .description("Provider calls currently shared by identical requests")
+      .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  Map<String, CompletableFuture<ChatClientResponse>> calls() {
+    return calls;
+  }
+
+  Map<String, Flux<ChatClientResponse>> streams() {
+    return streams;
+  }
+
+  void record(String provider, String mode, Role role) {
+    Counter.builder("llm.singleflight.requests")
+      .description("Requests that called the provider (leader) or shared an identical call (follower)")
+      .tag("provider", provider)
+      .tag("mode", mode)
+      .tag("role", role.name().toLowerCase())
+      .register(meterRegistry)
+      .increment();
+  }
+}
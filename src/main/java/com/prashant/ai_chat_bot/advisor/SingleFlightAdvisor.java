@@ -0,0 +1,169 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.exception.AdmissionRejectedException;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import com.prashant.ai_chat_bot.utils.PromptFingerprint;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collapses identical in-flight requests into one provider call (see {@link SingleFlight}).
+ *
+ * Requests are identical when their {@link PromptFingerprint} key matches:
+ * provider, model, options, output format and the rendered prompt. Only requests
+ * without a conversation are collapsed; a conversation's turns always get their
+ * own call.
+ *
+ * - CALL: followers block until the leader's call ends and get its response.
+ * - STREAM: followers subscribe to the leader's stream and first receive the chunks
+ *   already streamed, so every SSE client gets the whole answer. The provider
+ *   stream is only cancelled when every subscriber has cancelled.
+ * A provider error reaches every request, and each fails over on its own. What
+ * only concerns the leader does not: when it was cancelled by the routing layer
+ * (a hedge loser or a timeout) or rejected by its own token budget or by admission
+ * control, followers run the rest of the chain themselves, with their own budget
+ * and admission checks.
+ *
+ * ORDERING: after the memory and cache advisors, so cache hits never wait for a
+ * leader; outside usage and admission control, so a follower is neither queued
+ * nor charged tokens it does not cause.
+ */
+public class SingleFlightAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private static final String CALL = "call";
+  private static final String STREAM = "stream";
+
+  private final SingleFlight singleFlight;
+  private final String provider;
+  private final String model;
+
+  public SingleFlightAdvisor(SingleFlight singleFlight, String provider, String model) {
+    this.singleFlight = singleFlight;
+    this.provider = provider;
+    this.model = model;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    String key = key(request);
+    if (key == null) {
+      return chain.nextCall(request);
+    }
+    CompletableFuture<ChatClientResponse> flight = new CompletableFuture<>();
+    CompletableFuture<ChatClientResponse> leader = singleFlight.calls().putIfAbsent(key, flight);
+    if (leader != null) {
+      singleFlight.record(provider, CALL, SingleFlight.Role.FOLLOWER);
+      //null: the leader's outcome does not apply to this request
+      ChatClientResponse shared = await(leader);
+      return shared == null ? chain.nextCall(request) : withContext(shared, request);
+    }
+
+    singleFlight.record(provider, CALL, SingleFlight.Role.LEADER);
+    try {
+      ChatClientResponse response = chain.nextCall(request);
+      flight.complete(response);
+      return response;
+    } catch (RuntimeException | Error e) {
+      if (CallCancellation.isCancelled() || isLeaderRejection(e)) {
+        flight.complete(null);
+      } else {
+        flight.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      singleFlight.calls().remove(key, flight);
+    }
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return Flux.defer(() -> {
+      String key = key(request);
+      if (key == null) {
+        return chain.nextStream(request);
+      }
+      Flux<ChatClientResponse> flight = share(key, Flux.defer(() -> chain.nextStream(request)));
+      Flux<ChatClientResponse> leader = singleFlight.streams().putIfAbsent(key, flight);
+      if (leader == null) {
+        singleFlight.record(provider, STREAM, SingleFlight.Role.LEADER);
+        return flight;
+      }
+      singleFlight.record(provider, STREAM, SingleFlight.Role.FOLLOWER);
+      //rejections come before the first chunk, so nothing was relayed yet
+      return leader
+        .map(chunk -> withContext(chunk, request))
+        .onErrorResume(SingleFlightAdvisor::isLeaderRejection, error -> chain.nextStream(request));
+    });
+  }
+
+  @Override
+  public String getName() {
+    return "SingleFlightAdvisor";
+  }
+
+  @Override
+  public int getOrder() {
+    return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 200;
+  }
+
+  //null when the request is not collapsed
+  private String key(ChatClientRequest request) {
+    if (!singleFlight.isEnabled() || request.context().containsKey(ChatMemory.CONVERSATION_ID)) {
+      return null;
+    }
+    PromptFingerprint fingerprint = PromptFingerprint.of(provider, model, request);
+    return fingerprint.singleTurn() ? fingerprint.key() : null;
+  }
+
+  //limits of the leader's client or of the admission queue at that moment, not an answer for others
+  private static boolean isLeaderRejection(Throwable error) {
+    return error instanceof TokenBudgetExceededException || error instanceof AdmissionRejectedException;
+  }
+
+  //replays what was streamed so far to late subscribers; the entry goes as soon as the stream ends
+  private Flux<ChatClientResponse> share(String key, Flux<ChatClientResponse> stream) {
+    AtomicReference<Flux<ChatClientResponse>> self = new AtomicReference<>();
+    Flux<ChatClientResponse> shared = stream
+      .doOnTerminate(() -> singleFlight.streams().remove(key, self.get()))
+      .doOnCancel(() -> singleFlight.streams().remove(key, self.get()))
+      .replay()
+      .refCount();
+    self.set(shared);
+    return shared;
+  }
+
+  private static ChatClientResponse await(CompletableFuture<ChatClientResponse> leader) {
+    try {
+      return leader.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      CancellationException cancelled = new CancellationException("Interrupted while waiting for an identical request");
+      cancelled.initCause(e);
+      throw cancelled;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static ChatClientResponse withContext(ChatClientResponse shared, ChatClientRequest request) {
+    return ChatClientResponse.builder().chatResponse(shared.chatResponse()).context(request.context()).build();
+  }
+}
@@ -0,0 +1,216 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.usage.UsageLedger;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import io.micrometer.context.ContextRegistry;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+
+import java.util.function.Supplier;
+
+/**
+ * Checks each provider call against the {@link UsageLedger} token budgets before
+ * it is sent, and records the usage of the call in the ledger once it ends.
+ *
+ * ORDERING: after the memory and cache advisors, so the estimate covers the
+ * history that is actually sent and cache hits cost nothing; outside admission
+ * control, so a request over budget never waits in an admission queue. The prompt
+ * count is passed on to the inner advisors (see {@link UsageTokens}).
+ *
+ * CLIENT: the x-api-key header of the request. On the servlet stack it is read
+ * through RequestContextHolder, and streams get it through {@link #withClient(Flux)},
+ * since their advisors run on other threads. WebFlux has no RequestContextHolder:
+ * a web filter puts the client into the Reactor context ({@link #withClient(Context, String)}),
+ * where stream advisors read it, and automatic context propagation restores it as a
+ * thread local for blocking handlers. ProviderRoutingService carries it to the
+ * threads of routed calls ({@link #callWithClient}). Calls outside a request can
+ * set the {@link #API_KEY} advisor param.
+ *
+ * USAGE: what the provider reports; without it, the prompt estimate and the
+ * answer counted with the provider's {@link Tokenizer} (streams: one token per
+ * chunk). A failed call gives its reservation back without usage, a cancelled
+ * stream records what was streamed until then.
+ */
+public class UsageAdvisor implements CallAdvisor, StreamAdvisor {
+
+  public static final String API_KEY = "usage_api_key";
+
+  private static final String CLIENT_ID = UsageAdvisor.class.getName() + ".client";
+  private static final ThreadLocal<String> CURRENT_CLIENT = new ThreadLocal<>();
+
+  static {
+    ContextRegistry.getInstance().registerThreadLocalAccessor(CLIENT_ID, CURRENT_CLIENT::get, CURRENT_CLIENT::set,
+      CURRENT_CLIENT::remove);
+  }
+
+  private final UsageLedger ledger;
+  private final String provider;
+  private final Tokenizer tokenizer;
+  private final int responseTokens;
+
+  public UsageAdvisor(UsageLedger ledger, String provider, Tokenizer tokenizer, Integer maxTokens) {
+    this.ledger = ledger;
+    this.provider = provider;
+    this.tokenizer = tokenizer;
+    this.responseTokens = maxTokens == null ? 0 : maxTokens;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    int promptTokens = UsageTokens.promptTokens(request, tokenizer);
+    UsageLedger.Reservation reservation = ledger.reserve(client(request), conversationId(request),
+      promptTokens + responseTokens);
+    ChatClientResponse response;
+    try {
+      response = chain.nextCall(UsageTokens.withPromptTokens(request, promptTokens));
+    } catch (RuntimeException e) {
+      ledger.release(reservation);
+      throw e;
+    }
+    ChatResponse chatResponse = response.chatResponse();
+    Usage usage = chatResponse == null ? null : chatResponse.getMetadata().getUsage();
+    ledger.record(reservation, provider, UsageTokens.inputTokens(usage, () -> promptTokens),
+      UsageTokens.outputTokens(usage, () -> chatResponse == null || chatResponse.getResult() == null
+        ? 0 : tokenizer.count(chatResponse.getResult().getOutput().getText())));
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return Flux.deferContextual(context -> {
+      //stream advisors run on other threads than the request, see withClient
+      String client = context.hasKey(CLIENT_ID) ? context.get(CLIENT_ID) : client(request);
+      int promptTokens = UsageTokens.promptTokens(request, tokenizer);
+      UsageLedger.Reservation reservation = ledger.reserve(client, conversationId(request),
+        promptTokens + responseTokens);
+      StreamUsage streamed = new StreamUsage();
+      return chain.nextStream(UsageTokens.withPromptTokens(request, promptTokens))
+        .doOnEach(signal -> {
+          switch (signal.getType()) {
+            case ON_NEXT -> streamed.onChunk(signal.get());
+            case ON_COMPLETE -> record(reservation, promptTokens, streamed);
+            case ON_ERROR -> ledger.release(reservation);
+            default -> {
+            }
+          }
+        })
+        //the provider still processed the stream up to the cancel
+        .doOnCancel(() -> record(reservation, promptTokens, streamed));
+    });
+  }
+
+  /**
+   * Carries the client of the request to the stream advisors, which run on the
+   * threads of the memory and admission advisors. Call on the request thread.
+   */
+  public static <T> Flux<T> withClient(Flux<T> stream) {
+    String client = currentClient();
+    if (client == null) {
+      return stream;
+    }
+    return stream.contextWrite(context -> context.put(CLIENT_ID, client));
+  }
+
+  /**
+   * @return the context with the client of a WebFlux request, identified by its x-api-key header
+   */
+  public static Context withClient(Context context, String apiKey) {
+    return context.put(CLIENT_ID, UsageLedger.clientId(apiKey));
+  }
+
+  /**
+   * @return the client of the request handled on this thread, or null outside a request
+   */
+  public static String currentClient() {
+    String apiKey = servletApiKey();
+    return apiKey != null ? UsageLedger.clientId(apiKey) : CURRENT_CLIENT.get();
+  }
+
+  /**
+   * Runs a call on another thread than the request's as that request's client.
+   */
+  public static <T> T callWithClient(String client, Supplier<T> call) {
+    if (client == null) {
+      return call.get();
+    }
+    String previous = CURRENT_CLIENT.get();
+    CURRENT_CLIENT.set(client);
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        CURRENT_CLIENT.remove();
+      } else {
+        CURRENT_CLIENT.set(previous);
+      }
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "UsageAdvisor";
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE - 3;
+  }
+
+  private void record(UsageLedger.Reservation reservation, int promptTokens, StreamUsage streamed) {
+    ledger.record(reservation, provider, UsageTokens.inputTokens(streamed.usage, () -> promptTokens),
+      UsageTokens.outputTokens(streamed.usage, () -> streamed.chunks));
+  }
+
+  private static String client(ChatClientRequest request) {
+    String client = currentClient();
+    if (client != null) {
+      return client;
+    }
+    return UsageLedger.clientId(request.context().get(API_KEY) instanceof String param ? param : null);
+  }
+
+  private static String servletApiKey() {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+      return attributes.getRequest().getHeader(AIProviderConstants.API_KEY_HEADER);
+    }
+    return null;
+  }
+
+  private static String conversationId(ChatClientRequest request) {
+    return request.context().get(ChatMemory.CONVERSATION_ID) instanceof String conversationId ? conversationId : null;
+  }
+
+  //one per stream; reactive streams signal serially, so plain fields are enough
+  private static final class StreamUsage {
+
+    private int chunks;
+    private Usage usage;
+
+    private void onChunk(ChatClientResponse chunk) {
+      ChatResponse chatResponse = chunk.chatResponse();
+      if (chatResponse == null) {
+        return;
+      }
+      if (UsageTokens.isReported(chatResponse.getMetadata().getUsage())) {
+        usage = chatResponse.getMetadata().getUsage();
+      }
+      if (chatResponse.getResult() != null && chatResponse.getResult().getOutput().getText() != null
+          && !chatResponse.getResult().getOutput().getText().isEmpty()) {
+        chunks++;
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Token counts shared by the advisors around the model call.
+ *
+ * PROMPT: counted once per request with the provider's {@link Tokenizer}; the
+ * outermost advisor that needs it passes the count down the chain in the request
+ * context, so the inner ones do not encode the history again.
+ *
+ * USAGE: the prompt and completion tokens the provider reports, or the estimate
+ * (only computed then) when a provider reports none.
+ *
+ * CACHED: the prompt tokens served from the provider's prefix cache, from the
+ * prompt_tokens_details of the OpenAI-compatible usage; not every provider reports them.
+ */
+final class UsageTokens {
+
+  static final String PROMPT_TOKENS = "usage_prompt_tokens";
+
+  private UsageTokens() {
+  }
+
+  static int promptTokens(ChatClientRequest request, Tokenizer tokenizer) {
+    if (request.context().get(PROMPT_TOKENS) instanceof Integer counted) {
+      return counted;
+    }
+    int tokens = 0;
+    for (Message message : request.prompt().getInstructions()) {
+      tokens += tokenizer.count(message.getText());
+    }
+    return tokens;
+  }
+
+  static ChatClientRequest withPromptTokens(ChatClientRequest request, int promptTokens) {
+    return request.mutate().context(PROMPT_TOKENS, promptTokens).build();
+  }
+
+  //streams report usage on one chunk (usually the last), the others carry none or zeros
+  static boolean isReported(Usage usage) {
+    return usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0;
+  }
+
+  static int inputTokens(Usage usage, IntSupplier estimate) {
+    return usage != null && usage.getPromptTokens() != null && usage.getPromptTokens() > 0
+      ? usage.getPromptTokens() : estimate.getAsInt();
+  }
+
+  static int outputTokens(Usage usage, IntSupplier estimate) {
+    return usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0
+      ? usage.getCompletionTokens() : estimate.getAsInt();
+  }
+
+  /**
+   * @return the prompt tokens the provider served from its prompt cache, or -1 when it does not report them
+   */
+  static int cachedTokens(Usage usage) {
+    if (usage != null && usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage
+        && nativeUsage.promptTokensDetails() != null && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+      return nativeUsage.promptTokensDetails().cachedTokens();
+    }
+    return -1;
+  }
+}
@@ -3,6 +3,9 @@ package com.prashant.ai_chat_bot.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "spring.ai")
@@ -17,5 +20,58 @@ public class AIProviderProperties {
     private String completionPath;
     private Double temperature;
     private Integer maxTokens;
+    private Integer contextWindow;
+    //system prompt resource; classpath:prompts/system-prompts/<name>-system.txt when unset
+    private String systemPrompt;
+    //jtokkit encoding (cl100k_base, o200k_base) or approximate; cl100k_base when unset
+    private String tokenizer;
+    //blended input/output price in USD, used by the auto router
+    private Double pricePer1kTokens;
+    //attempts inside one provider call before failing over (Spring AI retries up to 10 times by default)
+    private Integer maxAttempts;
+    //calls: whole response, streams: time to first token
+    private Duration timeout;
+    //providers tried in order when this one fails or times out
+    private List<String> failover = new ArrayList<>();
+    private Hedge hedge = new Hedge();
+    private Admission admission = new Admission();
+    private Http http = new Http();
+  }
+
+  @Data
+  public static class Hedge {
+    private boolean enabled;
+    //the hedge fires once the primary is slower than this latency percentile
+    private double percentile = 0.95;
+    //used until enough latency samples have been recorded
+    private Duration initialDelay = Duration.ofSeconds(2);
+    private Duration minDelay = Duration.ofMillis(50);
+  }
+
+  @Data
+  public static class Admission {
+    //null: no client-side limit
+    private Double requestsPerSecond;
+    private Integer tokensPerMinute;
+    //adaptive concurrency limit bounds
+    private int initialConcurrency = 8;
+    private int minConcurrency = 1;
+    private int maxConcurrency = 64;
+    //requests allowed to wait for admission; more are rejected immediately
+    private int maxQueue = 100;
+    private Duration maxWait = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class Http {
+    //HTTP/2 over TLS multiplexes concurrent calls on one connection; plain http base URLs always use HTTP/1.1
+    private boolean http2 = true;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    //time to the response headers; null: no limit beyond the routing timeout
+    private Duration readTimeout;
+    //connections opened when the provider's client is built, so the first requests skip the TCP and TLS handshakes
+    private int warmUpConnections;
+    //an idle provider is pinged this often so its connections are not closed by the server; null: never
+    private Duration keepWarmInterval;
   }
 }
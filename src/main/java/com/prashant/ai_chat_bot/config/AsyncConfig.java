@@ -0,0 +1,68 @@
+package com.prashant.ai_chat_bot.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Executors for blocking LLM work.
+ *
+ * VIRTUAL THREADS: with spring.threads.virtual.enabled=true on Java 21 (the java21
+ * Maven profile) the worker pool and the blocking scheduler start one virtual
+ * thread per task instead of borrowing from a fixed platform pool. On Java 17 the
+ * property has no effect and the platform pools below are used.
+ */
+@Configuration
+public class AsyncConfig {
+
+  public static final String LLM_TASK_EXECUTOR = "llmTaskExecutor";
+  public static final String LLM_BLOCKING_SCHEDULER = "llmBlockingScheduler";
+
+  //LLM calls are blocking I/O, so the pool is sized for waiting threads rather than CPU cores
+  @Bean(LLM_TASK_EXECUTOR)
+  public AsyncTaskExecutor llmTaskExecutor(Environment environment,
+      @Value("${app.ai.async.core-pool-size:16}") int corePoolSize,
+      @Value("${app.ai.async.max-pool-size:64}") int maxPoolSize,
+      @Value("${app.ai.async.queue-capacity:500}") int queueCapacity) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      //threads are cheap, but the cap on running plus queued tasks stays the same, and so does the rejection
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("llm-");
+      executor.setVirtualThreads(true);
+      executor.setConcurrencyLimit(maxPoolSize + queueCapacity);
+      executor.setRejectTasksWhenLimitReached(true);
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(maxPoolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("llm-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Reactor scheduler for blocking provider calls that need a timer or run in
+   * parallel (routing attempts, admission waits in streams).
+   */
+  @Bean(LLM_BLOCKING_SCHEDULER)
+  public Scheduler llmBlockingScheduler(Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      //ExecutorService view so a cancelled attempt (timeout, hedge loser) interrupts its thread
+      return Schedulers.fromExecutorService(
+        new ExecutorServiceAdapter(new VirtualThreadTaskExecutor("llm-blocking-")), "llm-blocking");
+    }
+    return Schedulers.boundedElastic();
+  }
+}
@@ -0,0 +1,21 @@
+package com.prashant.ai_chat_bot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//policy of ai-provider: auto, see AdaptiveProviderRouter
+@ConfigurationProperties(prefix = "app.ai.routing.auto")
+@Data
+public class AutoRoutingProperties {
+  private List<String> candidates = new ArrayList<>(List.of("groq", "mistral", "gemini", "ollama"));
+  //0 = fastest provider, 1 = cheapest provider
+  private double costWeight = 0.3;
+  private double inFlightPenalty = 0.25;
+  private double explorationRate = 0.05;
+  //assumed latency of providers without samples
+  private Duration initialLatency = Duration.ofSeconds(2);
+}
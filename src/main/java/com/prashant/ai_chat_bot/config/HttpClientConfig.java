@@ -0,0 +1,40 @@
+package com.prashant.ai_chat_bot.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.http.client.ClientHttpRequestFactoryBuilderCustomizer;
+import org.springframework.boot.autoconfigure.http.client.reactive.ClientHttpConnectorBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.http.client.JdkClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.reactive.JdkClientHttpConnectorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * HTTP clients used for provider calls.
+ *
+ * Provider APIs are reached through the JDK HttpClient behind Boot's RestClient and
+ * WebClient builders. By default it hands off response handling to a cached platform
+ * thread pool; in virtual-thread mode those tasks run on virtual threads as well, so
+ * a slow provider ties up no platform threads at all.
+ *
+ * These customizers apply to the clients Boot builds (openai). The providers under
+ * spring.ai.providers get their own tuned client from {@link ProviderHttpClients}.
+ */
+@Configuration
+public class HttpClientConfig {
+
+  @Bean
+  @ConditionalOnThreading(Threading.VIRTUAL)
+  public ClientHttpRequestFactoryBuilderCustomizer<JdkClientHttpRequestFactoryBuilder> virtualThreadRequestFactory() {
+    return builder -> builder.withHttpClientCustomizer(
+      httpClient -> httpClient.executor(new VirtualThreadTaskExecutor("llm-http-")));
+  }
+
+  @Bean
+  @ConditionalOnThreading(Threading.VIRTUAL)
+  public ClientHttpConnectorBuilderCustomizer<JdkClientHttpConnectorBuilder> virtualThreadConnector() {
+    return builder -> builder.withHttpClientCustomizer(
+      httpClient -> httpClient.executor(new VirtualThreadTaskExecutor("llm-http-")));
+  }
+}
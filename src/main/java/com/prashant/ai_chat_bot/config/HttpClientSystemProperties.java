@@ -0,0 +1,36 @@
+package com.prashant.ai_chat_bot.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.time.Duration;
+
+/**
+ * JVM-wide settings of the JDK HttpClient connection pool, from app.ai.http:
+ * - keep-alive: how long idle HTTP/1.1 connections stay pooled
+ *   (jdk.httpclient.keepalive.timeout, 1200s by default)
+ * - idle-pool-size: idle connections kept per JVM, 0 = unbounded
+ *   (jdk.httpclient.connectionPoolSize)
+ *
+ * The JDK reads these system properties once, when the first HttpClient is built,
+ * so they are set here before the context creates any client. Values passed with
+ * -D on the command line win.
+ */
+public class HttpClientSystemProperties implements EnvironmentPostProcessor {
+
+  static final String KEEP_ALIVE = "jdk.httpclient.keepalive.timeout";
+  static final String POOL_SIZE = "jdk.httpclient.connectionPoolSize";
+
+  @Override
+  public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+    Duration keepAlive = environment.getProperty("app.ai.http.keep-alive", Duration.class);
+    if (keepAlive != null && System.getProperty(KEEP_ALIVE) == null) {
+      System.setProperty(KEEP_ALIVE, Long.toString(Math.max(1, keepAlive.toSeconds())));
+    }
+    Integer poolSize = environment.getProperty("app.ai.http.idle-pool-size", Integer.class);
+    if (poolSize != null && System.getProperty(POOL_SIZE) == null) {
+      System.setProperty(POOL_SIZE, poolSize.toString());
+    }
+  }
+}
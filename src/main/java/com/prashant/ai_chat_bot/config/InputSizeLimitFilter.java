@@ -0,0 +1,137 @@
+package com.prashant.ai_chat_bot.config;
+
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Rejects request bodies over app.ai.input.max-bytes with 413 before they are read
+ * (servlet deployment; the reactive profile sets spring.codec.max-in-memory-size
+ * to the same value).
+ *
+ * - a Content-Length over the limit is rejected without reading the body
+ * - a chunked body is counted while it is read, and reading fails with
+ *   {@link InputTooLargeException} at the first byte over the limit, so an
+ *   oversized body is never buffered in full by the message converters
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class InputSizeLimitFilter extends OncePerRequestFilter {
+
+  private final HandlerExceptionResolver exceptionResolver;
+  private final long maxBytes;
+
+  public InputSizeLimitFilter(@Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+      @Value("${app.ai.input.max-bytes:8MB}") DataSize maxBytes) {
+    this.exceptionResolver = exceptionResolver;
+    this.maxBytes = maxBytes.toBytes();
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    long contentLength = request.getContentLengthLong();
+    if (contentLength > maxBytes) {
+      //filters run outside the DispatcherServlet: hand the error to the @RestControllerAdvice
+      exceptionResolver.resolveException(request, response, null, new InputTooLargeException("bytes", maxBytes));
+      return;
+    }
+    chain.doFilter(contentLength < 0 ? new LimitedRequest(request, maxBytes) : request, response);
+  }
+
+  private static final class LimitedRequest extends HttpServletRequestWrapper {
+
+    private final long maxBytes;
+    private ServletInputStream inputStream;
+
+    private LimitedRequest(HttpServletRequest request, long maxBytes) {
+      super(request);
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+      if (inputStream == null) {
+        inputStream = new LimitedInputStream(super.getInputStream(), maxBytes);
+      }
+      return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+      String encoding = getCharacterEncoding();
+      Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+      return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+  }
+
+  private static final class LimitedInputStream extends ServletInputStream {
+
+    private final ServletInputStream delegate;
+    private final long maxBytes;
+    private long read;
+
+    private LimitedInputStream(ServletInputStream delegate, long maxBytes) {
+      this.delegate = delegate;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = delegate.read();
+      if (b != -1) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = delegate.read(buffer, offset, length);
+      if (n > 0) {
+        count(n);
+      }
+      return n;
+    }
+
+    private void count(int bytes) {
+      read += bytes;
+      if (read > maxBytes) {
+        throw new InputTooLargeException("bytes", maxBytes);
+      }
+    }
+
+    @Override
+    public boolean isFinished() {
+      return delegate.isFinished();
+    }
+
+    @Override
+    public boolean isReady() {
+      return delegate.isReady();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      delegate.setReadListener(readListener);
+    }
+  }
+}
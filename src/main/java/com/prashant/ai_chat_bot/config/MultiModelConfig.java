@@ -1,7 +1,30 @@
 package com.prashant.ai_chat_bot.config;
 
+import com.prashant.ai_chat_bot.admission.AdmissionControl;
+import com.prashant.ai_chat_bot.advisor.AdmissionControlAdvisor;
+import com.prashant.ai_chat_bot.advisor.ObservabilityAdvisor;
+import com.prashant.ai_chat_bot.advisor.ResponseCache;
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.advisor.SingleFlight;
+import com.prashant.ai_chat_bot.advisor.SingleFlightAdvisor;
+import com.prashant.ai_chat_bot.advisor.UsageAdvisor;
+import com.prashant.ai_chat_bot.memory.BoundedChatMemoryRepository;
+import com.prashant.ai_chat_bot.memory.ConversationCompactor;
+import com.prashant.ai_chat_bot.memory.ConversationLockingChatMemory;
+import com.prashant.ai_chat_bot.memory.ConversationOnlyChatMemory;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.memory.MappedLogChatMemoryRepository;
+import com.prashant.ai_chat_bot.memory.StripedChatMemoryRepository;
+import com.prashant.ai_chat_bot.memory.TokenWindowChatMemory;
+import com.prashant.ai_chat_bot.memory.WriteBehindChatMemory;
+import com.prashant.ai_chat_bot.service.ChatClientRegistry;
+import com.prashant.ai_chat_bot.service.TokenizerRegistry;
+import com.prashant.ai_chat_bot.usage.UsageLedger;
 import com.prashant.ai_chat_bot.utils.AIProviderConstants;
 import com.prashant.ai_chat_bot.utils.PromptReaderUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -11,123 +34,247 @@ import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 @Configuration
-@EnableConfigurationProperties(AIProviderProperties.class)
+@EnableConfigurationProperties({AIProviderProperties.class, AutoRoutingProperties.class})
+@Slf4j
 public class MultiModelConfig {
 
+  private static final String TOKEN_WINDOW_STRATEGY = "token-window";
+  private static final String MAPPED_LOG_STORE = "mapped-log";
+  private static final String PARALLEL_INITIALIZATION = "parallel";
+
   private final ResourceLoader resourceLoader;
+  private final ObjectProvider<RestClient.Builder> restClientBuilder;
+  private final ObjectProvider<WebClient.Builder> webClientBuilder;
+  private final ProviderHttpClients providerHttpClients;
+  private final Scheduler blockingScheduler;
+  private final TokenizerRegistry tokenizerRegistry;
+  private final UsageLedger usageLedger;
+  private final SingleFlight singleFlight;
+  private final ConversationTurns conversationTurns;
+  private final MeterRegistry meterRegistry;
+  private final ObservationRegistry observationRegistry;
   @Value("${app.ai.llm-logging.enabled:false}")
   private boolean llmLoggingEnabled;
 
+  @Value("${app.ai.observability.enabled:true}")
+  private boolean observabilityEnabled;
+
   @Value("${app.ai.chat-memory.enabled:false}")
   private boolean chatMemoryEnabled;
 
   @Value("${app.ai.chat-memory.max-messages:10}")
   private int chatMemoryMaxMessages;
 
-  public MultiModelConfig(ResourceLoader resourceLoader) {
+  @Value("${app.ai.chat-memory.strategy:message-window}")
+  private String chatMemoryStrategy;
+
+  @Value("${app.ai.chat-memory.token-window.max-history-tokens:8000}")
+  private int maxHistoryTokens;
+
+  @Value("${app.ai.chat-memory.token-window.default-context-window:8192}")
+  private int defaultContextWindow;
+
+  @Value("${app.ai.chat-memory.token-window.prompt-reserve-tokens:2048}")
+  private int promptReserveTokens;
+
+  public MultiModelConfig(ResourceLoader resourceLoader,
+      ObjectProvider<RestClient.Builder> restClientBuilder,
+      ObjectProvider<WebClient.Builder> webClientBuilder,
+      ProviderHttpClients providerHttpClients,
+      @Qualifier(AsyncConfig.LLM_BLOCKING_SCHEDULER) Scheduler blockingScheduler,
+      TokenizerRegistry tokenizerRegistry,
+      UsageLedger usageLedger,
+      SingleFlight singleFlight,
+      ConversationTurns conversationTurns,
+      MeterRegistry meterRegistry,
+      ObjectProvider<ObservationRegistry> observationRegistry) {
     this.resourceLoader = resourceLoader;
+    this.restClientBuilder = restClientBuilder;
+    this.webClientBuilder = webClientBuilder;
+    this.providerHttpClients = providerHttpClients;
+    this.blockingScheduler = blockingScheduler;
+    this.tokenizerRegistry = tokenizerRegistry;
+    this.usageLedger = usageLedger;
+    this.singleFlight = singleFlight;
+    this.conversationTurns = conversationTurns;
+    this.meterRegistry = meterRegistry;
+    this.observationRegistry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
   }
 
 
-  @Bean(AIProviderConstants.OPENAI)
-  @Primary
-  public ChatClient openAIChatClient(OpenAiChatModel openAiChatModel,
+  /**
+   * One lazily built ChatClient per configured provider: openai when Spring AI's
+   * OpenAI model is configured, plus every spring.ai.providers entry with a
+   * base-url and model. Providers that are not configured are simply absent.
+   *
+   * initialization: lazy builds each client on its first request; parallel builds
+   * them all before startup completes, on one thread per provider.
+   */
+  @Bean
+  public ChatClientRegistry chatClientRegistry(AIProviderProperties properties,
+      ObjectProvider<OpenAiChatModel> openAiChatModel,
       ChatMemory chatMemory,
-      @Value("${spring.ai.openai.chat.options.max-tokens:0}") Integer openAiMaxTokens) {
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/openai-system.txt", openAiMaxTokens);
-    return applyAdvisors(ChatClient.builder(openAiChatModel), chatMemory)
-        .defaultSystem(systemPrompt)
-        .build();
-  }
+      ResponseCache responseCache,
+      AdmissionControl admissionControl,
+      WriteBehindChatMemory writeBehindChatMemory,
+      @Value("${spring.ai.openai.chat.options.model:}") String openAiModel,
+      @Value("${spring.ai.openai.chat.options.max-tokens:0}") Integer openAiMaxTokens,
+      @Value("${app.ai.providers.initialization:lazy}") String initialization) {
+    Map<String, Supplier<ChatClient>> factories = new LinkedHashMap<>();
+    OpenAiChatModel openAiModelBean = openAiChatModel.getIfAvailable();
+    if (openAiModelBean != null) {
+      factories.put(AIProviderConstants.OPENAI, () -> applyAdvisors(ChatClient.builder(openAiModelBean),
+          writeBehindChatMemory.wrap(providerMemory(chatMemory, AIProviderConstants.OPENAI, null, openAiMaxTokens)),
+          responseCache, admissionControl, AIProviderConstants.OPENAI, openAiModel, openAiMaxTokens)
+        .defaultSystem(loadSystemPrompt(systemPromptLocation(AIProviderConstants.OPENAI, null), openAiMaxTokens))
+        .build());
+    }
+    if (properties.getProviders() != null) {
+      properties.getProviders().forEach((name, provider) -> {
+        if (!StringUtils.hasText(provider.getBaseUrl()) || !StringUtils.hasText(provider.getModel())) {
+          log.warn("Skipping provider {}: spring.ai.providers.{} needs base-url and model", name, name);
+          return;
+        }
+        Integer maxTokens = provider.getMaxTokens();
+        factories.put(name, () -> applyAdvisors(ChatClient.builder(createOpenAiCompatibleModel(name, provider)),
+            writeBehindChatMemory.wrap(providerMemory(chatMemory, name, provider.getContextWindow(), maxTokens)),
+            responseCache, admissionControl, name, provider.getModel(), maxTokens)
+          .defaultSystem(loadSystemPrompt(systemPromptLocation(name, provider), maxTokens))
+          .build());
+      });
+    }
+    log.info("Chat providers: {} ({} initialization)", factories.keySet(), initialization);
 
-  @Bean(AIProviderConstants.GEMINI)
-  public ChatClient geminiChatClient(AIProviderProperties properties, ChatMemory chatMemory) {
-    AIProviderProperties.Provider provider = requireProvider(properties, AIProviderConstants.GEMINI);
-    Integer maxTokens = provider.getMaxTokens();
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/gemini-system.txt", maxTokens);
-    return applyAdvisors(
-        ChatClient.builder(createOpenAiCompatibleModel(properties, AIProviderConstants.GEMINI))
-      , chatMemory)
-        .defaultSystem(systemPrompt)
-        .build();
+    ChatClientRegistry registry = new ChatClientRegistry(factories);
+    if (PARALLEL_INITIALIZATION.equals(initialization) && !factories.isEmpty()) {
+      ExecutorService executor = Executors.newFixedThreadPool(factories.size());
+      try {
+        registry.initializeAll(executor);
+      } finally {
+        executor.shutdown();
+      }
+    }
+    return registry;
   }
 
-  @Bean(AIProviderConstants.OLLAMA)
-  public ChatClient ollamaChatClient(AIProviderProperties properties, ChatMemory chatMemory) {
-    AIProviderProperties.Provider provider = requireProvider(properties, AIProviderConstants.OLLAMA);
-    Integer maxTokens = provider.getMaxTokens();
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/ollama-system.txt", maxTokens);
-    return applyAdvisors(
-        ChatClient.builder(createOpenAiCompatibleModel(properties, AIProviderConstants.OLLAMA))
-      , chatMemory)
-        .defaultSystem(systemPrompt)
-        .build();
+  @Bean
+  public StripedChatMemoryRepository chatMemoryRepository(
+      @Value("${app.ai.chat-memory.store.type:memory}") String storeType,
+      @Value("${app.ai.chat-memory.store.max-conversations:10000}") long maxConversations,
+      @Value("${app.ai.chat-memory.store.idle-ttl:PT2H}") Duration idleTtl,
+      @Value("${app.ai.chat-memory.store.lock-stripes:64}") int lockStripes,
+      @Value("${app.ai.chat-memory.store.mapped-log.directory:data/chat-memory}") Path logDirectory,
+      @Value("${app.ai.chat-memory.store.mapped-log.segment-size:64MB}") DataSize segmentSize,
+      @Value("${app.ai.chat-memory.store.mapped-log.compaction-dead-ratio:0.5}") double compactionDeadRatio,
+      @Value("${app.ai.chat-memory.store.mapped-log.compaction-interval:PT5M}") Duration compactionInterval,
+      @Value("${app.ai.chat-memory.store.mapped-log.flush-interval:PT1S}") Duration flushInterval) {
+    if (MAPPED_LOG_STORE.equals(storeType)) {
+      return new MappedLogChatMemoryRepository(logDirectory, Math.toIntExact(segmentSize.toBytes()), maxConversations,
+        idleTtl, lockStripes, compactionDeadRatio, compactionInterval, flushInterval);
+    }
+    return new BoundedChatMemoryRepository(maxConversations, idleTtl, lockStripes);
   }
 
-  @Bean(AIProviderConstants.GROQ)
-  public ChatClient groqChatClient(AIProviderProperties properties, ChatMemory chatMemory) {
-    AIProviderProperties.Provider provider = requireProvider(properties, AIProviderConstants.GROQ);
-    Integer maxTokens = provider.getMaxTokens();
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/groq-system.txt", maxTokens);
-    return applyAdvisors(
-        ChatClient.builder(createOpenAiCompatibleModel(properties, AIProviderConstants.GROQ))
-      , chatMemory)
-      .defaultSystem(systemPrompt)
-      .build();
+  //depends on the repository so pending writes are flushed before the repository closes
+  @Bean
+  @DependsOn("chatMemoryRepository")
+  public WriteBehindChatMemory writeBehindChatMemory(MeterRegistry meterRegistry,
+      @Value("${app.ai.chat-memory.write-behind.enabled:false}") boolean enabled,
+      @Value("${app.ai.chat-memory.write-behind.flush-timeout:PT10S}") Duration flushTimeout) {
+    return new WriteBehindChatMemory(blockingScheduler::schedule, enabled, flushTimeout, meterRegistry);
   }
 
-  @Bean(AIProviderConstants.COHERE)
-  public ChatClient deepseekChatClient(AIProviderProperties properties, ChatMemory chatMemory) {
-    AIProviderProperties.Provider provider = requireProvider(properties, AIProviderConstants.COHERE);
-    Integer maxTokens = provider.getMaxTokens();
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/cohere-system.txt", maxTokens);
-    return applyAdvisors(
-      ChatClient.builder(createOpenAiCompatibleModel(properties, AIProviderConstants.COHERE))
-    , chatMemory)
-      .defaultSystem(systemPrompt)
-      .build();
-  }
-  @Bean(AIProviderConstants.MISTRAL)
-  public ChatClient mistralChatClient(AIProviderProperties properties, ChatMemory chatMemory) {
-    AIProviderProperties.Provider provider = requireProvider(properties, AIProviderConstants.COHERE);
-    Integer maxTokens = provider.getMaxTokens();
-    String systemPrompt = loadSystemPrompt("classpath:prompts/system-prompts/mistral-system.txt", maxTokens);
-    return applyAdvisors(
-      ChatClient.builder(createOpenAiCompatibleModel(properties, AIProviderConstants.MISTRAL))
-    , chatMemory)
-      .defaultSystem(systemPrompt)
+  @Bean
+  public ChatMemory chatMemory(StripedChatMemoryRepository chatMemoryRepository, MeterRegistry meterRegistry) {
+    if (TOKEN_WINDOW_STRATEGY.equals(chatMemoryStrategy)) {
+      return new TokenWindowChatMemory(chatMemoryRepository, maxHistoryTokens, meterRegistry);
+    }
+    ChatMemory windowMemory = MessageWindowChatMemory.builder()
+      .chatMemoryRepository(chatMemoryRepository)
+      .maxMessages(chatMemoryMaxMessages)
       .build();
+    return new ConversationLockingChatMemory(windowMemory, chatMemoryRepository);
   }
 
+
+  /**
+   * Summarizes the older turns of long conversations with a cheap provider, on
+   * its own small pool (token-window strategy only). The registry is looked up on
+   * the first compaction: its clients are built with this chat memory.
+   */
   @Bean
-  public ChatMemory chatMemory(){
-    return MessageWindowChatMemory.builder().maxMessages(chatMemoryMaxMessages).build();
+  @ConditionalOnProperty(name = "app.ai.chat-memory.compaction.enabled", havingValue = "true")
+  public ConversationCompactor conversationCompactor(ChatMemory chatMemory,
+      ObjectProvider<ChatClientRegistry> chatClientRegistry,
+      MeterRegistry meterRegistry,
+      @Value("${app.ai.chat-memory.compaction.provider:ollama}") String provider,
+      @Value("${app.ai.chat-memory.compaction.threshold-tokens:6000}") int thresholdTokens,
+      @Value("${app.ai.chat-memory.compaction.keep-recent-tokens:2000}") int keepRecentTokens,
+      @Value("${app.ai.chat-memory.compaction.workers:2}") int workers,
+      @Value("${app.ai.chat-memory.compaction.queue-capacity:100}") int queueCapacity,
+      @Value("${app.ai.chat-memory.compaction.prompt:classpath:prompts/conversation-summary.txt}") String prompt) {
+    if (!(chatMemory instanceof TokenWindowChatMemory tokenWindowChatMemory)) {
+      throw new IllegalStateException("app.ai.chat-memory.compaction needs app.ai.chat-memory.strategy="
+        + TOKEN_WINDOW_STRATEGY);
+    }
+    if (thresholdTokens >= maxHistoryTokens) {
+      log.warn("Compaction threshold {} is not below max-history-tokens {}: history is trimmed before it is summarized",
+        thresholdTokens, maxHistoryTokens);
+    }
+    String instructions = PromptReaderUtil.getPrompt(resourceLoader, prompt);
+    ConversationCompactor.Summarizer summarizer = transcript -> {
+      ChatClient chatClient = chatClientRegistry.getObject().get(provider);
+      if (chatClient == null) {
+        throw new IllegalStateException("Compaction provider " + provider + " is not configured");
+      }
+      return chatClient.prompt().system(instructions).user(transcript).call().content();
+    };
+    return new ConversationCompactor(tokenWindowChatMemory, summarizer, thresholdTokens, keepRecentTokens, workers,
+      queueCapacity, meterRegistry);
   }
 
-
-
-  private OpenAiChatModel createOpenAiCompatibleModel(
-    AIProviderProperties properties,
-    String providerName) {
-    //get provider properties based on model name
-    AIProviderProperties.Provider provider = requireProvider(properties, providerName);
+  private OpenAiChatModel createOpenAiCompatibleModel(String providerName, AIProviderProperties.Provider provider) {
+    //Boot's builders carry observation and codecs; the provider's own HTTP client replaces Boot's request factory
+    RestClient.Builder providerRestClient = restClientBuilder.getIfAvailable(RestClient::builder);
+    WebClient.Builder providerWebClient = webClientBuilder.getIfAvailable(WebClient::builder);
+    providerHttpClients.apply(providerName, provider, providerRestClient, providerWebClient);
 
     OpenAiApi openAiApi = OpenAiApi.builder()
       .apiKey(provider.getApiKey())
       .baseUrl(provider.getBaseUrl())
       .completionsPath(provider.getCompletionPath())
+      .restClientBuilder(providerRestClient)
+      .webClientBuilder(providerWebClient)
       .build();
 
     OpenAiChatOptions.Builder optionsBuilder = OpenAiChatOptions.builder().model(provider.getModel());
@@ -139,22 +286,31 @@ public class MultiModelConfig {
     Optional.ofNullable(provider.getMaxTokens())
       .ifPresent(optionsBuilder::maxTokens);
 
-    return OpenAiChatModel.builder()
+    OpenAiChatModel.Builder modelBuilder = OpenAiChatModel.builder()
       .openAiApi(openAiApi)
-      .defaultOptions(optionsBuilder.build())
-      .build();
-  }
+      .defaultOptions(optionsBuilder.build());
 
+    //fewer in-provider retries let the routing layer fail over sooner
+    Optional.ofNullable(provider.getMaxAttempts())
+      .ifPresent(maxAttempts -> modelBuilder.retryTemplate(RetryTemplate.builder()
+        .maxAttempts(maxAttempts)
+        .retryOn(TransientAiException.class)
+        .retryOn(ResourceAccessException.class)
+        .exponentialBackoff(Duration.ofMillis(500), 2, Duration.ofSeconds(5))
+        .build()));
 
-  private AIProviderProperties.Provider requireProvider(AIProviderProperties properties, String providerName) {
-    if (properties.getProviders() == null || !properties.getProviders().containsKey(providerName)) {
-      throw new IllegalStateException("Missing spring.ai.providers." + providerName + " configuration");
-    }
-    return properties.getProviders().get(providerName);
+    return modelBuilder.build();
   }
 
+  //prompts/system-prompts/<provider>-system.txt unless the provider sets system-prompt
+  private static String systemPromptLocation(String providerName, AIProviderProperties.Provider provider) {
+    if (provider != null && StringUtils.hasText(provider.getSystemPrompt())) {
+      return provider.getSystemPrompt();
+    }
+    return "classpath:prompts/system-prompts/" + providerName + "-system.txt";
+  }
 
-
+  //loaded once per provider and never varies per request: the start of every prompt's cacheable prefix
   private String loadSystemPrompt(String location, Integer maxTokens) {
     String prompt = PromptReaderUtil.getPrompt(resourceLoader,location);
     if (maxTokens != null && maxTokens > 0) {
@@ -163,10 +319,46 @@ public class MultiModelConfig {
     return prompt;
   }
 
-  private ChatClient.Builder applyAdvisors(ChatClient.Builder builder, ChatMemory chatMemory) {
+  /**
+   * With the token-window strategy each provider gets a view of the shared memory
+   * limited to what fits its context window:
+   * context window - response max tokens - reserve for system prompt and current input.
+   */
+  private ChatMemory providerMemory(ChatMemory chatMemory, String providerName, Integer contextWindow, Integer maxTokens) {
+    if (!(chatMemory instanceof TokenWindowChatMemory tokenWindowChatMemory)) {
+      return chatMemory;
+    }
+    int window = contextWindow != null && contextWindow > 0 ? contextWindow : defaultContextWindow;
+    int responseTokens = maxTokens != null && maxTokens > 0 ? maxTokens : 0;
+    int budget = Math.max(0, window - responseTokens - promptReserveTokens);
+    return tokenWindowChatMemory.forBudget(providerName, budget);
+  }
+
+  private ChatClient.Builder applyAdvisors(ChatClient.Builder builder, ChatMemory chatMemory,
+      ResponseCache responseCache, AdmissionControl admissionControl, String providerName, String model,
+      Integer maxTokens) {
     List<Advisor> advisors = new ArrayList<>();
     if (chatMemoryEnabled) {
-      advisors.add(MessageChatMemoryAdvisor.builder(chatMemory).build());
+      advisors.add(MessageChatMemoryAdvisor.builder(new ConversationOnlyChatMemory(conversationTurns.wrap(chatMemory)))
+        .scheduler(blockingScheduler)
+        .build());
+    }
+    if (responseCache.isEnabled()) {
+      advisors.add(new ResponseCacheAdvisor(responseCache, providerName, model));
+    }
+    if (singleFlight.isEnabled()) {
+      advisors.add(new SingleFlightAdvisor(singleFlight, providerName, model));
+    }
+    if (usageLedger.isEnabled()) {
+      advisors.add(new UsageAdvisor(usageLedger, providerName, tokenizerRegistry.forProvider(providerName), maxTokens));
+    }
+    if (admissionControl.isEnabled()) {
+      advisors.add(new AdmissionControlAdvisor(admissionControl, providerName, tokenizerRegistry.forProvider(providerName),
+        maxTokens, blockingScheduler));
+    }
+    if (observabilityEnabled) {
+      advisors.add(new ObservabilityAdvisor(meterRegistry, observationRegistry, providerName, model,
+        tokenizerRegistry.forProvider(providerName)));
     }
     if (llmLoggingEnabled) {
       advisors.add(new SimpleLoggerAdvisor());
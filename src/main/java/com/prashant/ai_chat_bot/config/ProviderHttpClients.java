@@ -0,0 +1,293 @@
+package com.prashant.ai_chat_bot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JDK HttpClient per OpenAI-compatible provider, shared by its blocking
+ * (RestClient) and streaming (WebClient) calls, so both reuse the same pooled
+ * connections and TLS sessions.
+ *
+ * Settings come from spring.ai.providers.<name>.http:
+ * - http2: HTTPS providers negotiate HTTP/2 and multiplex concurrent calls on one
+ *   connection; with HTTP/1.1 there is one connection per concurrent call, which the
+ *   admission concurrency limit already bounds
+ * - connect-timeout, read-timeout (time to the response headers)
+ * - warm-up-connections: opened with a GET of {base-url}/models when the provider's
+ *   client is built (at startup with parallel initialization), so the first requests
+ *   skip the TCP and TLS handshakes (one is enough with HTTP/2)
+ * - keep-warm-interval: a provider without requests for that long gets the same GET,
+ *   so servers and load balancers do not close its idle connections
+ * The idle pool size and keep-alive timeout of the JDK client are JVM-wide, see
+ * {@link HttpClientSystemProperties}.
+ *
+ * METRICS (tag provider): llm.http.requests (requests sent, including warm-up and
+ * keep-warm) and llm.http.connections.opened (TLS connections opened). Connection
+ * reuse is 1 - opened / requests; plain http providers (ollama) open no TLS
+ * connections and are not counted.
+ */
+@Component
+@Slf4j
+public class ProviderHttpClients implements DisposableBean {
+
+  static final String REQUESTS = "llm.http.requests";
+  static final String CONNECTIONS_OPENED = "llm.http.connections.opened";
+
+  private final MeterRegistry meterRegistry;
+  private final boolean virtualThreads;
+  private final Map<String, ProviderClient> clients = new ConcurrentHashMap<>();
+  private volatile ScheduledExecutorService keepWarm;
+
+  public ProviderHttpClients(MeterRegistry meterRegistry, Environment environment) {
+    this.meterRegistry = meterRegistry;
+    this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+  }
+
+  /**
+   * Points the builders of one provider at its shared HTTP client. The client is
+   * created, and warmed up, on the first call for the provider.
+   */
+  public void apply(String providerName, AIProviderProperties.Provider provider,
+      RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {
+    ProviderClient client = clients.computeIfAbsent(providerName, name -> create(name, provider));
+    AIProviderProperties.Http http = provider.getHttp();
+
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(client.httpClient);
+    JdkClientHttpConnector connector = new JdkClientHttpConnector(client.httpClient);
+    if (http.getReadTimeout() != null) {
+      requestFactory.setReadTimeout(http.getReadTimeout());
+      connector.setReadTimeout(http.getReadTimeout());
+    }
+    restClientBuilder
+      .requestFactory(requestFactory)
+      .requestInterceptor((request, body, execution) -> {
+        client.sent();
+        return execution.execute(request, body);
+      });
+    webClientBuilder
+      .clientConnector(connector)
+      .filter((request, next) -> {
+        client.sent();
+        return next.exchange(request);
+      });
+  }
+
+  @Override
+  public void destroy() {
+    if (keepWarm != null) {
+      keepWarm.shutdownNow();
+    }
+  }
+
+  private ProviderClient create(String providerName, AIProviderProperties.Provider provider) {
+    AIProviderProperties.Http http = provider.getHttp();
+    URI baseUri = URI.create(provider.getBaseUrl());
+    boolean tls = "https".equalsIgnoreCase(baseUri.getScheme());
+
+    HttpClient.Builder builder = HttpClient.newBuilder()
+      .version(tls && http.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+      .connectTimeout(http.getConnectTimeout());
+    if (tls) {
+      builder.sslContext(countingSslContext(providerName));
+    }
+    if (virtualThreads) {
+      builder.executor(new VirtualThreadTaskExecutor("llm-http-"));
+    }
+    ProviderClient client = new ProviderClient(builder.build(), ping(provider),
+      Counter.builder(REQUESTS)
+        .description("HTTP requests sent to the provider")
+        .tag("provider", providerName)
+        .register(meterRegistry));
+
+    warmUp(providerName, client, http.getWarmUpConnections());
+    if (http.getKeepWarmInterval() != null) {
+      scheduleKeepWarm(providerName, client, http);
+    }
+    return client;
+  }
+
+  //concurrent requests, so HTTP/1.1 opens one connection each
+  private void warmUp(String providerName, ProviderClient client, int connections) {
+    for (int i = 0; i < connections; i++) {
+      client.ping().whenComplete((status, error) -> {
+        if (error != null) {
+          log.warn("Warm-up request to {} failed: {}", providerName, error.toString());
+        } else {
+          log.debug("Warm-up request to {} answered {}", providerName, status);
+        }
+      });
+    }
+  }
+
+  private void scheduleKeepWarm(String providerName, ProviderClient client, AIProviderProperties.Http http) {
+    long intervalNanos = http.getKeepWarmInterval().toNanos();
+    int connections = Math.max(1, http.getWarmUpConnections());
+    keepWarmScheduler().scheduleWithFixedDelay(() -> {
+      if (System.nanoTime() - client.lastSentNanos >= intervalNanos) {
+        warmUp(providerName, client, connections);
+      }
+    }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private synchronized ScheduledExecutorService keepWarmScheduler() {
+    if (keepWarm == null) {
+      keepWarm = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "llm-http-keep-warm");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return keepWarm;
+  }
+
+  //GET {base-url}/models: cheap on OpenAI-compatible APIs and costs no tokens; any status keeps the connection
+  private static HttpRequest ping(AIProviderProperties.Provider provider) {
+    String baseUrl = provider.getBaseUrl().endsWith("/")
+      ? provider.getBaseUrl().substring(0, provider.getBaseUrl().length() - 1)
+      : provider.getBaseUrl();
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/models"))
+      .timeout(provider.getHttp().getConnectTimeout().plus(Duration.ofSeconds(10)))
+      .GET();
+    if (provider.getApiKey() != null && !provider.getApiKey().isBlank()) {
+      request.header("Authorization", "Bearer " + provider.getApiKey());
+    }
+    return request.build();
+  }
+
+  private SSLContext countingSslContext(String providerName) {
+    try {
+      return new CountingSslContext(SSLContext.getDefault(), Counter.builder(CONNECTIONS_OPENED)
+        .description("TLS connections opened to the provider")
+        .tag("provider", providerName)
+        .register(meterRegistry));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("No default SSLContext", e);
+    }
+  }
+
+  private static final class ProviderClient {
+
+    private final HttpClient httpClient;
+    private final HttpRequest ping;
+    private final Counter requests;
+    private volatile long lastSentNanos = System.nanoTime();
+
+    private ProviderClient(HttpClient httpClient, HttpRequest ping, Counter requests) {
+      this.httpClient = httpClient;
+      this.ping = ping;
+      this.requests = requests;
+    }
+
+    private void sent() {
+      lastSentNanos = System.nanoTime();
+      requests.increment();
+    }
+
+    private CompletableFuture<Integer> ping() {
+      sent();
+      return httpClient.sendAsync(ping, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+    }
+  }
+
+  /**
+   * The JDK client creates one SSLEngine per TLS connection, so counting engines
+   * counts connections; everything else goes to the default context.
+   */
+  private static final class CountingSslContext extends SSLContext {
+
+    private CountingSslContext(SSLContext delegate, Counter connections) {
+      super(new CountingSpi(delegate, connections), delegate.getProvider(), delegate.getProtocol());
+    }
+  }
+
+  private static final class CountingSpi extends SSLContextSpi {
+
+    private final SSLContext delegate;
+    private final Counter connections;
+
+    private CountingSpi(SSLContext delegate, Counter connections) {
+      this.delegate = delegate;
+      this.connections = connections;
+    }
+
+    @Override
+    protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+      throw new UnsupportedOperationException("The default SSLContext is already initialized");
+    }
+
+    @Override
+    protected SSLSocketFactory engineGetSocketFactory() {
+      return delegate.getSocketFactory();
+    }
+
+    @Override
+    protected SSLServerSocketFactory engineGetServerSocketFactory() {
+      return delegate.getServerSocketFactory();
+    }
+
+    @Override
+    protected SSLEngine engineCreateSSLEngine() {
+      connections.increment();
+      return delegate.createSSLEngine();
+    }
+
+    @Override
+    protected SSLEngine engineCreateSSLEngine(String host, int port) {
+      connections.increment();
+      return delegate.createSSLEngine(host, port);
+    }
+
+    @Override
+    protected SSLSessionContext engineGetServerSessionContext() {
+      return delegate.getServerSessionContext();
+    }
+
+    @Override
+    protected SSLSessionContext engineGetClientSessionContext() {
+      return delegate.getClientSessionContext();
+    }
+
+    @Override
+    protected SSLParameters engineGetDefaultSSLParameters() {
+      return delegate.getDefaultSSLParameters();
+    }
+
+    @Override
+    protected SSLParameters engineGetSupportedSSLParameters() {
+      return delegate.getSupportedSSLParameters();
+    }
+  }
+}
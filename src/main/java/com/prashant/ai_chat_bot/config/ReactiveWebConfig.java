@@ -0,0 +1,78 @@
+package com.prashant.ai_chat_bot.config;
+
+import com.prashant.ai_chat_bot.advisor.UsageAdvisor;
+import com.prashant.ai_chat_bot.ingest.ReactiveSanitizedBodyArgumentResolver;
+import com.prashant.ai_chat_bot.ingest.SanitizedBodyReader;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * WebFlux deployment, active with the reactive Spring profile (build with -Pwebflux).
+ *
+ * - STREAMING endpoints return Flux and run on the Netty event loop from request
+ *   to last token. WebFlux only writes an SSE event when the client has asked for
+ *   more, so a slow client slows the read from the provider instead of buffering.
+ * - BLOCKING endpoints (String or DTO return types) are handed to the LLM worker
+ *   pool, so a provider call never blocks an event-loop thread.
+ * - CLIENT: there is no RequestContextHolder, so the x-api-key client the token
+ *   budgets are kept for travels in the Reactor context (see UsageAdvisor).
+ *
+ * Both servlet and reactive starters are on the classpath in this build and Boot
+ * would prefer reactive Tomcat, so the Netty server factory is declared here.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+  private final AsyncTaskExecutor llmTaskExecutor;
+  private final SanitizedBodyReader sanitizedBodyReader;
+
+  public ReactiveWebConfig(@Qualifier(AsyncConfig.LLM_TASK_EXECUTOR) AsyncTaskExecutor llmTaskExecutor,
+      SanitizedBodyReader sanitizedBodyReader) {
+    this.llmTaskExecutor = llmTaskExecutor;
+    this.sanitizedBodyReader = sanitizedBodyReader;
+  }
+
+  //only controller methods without a reactive return type are offloaded
+  @Override
+  public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+    configurer.setExecutor(llmTaskExecutor);
+  }
+
+  //@SanitizedBody bodies are ingested buffer by buffer instead of aggregated by a codec
+  @Override
+  public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+    configurer.addCustomResolver(new ReactiveSanitizedBodyArgumentResolver(sanitizedBodyReader));
+  }
+
+  //blocking handlers get it back as a thread local through automatic context propagation
+  @Bean
+  WebFilter usageClientWebFilter() {
+    return (exchange, chain) -> chain.filter(exchange).contextWrite(context -> UsageAdvisor.withClient(context,
+      exchange.getRequest().getHeaders().getFirst(AIProviderConstants.API_KEY_HEADER)));
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(name = "reactor.netty.http.server.HttpServer")
+  static class NettyServer {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyServerCustomizer> customizers) {
+      NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+      customizers.orderedStream().forEach(factory::addServerCustomizers);
+      return factory;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.prashant.ai_chat_bot.config;
+
+import com.prashant.ai_chat_bot.ingest.SanitizedBodyArgumentResolver;
+import com.prashant.ai_chat_bot.ingest.SanitizedBodyReader;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Servlet (Spring MVC) deployment: request bodies bound with
+ * {@link com.prashant.ai_chat_bot.ingest.SanitizedBody} are read as streams.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+  private final SanitizedBodyReader sanitizedBodyReader;
+
+  public WebMvcConfig(SanitizedBodyReader sanitizedBodyReader) {
+    this.sanitizedBodyReader = sanitizedBodyReader;
+  }
+
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(new SanitizedBodyArgumentResolver(sanitizedBodyReader));
+  }
+}
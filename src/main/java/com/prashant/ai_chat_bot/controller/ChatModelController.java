@@ -1,9 +1,11 @@
 package com.prashant.ai_chat_bot.controller;
 
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.ingest.SanitizedBody;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
 import com.prashant.ai_chat_bot.service.ConversationIdGenerator;
-import com.prashant.ai_chat_bot.service.MultiModelProviderService;
+import com.prashant.ai_chat_bot.service.ProviderRoutingService;
 import com.prashant.ai_chat_bot.utils.AIProviderConstants;
-import com.prashant.ai_chat_bot.utils.InputSanitizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -28,54 +30,55 @@ public class ChatModelController {
 
     public static final String AI_PROCESSING_FAILED = "AI processing failed";
     private static final String CHAT_MEMORY_CONVERSATION_ID = "chat_memory_conversation_id";
-    private final MultiModelProviderService multiModelProviderService;
+    private final ProviderRoutingService providerRoutingService;
     private final ConversationIdGenerator conversationIdGenerator;
     private final ChatMemory chatMemory;
+    private final ConversationTurns conversationTurns;
     @Value("${app.ai.chat-memory.enabled:false}")
     private boolean defaultChatMemoryEnabled;
 
     @PostMapping("/chat")
     public String chat(@RequestHeader(value= AIProviderConstants.AI_PROVIDER_HEADER, required = false,defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
-      @RequestBody String messageInput) {
-        messageInput = InputSanitizer.sanitize(messageInput);
-        return multiModelProviderService.getChatClient(aiProvider)
+      @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+      @SanitizedBody String messageInput) {
+        String userMessage = messageInput;
+        return providerRoutingService.call(aiProvider, chatClient -> chatClient
                 .prompt()
-                .user(messageInput)
+                .user(userMessage)
+                .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
                 .call()
-                .content();
+                .content());
     }
 
     @PostMapping("/chat/conversation")
     public ResponseEntity<String> chat(
       @RequestParam(value = "conversationId", required = false) Integer conversationId,
       @RequestHeader(value= AIProviderConstants.AI_PROVIDER_HEADER, required = false,defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
-      @RequestBody String messageInput) {
+      @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+      @SanitizedBody String messageInput) {
         try {
-            messageInput = InputSanitizer.sanitize(messageInput);
-
-            if (messageInput == null || messageInput.isBlank()) {
-                return ResponseEntity.badRequest().body("Message input cannot be empty");
-            }
             //create conversation id if it doesnt exist
             conversationId = Optional.ofNullable(conversationId)
               .orElseGet(conversationIdGenerator::nextId);
             Integer finalConversationId = conversationId;
-
-            ChatClient chatClient = multiModelProviderService.getChatClient(aiProvider);
-
-            ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
-              .user(messageInput)
-              //MessageChatMemoryAdvisor reads this param and uses it to decide which memory thread/history bucket to load and update for that request.
-              //Without it, the advisor falls back to its default conversation id
-              .advisors(advisorSpec -> advisorSpec.param(CHAT_MEMORY_CONVERSATION_ID, String.valueOf(finalConversationId)));
-            if (!defaultChatMemoryEnabled) {
-                requestSpec = requestSpec.advisors(
-                  MessageChatMemoryAdvisor.builder(chatMemory)
-                    .conversationId(String.valueOf(finalConversationId))
-                    .build());
-            }
-
-            ChatResponse chatResponse = requestSpec.call().chatResponse();
+            String userMessage = messageInput;
+
+            //failover may move the conversation to another provider; history is shared across providers
+            ChatResponse chatResponse = providerRoutingService.callConversation(aiProvider, String.valueOf(finalConversationId), chatClient -> {
+                ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
+                  .user(userMessage)
+                  //MessageChatMemoryAdvisor reads this param and uses it to decide which memory thread/history bucket to load and update for that request.
+                  //Without it, the advisor falls back to its default conversation id
+                  .advisors(advisorSpec -> advisorSpec.param(CHAT_MEMORY_CONVERSATION_ID, String.valueOf(finalConversationId))
+                    .param(ResponseCacheAdvisor.BYPASS, bypassCache));
+                if (!defaultChatMemoryEnabled) {
+                    requestSpec = requestSpec.advisors(
+                      MessageChatMemoryAdvisor.builder(conversationTurns.wrap(chatMemory))
+                        .conversationId(String.valueOf(finalConversationId))
+                        .build());
+                }
+                return requestSpec.call().chatResponse();
+            });
 
             String content = Optional.ofNullable(chatResponse)
               .map(ChatResponse::getResult)
@@ -91,7 +94,8 @@ public class ChatModelController {
               .map(Usage::getTotalTokens)
               .orElse(0);
 
-            log.info("Total tokens consumed for conversation {}: {}", finalConversationId, totalTokenCount);
+            //per-provider token counts are in the llm.client.tokens metric
+            log.debug("Total tokens consumed for conversation {}: {}", finalConversationId, totalTokenCount);
 
             return ResponseEntity.ok(content);
         } catch (IllegalArgumentException e) {
@@ -1,21 +1,22 @@
 package com.prashant.ai_chat_bot.controller;
 
-import com.prashant.ai_chat_bot.model.BespokeResponse;
+import com.prashant.ai_chat_bot.ingest.SanitizedBody;
 import com.prashant.ai_chat_bot.model.CodeReviewDTO;
-import com.prashant.ai_chat_bot.model.TicketAnalysis;
+import com.prashant.ai_chat_bot.model.CodeReviewResult;
 import com.prashant.ai_chat_bot.model.TicketAnalysisResponse;
-import com.prashant.ai_chat_bot.service.MultiModelProviderService;
-import com.prashant.ai_chat_bot.service.UserPromptService;
+import com.prashant.ai_chat_bot.service.CodeReviewBatchService;
+import com.prashant.ai_chat_bot.service.CodeReviewService;
+import com.prashant.ai_chat_bot.service.TicketAnalysisService;
 import com.prashant.ai_chat_bot.utils.AIProviderConstants;
-import com.prashant.ai_chat_bot.utils.InputSanitizer;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.util.CollectionUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/prompts")
@@ -23,58 +24,60 @@ import java.util.List;
 @Slf4j
 public class PromptController {
 
-  private final MultiModelProviderService multiModelProviderService;
-  private final UserPromptService userPromptService;
+  private final CodeReviewService codeReviewService;
+  private final TicketAnalysisService ticketAnalysisService;
+  private final CodeReviewBatchService codeReviewBatchService;
 
   @PostMapping("/analyze-code")
   public String analyzeCode(
     @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
     @RequestBody CodeReviewDTO codeReviewDTO) {
     codeReviewDTO.sanitizeInput();
-    Prompt prompt = userPromptService.createCodeReviewPrompt(codeReviewDTO.getLanguage(), codeReviewDTO.getCode(), codeReviewDTO.getBusinessRequirements());
+    //large files are reviewed chunk by chunk and the findings merged
+    return codeReviewService.review(aiProvider, bypassCache, codeReviewDTO);
+  }
 
-    return multiModelProviderService.getChatClient(aiProvider)
-      .prompt()
-      .user(prompt.getContents())
-      .call()
-      .content();
+  //NDJSON: one CodeReviewResult line per file, in completion order
+  @PostMapping(value = "/analyze-code/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<CodeReviewResult> analyzeCodeBatch(
+    @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+    @RequestBody List<CodeReviewDTO> files) {
+    return codeReviewBatchService.reviewBatch(aiProvider, bypassCache, files);
   }
 
   @PostMapping("/analyze-ticket")
   public TicketAnalysisResponse analyzeTicket(
     @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
-    @RequestBody String ticketText) {
-    ticketText = InputSanitizer.sanitize(ticketText);
-    Prompt prompt = userPromptService.createTicketAnalysisPrompt(ticketText);
-    TicketAnalysis ticketAnalysis =  multiModelProviderService.getChatClient(aiProvider)
-      .prompt()
-      .user(prompt.getContents())
-      .call()
-      .entity(TicketAnalysis.class);
-
-    if(ticketAnalysis == null){
-      return TicketAnalysisResponse.builder().build();
-    }
-
-    TicketAnalysisResponse response = TicketAnalysisResponse.builder().ticketAnalysis(ticketAnalysis).build();
-
-    List<TicketAnalysis.TicketPriority> bespokeResponseTrigger = List.of(TicketAnalysis.TicketPriority.HIGH, TicketAnalysis.TicketPriority.URGENT);
-    if(bespokeResponseTrigger.contains(ticketAnalysis.getPriority())){
-      Prompt bespokeResponsePrompt = userPromptService
-        .createBespokeResponsePrompt(ticketAnalysis.getCategory(), ticketAnalysis.getKeyIssues());
-      //irrespective of what was the original provider, use gemini for bespoke response
-      List<BespokeResponse> bespokeResponses = multiModelProviderService.getChatClient(AIProviderConstants.GEMINI)
-        .prompt()
-        .user(bespokeResponsePrompt.getContents())
-        .call()
-        .entity(new ParameterizedTypeReference<List<BespokeResponse>>() {});
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+    @SanitizedBody String ticketText) {
+    return ticketAnalysisService.analyze(aiProvider, bypassCache, ticketText);
+  }
 
-        if(!CollectionUtils.isEmpty(bespokeResponses)){
-          response.setBespokeResponses(bespokeResponses);
-        }
-    }
+  //returns immediately; the analysis and bespoke-response calls run on the LLM worker pool
+  @PostMapping("/analyze-ticket/async")
+  public CompletableFuture<TicketAnalysisResponse> analyzeTicketAsync(
+    @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+    @SanitizedBody String ticketText) {
+    return ticketAnalysisService.analyzeAsync(aiProvider, bypassCache, ticketText);
+  }
 
-    return response;
+  //SSE: each analysis field and bespoke response is sent as soon as the model has written it
+  @PostMapping(value = "/analyze-ticket/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> analyzeTicketStream(
+    @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+    @SanitizedBody String ticketText) {
+    return ticketAnalysisService.analyzeStream(aiProvider, bypassCache, ticketText);
+  }
 
+  @PostMapping("/analyze-ticket/batch")
+  public CompletableFuture<List<TicketAnalysisResponse>> analyzeTickets(
+    @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
+    @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+    @RequestBody List<String> tickets) {
+    return ticketAnalysisService.analyzeBatch(aiProvider, bypassCache, tickets);
   }
 }
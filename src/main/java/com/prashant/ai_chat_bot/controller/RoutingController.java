@@ -0,0 +1,32 @@
+package com.prashant.ai_chat_bot.controller;
+
+import com.prashant.ai_chat_bot.service.AdaptiveProviderRouter;
+import com.prashant.ai_chat_bot.service.ProviderStatsTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/routing")
+@RequiredArgsConstructor
+public class RoutingController {
+
+  private final AdaptiveProviderRouter adaptiveProviderRouter;
+
+  //debug view: how ai-provider: auto would rank the candidates right now, with the inputs behind each score
+  @GetMapping("/auto")
+  public Map<String, Object> autoRanking(
+    @RequestParam(value = "kind", required = false, defaultValue = "CALL") ProviderStatsTracker.Kind kind) {
+    List<AdaptiveProviderRouter.ProviderScore> ranking = adaptiveProviderRouter.rank(kind);
+    return Map.of(
+      "kind", kind,
+      "costWeight", adaptiveProviderRouter.getCostWeight(),
+      "ranking", ranking
+    );
+  }
+}
@@ -1,9 +1,14 @@
 package com.prashant.ai_chat_bot.controller;
 
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import com.prashant.ai_chat_bot.ingest.SanitizedBody;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.memory.WriteBehindChatMemory;
 import com.prashant.ai_chat_bot.service.ConversationIdGenerator;
-import com.prashant.ai_chat_bot.service.MultiModelProviderService;
+import com.prashant.ai_chat_bot.service.ProviderRoutingService;
+import com.prashant.ai_chat_bot.service.StreamCoalescer;
 import com.prashant.ai_chat_bot.utils.AIProviderConstants;
-import com.prashant.ai_chat_bot.utils.InputSanitizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -16,7 +21,6 @@ import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.SignalType;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.Optional;
 
@@ -27,62 +31,67 @@ import java.util.Optional;
 public class StreamingChatModelController {
 
     private static final String CHAT_MEMORY_CONVERSATION_ID = "chat_memory_conversation_id";
-    private final MultiModelProviderService multiModelProviderService;
+    private final ProviderRoutingService providerRoutingService;
     private final ConversationIdGenerator conversationIdGenerator;
     private final ChatMemory chatMemory;
+    private final WriteBehindChatMemory writeBehindChatMemory;
+    private final ConversationTurns conversationTurns;
+    private final StreamCoalescer streamCoalescer;
     @Value("${app.ai.chat-memory.enabled:false}")
     private boolean defaultChatMemoryEnabled;
 
     //text/event-stream: this is a SSE (Server Sent events) endpoint. Spring boot handles streaming internally
+    //single-turn: no conversation id, so identical messages in flight share one provider stream (SingleFlightAdvisor)
     @PostMapping(value= "/chat", produces = "text/event-stream")
     public Flux<String> chat(
       @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false) String aiProvider,
-      @RequestBody String messageInput) {
+      @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+      @SanitizedBody String messageInput) {
         String resolvedProvider = aiProvider == null ? AIProviderConstants.OLLAMA : aiProvider;
         String resolvedMessage = messageInput == null ? "" : messageInput;
 
-        return multiModelProviderService.getChatClient(resolvedProvider)
+        return providerRoutingService.stream(resolvedProvider, chatClient -> chatClient
                 .prompt()
                 .user(resolvedMessage)
+                .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
                 .stream()
-                .content();
+                .content())
+          .transform(tokens -> streamCoalescer.coalesce(tokens, "chat"));
     }
 
     @PostMapping(
       value = "/chat/conversation",
       produces = MediaType.TEXT_EVENT_STREAM_VALUE
     )
-    public Flux<String> chat(
+    public Flux<String> chatConversation(
       @RequestParam(value = "conversationId", required = false) Integer conversationId,
       @RequestHeader(value = AIProviderConstants.AI_PROVIDER_HEADER, required = false, defaultValue = AIProviderConstants.OLLAMA) String aiProvider,
-      @RequestBody String messageInput) {
+      @RequestHeader(value = AIProviderConstants.CACHE_BYPASS_HEADER, required = false, defaultValue = "false") boolean bypassCache,
+      @SanitizedBody String messageInput) {
 
         return Flux.defer(() -> {
 
-            String sanitized = InputSanitizer.sanitize(messageInput);
-            if (sanitized == null || sanitized.isBlank()) {
-                return Flux.error(new IllegalArgumentException("Message input cannot be empty"));
-            }
-
             Integer finalConversationId = Optional.ofNullable(conversationId)
               .orElseGet(conversationIdGenerator::nextId);
 
-            ChatClient chatClient = Optional
-              .ofNullable(multiModelProviderService.getChatClient(aiProvider))
-              .orElseThrow(() ->
-                new IllegalArgumentException("Invalid AI provider: " + aiProvider));
-
-            ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
-              .user(sanitized)
-              .advisors(advisorSpec -> advisorSpec.param(CHAT_MEMORY_CONVERSATION_ID, String.valueOf(finalConversationId)));
-            if (!defaultChatMemoryEnabled) {
-                requestSpec = requestSpec.advisors(
-                  MessageChatMemoryAdvisor.builder(chatMemory)
-                    .conversationId(String.valueOf(finalConversationId))
-                    .build());
-            }
-
-            return requestSpec.stream().chatResponse()
+            // No publishOn, on either web stack: tokens are coalesced and written on the thread that
+            // received them, and a slow SSE client gets larger events instead of a growing hand-off queue.
+            // On the servlet stack that thread is the provider client's, and it waits while a write blocks.
+            // Admission and the memory read run on the blocking scheduler, and with write-behind
+            // enabled the memory write does too.
+            return providerRoutingService.streamConversation(aiProvider, String.valueOf(finalConversationId), chatClient -> {
+                ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
+                  .user(messageInput)
+                  .advisors(advisorSpec -> advisorSpec.param(CHAT_MEMORY_CONVERSATION_ID, String.valueOf(finalConversationId))
+                    .param(ResponseCacheAdvisor.BYPASS, bypassCache));
+                if (!defaultChatMemoryEnabled) {
+                    requestSpec = requestSpec.advisors(
+                      MessageChatMemoryAdvisor.builder(conversationTurns.wrap(writeBehindChatMemory.wrap(chatMemory)))
+                        .conversationId(String.valueOf(finalConversationId))
+                        .build());
+                }
+                return requestSpec.stream().chatResponse();
+            })
 
               // Convert ChatResponse -> String (for frontend)
               .map(response -> {
@@ -96,6 +105,9 @@ public class StreamingChatModelController {
 
               })
 
+              // Fewer, larger SSE events; the first token still goes out immediately
+              .transform(tokens -> streamCoalescer.coalesce(tokens, "conversation"))
+
               // Handle client disconnect
               .doFinally(signal -> {
                   if (signal == SignalType.CANCEL) {
@@ -105,13 +117,14 @@ public class StreamingChatModelController {
               })
 
               // Handle errors AFTER conversion to String
+              .onErrorResume(TokenBudgetExceededException.class, error -> {
+                  log.warn("Token budget exceeded: conversation {}: {}", finalConversationId, error.getMessage());
+                  return Flux.just("Error: token budget exceeded");
+              })
               .onErrorResume(error -> {
                   log.error("Streaming error", error);
                   return Flux.just("Error: AI processing failed");
-              })
-
-              // Move blocking calls off event loop
-              .publishOn(Schedulers.boundedElastic());
+              });
         });
     }
 
@@ -0,0 +1,25 @@
+package com.prashant.ai_chat_bot.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A request was turned away by client-side admission control before reaching the provider.
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+  public enum Reason { QUEUE_FULL, RATE_LIMITED, CONCURRENCY_LIMITED, INTERRUPTED }
+
+  private final String provider;
+  private final Reason reason;
+  private final Duration retryAfter;
+
+  public AdmissionRejectedException(String provider, Reason reason, Duration retryAfter) {
+    super("Request to " + provider + " rejected: " + reason);
+    this.provider = provider;
+    this.reason = reason;
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,13 @@
+package com.prashant.ai_chat_bot.exception;
+
+/**
+ * Client input the service refuses to process, answered with 400 and this message.
+ * Only thrown for checks on the request itself, so the message is safe to return;
+ * other IllegalArgumentExceptions are server errors.
+ */
+public class BadRequestException extends IllegalArgumentException {
+
+  public BadRequestException(String message) {
+    super(message);
+  }
+}
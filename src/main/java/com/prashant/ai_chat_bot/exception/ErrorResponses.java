@@ -0,0 +1,145 @@
+package com.prashant.ai_chat_bot.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Error mapping shared by the servlet ({@link GlobalExceptionHandler}) and reactive
+ * ({@link ReactiveExceptionHandler}) advices, which differ only in how they read the path.
+ */
+@Slf4j
+final class ErrorResponses {
+
+  private ErrorResponses() {
+  }
+
+  static ResponseEntity<Map<String, Object>> badRequest(BadRequestException ex, String path) {
+    log.warn("Rejected request for path {}: {}", path, ex.getMessage());
+    return buildErrorResponse(HttpStatus.BAD_REQUEST, "BAD_REQUEST", ex.getMessage(), path);
+  }
+
+  static ResponseEntity<Map<String, Object>> payloadTooLarge(String message, String path) {
+    log.warn("Rejected oversized input for path {}: {}", path, message);
+    return buildErrorResponse(HttpStatus.PAYLOAD_TOO_LARGE, "PAYLOAD_TOO_LARGE", message, path);
+  }
+
+  static ResponseEntity<Map<String, Object>> rejected(TaskRejectedException ex, String path) {
+    log.warn("LLM worker pool saturated for path {}", path);
+    return buildErrorResponse(
+      HttpStatus.SERVICE_UNAVAILABLE,
+      "SERVICE_BUSY",
+      "The service is handling too many requests. Please retry shortly.",
+      path
+    );
+  }
+
+  static ResponseEntity<Map<String, Object>> admissionRejected(AdmissionRejectedException ex, String path) {
+    log.warn("Admission rejected for path {}: {}", path, ex.getMessage());
+    return tooManyRequests(ex, path);
+  }
+
+  static ResponseEntity<Map<String, Object>> budgetExceeded(TokenBudgetExceededException ex, String path) {
+    log.warn("Token budget exceeded for path {}: {}", path, ex.getMessage());
+    ResponseEntity<Map<String, Object>> response = buildErrorResponse(
+      HttpStatus.TOO_MANY_REQUESTS,
+      "TOKEN_BUDGET_EXCEEDED",
+      "The token budget for this " + ex.getScope().name().toLowerCase() + " is used up.",
+      path
+    );
+    if (ex.getRetryAfter() == null) {
+      return response;
+    }
+    return ResponseEntity.status(response.getStatusCode())
+      .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(ex.getRetryAfter())))
+      .body(response.getBody());
+  }
+
+  static ResponseEntity<Map<String, Object>> providerUnavailable(ProviderUnavailableException ex, String path) {
+    //a provider in the chain was saturated rather than failing: worth retrying after a pause
+    AdmissionRejectedException rejected = admissionRejection(ex);
+    if (rejected != null) {
+      log.warn("Providers saturated for path {}: {}", path, ex.getMessage());
+      return tooManyRequests(rejected, path);
+    }
+    log.error("All providers failed for path {}: {}", path, ex.getMessage(), ex.getCause());
+    return buildErrorResponse(
+      HttpStatus.SERVICE_UNAVAILABLE,
+      "PROVIDER_UNAVAILABLE",
+      "No AI provider is currently able to answer. Please retry shortly.",
+      path
+    );
+  }
+
+  static ResponseEntity<Map<String, Object>> unhandled(Exception ex, String path) {
+    log.error("Unhandled exception for path {}", path, ex);
+    return buildErrorResponse(
+      HttpStatus.INTERNAL_SERVER_ERROR,
+      "INTERNAL_SERVER_ERROR",
+      "Something went wrong while processing your request. Please try again.",
+      path
+    );
+  }
+
+  private static ResponseEntity<Map<String, Object>> tooManyRequests(AdmissionRejectedException ex, String path) {
+    ResponseEntity<Map<String, Object>> response = buildErrorResponse(
+      HttpStatus.TOO_MANY_REQUESTS,
+      "TOO_MANY_REQUESTS",
+      "The AI provider is at capacity. Please retry shortly.",
+      path
+    );
+    return ResponseEntity.status(response.getStatusCode())
+      .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(ex.getRetryAfter())))
+      .body(response.getBody());
+  }
+
+  //the failures of every provider tried, including both attempts of a hedge
+  private static AdmissionRejectedException admissionRejection(ProviderUnavailableException ex) {
+    List<Throwable> failures = new ArrayList<>();
+    failures.add(ex.getCause());
+    failures.addAll(Arrays.asList(ex.getSuppressed()));
+    for (Throwable failure : failures) {
+      for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+        if (cause instanceof AdmissionRejectedException rejected) {
+          return rejected;
+        }
+        for (Throwable suppressed : cause.getSuppressed()) {
+          if (suppressed instanceof AdmissionRejectedException rejected) {
+            return rejected;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static long retryAfterSeconds(Duration retryAfter) {
+    return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+  }
+
+  private static ResponseEntity<Map<String, Object>> buildErrorResponse(
+    HttpStatus status,
+    String code,
+    String message,
+    String path
+  ) {
+    Map<String, Object> payload = Map.of(
+      "timestamp", Instant.now().toString(),
+      "status", status.value(),
+      "error", status.getReasonPhrase(),
+      "code", code,
+      "message", message,
+      "path", path
+    );
+    return ResponseEntity.status(status).body(payload);
+  }
+}
@@ -1,45 +1,53 @@
 package com.prashant.ai_chat_bot.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.time.Instant;
 import java.util.Map;
 
-@Slf4j
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler {
 
+  @ExceptionHandler(BadRequestException.class)
+  public ResponseEntity<Map<String, Object>> handleBadRequest(BadRequestException ex, HttpServletRequest request) {
+    return ErrorResponses.badRequest(ex, request.getRequestURI());
+  }
 
-  @ExceptionHandler(Exception.class)
-  public ResponseEntity<Map<String, Object>> handleUnhandled(Exception ex, HttpServletRequest request) {
-    log.error("Unhandled exception for path {}", request.getRequestURI(), ex);
-    return buildErrorResponse(
-      HttpStatus.INTERNAL_SERVER_ERROR,
-      "INTERNAL_SERVER_ERROR",
-      "Something went wrong while processing your request. Please try again.",
-      request
-    );
+  @ExceptionHandler(InputTooLargeException.class)
+  public ResponseEntity<Map<String, Object>> handleInputTooLarge(InputTooLargeException ex, HttpServletRequest request) {
+    return ErrorResponses.payloadTooLarge(ex.getMessage(), request.getRequestURI());
+  }
+
+  @ExceptionHandler(TaskRejectedException.class)
+  public ResponseEntity<Map<String, Object>> handleRejected(TaskRejectedException ex, HttpServletRequest request) {
+    return ErrorResponses.rejected(ex, request.getRequestURI());
+  }
+
+  @ExceptionHandler(AdmissionRejectedException.class)
+  public ResponseEntity<Map<String, Object>> handleAdmissionRejected(AdmissionRejectedException ex,
+      HttpServletRequest request) {
+    return ErrorResponses.admissionRejected(ex, request.getRequestURI());
   }
 
-  private ResponseEntity<Map<String, Object>> buildErrorResponse(
-    HttpStatus status,
-    String code,
-    String message,
-    HttpServletRequest request
-  ) {
-    Map<String, Object> payload = Map.of(
-      "timestamp", Instant.now().toString(),
-      "status", status.value(),
-      "error", status.getReasonPhrase(),
-      "code", code,
-      "message", message,
-      "path", request.getRequestURI()
-    );
-    return ResponseEntity.status(status).body(payload);
+  @ExceptionHandler(TokenBudgetExceededException.class)
+  public ResponseEntity<Map<String, Object>> handleBudgetExceeded(TokenBudgetExceededException ex,
+      HttpServletRequest request) {
+    return ErrorResponses.budgetExceeded(ex, request.getRequestURI());
+  }
+
+  @ExceptionHandler(ProviderUnavailableException.class)
+  public ResponseEntity<Map<String, Object>> handleProviderUnavailable(ProviderUnavailableException ex,
+      HttpServletRequest request) {
+    return ErrorResponses.providerUnavailable(ex, request.getRequestURI());
+  }
+
+  @ExceptionHandler(Exception.class)
+  public ResponseEntity<Map<String, Object>> handleUnhandled(Exception ex, HttpServletRequest request) {
+    return ErrorResponses.unhandled(ex, request.getRequestURI());
   }
 }
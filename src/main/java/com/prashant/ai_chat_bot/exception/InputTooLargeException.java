@@ -0,0 +1,23 @@
+package com.prashant.ai_chat_bot.exception;
+
+import lombok.Getter;
+
+/**
+ * A request body or input was larger than the configured limit and was rejected
+ * before being processed (or read) in full.
+ */
+@Getter
+public class InputTooLargeException extends RuntimeException {
+
+  private final String unit;
+  private final long limit;
+
+  /**
+   * @param unit what the limit counts, e.g. "bytes" or "characters"
+   */
+  public InputTooLargeException(String unit, long limit) {
+    super("Input exceeds the limit of " + limit + " " + unit);
+    this.unit = unit;
+    this.limit = limit;
+  }
+}
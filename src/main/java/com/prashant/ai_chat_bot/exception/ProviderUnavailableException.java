@@ -0,0 +1,19 @@
+package com.prashant.ai_chat_bot.exception;
+
+import java.util.List;
+
+/**
+ * Every provider in a failover chain failed or timed out. The last failure is the
+ * cause; those of the providers tried before it are suppressed exceptions.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+  public ProviderUnavailableException(List<String> chain, Throwable lastFailure) {
+    this(chain, lastFailure, List.of());
+  }
+
+  public ProviderUnavailableException(List<String> chain, Throwable lastFailure, List<Throwable> earlierFailures) {
+    super("No provider in " + chain + " produced a response", lastFailure);
+    earlierFailures.forEach(this::addSuppressed);
+  }
+}
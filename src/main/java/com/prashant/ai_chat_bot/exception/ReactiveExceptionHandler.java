@@ -0,0 +1,63 @@
+package com.prashant.ai_chat_bot.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.PayloadTooLargeException;
+
+import java.util.Map;
+
+/**
+ * {@link GlobalExceptionHandler} for the WebFlux deployment (reactive profile).
+ */
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+  @ExceptionHandler(BadRequestException.class)
+  public ResponseEntity<Map<String, Object>> handleBadRequest(BadRequestException ex, ServerHttpRequest request) {
+    return ErrorResponses.badRequest(ex, request.getPath().value());
+  }
+
+  @ExceptionHandler(InputTooLargeException.class)
+  public ResponseEntity<Map<String, Object>> handleInputTooLarge(InputTooLargeException ex, ServerHttpRequest request) {
+    return ErrorResponses.payloadTooLarge(ex.getMessage(), request.getPath().value());
+  }
+
+  //a body over spring.codec.max-in-memory-size
+  @ExceptionHandler(PayloadTooLargeException.class)
+  public ResponseEntity<Map<String, Object>> handlePayloadTooLarge(PayloadTooLargeException ex, ServerHttpRequest request) {
+    return ErrorResponses.payloadTooLarge("Request body is too large", request.getPath().value());
+  }
+
+  @ExceptionHandler(TaskRejectedException.class)
+  public ResponseEntity<Map<String, Object>> handleRejected(TaskRejectedException ex, ServerHttpRequest request) {
+    return ErrorResponses.rejected(ex, request.getPath().value());
+  }
+
+  @ExceptionHandler(AdmissionRejectedException.class)
+  public ResponseEntity<Map<String, Object>> handleAdmissionRejected(AdmissionRejectedException ex,
+      ServerHttpRequest request) {
+    return ErrorResponses.admissionRejected(ex, request.getPath().value());
+  }
+
+  @ExceptionHandler(TokenBudgetExceededException.class)
+  public ResponseEntity<Map<String, Object>> handleBudgetExceeded(TokenBudgetExceededException ex,
+      ServerHttpRequest request) {
+    return ErrorResponses.budgetExceeded(ex, request.getPath().value());
+  }
+
+  @ExceptionHandler(ProviderUnavailableException.class)
+  public ResponseEntity<Map<String, Object>> handleProviderUnavailable(ProviderUnavailableException ex,
+      ServerHttpRequest request) {
+    return ErrorResponses.providerUnavailable(ex, request.getPath().value());
+  }
+
+  @ExceptionHandler(Exception.class)
+  public ResponseEntity<Map<String, Object>> handleUnhandled(Exception ex, ServerHttpRequest request) {
+    return ErrorResponses.unhandled(ex, request.getPath().value());
+  }
+}
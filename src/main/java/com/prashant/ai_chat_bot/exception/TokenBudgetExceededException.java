@@ -0,0 +1,29 @@
+package com.prashant.ai_chat_bot.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A request would take a client or conversation past its token budget, so it was
+ * not sent to any provider.
+ */
+@Getter
+public class TokenBudgetExceededException extends RuntimeException {
+
+  public enum Scope { CLIENT, CONVERSATION }
+
+  private final Scope scope;
+  private final long budget;
+  private final long used;
+  //null when the budget never resets (conversations)
+  private final Duration retryAfter;
+
+  public TokenBudgetExceededException(Scope scope, long budget, long used, Duration retryAfter) {
+    super("Token budget of " + budget + " per " + scope.name().toLowerCase() + " exceeded (" + used + " used or reserved)");
+    this.scope = scope;
+    this.budget = budget;
+    this.used = used;
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,101 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import com.prashant.ai_chat_bot.exception.BadRequestException;
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+import com.prashant.ai_chat_bot.utils.ApproximateTokenizer;
+import com.prashant.ai_chat_bot.utils.InputSanitizer;
+
+/**
+ * One request body being read: chunks of characters go in, the sanitized text
+ * comes out at the end.
+ *
+ * INCREMENTAL: each chunk is sanitized as it arrives ({@link InputSanitizer.Incremental}),
+ * and the sanitized text is token-counted up to the start of its last whitespace
+ * run. Counting there never splits a word, number or whitespace run, so the sum of
+ * the counts equals the count of the whole text. The count is the uncalibrated
+ * {@link ApproximateTokenizer} estimate: one pass, no allocation, within about 10%
+ * of cl100k_base, which is enough for a budget. The exact, per-provider count is
+ * still done by admission control for the prompt that is actually sent.
+ *
+ * Once the count passes maxTokens the body is rejected with {@link InputTooLargeException}
+ * and the rest of it is never read.
+ */
+public final class BodyIngestion {
+
+  //text without whitespace (e.g. minified code) is counted in pieces of at most this many chars
+  private static final int MAX_UNCOUNTED = 64 * 1024;
+
+  private final InputSanitizer.Incremental sanitizer;
+  private final int maxTokens;
+  private int counted;
+  private long tokens;
+
+  BodyIngestion(int maxChars, int maxTokens, int expectedChars) {
+    this.sanitizer = new InputSanitizer.Incremental(maxChars, expectedChars);
+    this.maxTokens = maxTokens;
+  }
+
+  /**
+   * @throws InputTooLargeException once the body passes the char limit or the token budget
+   */
+  public void append(char[] chars, int offset, int length) {
+    CharSequence text = sanitizer.text();
+    int previousLength = text.length();
+    sanitizer.append(chars, offset, length);
+    int cut = lastWhitespaceRun(text, Math.max(counted, previousLength));
+    if (cut <= counted && text.length() - counted > MAX_UNCOUNTED) {
+      cut = text.length();
+    }
+    if (cut > counted) {
+      count(text, cut);
+    }
+  }
+
+  /**
+   * @return the sanitized body
+   * @throws BadRequestException if nothing but whitespace and control characters was sent
+   */
+  public String finish() {
+    CharSequence text = sanitizer.text();
+    count(text, text.length());
+    String body = sanitizer.finish();
+    if (body.isEmpty()) {
+      throw new BadRequestException("Request body is required");
+    }
+    return body;
+  }
+
+  /**
+   * @return the estimated tokens counted so far
+   */
+  public long getTokens() {
+    return tokens;
+  }
+
+  private void count(CharSequence text, int cut) {
+    tokens += ApproximateTokenizer.rawCount(text, counted, cut);
+    counted = cut;
+    if (tokens > maxTokens) {
+      throw new InputTooLargeException("tokens", maxTokens);
+    }
+  }
+
+  //start of the last whitespace run that reaches from or later, or counted if there is none
+  private int lastWhitespaceRun(CharSequence text, int from) {
+    int i = text.length() - 1;
+    while (i >= from && !isWhitespace(text.charAt(i))) {
+      i--;
+    }
+    if (i < from) {
+      return counted;
+    }
+    while (i > counted && isWhitespace(text.charAt(i - 1))) {
+      i--;
+    }
+    return i;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+}
@@ -0,0 +1,43 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * WebFlux resolver for {@link SanitizedBody} String parameters: each DataBuffer is
+ * decoded and ingested as it arrives instead of being aggregated first.
+ */
+public class ReactiveSanitizedBodyArgumentResolver implements HandlerMethodArgumentResolver {
+
+  private final SanitizedBodyReader bodyReader;
+
+  public ReactiveSanitizedBodyArgumentResolver(SanitizedBodyReader bodyReader) {
+    this.bodyReader = bodyReader;
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(SanitizedBody.class) && parameter.getParameterType() == String.class;
+  }
+
+  @Override
+  public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+      ServerWebExchange exchange) {
+    ServerHttpRequest request = exchange.getRequest();
+    Charset charset = Optional.ofNullable(request.getHeaders().getContentType())
+      .map(MediaType::getCharset)
+      .orElse(StandardCharsets.UTF_8);
+    return bodyReader.read(request.getBody(), charset, request.getHeaders().getContentLength(),
+        parameter.getParameterAnnotation(SanitizedBody.class))
+      .cast(Object.class);
+  }
+}
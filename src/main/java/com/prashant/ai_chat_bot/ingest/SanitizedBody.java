@@ -0,0 +1,27 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the request body to a String parameter the way {@link org.springframework.web.bind.annotation.RequestBody}
+ * does, but reads it as a stream: the body is sanitized and token-counted while
+ * it is read, and rejected with 413 as soon as it passes the token budget.
+ * The controller receives the sanitized text as one String; no raw copy of the
+ * body is kept. An empty body is rejected with 400.
+ *
+ * @see BodyIngestion
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SanitizedBody {
+
+  /**
+   * Token budget for this body; 0 uses app.ai.input.max-tokens.
+   */
+  int maxTokens() default 0;
+}
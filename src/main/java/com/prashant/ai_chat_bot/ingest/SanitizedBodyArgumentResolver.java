@@ -0,0 +1,34 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Servlet resolver for {@link SanitizedBody} String parameters: reads the request's
+ * Reader in chunks, so the body is never held as raw bytes or as an unsanitized String.
+ */
+public class SanitizedBodyArgumentResolver implements HandlerMethodArgumentResolver {
+
+  private final SanitizedBodyReader bodyReader;
+
+  public SanitizedBodyArgumentResolver(SanitizedBodyReader bodyReader) {
+    this.bodyReader = bodyReader;
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(SanitizedBody.class) && parameter.getParameterType() == String.class;
+  }
+
+  @Override
+  public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+    HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+    return bodyReader.read(request.getReader(), request.getContentLengthLong(),
+      parameter.getParameterAnnotation(SanitizedBody.class));
+  }
+}
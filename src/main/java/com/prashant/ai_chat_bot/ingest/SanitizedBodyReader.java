@@ -0,0 +1,136 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads {@link SanitizedBody} request bodies into a {@link BodyIngestion}, chunk by
+ * chunk, from a servlet Reader or a WebFlux DataBuffer stream.
+ *
+ * Limits: at most app.ai.input.max-bytes of body (the servlet filter enforces it
+ * in bytes, the reactive path here) and app.ai.input.max-tokens of estimated tokens
+ * unless the annotation sets its own budget.
+ */
+@Component
+public class SanitizedBodyReader {
+
+  private static final int CHUNK_SIZE = 8192;
+  //typical for code and prose in cl100k_base
+  private static final int CHARS_PER_TOKEN = 4;
+
+  private final int maxBytes;
+  private final int maxTokens;
+
+  public SanitizedBodyReader(@Value("${app.ai.input.max-bytes:8MB}") DataSize maxBytes,
+      @Value("${app.ai.input.max-tokens:250000}") int maxTokens) {
+    this.maxBytes = (int) Math.min(Integer.MAX_VALUE, maxBytes.toBytes());
+    this.maxTokens = maxTokens;
+  }
+
+  /**
+   * @param expectedLength Content-Length, or -1 if unknown
+   */
+  public String read(Reader reader, long expectedLength, SanitizedBody annotation) throws IOException {
+    BodyIngestion ingestion = start(expectedLength, annotation);
+    char[] chunk = new char[CHUNK_SIZE];
+    int read;
+    while ((read = reader.read(chunk)) != -1) {
+      ingestion.append(chunk, 0, read);
+    }
+    return ingestion.finish();
+  }
+
+  /**
+   * Decodes and ingests each buffer as it arrives and releases it right away.
+   */
+  public Mono<String> read(Flux<DataBuffer> body, Charset charset, long expectedLength, SanitizedBody annotation) {
+    return Mono.defer(() -> {
+      DecodingIngestion decoding = new DecodingIngestion(start(expectedLength, annotation), charset);
+      return body
+        .doOnNext(buffer -> {
+          try {
+            decoding.append(buffer);
+          } finally {
+            DataBufferUtils.release(buffer);
+          }
+        })
+        .then(Mono.fromCallable(decoding::finish));
+    });
+  }
+
+  private BodyIngestion start(long expectedLength, SanitizedBody annotation) {
+    int budget = annotation.maxTokens() > 0 ? annotation.maxTokens() : maxTokens;
+    //the result is sized from Content-Length up front, except for bodies that will likely be
+    //rejected: those grow as they are read, and are turned away before they get large
+    long expectedChars = Math.min(Math.max(0, expectedLength), (long) budget * CHARS_PER_TOKEN);
+    //chars never outnumber UTF-8 bytes, so the byte limit also caps the chars
+    return new BodyIngestion(maxBytes, budget, (int) Math.min(maxBytes, expectedChars));
+  }
+
+  /**
+   * Bytes to chars for the reactive path. A multi-byte character split between two
+   * buffers is kept back until the rest of it arrives.
+   */
+  private final class DecodingIngestion {
+
+    private final BodyIngestion ingestion;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    private ByteBuffer remainder = ByteBuffer.allocate(0);
+    private long bytes;
+
+    private DecodingIngestion(BodyIngestion ingestion, Charset charset) {
+      this.ingestion = ingestion;
+      this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private void append(DataBuffer buffer) {
+      int length = buffer.readableByteCount();
+      bytes += length;
+      if (bytes > maxBytes) {
+        throw new InputTooLargeException("bytes", maxBytes);
+      }
+      ByteBuffer input = ByteBuffer.allocate(remainder.remaining() + length);
+      input.put(remainder);
+      buffer.toByteBuffer(buffer.readPosition(), input, input.position(), length);
+      input.position(input.position() + length).flip();
+      decode(input, false);
+      remainder = input;
+    }
+
+    private String finish() {
+      decode(remainder, true);
+      decoder.flush(chars);
+      drain();
+      return ingestion.finish();
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+      while (decoder.decode(input, chars, endOfInput).isOverflow()) {
+        drain();
+      }
+      drain();
+    }
+
+    private void drain() {
+      ingestion.append(chars.array(), 0, chars.position());
+      chars.clear();
+    }
+  }
+}
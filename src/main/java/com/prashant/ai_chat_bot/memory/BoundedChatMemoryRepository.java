@@ -0,0 +1,154 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory {@link ChatMemoryRepository} that evicts conversations instead of growing forever.
+ *
+ * EVICTION:
+ * - max-conversations: Caffeine's W-TinyLFU policy drops the least valuable
+ *   conversation once the limit is reached (frequently used ones survive scans
+ *   of one-off conversation ids)
+ * - idle-ttl: conversations not read or written for this long are dropped
+ *
+ * TOKENS: messages are stored with their token counts, so the token window reads
+ * them back without encoding again. Plain saveAll only counts the messages it has
+ * not stored yet.
+ *
+ * CONCURRENCY:
+ * Message lists are stored as immutable copies, so reads never lock. Writers to
+ * the same conversation are serialized through the striped locks of
+ * {@link StripedChatMemoryRepository}.
+ */
+public class BoundedChatMemoryRepository extends StripedChatMemoryRepository {
+
+  private final Cache<String, List<TokenizedMessage>> conversations;
+  private final AtomicLong messageCount = new AtomicLong();
+  private final AtomicLong textChars = new AtomicLong();
+
+  public BoundedChatMemoryRepository(long maxConversations, Duration idleTtl, int lockStripes) {
+    super(lockStripes);
+    this.conversations = Caffeine.newBuilder()
+      .maximumSize(maxConversations)
+      .expireAfterAccess(idleTtl)
+      .evictionListener((String id, List<TokenizedMessage> messages, RemovalCause cause) -> untrack(messages))
+      .recordStats()
+      .build();
+  }
+
+  @Override
+  @NonNull
+  public List<String> findConversationIds() {
+    return List.copyOf(conversations.asMap().keySet());
+  }
+
+  @Override
+  @NonNull
+  public List<Message> findByConversationId(@NonNull String conversationId) {
+    return findTokenizedByConversationId(conversationId).stream().map(TokenizedMessage::getMessage).toList();
+  }
+
+  @Override
+  public List<TokenizedMessage> findTokenizedByConversationId(String conversationId) {
+    List<TokenizedMessage> messages = conversations.getIfPresent(conversationId);
+    return messages == null ? List.of() : messages;
+  }
+
+  @Override
+  public void saveAll(@NonNull String conversationId, @NonNull List<Message> messages) {
+    withConversationLock(conversationId, () -> {
+      //messages read back from this store keep their counts
+      Map<Message, Integer> known = new IdentityHashMap<>();
+      for (TokenizedMessage stored : findTokenizedByConversationId(conversationId)) {
+        known.put(stored.getMessage(), stored.getTokenCount());
+      }
+      List<TokenizedMessage> tokenized = new ArrayList<>(messages.size());
+      for (Message message : messages) {
+        Integer tokens = known.get(message);
+        tokenized.add(new TokenizedMessage(message, tokens != null ? tokens : TokenCounter.countTokens(message.getText())));
+      }
+      store(conversationId, tokenized);
+      return null;
+    });
+  }
+
+  @Override
+  public void saveAllTokenized(String conversationId, List<TokenizedMessage> messages) {
+    withConversationLock(conversationId, () -> {
+      store(conversationId, messages);
+      return null;
+    });
+  }
+
+  private void store(String conversationId, List<TokenizedMessage> messages) {
+    List<TokenizedMessage> snapshot = List.copyOf(messages);
+    conversations.asMap().compute(conversationId, (id, previous) -> {
+      untrack(previous);
+      track(snapshot);
+      return snapshot;
+    });
+  }
+
+  @Override
+  public void deleteByConversationId(@NonNull String conversationId) {
+    withConversationLock(conversationId, () -> conversations.asMap().computeIfPresent(conversationId, (id, previous) -> {
+      untrack(previous);
+      return null;
+    }));
+  }
+
+  @Override
+  public void bindTo(@NonNull MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, conversations, "chat-memory");
+    Gauge.builder("chat.memory.conversations", conversations, Cache::estimatedSize)
+      .description("Conversations currently held in chat memory")
+      .register(registry);
+    Gauge.builder("chat.memory.messages", messageCount, AtomicLong::get)
+      .description("Messages currently held in chat memory")
+      .register(registry);
+    //UTF-16 payload only; object headers and metadata maps are not included
+    Gauge.builder("chat.memory.text.bytes", textChars, chars -> chars.get() * 2d)
+      .description("Approximate heap used by message text in chat memory")
+      .baseUnit("bytes")
+      .register(registry);
+  }
+
+  private void track(List<TokenizedMessage> messages) {
+    messageCount.addAndGet(messages.size());
+    textChars.addAndGet(chars(messages));
+  }
+
+  private void untrack(List<TokenizedMessage> messages) {
+    if (messages == null) {
+      return;
+    }
+    messageCount.addAndGet(-messages.size());
+    textChars.addAndGet(-chars(messages));
+  }
+
+  private static long chars(List<TokenizedMessage> messages) {
+    long total = 0;
+    for (TokenizedMessage message : messages) {
+      String text = message.getMessage().getText();
+      total += text == null ? 0 : text.length();
+    }
+    return total;
+  }
+}
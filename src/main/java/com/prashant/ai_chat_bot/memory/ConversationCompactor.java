@@ -0,0 +1,194 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Summarizes the older turns of long conversations in the background.
+ *
+ * When a write leaves a conversation's history above thresholdTokens, the
+ * compaction is queued and the write returns at once. A worker then asks the
+ * summarizer (a cheap provider, by default the local Ollama model) for a summary
+ * of everything but the newest keepRecentTokens, and replaces those messages
+ * with one assistant message holding the summary. The newest turns stay verbatim,
+ * and the history is cut before a user message so no turn is split.
+ *
+ * The pool is bounded: workers threads and queueCapacity waiting conversations.
+ * A conversation is queued at most once at a time, and when the queue is full the
+ * compaction is dropped; the next write tries again, and until then the token
+ * window trims the history as before. If the history lost its oldest messages
+ * while the summary was made, the summary is discarded (stale).
+ *
+ * METRICS:
+ * - chat.memory.compaction.lag: from the threshold crossing to the compacted history
+ * - chat.memory.compaction.tokens.saved: history tokens removed per compaction, net of the summary
+ * - chat.memory.compactions (tag outcome: applied, stale, skipped, failed, rejected)
+ * - chat.memory.compaction.queued: compactions waiting for a worker
+ */
+@Slf4j
+public class ConversationCompactor implements AutoCloseable {
+
+  static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+  /**
+   * Summarizes a transcript of "User:" and "Assistant:" turns; blocking, called on a worker.
+   */
+  @FunctionalInterface
+  public interface Summarizer {
+    String summarize(String transcript);
+  }
+
+  private final TokenWindowChatMemory memory;
+  private final Summarizer summarizer;
+  private final int thresholdTokens;
+  private final int keepRecentTokens;
+  private final ThreadPoolExecutor executor;
+  private final Set<String> queued = ConcurrentHashMap.newKeySet();
+  private final MeterRegistry meterRegistry;
+  private final Timer lag;
+  private final DistributionSummary tokensSaved;
+
+  public ConversationCompactor(TokenWindowChatMemory memory, Summarizer summarizer, int thresholdTokens,
+      int keepRecentTokens, int workers, int queueCapacity, MeterRegistry meterRegistry) {
+    if (keepRecentTokens <= 0 || keepRecentTokens >= thresholdTokens) {
+      throw new IllegalArgumentException("keepRecentTokens must be positive and below thresholdTokens");
+    }
+    this.memory = memory;
+    this.summarizer = summarizer;
+    this.thresholdTokens = thresholdTokens;
+    this.keepRecentTokens = keepRecentTokens;
+    this.meterRegistry = meterRegistry;
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+        Thread thread = new Thread(runnable, "chat-memory-compaction-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    this.lag = Timer.builder("chat.memory.compaction.lag")
+      .description("Time from a conversation crossing the threshold to its compacted history")
+      .register(meterRegistry);
+    this.tokensSaved = DistributionSummary.builder("chat.memory.compaction.tokens.saved")
+      .description("History tokens removed by a compaction, net of the summary")
+      .register(meterRegistry);
+    Gauge.builder("chat.memory.compaction.queued", executor, pool -> pool.getQueue().size())
+      .description("Conversation compactions waiting for a worker")
+      .register(meterRegistry);
+    memory.addHistoryListener(this::added);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  void added(String conversationId, int storedTokens) {
+    if (storedTokens <= thresholdTokens || !queued.add(conversationId)) {
+      return;
+    }
+    long crossedNanos = System.nanoTime();
+    try {
+      executor.execute(() -> compact(conversationId, crossedNanos));
+    } catch (RejectedExecutionException e) {
+      queued.remove(conversationId);
+      outcome("rejected");
+    }
+  }
+
+  private void compact(String conversationId, long crossedNanos) {
+    try {
+      List<TokenizedMessage> messages = memory.messages(conversationId);
+      int cut = cut(messages);
+      //a single message is most likely the previous summary
+      if (cut < 2) {
+        outcome("skipped");
+        return;
+      }
+      List<TokenizedMessage> oldest = messages.subList(0, cut);
+      int oldestTokens = oldest.stream().mapToInt(TokenizedMessage::getTokenCount).sum();
+
+      String summary = summarizer.summarize(transcript(oldest));
+      if (!StringUtils.hasText(summary)) {
+        outcome("failed");
+        return;
+      }
+      Message summaryMessage = new AssistantMessage(SUMMARY_PREFIX + summary.strip());
+      int summaryTokens = TokenCounter.countTokens(summaryMessage.getText());
+      if (summaryTokens >= oldestTokens) {
+        outcome("skipped");
+        return;
+      }
+      if (!memory.replaceOldest(conversationId, oldest, new TokenizedMessage(summaryMessage, summaryTokens))) {
+        outcome("stale");
+        return;
+      }
+      lag.record(System.nanoTime() - crossedNanos, TimeUnit.NANOSECONDS);
+      tokensSaved.record(oldestTokens - summaryTokens);
+      outcome("applied");
+      log.debug("Compacted {} messages of conversation {} from {} to {} tokens", cut, conversationId, oldestTokens,
+        summaryTokens);
+    } catch (Exception e) {
+      log.warn("Compaction of conversation {} failed: {}", conversationId, e.toString());
+      outcome("failed");
+    } finally {
+      queued.remove(conversationId);
+    }
+  }
+
+  //all but the newest keepRecentTokens, moved back to a user message so the kept turns stay whole
+  private int cut(List<TokenizedMessage> messages) {
+    int cut = messages.size();
+    int keptTokens = 0;
+    while (cut > 0 && keptTokens < keepRecentTokens) {
+      keptTokens += messages.get(--cut).getTokenCount();
+    }
+    while (cut > 0 && messages.get(cut).getMessage().getMessageType() != MessageType.USER) {
+      cut--;
+    }
+    return cut;
+  }
+
+  static String transcript(List<TokenizedMessage> messages) {
+    StringBuilder transcript = new StringBuilder();
+    for (TokenizedMessage tokenized : messages) {
+      Message message = tokenized.getMessage();
+      String role = switch (message.getMessageType()) {
+        case USER -> "User";
+        case ASSISTANT -> "Assistant";
+        default -> message.getMessageType().getValue();
+      };
+      if (!transcript.isEmpty()) {
+        transcript.append("\n\n");
+      }
+      transcript.append(role).append(": ").append(message.getText());
+    }
+    return transcript.toString();
+  }
+
+  private void outcome(String outcome) {
+    Counter.builder("chat.memory.compactions")
+      .description("Conversation compactions by outcome")
+      .tag("outcome", outcome)
+      .register(meterRegistry)
+      .increment();
+  }
+}
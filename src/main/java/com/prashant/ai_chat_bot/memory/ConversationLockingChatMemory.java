@@ -0,0 +1,46 @@
+package com.prashant.ai_chat_bot.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * Makes the read-modify-write in a delegate {@link ChatMemory} (for example
+ * MessageWindowChatMemory: load, append, trim, save) atomic per conversation,
+ * using the repository's striped locks. Without it two concurrent requests to
+ * the same conversation can each save a list that is missing the other's message.
+ */
+public class ConversationLockingChatMemory implements ChatMemory {
+
+  private final ChatMemory delegate;
+  private final StripedChatMemoryRepository repository;
+
+  public ConversationLockingChatMemory(ChatMemory delegate, StripedChatMemoryRepository repository) {
+    this.delegate = delegate;
+    this.repository = repository;
+  }
+
+  @Override
+  public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+    repository.withConversationLock(conversationId, () -> {
+      delegate.add(conversationId, messages);
+      return null;
+    });
+  }
+
+  @Override
+  @NonNull
+  public List<Message> get(@NonNull String conversationId) {
+    return delegate.get(conversationId);
+  }
+
+  @Override
+  public void clear(@NonNull String conversationId) {
+    repository.withConversationLock(conversationId, () -> {
+      delegate.clear(conversationId);
+      return null;
+    });
+  }
+}
@@ -0,0 +1,41 @@
+package com.prashant.ai_chat_bot.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * Keeps requests without a conversation id stateless. The memory advisor files
+ * them under {@link ChatMemory#DEFAULT_CONVERSATION_ID}, so without this view every
+ * code review, ticket analysis and plain chat would carry the history of unrelated
+ * earlier requests, between the system prompt and the user message. That history
+ * also changes with every request, so no two prompts would share a cacheable prefix.
+ */
+public class ConversationOnlyChatMemory implements ChatMemory {
+
+  private final ChatMemory delegate;
+
+  public ConversationOnlyChatMemory(ChatMemory delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+    if (!DEFAULT_CONVERSATION_ID.equals(conversationId)) {
+      delegate.add(conversationId, messages);
+    }
+  }
+
+  @Override
+  @NonNull
+  public List<Message> get(@NonNull String conversationId) {
+    return DEFAULT_CONVERSATION_ID.equals(conversationId) ? List.of() : delegate.get(conversationId);
+  }
+
+  @Override
+  public void clear(@NonNull String conversationId) {
+    delegate.clear(conversationId);
+  }
+}
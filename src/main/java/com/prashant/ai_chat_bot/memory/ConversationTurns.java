@@ -0,0 +1,214 @@
+package com.prashant.ai_chat_bot.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds a conversation turn's chat memory writes until the routing layer knows
+ * which provider attempt answered it.
+ *
+ * MessageChatMemoryAdvisor stores the user message when an attempt starts and the
+ * answer when it ends. When ProviderRoutingService fails a conversation over, the
+ * advisor runs again for the next attempt: written straight through, the user
+ * message would be stored once per attempt and sent to the next provider twice
+ * (from the history and as the current message), and a timed out attempt that
+ * answers late would still store its answer.
+ *
+ * {@link #wrap} returns a ChatMemory whose writes to a conversation with an open
+ * {@link Turn} are recorded against the turn's current {@link Attempt}. The routing
+ * layer commits the attempt that answered, which applies its writes in order, and
+ * discards the others. Reads are unaffected, so every attempt sees the history as
+ * it was before the turn.
+ *
+ * Writes of a blocking call attempt are tied to it by its thread (see
+ * {@link Attempt#run}), so a late answer from a timed out attempt lands in its
+ * discarded record. Streamed attempts run one after another and a failed one never
+ * stores an answer, so their writes go to the turn's current attempt.
+ *
+ * Only one turn per conversation is recorded at a time; while two requests for
+ * the same conversation overlap, their streamed writes go straight through.
+ *
+ * METRICS: chat.memory.attempts.discarded counts attempts whose writes were dropped.
+ */
+@Component
+public class ConversationTurns {
+
+  private static final ThreadLocal<Attempt> CURRENT = new ThreadLocal<>();
+
+  private final Map<String, Turn> open = new ConcurrentHashMap<>();
+  private final Counter discardedAttempts;
+
+  public ConversationTurns(MeterRegistry meterRegistry) {
+    this.discardedAttempts = Counter.builder("chat.memory.attempts.discarded")
+      .description("Provider attempts whose chat memory writes were dropped because they did not answer")
+      .register(meterRegistry);
+  }
+
+  /**
+   * @return a view of the delegate whose writes are recorded against open turns
+   */
+  public ChatMemory wrap(ChatMemory delegate) {
+    return new View(delegate);
+  }
+
+  /**
+   * Opens a turn for the conversation. Close it when the request ends.
+   */
+  public Turn begin(String conversationId) {
+    Turn turn = new Turn(conversationId, true);
+    Turn running = open.putIfAbsent(conversationId, turn);
+    if (running == null) {
+      return turn;
+    }
+    running.contended = true;
+    return new Turn(conversationId, false);
+  }
+
+  private Attempt attemptFor(String conversationId) {
+    Attempt bound = CURRENT.get();
+    if (bound != null) {
+      return bound.conversationId.equals(conversationId) ? bound : null;
+    }
+    Turn turn = open.get(conversationId);
+    return turn == null || turn.contended ? null : turn.current;
+  }
+
+  public final class Turn implements AutoCloseable {
+
+    private final String conversationId;
+    private final boolean recorded;
+    private volatile boolean contended;
+    private volatile Attempt current;
+
+    private Turn(String conversationId, boolean recorded) {
+      this.conversationId = conversationId;
+      this.recorded = recorded;
+    }
+
+    /**
+     * Starts the next attempt. The writes of the previous one are dropped unless it was committed.
+     */
+    public Attempt attempt() {
+      Attempt previous = current;
+      if (previous != null) {
+        previous.discard();
+      }
+      Attempt attempt = new Attempt(conversationId, recorded);
+      current = attempt;
+      return attempt;
+    }
+
+    @Override
+    public void close() {
+      if (recorded) {
+        open.remove(conversationId, this);
+      }
+      Attempt last = current;
+      if (last != null) {
+        last.discard();
+      }
+    }
+  }
+
+  public final class Attempt {
+
+    private final String conversationId;
+    private final boolean recorded;
+    private final List<Runnable> writes = new ArrayList<>();
+    private boolean committed;
+    private boolean discarded;
+
+    private Attempt(String conversationId, boolean recorded) {
+      this.conversationId = conversationId;
+      this.recorded = recorded;
+    }
+
+    /**
+     * Runs a blocking attempt with its writes tied to this attempt, wherever the turn is by then.
+     */
+    public <T> T run(Supplier<T> call) {
+      Attempt previous = CURRENT.get();
+      CURRENT.set(this);
+      try {
+        return call.get();
+      } finally {
+        if (previous == null) {
+          CURRENT.remove();
+        } else {
+          CURRENT.set(previous);
+        }
+      }
+    }
+
+    /**
+     * Applies the recorded writes; later writes of this attempt go straight through.
+     */
+    public synchronized void commit() {
+      if (committed || discarded) {
+        return;
+      }
+      committed = true;
+      writes.forEach(Runnable::run);
+      writes.clear();
+    }
+
+    public synchronized void discard() {
+      if (committed || discarded) {
+        return;
+      }
+      discarded = true;
+      if (!writes.isEmpty()) {
+        discardedAttempts.increment();
+      }
+      writes.clear();
+    }
+
+    private synchronized void record(Runnable write) {
+      if (!recorded || committed) {
+        write.run();
+      } else if (!discarded) {
+        writes.add(write);
+      }
+    }
+  }
+
+  private class View implements ChatMemory {
+
+    private final ChatMemory delegate;
+
+    View(ChatMemory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+      Attempt attempt = attemptFor(conversationId);
+      if (attempt == null) {
+        delegate.add(conversationId, messages);
+      } else {
+        attempt.record(() -> delegate.add(conversationId, messages));
+      }
+    }
+
+    @Override
+    @NonNull
+    public List<Message> get(@NonNull String conversationId) {
+      return delegate.get(conversationId);
+    }
+
+    @Override
+    public void clear(@NonNull String conversationId) {
+      delegate.clear(conversationId);
+    }
+  }
+}
@@ -0,0 +1,644 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File-backed chat memory that survives restarts.
+ *
+ * STORAGE LAYOUT:
+ * Messages are appended as records to memory-mapped segment files
+ * (segment-0000000001.log, ...). Every record carries a global, increasing
+ * sequence number:
+ *
+ *   [int length][byte kind][long seq][short idLength][conversation id]
+ *   MESSAGE: [int tokenCount][int hash][byte type][int textLength][text]
+ *   FLOOR / DELETE: [long floor]   - drops the conversation's messages with seq < floor
+ *
+ * The length is written last, so a record torn by a crash reads as the end of the log.
+ *
+ * INDEX:
+ * The heap only holds, per conversation, the location and token count of each live
+ * message. Startup rebuilds it by reading record headers and skipping the text, so
+ * restart time depends on record count, not on message size. Because control records
+ * work on sequence numbers, replay does not depend on the order records are found in.
+ *
+ * WRITES:
+ * saveAll receives the whole window each time (old messages trimmed from the front,
+ * new ones appended). The overlap with what is stored is found by message hash and
+ * confirmed by comparing the stored type and text, so usually only a FLOOR record for
+ * the trimmed prefix plus the new messages are written.
+ *
+ * EVICTION AND COMPACTION:
+ * Idle and excess conversations are deleted by a background sweep. Compaction
+ * seals the active segment, re-appends the live records of all sealed segments
+ * and deletes them once their dead-byte ratio exceeds the threshold.
+ */
+@Slf4j
+public class MappedLogChatMemoryRepository extends StripedChatMemoryRepository implements DisposableBean {
+
+  private static final int SEGMENT_MAGIC = 0x43484d4c;
+  private static final int SEGMENT_VERSION = 1;
+  private static final int SEGMENT_HEADER_BYTES = 8;
+  private static final byte MESSAGE = 1;
+  private static final byte FLOOR = 2;
+  private static final byte DELETE = 3;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final long maxConversations;
+  private final Duration idleTtl;
+  private final double compactionDeadRatio;
+
+  private final Map<String, ConversationIndex> index = new ConcurrentHashMap<>();
+  private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong compactions = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final Object appendLock = new Object();
+  private final Object compactionLock = new Object();
+  private final ScheduledExecutorService maintenance;
+
+  //guarded by appendLock
+  private Segment active;
+  private int lastSegmentId;
+
+  public MappedLogChatMemoryRepository(Path directory, int segmentSize, long maxConversations, Duration idleTtl,
+      int lockStripes, double compactionDeadRatio, Duration compactionInterval, Duration flushInterval) {
+    super(lockStripes);
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxConversations = maxConversations;
+    this.idleTtl = idleTtl;
+    this.compactionDeadRatio = compactionDeadRatio;
+    recover();
+
+    this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "chat-memory-log");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long sweepMillis = Math.max(1000, Math.min(idleTtl.toMillis() / 4, 60_000));
+    maintenance.scheduleWithFixedDelay(safely(this::evictIdle), sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    maintenance.scheduleWithFixedDelay(safely(this::compactIfNeeded),
+      compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    maintenance.scheduleWithFixedDelay(safely(this::flush),
+      flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  @NonNull
+  public List<String> findConversationIds() {
+    return List.copyOf(index.keySet());
+  }
+
+  @Override
+  @NonNull
+  public List<Message> findByConversationId(@NonNull String conversationId) {
+    return findTokenizedByConversationId(conversationId).stream().map(TokenizedMessage::getMessage).toList();
+  }
+
+  @Override
+  public List<TokenizedMessage> findTokenizedByConversationId(String conversationId) {
+    return withConversationLock(conversationId, () -> {
+      ConversationIndex conversation = index.get(conversationId);
+      if (conversation == null) {
+        return List.of();
+      }
+      conversation.touch();
+      List<TokenizedMessage> messages = new ArrayList<>(conversation.entries.size());
+      for (Entry entry : conversation.entries) {
+        messages.add(read(entry));
+      }
+      return messages;
+    });
+  }
+
+  @Override
+  public void saveAll(@NonNull String conversationId, @NonNull List<Message> messages) {
+    save(conversationId, messages, null);
+  }
+
+  @Override
+  public void saveAllTokenized(String conversationId, List<TokenizedMessage> messages) {
+    int[] tokenCounts = messages.stream().mapToInt(TokenizedMessage::getTokenCount).toArray();
+    save(conversationId, messages.stream().map(TokenizedMessage::getMessage).toList(), tokenCounts);
+  }
+
+  //tokenCounts may be null; only messages that are actually appended get counted then
+  private void save(String conversationId, List<Message> messages, int[] tokenCounts) {
+    withConversationLock(conversationId, () -> {
+      ConversationIndex conversation = index.computeIfAbsent(conversationId, id -> new ConversationIndex());
+      conversation.touch();
+      List<Entry> stored = conversation.entries;
+
+      int[] hashes = new int[messages.size()];
+      for (int i = 0; i < hashes.length; i++) {
+        hashes[i] = hash(messages.get(i));
+      }
+
+      //smallest k such that stored[k..] is a prefix of the new list
+      int dropped = 0;
+      while (dropped < stored.size() && !isPrefix(stored, dropped, messages, hashes)) {
+        dropped++;
+      }
+      int kept = stored.size() - dropped;
+
+      if (dropped > 0) {
+        long floor = dropped < stored.size() ? stored.get(dropped).seq() : sequence.get();
+        appendControl(FLOOR, conversationId, floor);
+        markDead(stored.subList(0, dropped));
+      }
+
+      List<Entry> updated = new ArrayList<>(messages.size());
+      updated.addAll(stored.subList(dropped, stored.size()));
+      for (int i = kept; i < messages.size(); i++) {
+        Message message = messages.get(i);
+        int tokens = tokenCounts != null ? tokenCounts[i] : TokenCounter.countTokens(message.getText());
+        updated.add(appendMessage(conversationId, new TokenizedMessage(message, tokens), hashes[i]));
+      }
+      conversation.entries = updated;
+      return null;
+    });
+  }
+
+  @Override
+  public void deleteByConversationId(@NonNull String conversationId) {
+    withConversationLock(conversationId, () -> {
+      ConversationIndex conversation = index.remove(conversationId);
+      if (conversation != null) {
+        appendControl(DELETE, conversationId, sequence.get());
+        markDead(conversation.entries);
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void bindTo(@NonNull MeterRegistry registry) {
+    Gauge.builder("chat.memory.conversations", index, Map::size)
+      .description("Conversations currently held in chat memory")
+      .register(registry);
+    Gauge.builder("chat.memory.log.segments", segments, Map::size)
+      .description("Segment files of the chat memory log")
+      .register(registry);
+    Gauge.builder("chat.memory.log.bytes", this, repository -> repository.totalBytes())
+      .description("Bytes written to chat memory log segments")
+      .baseUnit("bytes")
+      .register(registry);
+    Gauge.builder("chat.memory.log.live.bytes", this, repository -> repository.liveBytes())
+      .description("Bytes of chat memory log records still referenced by a conversation")
+      .baseUnit("bytes")
+      .register(registry);
+    Gauge.builder("chat.memory.log.index.entries", this, repository -> repository.indexEntries())
+      .description("Message locations held in the in-heap index")
+      .register(registry);
+    FunctionCounter.builder("chat.memory.log.compactions", compactions, AtomicLong::get)
+      .description("Completed chat memory log compactions")
+      .register(registry);
+    FunctionCounter.builder("chat.memory.evictions", evictions, AtomicLong::get)
+      .description("Conversations evicted for being idle or over the size limit")
+      .register(registry);
+  }
+
+  @Override
+  public void destroy() {
+    maintenance.shutdownNow();
+    flush();
+  }
+
+  /**
+   * Seals the active segment and rewrites the live records of all sealed segments
+   * when enough of them is dead. Public so it can be triggered from tests and tools.
+   */
+  public void compactIfNeeded() {
+    synchronized (compactionLock) {
+      List<Segment> sealed;
+      synchronized (appendLock) {
+        long total = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+          total += segment.writePosition - SEGMENT_HEADER_BYTES;
+          live += segment.liveBytes.get();
+        }
+        if (total == 0 || (double) (total - live) / total < compactionDeadRatio) {
+          return;
+        }
+        rotate(0);
+        sealed = segments.values().stream().filter(segment -> segment != active).toList();
+      }
+      Set<Integer> sealedIds = sealed.stream().map(segment -> segment.id).collect(Collectors.toSet());
+
+      long started = System.nanoTime();
+      for (String conversationId : List.copyOf(index.keySet())) {
+        withConversationLock(conversationId, () -> {
+          ConversationIndex conversation = index.get(conversationId);
+          if (conversation == null) {
+            return null;
+          }
+          List<Entry> moved = new ArrayList<>(conversation.entries.size());
+          for (Entry entry : conversation.entries) {
+            moved.add(sealedIds.contains(entry.segmentId()) ? copy(entry) : entry);
+          }
+          conversation.entries = moved;
+          return null;
+        });
+      }
+
+      //the sealed segments are the only durable copy until the copies reach disk
+      synchronized (appendLock) {
+        for (Segment segment : segments.values()) {
+          if (!sealedIds.contains(segment.id)) {
+            segment.buffer.force();
+          }
+        }
+      }
+
+      for (Segment segment : sealed) {
+        segments.remove(segment.id);
+        try {
+          Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+          log.warn("Could not delete compacted chat memory segment {}", segment.path, e);
+        }
+      }
+      compactions.incrementAndGet();
+      log.info("Compacted {} chat memory segments in {} ms", sealed.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+  }
+
+  void evictIdle() {
+    long idleBefore = System.nanoTime() - idleTtl.toNanos();
+    index.forEach((conversationId, conversation) -> {
+      if (conversation.lastAccess < idleBefore) {
+        evictIfUnused(conversationId, idleBefore);
+      }
+    });
+    int excess = index.size() - (int) Math.min(Integer.MAX_VALUE, maxConversations);
+    if (excess > 0) {
+      index.entrySet().stream()
+        .map(e -> Map.entry(e.getKey(), e.getValue().lastAccess))
+        .sorted(Map.Entry.comparingByValue())
+        .limit(excess)
+        .toList()
+        .forEach(candidate -> evictIfUnused(candidate.getKey(), candidate.getValue() + 1));
+    }
+  }
+
+  //the sweeps look at lastAccess without the lock; a conversation used since then is kept
+  private void evictIfUnused(String conversationId, long accessedBefore) {
+    boolean evicted = withConversationLock(conversationId, () -> {
+      ConversationIndex conversation = index.get(conversationId);
+      if (conversation == null || conversation.lastAccess >= accessedBefore) {
+        return false;
+      }
+      deleteByConversationId(conversationId);
+      return true;
+    });
+    if (evicted) {
+      evictions.incrementAndGet();
+    }
+  }
+
+  void flush() {
+    synchronized (appendLock) {
+      if (active != null) {
+        active.buffer.force();
+      }
+    }
+  }
+
+  private long totalBytes() {
+    return segments.values().stream().mapToLong(segment -> segment.writePosition).sum();
+  }
+
+  private long liveBytes() {
+    return segments.values().stream().mapToLong(segment -> segment.liveBytes.get()).sum();
+  }
+
+  private long indexEntries() {
+    return index.values().stream().mapToLong(conversation -> conversation.entries.size()).sum();
+  }
+
+  // ---------------------------------------------------------------- recovery
+
+  private void recover() {
+    long started = System.nanoTime();
+    Map<String, Replay> replays = new HashMap<>();
+    try {
+      Files.createDirectories(directory);
+      List<Path> files;
+      try (Stream<Path> listing = Files.list(directory)) {
+        files = listing.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.log")).sorted().toList();
+      }
+      for (Path file : files) {
+        int id = Integer.parseInt(file.getFileName().toString().replaceAll("\\D", ""));
+        //also past unreadable segments, so no new segment is ever written over them
+        lastSegmentId = Math.max(lastSegmentId, id);
+        Segment segment = Segment.open(id, file, Math.max(segmentSize, (int) Files.size(file)));
+        if (segment.buffer.getInt(0) != SEGMENT_MAGIC) {
+          log.warn("Skipping chat memory segment {} with unknown header", file);
+          continue;
+        }
+        scan(segment, replays);
+        segments.put(id, segment);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open chat memory log in " + directory, e);
+    }
+
+    replays.forEach((conversationId, replay) -> {
+      List<Entry> live = new ArrayList<>(replay.entries.tailMap(replay.floor).values());
+      if (!live.isEmpty()) {
+        ConversationIndex conversation = new ConversationIndex();
+        conversation.entries = live;
+        index.put(conversationId, conversation);
+        live.forEach(entry -> segments.get(entry.segmentId()).liveBytes.addAndGet(entry.length()));
+      }
+    });
+
+    synchronized (appendLock) {
+      rotate(0);
+    }
+    log.info("Rebuilt chat memory index: {} conversations from {} segments in {} ms",
+      index.size(), segments.size() - 1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  private void scan(Segment segment, Map<String, Replay> replays) {
+    MappedByteBuffer buffer = segment.buffer;
+    int position = SEGMENT_HEADER_BYTES;
+    while (position + 4 <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + 4 + length > buffer.capacity()) {
+        break;
+      }
+      byte kind = buffer.get(position + 4);
+      long seq = buffer.getLong(position + 5);
+      int idLength = Short.toUnsignedInt(buffer.getShort(position + 13));
+      byte[] id = new byte[idLength];
+      buffer.get(position + 15, id);
+      int body = position + 15 + idLength;
+
+      Replay replay = replays.computeIfAbsent(new String(id, StandardCharsets.UTF_8), key -> new Replay());
+      if (kind == MESSAGE) {
+        replay.entries.put(seq, new Entry(seq, segment.id, position, 4 + length, buffer.getInt(body), buffer.getInt(body + 4)));
+      } else {
+        replay.floor = Math.max(replay.floor, buffer.getLong(body));
+      }
+      sequence.accumulateAndGet(seq + 1, Math::max);
+      position += 4 + length;
+    }
+    segment.writePosition = position;
+  }
+
+  // ---------------------------------------------------------------- records
+
+  private Entry appendMessage(String conversationId, TokenizedMessage message, int hash) {
+    byte[] id = conversationId.getBytes(StandardCharsets.UTF_8);
+    String text = message.getMessage().getText();
+    byte[] payload = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+    int length = 1 + 8 + 2 + id.length + 4 + 4 + 1 + 4 + payload.length;
+
+    synchronized (appendLock) {
+      int position = reserve(4 + length);
+      long seq = sequence.getAndIncrement();
+      MappedByteBuffer buffer = active.buffer;
+      int body = writeHeader(buffer, position, MESSAGE, seq, id);
+      buffer.putInt(body, message.getTokenCount());
+      buffer.putInt(body + 4, hash);
+      buffer.put(body + 8, typeCode(message.getMessage().getMessageType()));
+      buffer.putInt(body + 9, payload.length);
+      buffer.put(body + 13, payload);
+      buffer.putInt(position, length);
+      active.liveBytes.addAndGet(4 + length);
+      return new Entry(seq, active.id, position, 4 + length, message.getTokenCount(), hash);
+    }
+  }
+
+  private void appendControl(byte kind, String conversationId, long floor) {
+    byte[] id = conversationId.getBytes(StandardCharsets.UTF_8);
+    int length = 1 + 8 + 2 + id.length + 8;
+    synchronized (appendLock) {
+      int position = reserve(4 + length);
+      MappedByteBuffer buffer = active.buffer;
+      int body = writeHeader(buffer, position, kind, sequence.getAndIncrement(), id);
+      buffer.putLong(body, floor);
+      buffer.putInt(position, length);
+    }
+  }
+
+  //moves a live record to the active segment, keeping its sequence number
+  private Entry copy(Entry entry) {
+    Segment source = segments.get(entry.segmentId());
+    byte[] record = new byte[entry.length()];
+    source.buffer.get(entry.offset(), record);
+    synchronized (appendLock) {
+      int position = reserve(record.length);
+      active.buffer.put(position + 4, record, 4, record.length - 4);
+      active.buffer.putInt(position, record.length - 4);
+      active.liveBytes.addAndGet(record.length);
+      source.liveBytes.addAndGet(-record.length);
+      return new Entry(entry.seq(), active.id, position, entry.length(), entry.tokenCount(), entry.hash());
+    }
+  }
+
+  private TokenizedMessage read(Entry entry) {
+    MappedByteBuffer buffer = segments.get(entry.segmentId()).buffer;
+    int idLength = Short.toUnsignedInt(buffer.getShort(entry.offset() + 13));
+    int body = entry.offset() + 15 + idLength;
+    byte type = buffer.get(body + 8);
+    byte[] payload = new byte[buffer.getInt(body + 9)];
+    buffer.get(body + 13, payload);
+    return new TokenizedMessage(toMessage(type, new String(payload, StandardCharsets.UTF_8)), entry.tokenCount());
+  }
+
+  private static int writeHeader(MappedByteBuffer buffer, int position, byte kind, long seq, byte[] id) {
+    buffer.put(position + 4, kind);
+    buffer.putLong(position + 5, seq);
+    buffer.putShort(position + 13, (short) id.length);
+    buffer.put(position + 15, id);
+    return position + 15 + id.length;
+  }
+
+  //guarded by appendLock; keeps 4 spare bytes so the end of data always reads as length 0
+  private int reserve(int recordLength) {
+    if (active == null || active.writePosition + recordLength + 4 > active.buffer.capacity()) {
+      rotate(recordLength);
+    }
+    int position = active.writePosition;
+    active.writePosition += recordLength;
+    return position;
+  }
+
+  //guarded by appendLock
+  private void rotate(int minimumRecordLength) {
+    if (active != null) {
+      active.buffer.force();
+    }
+    int id = ++lastSegmentId;
+    Path path = directory.resolve(String.format("segment-%010d.log", id));
+    int size = Math.max(segmentSize, SEGMENT_HEADER_BYTES + minimumRecordLength + 4);
+    try {
+      Segment segment = Segment.open(id, path, size);
+      segment.buffer.putInt(0, SEGMENT_MAGIC);
+      segment.buffer.putInt(4, SEGMENT_VERSION);
+      segment.writePosition = SEGMENT_HEADER_BYTES;
+      segments.put(id, segment);
+      active = segment;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create chat memory segment " + path, e);
+    }
+  }
+
+  private void markDead(List<Entry> entries) {
+    for (Entry entry : entries) {
+      Segment segment = segments.get(entry.segmentId());
+      if (segment != null) {
+        segment.liveBytes.addAndGet(-entry.length());
+      }
+    }
+  }
+
+  //hashes rule out most candidates without reading; a colliding hash must not misalign the window
+  private boolean isPrefix(List<Entry> stored, int from, List<Message> messages, int[] hashes) {
+    int count = stored.size() - from;
+    if (count > hashes.length) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      if (stored.get(from + i).hash() != hashes[i]) {
+        return false;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      if (!sameContent(stored.get(from + i), messages.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean sameContent(Entry entry, Message message) {
+    MappedByteBuffer buffer = segments.get(entry.segmentId()).buffer;
+    int body = entry.offset() + 15 + Short.toUnsignedInt(buffer.getShort(entry.offset() + 13));
+    if (buffer.get(body + 8) != typeCode(message.getMessageType())) {
+      return false;
+    }
+    String text = message.getText();
+    byte[] expected = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+    if (buffer.getInt(body + 9) != expected.length) {
+      return false;
+    }
+    byte[] payload = new byte[expected.length];
+    buffer.get(body + 13, payload);
+    return Arrays.equals(payload, expected);
+  }
+
+  private static int hash(Message message) {
+    String text = message.getText();
+    return 31 * message.getMessageType().ordinal() + (text == null ? 0 : text.hashCode());
+  }
+
+  private static byte typeCode(MessageType type) {
+    return switch (type) {
+      case USER -> 'U';
+      case SYSTEM -> 'S';
+      //tool results are kept as plain assistant text; this app does not replay tool calls
+      case ASSISTANT, TOOL -> 'A';
+    };
+  }
+
+  private static Message toMessage(byte type, String text) {
+    return switch (type) {
+      case 'U' -> new UserMessage(text);
+      case 'S' -> new SystemMessage(text);
+      default -> new AssistantMessage(text);
+    };
+  }
+
+  private Runnable safely(Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Chat memory log maintenance failed", e);
+      }
+    };
+  }
+
+  // ---------------------------------------------------------------- state
+
+  private record Entry(long seq, int segmentId, int offset, int length, int tokenCount, int hash) {
+  }
+
+  private static final class ConversationIndex {
+    private volatile List<Entry> entries = new ArrayList<>();
+    private volatile long lastAccess = System.nanoTime();
+
+    private void touch() {
+      lastAccess = System.nanoTime();
+    }
+  }
+
+  private static final class Replay {
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+    private long floor;
+  }
+
+  private static final class Segment {
+    private final int id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong liveBytes = new AtomicLong();
+    private volatile int writePosition;
+
+    private Segment(int id, Path path, MappedByteBuffer buffer) {
+      this.id = id;
+      this.path = path;
+      this.buffer = buffer;
+    }
+
+    private static Segment open(int id, Path path, int size) throws IOException {
+      try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      }
+    }
+  }
+}
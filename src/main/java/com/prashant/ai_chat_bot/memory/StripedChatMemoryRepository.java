@@ -0,0 +1,61 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Base for chat memory stores that serialize writers per conversation through
+ * a fixed set of striped locks (hash of the conversation id), so requests for
+ * different conversations almost never wait on each other.
+ * {@link #withConversationLock} exposes the same lock to ChatMemory
+ * implementations that do read-modify-write.
+ */
+public abstract class StripedChatMemoryRepository implements ChatMemoryRepository, MeterBinder {
+
+  private final ReentrantLock[] stripes;
+
+  protected StripedChatMemoryRepository(int lockStripes) {
+    int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  public <T> T withConversationLock(String conversationId, Supplier<T> action) {
+    int hash = conversationId.hashCode();
+    ReentrantLock lock = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    lock.lock();
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Messages with their token counts. Stores that persist the counts override
+   * this so rebuilding a token index does not re-encode every message.
+   */
+  public List<TokenizedMessage> findTokenizedByConversationId(String conversationId) {
+    return findByConversationId(conversationId).stream()
+      .map(message -> new TokenizedMessage(message, TokenCounter.countTokens(message.getText())))
+      .toList();
+  }
+
+  /**
+   * Saves messages whose token counts are already known. Stores that persist the
+   * counts override this to avoid encoding the messages again.
+   */
+  public void saveAllTokenized(String conversationId, List<TokenizedMessage> messages) {
+    List<Message> plain = messages.stream().map(TokenizedMessage::getMessage).toList();
+    saveAll(conversationId, plain);
+  }
+}
@@ -0,0 +1,180 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.ConversationHistory;
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link ChatMemory} that windows history by TOKENS instead of message count.
+ *
+ * Every message is tokenized exactly once when it is added, and the count is
+ * stored with it in the repository as a {@link TokenizedMessage}. The repository
+ * is the only copy of a conversation: each operation loads it into a
+ * {@link ConversationHistory} under the conversation's lock and drops it
+ * afterwards, so a conversation the repository evicted stays gone. Reads reuse
+ * the sliding window in ConversationHistory.getRecentMessages.
+ *
+ * BUDGETS:
+ * - storage: history beyond maxStoredTokens (the largest provider budget) is dropped
+ * - per provider: {@link #forBudget} returns a view that only returns as much
+ *   recent history as that provider's context window leaves room for
+ *
+ * {@link #addHistoryListener} is told how large a conversation's history is after
+ * every write; {@link ConversationCompactor} uses it to summarize long histories.
+ */
+public class TokenWindowChatMemory implements ChatMemory {
+
+  private final StripedChatMemoryRepository repository;
+  private final int maxStoredTokens;
+  private final MeterRegistry meterRegistry;
+  private final List<HistoryListener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Notified after messages were added to a conversation, outside its lock, on
+   * the thread that added them.
+   */
+  @FunctionalInterface
+  public interface HistoryListener {
+    void added(String conversationId, int storedTokens);
+  }
+
+  public TokenWindowChatMemory(StripedChatMemoryRepository repository, int maxStoredTokens,
+      MeterRegistry meterRegistry) {
+    this.repository = repository;
+    this.maxStoredTokens = maxStoredTokens;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @return a view of this memory that windows reads to the given token budget
+   */
+  public ChatMemory forBudget(String provider, int budgetTokens) {
+    return new BudgetView(provider, Math.min(budgetTokens, maxStoredTokens));
+  }
+
+  public void addHistoryListener(HistoryListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+    int storedTokens = repository.withConversationLock(conversationId, () -> {
+      ConversationHistory history = history(conversationId);
+      messages.forEach(history::addMessage);
+      history.trimToTokens(maxStoredTokens);
+      repository.saveAllTokenized(conversationId, history.getMessages());
+      return history.getStoredTokens();
+    });
+    for (HistoryListener listener : listeners) {
+      listener.added(conversationId, storedTokens);
+    }
+  }
+
+  @Override
+  @NonNull
+  public List<Message> get(@NonNull String conversationId) {
+    return window(conversationId, "default", maxStoredTokens);
+  }
+
+  /**
+   * @return the conversation's stored messages with their token counts, oldest first
+   */
+  public List<TokenizedMessage> messages(String conversationId) {
+    return repository.withConversationLock(conversationId, () -> history(conversationId).getMessages());
+  }
+
+  /**
+   * Replaces the oldest messages of a conversation, as returned by {@link #messages},
+   * with one message and persists the result.
+   *
+   * @return false if the history changed at its start meanwhile (trimmed, cleared
+   * or evicted), in which case nothing is replaced
+   */
+  public boolean replaceOldest(String conversationId, List<TokenizedMessage> oldest, TokenizedMessage replacement) {
+    return repository.withConversationLock(conversationId, () -> {
+      ConversationHistory history = history(conversationId);
+      if (!history.replaceOldest(oldest, replacement)) {
+        return false;
+      }
+      repository.saveAllTokenized(conversationId, history.getMessages());
+      return true;
+    });
+  }
+
+  @Override
+  public void clear(@NonNull String conversationId) {
+    repository.withConversationLock(conversationId, () -> {
+      repository.deleteByConversationId(conversationId);
+      return null;
+    });
+  }
+
+  private List<Message> window(String conversationId, String provider, int budgetTokens) {
+    return repository.withConversationLock(conversationId, () -> {
+      ConversationHistory history = history(conversationId);
+      List<Message> recent = history.getRecentMessages(budgetTokens);
+      int sentTokens = 0;
+      List<TokenizedMessage> stored = history.getMessages();
+      for (int i = stored.size() - recent.size(); i < stored.size(); i++) {
+        sentTokens += stored.get(i).getTokenCount();
+      }
+      recordWindow(provider, sentTokens, history.getStoredTokens() - sentTokens);
+      return recent;
+    });
+  }
+
+  //callers hold the conversation's lock; stores that persist token counts load without re-encoding
+  private ConversationHistory history(String conversationId) {
+    ConversationHistory history = new ConversationHistory(conversationId);
+    repository.findTokenizedByConversationId(conversationId).forEach(history::addMessage);
+    return history;
+  }
+
+  private void recordWindow(String provider, int sentTokens, int trimmedTokens) {
+    DistributionSummary.builder("chat.memory.tokens.sent")
+      .description("History tokens sent to the provider per request")
+      .tag("provider", provider)
+      .register(meterRegistry)
+      .record(sentTokens);
+    Counter.builder("chat.memory.tokens.trimmed")
+      .description("History tokens held back because they exceed the provider budget")
+      .tag("provider", provider)
+      .register(meterRegistry)
+      .increment(trimmedTokens);
+  }
+
+  private final class BudgetView implements ChatMemory {
+
+    private final String provider;
+    private final int budgetTokens;
+
+    private BudgetView(String provider, int budgetTokens) {
+      this.provider = provider;
+      this.budgetTokens = budgetTokens;
+    }
+
+    @Override
+    public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+      TokenWindowChatMemory.this.add(conversationId, messages);
+    }
+
+    @Override
+    @NonNull
+    public List<Message> get(@NonNull String conversationId) {
+      return window(conversationId, provider, budgetTokens);
+    }
+
+    @Override
+    public void clear(@NonNull String conversationId) {
+      TokenWindowChatMemory.this.clear(conversationId);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.prashant.ai_chat_bot.memory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Moves chat memory writes off the response path.
+ *
+ * MessageChatMemoryAdvisor stores the assistant message when the response
+ * completes, on whichever thread delivers the last token. In a streaming
+ * response that is the HTTP client's event loop, and a write that takes a lock
+ * or touches disk holds up the end of the stream. {@link #wrap} returns a
+ * ChatMemory whose add and clear run on the given executor instead.
+ *
+ * ORDERING: writes to one conversation run one after another in submission
+ * order, and a read first waits for that conversation's pending writes, so the
+ * next turn always sees the previous one. All wrapped views share this queue,
+ * so the guarantee holds across providers.
+ *
+ * Pending writes are flushed on shutdown, up to flushTimeout.
+ */
+@Slf4j
+public class WriteBehindChatMemory implements AutoCloseable {
+
+  private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+  private final Executor executor;
+  private final boolean enabled;
+  private final Duration flushTimeout;
+
+  public WriteBehindChatMemory(Executor executor, boolean enabled, Duration flushTimeout, MeterRegistry meterRegistry) {
+    this.executor = executor;
+    this.enabled = enabled;
+    this.flushTimeout = flushTimeout;
+    Gauge.builder("chat.memory.writes.pending", pending, Map::size)
+      .description("Conversations with chat memory writes not yet applied")
+      .register(meterRegistry);
+  }
+
+  /**
+   * @return a write-behind view of the delegate, or the delegate itself when disabled
+   */
+  public ChatMemory wrap(ChatMemory delegate) {
+    return enabled ? new View(delegate) : delegate;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void close() {
+    CompletableFuture<?>[] writes = pending.values().toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(writes).get(flushTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("{} conversations still had chat memory writes pending after {}", pending.size(), flushTimeout);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      //failures are already logged per write
+    }
+  }
+
+  private void submit(String conversationId, Runnable write) {
+    CompletableFuture<Void> next = pending.compute(conversationId, (id, previous) ->
+      (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+        .thenRunAsync(write, executor)
+        .exceptionally(error -> {
+          log.warn("Chat memory write failed for conversation {}", id, error);
+          return null;
+        }));
+    next.whenComplete((ignored, error) -> pending.remove(conversationId, next));
+  }
+
+  private void awaitPending(String conversationId) {
+    CompletableFuture<Void> write = pending.get(conversationId);
+    if (write != null) {
+      write.join();
+    }
+  }
+
+  private final class View implements ChatMemory {
+
+    private final ChatMemory delegate;
+
+    private View(ChatMemory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void add(@NonNull String conversationId, @NonNull List<Message> messages) {
+      List<Message> copy = List.copyOf(messages);
+      submit(conversationId, () -> delegate.add(conversationId, copy));
+    }
+
+    @Override
+    @NonNull
+    public List<Message> get(@NonNull String conversationId) {
+      awaitPending(conversationId);
+      return delegate.get(conversationId);
+    }
+
+    @Override
+    public void clear(@NonNull String conversationId) {
+      submit(conversationId, () -> delegate.clear(conversationId));
+    }
+  }
+}
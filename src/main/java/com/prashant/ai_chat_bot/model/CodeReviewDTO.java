@@ -6,6 +6,8 @@ import org.springframework.util.StringUtils;
 
 @Data
 public class CodeReviewDTO {
+  //identifies the file in batch results, e.g. its path in the repository
+  private String path;
   private String code;
   private String language;
   private String businessRequirements;
@@ -0,0 +1,15 @@
+package com.prashant.ai_chat_bot.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+//one line of the batch code-review NDJSON stream
+@Data
+@Builder
+public class CodeReviewResult {
+  private String path;
+  //files with the same hash share one review
+  private String contentHash;
+  private String review;
+  private String error;
+}
@@ -32,7 +32,7 @@ import java.util.*;
 @Getter
 public class ConversationHistory {
 
-  private Integer conversationId;
+  private String conversationId;
 
   private List<TokenizedMessage> messages;
 
@@ -42,10 +42,16 @@ public class ConversationHistory {
 
   private int totalInputTokens;
 
+  private int storedTokens;
+
   private int totalTokensConsumedInConversation;
 
+  private int reportedInputTokens;
+
+  private int reportedOutputTokens;
+
 
-  public ConversationHistory(Integer conversationId) {
+  public ConversationHistory(String conversationId) {
     this.conversationId = conversationId;
     this.messages = new ArrayList<>();
     this.createdAt = LocalDateTime.now();
@@ -69,19 +75,37 @@ public class ConversationHistory {
    * @param message The Message (UserMessage or AssistantMessage) to add
    */
   public void addMessage(Message message) {
+    int tokens = TokenCounter.countTokens(message.getText());
+    addMessage(new TokenizedMessage(message, tokens));
+  }
 
+  /**
+   * Adds a message whose token count is already known, e.g. when rebuilding
+   * history from a store that persisted the counts. Avoids re-encoding.
+   *
+   * @param tokenizedMessage message with its precomputed token count
+   */
+  public void addMessage(TokenizedMessage tokenizedMessage) {
     this.updatedAt = LocalDateTime.now();
-    int tokens = TokenCounter.countTokens(message.getText());
-    TokenizedMessage tokenizedMessage = new TokenizedMessage(message, tokens);
     this.messages.add(tokenizedMessage);
-    this.totalInputTokens += tokens;
-
+    this.totalInputTokens += tokenizedMessage.getTokenCount();
+    this.storedTokens += tokenizedMessage.getTokenCount();
   }
 
   public void updateResponseToken(int tokens){
     this.totalTokensConsumedInConversation += tokens;
   }
 
+  /**
+   * Records the usage of one provider call in this conversation, as reported by
+   * the provider (the whole prompt, history included, counts as input).
+   */
+  public void recordUsage(int inputTokens, int outputTokens) {
+    this.reportedInputTokens += inputTokens;
+    this.reportedOutputTokens += outputTokens;
+    updateResponseToken(inputTokens + outputTokens);
+  }
+
   /**
    * Returns a COPY of all messages in this conversation.
    *
@@ -115,6 +139,7 @@ public class ConversationHistory {
    *    Use AI to summarize old messages, keep summary + recent
    *    Pros: Retains key information
    *    Cons: Adds latency and cost
+   *    (ConversationCompactor does this in the background, see replaceOldest)
    *
    * 3. SELECTIVE RETENTION:
    *    Keep system prompt + first message + recent messages
@@ -163,6 +188,66 @@ public class ConversationHistory {
 
 
 
+  /**
+   * Drops the OLDEST messages until the stored history fits within maxTokens.
+   *
+   * Used to cap how much history is kept per conversation; the sliding window in
+   * getRecentMessages then picks what is actually sent for each request.
+   *
+   * @param maxTokens Maximum tokens to keep stored
+   * @return Number of tokens removed
+   */
+  public int trimToTokens(int maxTokens) {
+    int removedTokens = 0;
+    int removeCount = 0;
+    while (removeCount < messages.size() && storedTokens - removedTokens > maxTokens) {
+      removedTokens += messages.get(removeCount).getTokenCount();
+      removeCount++;
+    }
+    if (removeCount > 0) {
+      messages.subList(0, removeCount).clear();
+      storedTokens -= removedTokens;
+    }
+    return removedTokens;
+  }
+
+  /**
+   * Replaces the oldest messages with a single message, e.g. a summary of them.
+   *
+   * Only done if the history still starts with those messages (same type, text
+   * and token count; a history loaded again from a store holds new instances):
+   * newer messages added in the meantime are kept after the replacement, but if
+   * the oldest ones were trimmed away, the replacement no longer describes them.
+   *
+   * @param oldest The messages to replace, as returned by getMessages
+   * @param replacement The message that takes their place
+   * @return true if the messages were replaced
+   */
+  public boolean replaceOldest(List<TokenizedMessage> oldest, TokenizedMessage replacement) {
+    if (oldest.isEmpty() || oldest.size() > messages.size()) {
+      return false;
+    }
+    int removedTokens = 0;
+    for (int i = 0; i < oldest.size(); i++) {
+      if (!sameMessage(messages.get(i), oldest.get(i))) {
+        return false;
+      }
+      removedTokens += oldest.get(i).getTokenCount();
+    }
+    messages.subList(0, oldest.size()).clear();
+    messages.add(0, replacement);
+    storedTokens += replacement.getTokenCount() - removedTokens;
+    updatedAt = LocalDateTime.now();
+    return true;
+  }
+
+  private static boolean sameMessage(TokenizedMessage stored, TokenizedMessage expected) {
+    return stored == expected
+      || (stored.getTokenCount() == expected.getTokenCount()
+        && stored.getMessage().getMessageType() == expected.getMessage().getMessageType()
+        && Objects.equals(stored.getMessage().getText(), expected.getMessage().getText()));
+  }
+
   /**
    * @return Total number of messages in the conversation
    */
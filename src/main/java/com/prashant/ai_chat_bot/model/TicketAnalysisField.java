@@ -0,0 +1,14 @@
+package com.prashant.ai_chat_bot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//one TicketAnalysis field, sent as soon as the model has written it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketAnalysisField {
+  private String name;
+  private Object value;
+}
@@ -1,5 +1,6 @@
 package com.prashant.ai_chat_bot.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,4 +11,7 @@ import java.util.List;
 public class TicketAnalysisResponse {
   private TicketAnalysis ticketAnalysis;
   private List<BespokeResponse> bespokeResponses;
+  //batch entries only: why this ticket has no analysis, e.g. PROVIDER_UNAVAILABLE
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String error;
 }
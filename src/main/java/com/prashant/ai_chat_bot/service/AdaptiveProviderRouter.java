@@ -0,0 +1,135 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AutoRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a provider for requests sent with ai-provider: auto.
+ *
+ * SCORING (lower is better), per candidate:
+ * - expected latency = EWMA latency * (1 + in-flight * in-flight-penalty) / (1 - error rate)
+ * - expected cost    = price-per-1k-tokens / (1 - error rate)
+ * - score            = (1 - cost-weight) * latency / slowest + cost-weight * cost / most expensive
+ *
+ * Dividing by (1 - error rate) turns failures into the extra time and money a
+ * retry elsewhere would cost, so a degrading provider sinks in the ranking and
+ * load spreads to the others. cost-weight 0 routes for latency only, 1 for price only.
+ *
+ * Providers without latency samples are scored with initial-latency so they get
+ * tried, and exploration-rate of the requests go to a random candidate to keep
+ * the statistics of unused providers fresh.
+ *
+ * CONFIG: app.ai.routing.auto, see {@link AutoRoutingProperties}.
+ */
+@Component
+@Slf4j
+public class AdaptiveProviderRouter {
+
+  /**
+   * Inputs and result of scoring one candidate.
+   */
+  public record ProviderScore(String provider, double latencyMillis, double errorRate, int inFlight,
+      double pricePer1kTokens, double score) {
+  }
+
+  private static final double MAX_ERROR_RATE = 0.95;
+
+  private final ProviderStatsTracker statsTracker;
+  private final AIProviderProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final List<String> candidates;
+  private final double costWeight;
+  private final double inFlightPenalty;
+  private final double explorationRate;
+  private final Duration initialLatency;
+
+  public AdaptiveProviderRouter(ProviderStatsTracker statsTracker,
+      AIProviderProperties properties,
+      MeterRegistry meterRegistry,
+      AutoRoutingProperties routing) {
+    this.statsTracker = statsTracker;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.candidates = List.copyOf(routing.getCandidates());
+    this.costWeight = Math.max(0, Math.min(1, routing.getCostWeight()));
+    this.inFlightPenalty = routing.getInFlightPenalty();
+    this.explorationRate = routing.getExplorationRate();
+    this.initialLatency = routing.getInitialLatency();
+  }
+
+  /**
+   * @return candidates from best to worst score for the given kind of request
+   */
+  public List<ProviderScore> rank(ProviderStatsTracker.Kind kind) {
+    List<ProviderScore> inputs = new ArrayList<>(candidates.size());
+    double slowest = 0;
+    double mostExpensive = 0;
+    for (String provider : candidates) {
+      double errorRate = Math.min(statsTracker.errorRate(provider), MAX_ERROR_RATE);
+      int inFlight = statsTracker.inFlight(provider);
+      double latency = statsTracker.ewmaLatency(provider, kind).orElse(initialLatency).toNanos() / 1_000_000.0
+        * (1 + inFlight * inFlightPenalty) / (1 - errorRate);
+      double price = price(provider);
+      slowest = Math.max(slowest, latency);
+      mostExpensive = Math.max(mostExpensive, price / (1 - errorRate));
+      inputs.add(new ProviderScore(provider, latency, errorRate, inFlight, price, 0));
+    }
+
+    List<ProviderScore> ranked = new ArrayList<>(inputs.size());
+    for (ProviderScore input : inputs) {
+      double latencyScore = slowest == 0 ? 0 : input.latencyMillis() / slowest;
+      double costScore = mostExpensive == 0 ? 0 : input.pricePer1kTokens() / (1 - input.errorRate()) / mostExpensive;
+      ranked.add(new ProviderScore(input.provider(), input.latencyMillis(), input.errorRate(), input.inFlight(),
+        input.pricePer1kTokens(), (1 - costWeight) * latencyScore + costWeight * costScore));
+    }
+    ranked.sort(Comparator.comparingDouble(ProviderScore::score));
+    return ranked;
+  }
+
+  /**
+   * @return providers to try for one request, best first; the rest of the ranking is the failover chain
+   */
+  public List<String> route(ProviderStatsTracker.Kind kind) {
+    List<String> chain = new ArrayList<>(rank(kind).stream().map(ProviderScore::provider).toList());
+    if (chain.isEmpty()) {
+      return chain;
+    }
+    String reason = "score";
+    if (chain.size() > 1 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+      chain.add(0, chain.remove(ThreadLocalRandom.current().nextInt(1, chain.size())));
+      reason = "exploration";
+    }
+    log.debug("Auto routing {} request to {} ({})", kind, chain.get(0), reason);
+    Counter.builder("llm.router.decisions")
+      .description("Providers picked by the auto router")
+      .tag("provider", chain.get(0))
+      .tag("kind", kind.name().toLowerCase())
+      .tag("reason", reason)
+      .register(meterRegistry)
+      .increment();
+    return chain;
+  }
+
+  public double getCostWeight() {
+    return costWeight;
+  }
+
+  //providers without a configured price count as free
+  private double price(String provider) {
+    if (properties.getProviders() == null || !properties.getProviders().containsKey(provider)) {
+      return 0;
+    }
+    Double price = properties.getProviders().get(provider).getPricePer1kTokens();
+    return price == null ? 0 : price;
+  }
+}
@@ -0,0 +1,99 @@
+package com.prashant.ai_chat_bot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * ChatClients by provider name, each built by its factory on first use.
+ *
+ * MultiModelConfig registers one factory per configured provider, so a provider
+ * nobody calls never loads its system prompt or creates its model and HTTP client.
+ * {@link #initializeAll(Executor)} builds them all at once instead, in parallel,
+ * for deployments that would rather pay at startup than on the first request.
+ *
+ * A factory that fails is not remembered: the request fails (and fails over), and
+ * the next request tries again.
+ */
+@Slf4j
+public class ChatClientRegistry {
+
+  private final Map<String, LazyClient> clients;
+
+  public ChatClientRegistry(Map<String, Supplier<ChatClient>> factories) {
+    Map<String, LazyClient> lazyClients = new LinkedHashMap<>();
+    factories.forEach((name, factory) -> lazyClients.put(name, new LazyClient(name, factory)));
+    this.clients = Collections.unmodifiableMap(lazyClients);
+  }
+
+  //already built clients, e.g. in tests
+  public static ChatClientRegistry of(Map<String, ChatClient> clients) {
+    Map<String, Supplier<ChatClient>> factories = new LinkedHashMap<>();
+    clients.forEach((name, client) -> factories.put(name, () -> client));
+    return new ChatClientRegistry(factories);
+  }
+
+  public boolean contains(String provider) {
+    return clients.containsKey(provider);
+  }
+
+  /**
+   * @return the registered providers, in configuration order
+   */
+  public Set<String> providers() {
+    return clients.keySet();
+  }
+
+  /**
+   * @return the provider's client, built now if this is its first use; null for an unknown provider
+   */
+  public ChatClient get(String provider) {
+    LazyClient client = clients.get(provider);
+    return client == null ? null : client.get();
+  }
+
+  /**
+   * Builds every client not built yet on the executor and waits for all of them.
+   */
+  public void initializeAll(Executor executor) {
+    List<CompletableFuture<ChatClient>> builds = new ArrayList<>();
+    clients.values().forEach(client -> builds.add(CompletableFuture.supplyAsync(client::get, executor)));
+    CompletableFuture.allOf(builds.toArray(CompletableFuture[]::new)).join();
+  }
+
+  private static final class LazyClient {
+
+    private final String name;
+    private final Supplier<ChatClient> factory;
+    private volatile ChatClient client;
+
+    private LazyClient(String name, Supplier<ChatClient> factory) {
+      this.name = name;
+      this.factory = factory;
+    }
+
+    private ChatClient get() {
+      ChatClient built = client;
+      if (built != null) {
+        return built;
+      }
+      synchronized (this) {
+        if (client == null) {
+          long start = System.nanoTime();
+          client = factory.get();
+          log.info("ChatClient for {} built in {} ms", name, (System.nanoTime() - start) / 1_000_000);
+        }
+        return client;
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.config.AsyncConfig;
+import com.prashant.ai_chat_bot.exception.BadRequestException;
+import com.prashant.ai_chat_bot.model.CodeReviewDTO;
+import com.prashant.ai_chat_bot.model.CodeReviewResult;
+import com.prashant.ai_chat_bot.utils.PromptFingerprint;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reviews many files per request, as CI posts them for a pull request.
+ *
+ * PIPELINE:
+ * 1. DEDUPLICATE: files with the same language, business requirements and code
+ *    (SHA-256 content hash) are reviewed once; every path gets the shared review.
+ * 2. PACK: small files with the same business requirements share one prompt, in
+ *    request order, until the code reaches pack-token-budget tokens (counted with
+ *    {@link TokenCounter}) or max-files-per-pack files. A file at or above the
+ *    budget is reviewed on its own by {@link CodeReviewService}, map-reduce if large.
+ * 3. RUN: packs run concurrently on the LLM worker pool, bounded per provider by
+ *    {@link ProviderConcurrencyLimiter}, like the ticket batch endpoint. A batch
+ *    hands the pool no more packs than the provider has permits, so it neither
+ *    fills the pool with tasks waiting for a permit nor overflows its queue, and
+ *    packs not yet handed over are dropped when the client goes away.
+ * 4. STREAM: results are emitted per file as soon as their pack completes.
+ *
+ * A packed answer is split on the "=== FILE n <tag> ===" markers the prompt asks
+ * for. The tag is random per pack, so a marker inside the reviewed code cannot
+ * move a review to another file. Files the model skipped are reviewed again
+ * individually.
+ */
+@Service
+@Slf4j
+public class CodeReviewBatchService {
+
+  private static final String FILE_MARKER = "^[*#\\s]*=== FILE (\\d+) %s ===[*\\s]*$";
+
+  private final ProviderRoutingService providerRoutingService;
+  private final UserPromptService userPromptService;
+  private final CodeReviewService codeReviewService;
+  private final ProviderConcurrencyLimiter concurrencyLimiter;
+  private final AsyncTaskExecutor llmTaskExecutor;
+  private final int maxFiles;
+  private final int packTokenBudget;
+  private final int maxFilesPerPack;
+
+  public CodeReviewBatchService(ProviderRoutingService providerRoutingService,
+      UserPromptService userPromptService,
+      CodeReviewService codeReviewService,
+      ProviderConcurrencyLimiter concurrencyLimiter,
+      @Qualifier(AsyncConfig.LLM_TASK_EXECUTOR) AsyncTaskExecutor llmTaskExecutor,
+      @Value("${app.ai.code-review.batch.max-files:500}") int maxFiles,
+      @Value("${app.ai.code-review.batch.pack-token-budget:3000}") int packTokenBudget,
+      @Value("${app.ai.code-review.batch.max-files-per-pack:4}") int maxFilesPerPack) {
+    this.providerRoutingService = providerRoutingService;
+    this.userPromptService = userPromptService;
+    this.codeReviewService = codeReviewService;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.llmTaskExecutor = llmTaskExecutor;
+    this.maxFiles = maxFiles;
+    this.packTokenBudget = packTokenBudget;
+    this.maxFilesPerPack = maxFilesPerPack;
+  }
+
+  public Flux<CodeReviewResult> reviewBatch(String aiProvider, boolean bypassCache, List<CodeReviewDTO> files) {
+    if (CollectionUtils.isEmpty(files)) {
+      return Flux.empty();
+    }
+    if (files.size() > maxFiles) {
+      throw new BadRequestException("Batch size " + files.size() + " exceeds the limit of " + maxFiles);
+    }
+
+    List<List<ReviewUnit>> packs = pack(deduplicate(files));
+    log.info("Reviewing {} files as {} prompts on {}", files.size(), packs.size(), aiProvider);
+    //a cancelled future's task is skipped if it has not started yet
+    return Flux.fromIterable(packs)
+      .flatMap(pack -> Mono.fromFuture(() -> CompletableFuture
+        .supplyAsync(() -> reviewWithPermits(aiProvider, bypassCache, pack), llmTaskExecutor)
+        .exceptionally(ex -> {
+          log.error("Code review failed for a pack of {} files", pack.size(), ex);
+          List<CodeReviewResult> failed = new ArrayList<>();
+          pack.forEach(unit -> failed.addAll(results(unit, null, "Code review failed")));
+          return failed;
+        }), false), concurrencyLimiter.maxConcurrencyPerProvider())
+      .flatMapIterable(results -> results);
+  }
+
+  Collection<ReviewUnit> deduplicate(List<CodeReviewDTO> files) {
+    Map<String, ReviewUnit> units = new LinkedHashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      CodeReviewDTO file = files.get(i);
+      file.sanitizeInput();
+      String path = StringUtils.hasText(file.getPath()) ? file.getPath() : "file-" + (i + 1);
+      String hash = PromptFingerprint.sha256(file.getLanguage() + '\u0000' + file.getBusinessRequirements() + '\u0000' + file.getCode());
+      units.computeIfAbsent(hash, h -> new ReviewUnit(h, file, TokenCounter.countTokens(file.getCode()), new ArrayList<>()))
+        .paths().add(path);
+    }
+    return units.values();
+  }
+
+  List<List<ReviewUnit>> pack(Iterable<ReviewUnit> units) {
+    List<List<ReviewUnit>> packs = new ArrayList<>();
+    //the pack being filled, per business requirements
+    Map<String, List<ReviewUnit>> open = new HashMap<>();
+    Map<String, Integer> openTokens = new HashMap<>();
+    for (ReviewUnit unit : units) {
+      if (unit.tokens() >= packTokenBudget) {
+        packs.add(List.of(unit));
+        continue;
+      }
+      String requirements = unit.file().getBusinessRequirements();
+      List<ReviewUnit> current = open.get(requirements);
+      if (current == null || current.size() >= maxFilesPerPack
+        || openTokens.get(requirements) + unit.tokens() > packTokenBudget) {
+        current = new ArrayList<>();
+        packs.add(current);
+        open.put(requirements, current);
+        openTokens.put(requirements, 0);
+      }
+      current.add(unit);
+      openTokens.merge(requirements, unit.tokens(), Integer::sum);
+    }
+    return packs;
+  }
+
+  //a chunked review takes a permit per chunk, so it must not also hold one for the whole file
+  private List<CodeReviewResult> reviewWithPermits(String aiProvider, boolean bypassCache, List<ReviewUnit> pack) {
+    if (pack.size() == 1 && codeReviewService.requiresChunking(pack.get(0).tokens())) {
+      return results(pack.get(0), codeReviewService.review(aiProvider, bypassCache, pack.get(0).file()), null);
+    }
+    return concurrencyLimiter.withPermit(aiProvider, () -> reviewPack(aiProvider, bypassCache, pack));
+  }
+
+  private List<CodeReviewResult> reviewPack(String aiProvider, boolean bypassCache, List<ReviewUnit> pack) {
+    if (pack.size() == 1) {
+      return results(pack.get(0), reviewSingle(aiProvider, bypassCache, pack.get(0).file()), null);
+    }
+
+    String tag = markerTag();
+    StringBuilder filesSection = new StringBuilder();
+    for (int i = 0; i < pack.size(); i++) {
+      CodeReviewDTO file = pack.get(i).file();
+      filesSection.append("=== FILE ").append(i + 1).append(' ').append(tag).append(" ===").append(System.lineSeparator())
+        .append("Language: ").append(file.getLanguage()).append(System.lineSeparator())
+        .append("```").append(System.lineSeparator())
+        .append(file.getCode()).append(System.lineSeparator())
+        .append("```").append(System.lineSeparator()).append(System.lineSeparator());
+    }
+    Prompt prompt = userPromptService.createBatchCodeReviewPrompt(filesSection.toString(),
+      pack.get(0).file().getBusinessRequirements());
+    String answer = providerRoutingService.call(aiProvider, chatClient -> chatClient
+      .prompt()
+      .user(prompt.getContents())
+      .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+      .call()
+      .content());
+
+    Map<Integer, String> reviews = splitByFile(answer, tag);
+    List<CodeReviewResult> results = new ArrayList<>();
+    for (int i = 0; i < pack.size(); i++) {
+      ReviewUnit unit = pack.get(i);
+      String review = reviews.get(i + 1);
+      if (!StringUtils.hasText(review)) {
+        log.warn("Packed review skipped a file, reviewing it on its own");
+        review = reviewSingle(aiProvider, bypassCache, unit.file());
+      }
+      results.addAll(results(unit, review, null));
+    }
+    return results;
+  }
+
+  private String reviewSingle(String aiProvider, boolean bypassCache, CodeReviewDTO file) {
+    return codeReviewService.review(aiProvider, bypassCache, file);
+  }
+
+  //unguessable per pack, and free of characters a model might escape or reformat
+  private static String markerTag() {
+    return Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), Character.MAX_RADIX);
+  }
+
+  static Map<Integer, String> splitByFile(String answer, String tag) {
+    Map<Integer, String> reviews = new HashMap<>();
+    if (answer == null) {
+      return reviews;
+    }
+    Matcher matcher = Pattern.compile(FILE_MARKER.formatted(Pattern.quote(tag)), Pattern.MULTILINE).matcher(answer);
+    Integer file = null;
+    int start = 0;
+    while (matcher.find()) {
+      if (file != null) {
+        reviews.merge(file, answer.substring(start, matcher.start()).strip(), (a, b) -> a + System.lineSeparator() + b);
+      }
+      file = Integer.valueOf(matcher.group(1));
+      start = matcher.end();
+    }
+    if (file != null) {
+      reviews.merge(file, answer.substring(start).strip(), (a, b) -> a + System.lineSeparator() + b);
+    }
+    return reviews;
+  }
+
+  private static List<CodeReviewResult> results(ReviewUnit unit, String review, String error) {
+    return unit.paths().stream()
+      .map(path -> CodeReviewResult.builder()
+        .path(path)
+        .contentHash(unit.hash())
+        .review(review)
+        .error(error)
+        .build())
+      .toList();
+  }
+
+  record ReviewUnit(String hash, CodeReviewDTO file, int tokens, List<String> paths) {
+  }
+}
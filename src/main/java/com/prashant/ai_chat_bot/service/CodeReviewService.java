@@ -0,0 +1,151 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.config.AsyncConfig;
+import com.prashant.ai_chat_bot.model.CodeReviewDTO;
+import com.prashant.ai_chat_bot.utils.CodeChunker;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Code review for one file, of any size.
+ *
+ * Files up to threshold-tokens go into the regular code-review prompt. Larger
+ * files would fail at the provider or get a review cut short by max-tokens, so
+ * they are reviewed MAP-REDUCE:
+ * 1. MAP: {@link CodeChunker} splits the code at class/method boundaries into
+ *    chunks of chunk-tokens (plus overlap-tokens of context). Each chunk is
+ *    reviewed on its own, up to concurrency chunks at a time and within the
+ *    provider's {@link ProviderConcurrencyLimiter} permits.
+ * 2. REDUCE: the per-chunk findings are merged into one review in the regular
+ *    format, removing duplicates. When the findings exceed reduce-tokens they are
+ *    merged in groups first, and the group results merged again.
+ */
+@Service
+@Slf4j
+public class CodeReviewService {
+
+  private final ProviderRoutingService providerRoutingService;
+  private final UserPromptService userPromptService;
+  private final ProviderConcurrencyLimiter concurrencyLimiter;
+  private final Scheduler blockingScheduler;
+  private final int thresholdTokens;
+  private final int chunkTokens;
+  private final int overlapTokens;
+  private final int concurrency;
+  private final int reduceTokens;
+
+  public CodeReviewService(ProviderRoutingService providerRoutingService,
+      UserPromptService userPromptService,
+      ProviderConcurrencyLimiter concurrencyLimiter,
+      @Qualifier(AsyncConfig.LLM_BLOCKING_SCHEDULER) Scheduler blockingScheduler,
+      @Value("${app.ai.code-review.chunking.threshold-tokens:6000}") int thresholdTokens,
+      @Value("${app.ai.code-review.chunking.chunk-tokens:3000}") int chunkTokens,
+      @Value("${app.ai.code-review.chunking.overlap-tokens:150}") int overlapTokens,
+      @Value("${app.ai.code-review.chunking.concurrency:4}") int concurrency,
+      @Value("${app.ai.code-review.chunking.reduce-tokens:6000}") int reduceTokens) {
+    this.providerRoutingService = providerRoutingService;
+    this.userPromptService = userPromptService;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.blockingScheduler = blockingScheduler;
+    this.thresholdTokens = thresholdTokens;
+    this.chunkTokens = chunkTokens;
+    this.overlapTokens = overlapTokens;
+    this.concurrency = concurrency;
+    this.reduceTokens = reduceTokens;
+  }
+
+  /**
+   * True when a file of this many code tokens is reviewed map-reduce. Those calls
+   * take their own {@link ProviderConcurrencyLimiter} permits, so callers must not
+   * hold one while calling {@link #review}.
+   */
+  public boolean requiresChunking(int codeTokens) {
+    return codeTokens > thresholdTokens;
+  }
+
+  /**
+   * @param bypassCache skip the response cache for every call of this review
+   * @param file already sanitized
+   */
+  public String review(String aiProvider, boolean bypassCache, CodeReviewDTO file) {
+    if (!requiresChunking(TokenCounter.countTokens(file.getCode()))) {
+      Prompt prompt = userPromptService.createCodeReviewPrompt(file.getLanguage(), file.getCode(), file.getBusinessRequirements());
+      return call(aiProvider, bypassCache, prompt);
+    }
+
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(file.getCode(), chunkTokens, overlapTokens);
+    log.info("Reviewing {} as {} chunks on {}", file.getPath() == null ? "code" : file.getPath(), chunks.size(), aiProvider);
+    List<String> findings = Flux.fromIterable(chunks)
+      .flatMapSequential(chunk -> Mono.fromCallable(() -> {
+          Prompt prompt = userPromptService.createCodeReviewChunkPrompt(file.getLanguage(), chunk, chunks.size(),
+            file.getBusinessRequirements());
+          String chunkFindings = concurrencyLimiter.withPermit(aiProvider, () -> call(aiProvider, bypassCache, prompt));
+          return "### Part " + (chunk.index() + 1) + " (lines " + chunk.startLine() + "-" + chunk.endLine() + ")"
+            + System.lineSeparator() + (chunkFindings == null ? "None" : chunkFindings.strip());
+        })
+        .subscribeOn(blockingScheduler), concurrency)
+      .collectList()
+      .block();
+    return reduce(aiProvider, bypassCache, file, findings);
+  }
+
+  private String reduce(String aiProvider, boolean bypassCache, CodeReviewDTO file, List<String> findings) {
+    List<List<String>> groups = group(findings);
+    if (groups.size() == 1) {
+      return merge(aiProvider, bypassCache, file, findings);
+    }
+    //findings too large for one prompt: merge groups first, then merge the merged reviews
+    log.info("Merging {} chunk findings in {} groups", findings.size(), groups.size());
+    List<String> merged = Flux.fromIterable(groups)
+      .flatMapSequential(group -> Mono.fromCallable(() -> merge(aiProvider, bypassCache, file, group))
+        .subscribeOn(blockingScheduler), concurrency)
+      .collectList()
+      .block();
+    return reduce(aiProvider, bypassCache, file, merged);
+  }
+
+  private String merge(String aiProvider, boolean bypassCache, CodeReviewDTO file, List<String> findings) {
+    Prompt prompt = userPromptService.createCodeReviewReducePrompt(file.getLanguage(),
+      String.join(System.lineSeparator() + System.lineSeparator(), findings), file.getBusinessRequirements());
+    return concurrencyLimiter.withPermit(aiProvider, () -> call(aiProvider, bypassCache, prompt));
+  }
+
+  //consecutive findings of at most reduce-tokens each; always at least two findings per group
+  private List<List<String>> group(List<String> findings) {
+    List<List<String>> groups = new ArrayList<>();
+    List<String> current = new ArrayList<>();
+    int tokens = 0;
+    for (String finding : findings) {
+      int findingTokens = TokenCounter.countTokens(finding);
+      if (current.size() >= 2 && tokens + findingTokens > reduceTokens) {
+        groups.add(current);
+        current = new ArrayList<>();
+        tokens = 0;
+      }
+      current.add(finding);
+      tokens += findingTokens;
+    }
+    groups.add(current);
+    return groups;
+  }
+
+  private String call(String aiProvider, boolean bypassCache, Prompt prompt) {
+    return providerRoutingService.call(aiProvider, chatClient -> chatClient
+      .prompt()
+      .user(prompt.getContents())
+      .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+      .call()
+      .content());
+  }
+}
@@ -8,28 +8,37 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.util.Map;
-
 @Service
 @Getter
 @Slf4j
 @AllArgsConstructor
 public class MultiModelProviderService {
 
-  private final Map<String, ChatClient> chatClients;
+  private final ChatClientRegistry chatClients;
 
   public ChatClient getChatClient(String aiProvider) {
-    String provider = StringUtils.hasText(aiProvider)
-      ? aiProvider
-      : AIProviderConstants.OLLAMA;
-
-    ChatClient client = chatClients.getOrDefault(
-      provider,
-      chatClients.get(AIProviderConstants.OLLAMA)
-    );
+    String provider = resolveProvider(aiProvider);
 
     log.info("Chat client selected for provider: {}", provider);
 
-    return client;
+    return chatClients.get(provider);
+  }
+
+  public boolean hasProvider(String aiProvider) {
+    return chatClients.contains(aiProvider);
+  }
+
+  /**
+   * @return the requested provider when it is configured, ollama otherwise
+   * (the first configured provider when ollama is not)
+   */
+  public String resolveProvider(String aiProvider) {
+    if (StringUtils.hasText(aiProvider) && chatClients.contains(aiProvider)) {
+      return aiProvider;
+    }
+    if (chatClients.contains(AIProviderConstants.OLLAMA) || chatClients.providers().isEmpty()) {
+      return AIProviderConstants.OLLAMA;
+    }
+    return chatClients.providers().iterator().next();
   }
 }
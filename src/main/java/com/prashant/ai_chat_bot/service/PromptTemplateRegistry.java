@@ -0,0 +1,90 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.utils.CompiledPromptTemplate;
+import com.prashant.ai_chat_bot.utils.PromptReaderUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads prompt files once and keeps them as {@link CompiledPromptTemplate}s.
+ *
+ * With app.ai.prompts.hot-reload enabled the resource timestamp is checked on
+ * every lookup and the template is recompiled when the file changed, which is
+ * handy while tuning prompts locally. It is off by default, so the request path
+ * never touches the classpath.
+ */
+@Component
+@Slf4j
+public class PromptTemplateRegistry {
+
+  private final ResourceLoader resourceLoader;
+  private final boolean hotReload;
+  private final Map<String, Entry> templates = new ConcurrentHashMap<>();
+  private final Map<String, Bound> bound = new ConcurrentHashMap<>();
+
+  public PromptTemplateRegistry(ResourceLoader resourceLoader,
+      @Value("${app.ai.prompts.hot-reload:false}") boolean hotReload) {
+    this.resourceLoader = resourceLoader;
+    this.hotReload = hotReload;
+  }
+
+  public CompiledPromptTemplate get(String location) {
+    Entry entry = templates.computeIfAbsent(location, this::load);
+    if (hotReload) {
+      long lastModified = lastModified(location);
+      if (lastModified != entry.lastModified()) {
+        log.info("Prompt template {} changed, recompiling", location);
+        entry = load(location);
+        templates.put(location, entry);
+      }
+    }
+    return entry.template();
+  }
+
+  /**
+   * The template with constant placeholders filled in (see {@link CompiledPromptTemplate#bind}).
+   * A location is always bound with the same constants; it is bound again only when its file changed.
+   */
+  public CompiledPromptTemplate get(String location, Map<String, ?> constants) {
+    CompiledPromptTemplate template = get(location);
+    if (constants.isEmpty()) {
+      return template;
+    }
+    Bound entry = bound.get(location);
+    if (entry == null || entry.source() != template) {
+      entry = new Bound(template, template.bind(constants));
+      bound.put(location, entry);
+    }
+    return entry.template();
+  }
+
+  private Entry load(String location) {
+    String text = PromptReaderUtil.getPrompt(resourceLoader, location);
+    return new Entry(CompiledPromptTemplate.compile(text), lastModified(location));
+  }
+
+  private long lastModified(String location) {
+    if (!hotReload) {
+      return 0L;
+    }
+    Resource resource = resourceLoader.getResource(location);
+    try {
+      return resource.lastModified();
+    } catch (IOException ex) {
+      return 0L;
+    }
+  }
+
+  private record Entry(CompiledPromptTemplate template, long lastModified) {
+  }
+
+  private record Bound(CompiledPromptTemplate source, CompiledPromptTemplate template) {
+  }
+}
@@ -0,0 +1,120 @@
+package com.prashant.ai_chat_bot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many calls fan-out jobs (batch endpoints) keep open against a single
+ * provider at once, so one large batch can't exhaust a provider's rate limit.
+ *
+ * Permits are handed out first come, first served. {@link #submit} waits for its
+ * permit without a thread and only then hands the call to the executor, so a
+ * large batch queues here instead of parking worker threads; {@link #withPermit}
+ * blocks the calling thread.
+ */
+@Component
+public class ProviderConcurrencyLimiter {
+
+  private final int maxConcurrencyPerProvider;
+  private final Map<String, Permits> permits = new ConcurrentHashMap<>();
+
+  public ProviderConcurrencyLimiter(
+      @Value("${app.ai.async.max-concurrency-per-provider:4}") int maxConcurrencyPerProvider) {
+    this.maxConcurrencyPerProvider = maxConcurrencyPerProvider;
+  }
+
+  public int maxConcurrencyPerProvider() {
+    return maxConcurrencyPerProvider;
+  }
+
+  public <T> T withPermit(String provider, Supplier<T> call) {
+    Permits providerPermits = permits(provider);
+    CompletableFuture<Void> permit = providerPermits.acquire();
+    try {
+      permit.get();
+    } catch (InterruptedException e) {
+      providerPermits.abandon(permit);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for provider " + provider, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    try {
+      return call.get();
+    } finally {
+      providerPermits.release();
+    }
+  }
+
+  /**
+   * Runs the call on the executor once a permit for the provider is free.
+   */
+  public <T> CompletableFuture<T> submit(String provider, Supplier<T> call, Executor executor) {
+    Permits providerPermits = permits(provider);
+    return providerPermits.acquire().thenCompose(granted -> {
+      try {
+        return CompletableFuture.supplyAsync(call, executor)
+          .whenComplete((result, error) -> providerPermits.release());
+      } catch (RuntimeException rejected) {
+        providerPermits.release();
+        return CompletableFuture.failedFuture(rejected);
+      }
+    });
+  }
+
+  private Permits permits(String provider) {
+    return permits.computeIfAbsent(provider, p -> new Permits());
+  }
+
+  //a fair semaphore whose waiters are futures rather than parked threads
+  private final class Permits {
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available = maxConcurrencyPerProvider;
+
+    private CompletableFuture<Void> acquire() {
+      synchronized (this) {
+        if (available > 0 && waiters.isEmpty()) {
+          available--;
+          return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+      }
+    }
+
+    private void release() {
+      CompletableFuture<Void> next;
+      synchronized (this) {
+        next = waiters.poll();
+        if (next == null) {
+          available++;
+          return;
+        }
+      }
+      //outside the lock: completing starts the waiter's call
+      next.complete(null);
+    }
+
+    //a waiter that gave up leaves the queue, or hands back the permit it was granted meanwhile
+    private void abandon(CompletableFuture<Void> waiter) {
+      boolean queued;
+      synchronized (this) {
+        queued = waiters.remove(waiter);
+      }
+      if (!queued) {
+        release();
+      }
+    }
+  }
+}
@@ -0,0 +1,375 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.advisor.CallCancellation;
+import com.prashant.ai_chat_bot.advisor.ObservabilityAdvisor;
+import com.prashant.ai_chat_bot.advisor.UsageAdvisor;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AsyncConfig;
+import com.prashant.ai_chat_bot.exception.ProviderUnavailableException;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends a request to a provider and routes around slow or failing ones.
+ *
+ * POLICY (per provider, under spring.ai.providers.<name>):
+ * - timeout:  how long one attempt may take (streams: time to first token)
+ * - failover: providers tried in order once an attempt fails or times out
+ * - hedge:    if the primary is slower than its recent p95, the first failover
+ *             provider is started in parallel; the first one to answer wins and
+ *             the other is cancelled
+ *
+ * EMPTY ANSWERS: a call that returns null or a stream that completes without a
+ * chunk counts as a failed attempt, so it is failed over and starts the hedge at
+ * once, and a chain where every provider answered empty is unavailable.
+ *
+ * Streams only fail over before the first token. Once text has reached the
+ * client, switching provider would splice two different answers together.
+ *
+ * CONVERSATIONS: the memory advisor stores the user message when an attempt
+ * starts and the answer when it ends. Each conversation request opens a
+ * {@link ConversationTurns} turn, so only the attempt that answers keeps its
+ * writes: a failed or timed out attempt's are dropped, and the turn is stored
+ * once whichever provider answered. They are never hedged, since two attempts in
+ * parallel would each read the history without the other's turn.
+ *
+ * BUDGETS: a request rejected by a token budget (see UsageAdvisor) is the
+ * caller's limit rather than a provider failure, so it is neither failed over
+ * nor wrapped in {@link ProviderUnavailableException}.
+ *
+ * AUTO: with ai-provider: auto the chain is the {@link AdaptiveProviderRouter}
+ * ranking, so the best scored provider goes first and the others are its failover
+ * chain. Every attempt feeds {@link ProviderStatsTracker}, which the ranking reads.
+ *
+ * Attempts that need a timer or a second attempt run on the LLM blocking scheduler
+ * (bounded elastic, or virtual threads) rather than the LLM worker pool, because
+ * callers on that pool block here and must not wait for a slot in their own pool.
+ */
+@Service
+@Slf4j
+public class ProviderRoutingService {
+
+  private static final AIProviderProperties.Provider DEFAULT_POLICY = new AIProviderProperties.Provider();
+
+  private final MultiModelProviderService multiModelProviderService;
+  private final AIProviderProperties properties;
+  private final ProviderStatsTracker statsTracker;
+  private final AdaptiveProviderRouter adaptiveRouter;
+  private final Scheduler blockingScheduler;
+  private final ConversationTurns conversationTurns;
+
+  public ProviderRoutingService(MultiModelProviderService multiModelProviderService,
+      AIProviderProperties properties,
+      ProviderStatsTracker statsTracker,
+      AdaptiveProviderRouter adaptiveRouter,
+      @Qualifier(AsyncConfig.LLM_BLOCKING_SCHEDULER) Scheduler blockingScheduler,
+      ConversationTurns conversationTurns) {
+    this.multiModelProviderService = multiModelProviderService;
+    this.properties = properties;
+    this.statsTracker = statsTracker;
+    this.adaptiveRouter = adaptiveRouter;
+    this.blockingScheduler = blockingScheduler;
+    this.conversationTurns = conversationTurns;
+  }
+
+  public <T> T call(String aiProvider, Function<ChatClient, T> request) {
+    return call(aiProvider, request, null);
+  }
+
+  public <T> T callConversation(String aiProvider, String conversationId, Function<ChatClient, T> request) {
+    try (ConversationTurns.Turn turn = conversationTurns.begin(conversationId)) {
+      return call(aiProvider, request, turn);
+    }
+  }
+
+  public <T> Flux<T> stream(String aiProvider, Function<ChatClient, Flux<T>> request) {
+    return stream(aiProvider, request, null);
+  }
+
+  public <T> Flux<T> streamConversation(String aiProvider, String conversationId,
+      Function<ChatClient, Flux<T>> request) {
+    return Flux.using(() -> conversationTurns.begin(conversationId), turn -> stream(aiProvider, request, turn),
+      ConversationTurns.Turn::close);
+  }
+
+  /**
+   * @return the requested provider followed by its failover providers, skipping unknown and repeated names.
+   * For auto, the auto router's ranking.
+   */
+  public List<String> chain(String aiProvider, ProviderStatsTracker.Kind kind) {
+    if (AIProviderConstants.AUTO.equalsIgnoreCase(aiProvider)) {
+      List<String> ranked = adaptiveRouter.route(kind).stream()
+        .filter(multiModelProviderService::hasProvider)
+        .toList();
+      if (!ranked.isEmpty()) {
+        return ranked;
+      }
+    }
+    String primary = multiModelProviderService.resolveProvider(aiProvider);
+    Set<String> chain = new LinkedHashSet<>();
+    chain.add(primary);
+    for (String fallback : policy(primary).getFailover()) {
+      if (multiModelProviderService.hasProvider(fallback)) {
+        chain.add(fallback);
+      } else {
+        log.warn("Ignoring unknown failover provider {} for {}", fallback, primary);
+      }
+    }
+    return new ArrayList<>(chain);
+  }
+
+  //turn: null unless the request is a conversation turn, which is never hedged
+  private <T> T call(String aiProvider, Function<ChatClient, T> request, ConversationTurns.Turn turn) {
+    List<String> chain = chain(aiProvider, ProviderStatsTracker.Kind.CALL);
+    String primary = chain.get(0);
+    if (chain.size() == 1 && policy(primary).getTimeout() == null) {
+      //nothing to route: stay on the caller's thread
+      statsTracker.started(primary);
+      try {
+        T result = timedCall(primary, request);
+        statsTracker.finished(primary, ProviderStatsTracker.Outcome.SUCCESS);
+        return result;
+      } catch (RuntimeException e) {
+        statsTracker.finished(primary, ProviderStatsTracker.Outcome.FAILURE);
+        throw e;
+      }
+    }
+
+    RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    String client = UsageAdvisor.currentClient();
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+    Mono<T> routed = attemptCall(primary, request, requestAttributes, client, turn);
+    int next = 1;
+    if (turn == null && isHedged(primary, chain)) {
+      routed = hedge(routed, attemptCall(chain.get(1), request, requestAttributes, client, null),
+        hedgeDelay(primary, ProviderStatsTracker.Kind.CALL));
+      next = 2;
+    }
+    for (int i = next; i < chain.size(); i++) {
+      String fallback = chain.get(i);
+      routed = routed.onErrorResume(ProviderRoutingService::isProviderFailure, error -> {
+        failures.add(error);
+        log.warn("Failing over to {}: {}", fallback, error.toString());
+        return attemptCall(fallback, request, requestAttributes, client, turn);
+      });
+    }
+    return routed
+      .onErrorMap(error -> unavailable(chain, error, failures))
+      .block();
+  }
+
+  private <T> Flux<T> stream(String aiProvider, Function<ChatClient, Flux<T>> request, ConversationTurns.Turn turn) {
+    return UsageAdvisor.withClient(ObservabilityAdvisor.withRequestContext(Flux.defer(() -> {
+      List<String> chain = chain(aiProvider, ProviderStatsTracker.Kind.FIRST_TOKEN);
+      String primary = chain.get(0);
+      if (chain.size() == 1 && policy(primary).getTimeout() == null) {
+        return attemptStream(primary, request, turn);
+      }
+      List<Throwable> failures = new CopyOnWriteArrayList<>();
+      Flux<T> routed = attemptStream(primary, request, turn);
+      int next = 1;
+      if (turn == null && isHedged(primary, chain)) {
+        routed = hedge(routed, attemptStream(chain.get(1), request, null),
+          hedgeDelay(primary, ProviderStatsTracker.Kind.FIRST_TOKEN));
+        next = 2;
+      }
+      for (int i = next; i < chain.size(); i++) {
+        routed = failoverBeforeFirstToken(routed, chain.get(i), attemptStream(chain.get(i), request, turn), failures);
+      }
+      return routed.onErrorMap(error -> unavailable(chain, error, failures));
+    })));
+  }
+
+  private <T> Mono<T> attemptCall(String provider, Function<ChatClient, T> request,
+      RequestAttributes requestAttributes, String client, ConversationTurns.Turn turn) {
+    Duration timeout = policy(provider).getTimeout();
+    //flagged before the cancel reaches the attempt's thread, so its advisors see it as cancelled
+    Mono<T> attempt = Mono.defer(() -> {
+      AtomicBoolean cancelled = new AtomicBoolean();
+      ConversationTurns.Attempt memory = turn == null ? null : turn.attempt();
+      Supplier<T> timed = () -> timedCall(provider, request);
+      Supplier<T> call = memory == null ? timed : () -> memory.run(timed);
+      Mono<T> running = Mono.fromCallable(() -> withRequestAttributes(requestAttributes,
+          () -> UsageAdvisor.callWithClient(client, () -> CallCancellation.run(cancelled, call))))
+        .subscribeOn(blockingScheduler)
+        .doOnCancel(() -> cancelled.set(true));
+      Mono<T> bounded = timeout == null ? running : running.timeout(timeout);
+      //a timed out attempt's late writes land in its discarded record
+      return memory == null ? bounded : bounded
+        .doOnSuccess(result -> memory.commit())
+        .doOnError(error -> memory.discard())
+        .doOnCancel(memory::discard);
+    });
+    return instrument(provider, attempt);
+  }
+
+  private <T> T timedCall(String provider, Function<ChatClient, T> request) {
+    long start = System.nanoTime();
+    T result = request.apply(multiModelProviderService.getChatClient(provider));
+    statsTracker.recordLatency(provider, ProviderStatsTracker.Kind.CALL, System.nanoTime() - start);
+    if (result == null) {
+      throw emptyAnswer(provider);
+    }
+    return result;
+  }
+
+  private <T> Flux<T> attemptStream(String provider, Function<ChatClient, Flux<T>> request,
+      ConversationTurns.Turn turn) {
+    return Flux.defer(() -> {
+      ConversationTurns.Attempt memory = turn == null ? null : turn.attempt();
+      long start = System.nanoTime();
+      AtomicBoolean firstToken = new AtomicBoolean();
+      Flux<T> attempt = request.apply(multiModelProviderService.getChatClient(provider))
+        .doOnNext(chunk -> {
+          if (firstToken.compareAndSet(false, true)) {
+            statsTracker.recordLatency(provider, ProviderStatsTracker.Kind.FIRST_TOKEN, System.nanoTime() - start);
+          }
+        })
+        .switchIfEmpty(Flux.error(() -> emptyAnswer(provider)));
+      Duration timeout = policy(provider).getTimeout();
+      //only the first token is timed; a stream that has started may take as long as it needs
+      Flux<T> timed = timeout == null ? attempt : attempt.timeout(Mono.delay(timeout), chunk -> Mono.never());
+      //conversations are not hedged, so a cancel is the client leaving: keep the user message as before
+      return memory == null ? timed : timed
+        .doOnComplete(memory::commit)
+        .doOnError(error -> memory.discard())
+        .doOnCancel(memory::commit);
+    })
+      .doOnSubscribe(subscription -> statsTracker.started(provider))
+      .doFinally(signal -> statsTracker.finished(provider, outcome(signal)));
+  }
+
+  private static IllegalStateException emptyAnswer(String provider) {
+    return new IllegalStateException(provider + " returned an empty answer");
+  }
+
+  //placed after the timeout, so a timed out attempt counts as a failure and a cancelled hedge loser does not
+  private <T> Mono<T> instrument(String provider, Mono<T> attempt) {
+    return attempt
+      .doOnSubscribe(subscription -> statsTracker.started(provider))
+      .doFinally(signal -> statsTracker.finished(provider, outcome(signal)));
+  }
+
+  private static ProviderStatsTracker.Outcome outcome(SignalType signal) {
+    return switch (signal) {
+      case ON_ERROR -> ProviderStatsTracker.Outcome.FAILURE;
+      case CANCEL -> ProviderStatsTracker.Outcome.CANCELLED;
+      default -> ProviderStatsTracker.Outcome.SUCCESS;
+    };
+  }
+
+  private <T> Flux<T> failoverBeforeFirstToken(Flux<T> routed, String fallback, Flux<T> fallbackAttempt,
+      List<Throwable> failures) {
+    return Flux.defer(() -> {
+      AtomicBoolean emitted = new AtomicBoolean();
+      return routed
+        .doOnNext(chunk -> emitted.set(true))
+        .onErrorResume(error -> !emitted.get() && isProviderFailure(error), error -> {
+          failures.add(error);
+          log.warn("Failing over stream to {}: {}", fallback, error.toString());
+          return fallbackAttempt;
+        });
+    });
+  }
+
+  /**
+   * A rejected token budget is the caller's limit, not a provider failure: it is
+   * neither failed over nor reported as unavailable providers.
+   */
+  private static boolean isProviderFailure(Throwable error) {
+    return budgetExceeded(error) == null;
+  }
+
+  private static Throwable unavailable(List<String> chain, Throwable error, List<Throwable> earlierFailures) {
+    TokenBudgetExceededException budgetExceeded = budgetExceeded(error);
+    return budgetExceeded != null ? budgetExceeded : new ProviderUnavailableException(chain, error, earlierFailures);
+  }
+
+  //hedged attempts that both fail end in a composite error that suppresses each failure
+  private static TokenBudgetExceededException budgetExceeded(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+      if (cause instanceof TokenBudgetExceededException budgetExceeded) {
+        return budgetExceeded;
+      }
+      for (Throwable suppressed : cause.getSuppressed()) {
+        if (suppressed instanceof TokenBudgetExceededException budgetExceeded) {
+          return budgetExceeded;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Starts the hedge after the delay, or straight away if the primary fails
+   * first. The first attempt to emit a value wins and the other is cancelled.
+   */
+  private static <T> Mono<T> hedge(Mono<T> primary, Mono<T> secondary, Duration delay) {
+    return Mono.defer(() -> {
+      Sinks.Empty<Void> primaryFailed = Sinks.empty();
+      Mono<T> hedged = Mono.firstWithSignal(Mono.delay(delay).then(), primaryFailed.asMono())
+        .then(secondary);
+      return Mono.firstWithValue(primary.doOnError(error -> primaryFailed.tryEmitEmpty()), hedged);
+    });
+  }
+
+  private static <T> Flux<T> hedge(Flux<T> primary, Flux<T> secondary, Duration delay) {
+    return Flux.defer(() -> {
+      Sinks.Empty<Void> primaryFailed = Sinks.empty();
+      Flux<T> hedged = Mono.firstWithSignal(Mono.delay(delay).then(), primaryFailed.asMono())
+        .thenMany(secondary);
+      return Flux.firstWithValue(primary.doOnError(error -> primaryFailed.tryEmitEmpty()), hedged);
+    });
+  }
+
+  private boolean isHedged(String primary, List<String> chain) {
+    return chain.size() > 1 && policy(primary).getHedge().isEnabled();
+  }
+
+  private Duration hedgeDelay(String provider, ProviderStatsTracker.Kind kind) {
+    AIProviderProperties.Hedge hedge = policy(provider).getHedge();
+    Duration delay = statsTracker.percentile(provider, kind, hedge.getPercentile())
+      .orElse(hedge.getInitialDelay());
+    return delay.compareTo(hedge.getMinDelay()) < 0 ? hedge.getMinDelay() : delay;
+  }
+
+  private AIProviderProperties.Provider policy(String provider) {
+    if (properties.getProviders() == null) {
+      return DEFAULT_POLICY;
+    }
+    return properties.getProviders().getOrDefault(provider, DEFAULT_POLICY);
+  }
+
+  //advisors read request headers through RequestContextHolder, which is bound to the servlet thread
+  private static <T> T withRequestAttributes(RequestAttributes requestAttributes, Supplier<T> call) {
+    RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+    try {
+      return call.get();
+    } finally {
+      RequestContextHolder.setRequestAttributes(previous);
+    }
+  }
+}
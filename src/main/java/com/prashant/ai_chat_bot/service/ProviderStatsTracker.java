@@ -0,0 +1,171 @@
+package com.prashant.ai_chat_bot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live per-provider statistics fed by {@link ProviderRoutingService}.
+ *
+ * - LATENCY WINDOW: the last {@link #WINDOW} successful samples per kind, used for
+ *   hedge delays. Percentiles are only reported once {@link #MIN_SAMPLES} exist.
+ * - EWMA LATENCY: smoothed latency per kind, used by the auto router
+ * - ERROR RATE: EWMA over attempt outcomes, decaying towards zero while a provider
+ *   gets no traffic so a provider that failed once is not avoided forever
+ * - IN-FLIGHT: attempts currently running against the provider
+ *
+ * Everything except the latency window is published as llm.provider.* gauges.
+ */
+@Component
+public class ProviderStatsTracker {
+
+  public enum Kind { CALL, FIRST_TOKEN }
+
+  public enum Outcome { SUCCESS, FAILURE, CANCELLED }
+
+  static final int WINDOW = 128;
+  static final int MIN_SAMPLES = 20;
+  private static final double EWMA_ALPHA = 0.2;
+  private static final Duration ERROR_HALF_LIFE = Duration.ofMinutes(1);
+
+  private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  public ProviderStatsTracker(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  public void started(String provider) {
+    stats(provider).inFlight.incrementAndGet();
+  }
+
+  public void recordLatency(String provider, Kind kind, long nanos) {
+    stats(provider).latency(kind).add(nanos);
+  }
+
+  public void finished(String provider, Outcome outcome) {
+    ProviderStats providerStats = stats(provider);
+    providerStats.inFlight.decrementAndGet();
+    //a cancelled hedge loser says nothing about the provider's health
+    if (outcome != Outcome.CANCELLED) {
+      providerStats.recordOutcome(outcome == Outcome.FAILURE);
+    }
+  }
+
+  /**
+   * @return the given latency percentile (0..1), or empty while too few samples exist
+   */
+  public Optional<Duration> percentile(String provider, Kind kind, double percentile) {
+    ProviderStats providerStats = stats.get(provider);
+    return providerStats == null ? Optional.empty() : providerStats.latency(kind).percentile(percentile);
+  }
+
+  /**
+   * @return smoothed latency, or empty if the provider has not answered yet
+   */
+  public Optional<Duration> ewmaLatency(String provider, Kind kind) {
+    ProviderStats providerStats = stats.get(provider);
+    return providerStats == null ? Optional.empty() : providerStats.latency(kind).ewma();
+  }
+
+  public double errorRate(String provider) {
+    ProviderStats providerStats = stats.get(provider);
+    return providerStats == null ? 0 : providerStats.errorRate();
+  }
+
+  public int inFlight(String provider) {
+    ProviderStats providerStats = stats.get(provider);
+    return providerStats == null ? 0 : providerStats.inFlight.get();
+  }
+
+  private ProviderStats stats(String provider) {
+    return stats.computeIfAbsent(provider, this::register);
+  }
+
+  private ProviderStats register(String provider) {
+    ProviderStats providerStats = new ProviderStats();
+    Gauge.builder("llm.provider.inflight", providerStats.inFlight, AtomicInteger::get)
+      .description("Attempts currently running against the provider")
+      .tag("provider", provider)
+      .register(meterRegistry);
+    Gauge.builder("llm.provider.error.rate", providerStats, ProviderStats::errorRate)
+      .description("Smoothed share of failed attempts")
+      .tag("provider", provider)
+      .register(meterRegistry);
+    for (Kind kind : Kind.values()) {
+      Gauge.builder("llm.provider.latency.ewma", providerStats.latency(kind), LatencyWindow::ewmaMillis)
+        .description("Smoothed latency in milliseconds (call: full response, first_token: stream start)")
+        .tag("provider", provider)
+        .tag("kind", kind.name().toLowerCase())
+        .register(meterRegistry);
+    }
+    return providerStats;
+  }
+
+  private static final class ProviderStats {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyWindow callLatency = new LatencyWindow();
+    private final LatencyWindow firstTokenLatency = new LatencyWindow();
+    private double errorEwma;
+    private long errorUpdatedNanos = System.nanoTime();
+
+    LatencyWindow latency(Kind kind) {
+      return kind == Kind.CALL ? callLatency : firstTokenLatency;
+    }
+
+    synchronized void recordOutcome(boolean failed) {
+      errorEwma = decayedErrorRate() * (1 - EWMA_ALPHA) + (failed ? EWMA_ALPHA : 0);
+      errorUpdatedNanos = System.nanoTime();
+    }
+
+    synchronized double errorRate() {
+      return decayedErrorRate();
+    }
+
+    private double decayedErrorRate() {
+      double halfLives = (double) (System.nanoTime() - errorUpdatedNanos) / ERROR_HALF_LIFE.toNanos();
+      return errorEwma * Math.pow(0.5, halfLives);
+    }
+  }
+
+  private static final class LatencyWindow {
+
+    private final long[] ring = new long[WINDOW];
+    private int size;
+    private int next;
+    private double ewmaNanos = -1;
+
+    synchronized void add(long nanos) {
+      ring[next] = nanos;
+      next = (next + 1) % WINDOW;
+      size = Math.min(size + 1, WINDOW);
+      ewmaNanos = ewmaNanos < 0 ? nanos : ewmaNanos * (1 - EWMA_ALPHA) + nanos * EWMA_ALPHA;
+    }
+
+    synchronized Optional<Duration> ewma() {
+      return ewmaNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos((long) ewmaNanos));
+    }
+
+    synchronized double ewmaMillis() {
+      return ewmaNanos < 0 ? Double.NaN : ewmaNanos / 1_000_000;
+    }
+
+    synchronized Optional<Duration> percentile(double percentile) {
+      if (size < MIN_SAMPLES) {
+        return Optional.empty();
+      }
+      long[] sorted = Arrays.copyOf(ring, size);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile * size) - 1;
+      return Optional.of(Duration.ofNanos(sorted[Math.max(0, Math.min(index, size - 1))]));
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package com.prashant.ai_chat_bot.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batches streamed tokens into fewer, larger SSE events.
+ *
+ * Fast providers send a chunk every few milliseconds, often a single word. One
+ * SSE event per chunk means one write, one flush and one event frame each.
+ *
+ * POLICY, per stream:
+ * - the first non-empty chunk is written immediately, so time to first token is unchanged
+ * - later chunks are held until window has passed since the first held chunk, or
+ *   until max-bytes of text (UTF-8) are pending, whichever comes first
+ * - a held batch is only written once the client asked for more; while it has not,
+ *   chunks keep merging into the pending batch instead of queueing as separate events
+ * - the provider stream is read one chunk at a time, and reading stops while max-bytes
+ *   are held for a client that has not asked for more, so a slow client slows the
+ *   provider stream down instead of piling up text
+ * - on completion or error the pending batch is written first
+ *
+ * Events are written by one thread at a time, never while holding the lock: the
+ * provider's thread, or the timer's when a window ends between chunks.
+ *
+ * Chunks received and events written per stream are recorded as the
+ * llm.stream.chunks and llm.stream.flushes distribution summaries.
+ */
+@Component
+public class StreamCoalescer {
+
+  private final boolean enabled;
+  private final Duration window;
+  private final int maxBytes;
+  private final Scheduler timer = Schedulers.parallel();
+  private final MeterRegistry meterRegistry;
+
+  public StreamCoalescer(MeterRegistry meterRegistry,
+      @Value("${app.ai.streaming.coalesce.enabled:true}") boolean enabled,
+      @Value("${app.ai.streaming.coalesce.window:PT0.03S}") Duration window,
+      @Value("${app.ai.streaming.coalesce.max-bytes:512}") int maxBytes) {
+    this.meterRegistry = meterRegistry;
+    this.enabled = enabled;
+    this.window = window;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @param stream name of the stream for the metrics, e.g. the endpoint
+   */
+  public Flux<String> coalesce(Flux<String> tokens, String stream) {
+    if (!enabled) {
+      return tokens;
+    }
+    return Flux.create(sink -> tokens.subscribe(new Coalescing(sink, stream)));
+  }
+
+  static int utf8Length(CharSequence text) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  //reads one chunk at a time; events are written by whichever thread drains, one at a time and outside the lock
+  private final class Coalescing extends BaseSubscriber<String> {
+
+    private final FluxSink<String> sink;
+    private final String stream;
+    private final AtomicInteger wip = new AtomicInteger();
+    //the fields below are guarded by this
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingBytes;
+    private boolean firstWritten;
+    private boolean due;
+    private boolean paused;
+    private boolean done;
+    private boolean terminated;
+    private Throwable error;
+    private Disposable flushTimer;
+    private long chunks;
+    private long flushes;
+    private boolean recorded;
+
+    private Coalescing(FluxSink<String> sink, String stream) {
+      this.sink = sink;
+      this.stream = stream;
+      sink.onRequest(n -> drain());
+      sink.onDispose(() -> {
+        dispose();
+        synchronized (this) {
+          cancelTimer();
+        }
+        record();
+      });
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      request(1);
+    }
+
+    @Override
+    protected void hookOnNext(String token) {
+      boolean more;
+      synchronized (this) {
+        chunks++;
+        if (token != null && !token.isEmpty()) {
+          pending.append(token);
+          pendingBytes += utf8Length(token);
+          if (!firstWritten) {
+            firstWritten = true;
+            due = true;
+          } else if (!due && flushTimer == null) {
+            flushTimer = timer.schedule(this::onTimer, window.toNanos(), TimeUnit.NANOSECONDS);
+          }
+        }
+        //a full batch the client has not taken yet: stop reading until it is written
+        paused = pendingBytes >= maxBytes;
+        more = !paused;
+      }
+      if (more) {
+        request(1);
+      }
+      drain();
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+      synchronized (this) {
+        error = throwable;
+        done = true;
+        cancelTimer();
+      }
+      drain();
+    }
+
+    @Override
+    protected void hookOnComplete() {
+      synchronized (this) {
+        done = true;
+        cancelTimer();
+      }
+      drain();
+    }
+
+    private void onTimer() {
+      synchronized (this) {
+        flushTimer = null;
+        due = true;
+      }
+      drain();
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        while (drainOne()) {
+          //keep writing while batches are ready and wanted
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    //true if a batch was written
+    private boolean drainOne() {
+      String batch = null;
+      boolean resume = false;
+      boolean terminate = false;
+      Throwable failure = null;
+      synchronized (this) {
+        if (terminated) {
+          return false;
+        }
+        boolean ready = !pending.isEmpty() && (due || done || pendingBytes >= maxBytes);
+        if (ready && sink.requestedFromDownstream() > 0) {
+          batch = pending.toString();
+          pending.setLength(0);
+          pendingBytes = 0;
+          due = false;
+          cancelTimer();
+          flushes++;
+          resume = paused && !done;
+          paused = false;
+        } else if (done && pending.isEmpty()) {
+          terminated = true;
+          terminate = true;
+          failure = error;
+        }
+      }
+      if (batch != null) {
+        sink.next(batch);
+        if (resume) {
+          request(1);
+        }
+        return true;
+      }
+      if (terminate) {
+        record();
+        if (failure != null) {
+          sink.error(failure);
+        } else {
+          sink.complete();
+        }
+      }
+      return false;
+    }
+
+    private void cancelTimer() {
+      if (flushTimer != null) {
+        flushTimer.dispose();
+        flushTimer = null;
+      }
+    }
+
+    private void record() {
+      long chunksSeen;
+      long flushesWritten;
+      synchronized (this) {
+        if (recorded) {
+          return;
+        }
+        recorded = true;
+        chunksSeen = chunks;
+        flushesWritten = flushes;
+      }
+      DistributionSummary.builder("llm.stream.chunks")
+        .description("Provider chunks received per stream")
+        .tag("stream", stream)
+        .register(meterRegistry)
+        .record(chunksSeen);
+      DistributionSummary.builder("llm.stream.flushes")
+        .description("SSE events written per stream after coalescing")
+        .tag("stream", stream)
+        .register(meterRegistry)
+        .record(flushesWritten);
+    }
+  }
+}
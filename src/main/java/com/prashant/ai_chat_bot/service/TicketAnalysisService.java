@@ -0,0 +1,280 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.config.AsyncConfig;
+import com.prashant.ai_chat_bot.exception.AdmissionRejectedException;
+import com.prashant.ai_chat_bot.exception.BadRequestException;
+import com.prashant.ai_chat_bot.exception.ProviderUnavailableException;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import com.prashant.ai_chat_bot.model.BespokeResponse;
+import com.prashant.ai_chat_bot.model.TicketAnalysis;
+import com.prashant.ai_chat_bot.model.TicketAnalysisField;
+import com.prashant.ai_chat_bot.model.TicketAnalysisResponse;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import com.prashant.ai_chat_bot.utils.InputSanitizer;
+import com.prashant.ai_chat_bot.utils.StreamingJsonParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Ticket analysis pipeline: analysis on the requested provider, followed by
+ * bespoke responses on Gemini for HIGH/URGENT tickets.
+ *
+ * The async variants run both steps on the LLM worker pool and chain the
+ * bespoke step directly onto the analysis result, so the servlet thread is
+ * released for the whole pipeline. Batch requests fan out one pipeline per
+ * ticket, bounded per provider by {@link ProviderConcurrencyLimiter}: a ticket
+ * waiting for its provider holds no worker thread. A failed ticket does not fail
+ * the batch; its entry carries an error code instead of an analysis.
+ *
+ * STREAMING variant ({@link #analyzeStream}): both answers are streamed and parsed
+ * incrementally with {@link StreamingJsonParser}, so every analysis field and every
+ * bespoke response is sent as soon as the model has finished writing it. The
+ * bespoke request starts once category, priority and keyIssues are known, while
+ * the model is still writing the rest of the analysis.
+ *
+ * bypassCache applies to every provider call of the pipeline, bespoke ones included.
+ */
+@Service
+@Slf4j
+public class TicketAnalysisService {
+
+  private static final List<TicketAnalysis.TicketPriority> BESPOKE_RESPONSE_TRIGGER =
+    List.of(TicketAnalysis.TicketPriority.HIGH, TicketAnalysis.TicketPriority.URGENT);
+
+  //the formats are part of the prompt templates' static prefix, so answers are only converted here
+  private static final BeanOutputConverter<TicketAnalysis> TICKET_ANALYSIS_OUTPUT =
+    new BeanOutputConverter<>(TicketAnalysis.class);
+  private static final BeanOutputConverter<List<BespokeResponse>> BESPOKE_RESPONSES_OUTPUT =
+    new BeanOutputConverter<>(new ParameterizedTypeReference<List<BespokeResponse>>() {});
+  private static final List<String> BESPOKE_RESPONSE_INPUTS = List.of("category", "priority", "keyIssues");
+
+  private final ProviderRoutingService providerRoutingService;
+  private final UserPromptService userPromptService;
+  private final ProviderConcurrencyLimiter concurrencyLimiter;
+  private final AsyncTaskExecutor llmTaskExecutor;
+  private final ObjectMapper objectMapper;
+  private final int maxBatchSize;
+
+  public TicketAnalysisService(ProviderRoutingService providerRoutingService,
+      UserPromptService userPromptService,
+      ProviderConcurrencyLimiter concurrencyLimiter,
+      @Qualifier(AsyncConfig.LLM_TASK_EXECUTOR) AsyncTaskExecutor llmTaskExecutor,
+      ObjectMapper objectMapper,
+      @Value("${app.ai.ticket-analysis.max-batch-size:50}") int maxBatchSize) {
+    this.providerRoutingService = providerRoutingService;
+    this.userPromptService = userPromptService;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.llmTaskExecutor = llmTaskExecutor;
+    this.objectMapper = objectMapper;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public TicketAnalysisResponse analyze(String aiProvider, boolean bypassCache, String ticketText) {
+    TicketAnalysis ticketAnalysis = analyzeTicket(aiProvider, bypassCache, ticketText);
+    if (ticketAnalysis == null) {
+      return TicketAnalysisResponse.builder().build();
+    }
+    TicketAnalysisResponse response = TicketAnalysisResponse.builder().ticketAnalysis(ticketAnalysis).build();
+    if (requiresBespokeResponses(ticketAnalysis)) {
+      response.setBespokeResponses(generateBespokeResponses(bypassCache, ticketAnalysis));
+    }
+    return response;
+  }
+
+  public CompletableFuture<TicketAnalysisResponse> analyzeAsync(String aiProvider, boolean bypassCache,
+      String ticketText) {
+    return CompletableFuture
+      .supplyAsync(() -> analyzeTicket(aiProvider, bypassCache, ticketText), llmTaskExecutor)
+      .thenCompose(ticketAnalysis -> withBespokeResponses(bypassCache, ticketAnalysis));
+  }
+
+  public CompletableFuture<List<TicketAnalysisResponse>> analyzeBatch(String aiProvider, boolean bypassCache,
+      List<String> tickets) {
+    if (CollectionUtils.isEmpty(tickets)) {
+      return CompletableFuture.completedFuture(List.of());
+    }
+    if (tickets.size() > maxBatchSize) {
+      throw new BadRequestException("Batch size " + tickets.size() + " exceeds the limit of " + maxBatchSize);
+    }
+
+    List<CompletableFuture<TicketAnalysisResponse>> pipelines = tickets.stream()
+      .map(InputSanitizer::sanitize)
+      .map(ticketText -> concurrencyLimiter
+        .submit(aiProvider, () -> analyzeTicket(aiProvider, bypassCache, ticketText), llmTaskExecutor)
+        .thenCompose(ticketAnalysis -> withBespokeResponses(bypassCache, ticketAnalysis))
+        .exceptionally(TicketAnalysisService::failedEntry))
+      .toList();
+
+    return CompletableFuture.allOf(pipelines.toArray(CompletableFuture[]::new))
+      .thenApply(ignored -> pipelines.stream().map(CompletableFuture::join).toList());
+  }
+
+  /**
+   * Events, in the order they become available:
+   * - field: {name, value} for each TicketAnalysis field
+   * - bespoke: one BespokeResponse (HIGH/URGENT tickets only), may interleave with fields
+   * - analysis: the complete TicketAnalysis
+   * - done, or error if either stream failed
+   */
+  public Flux<ServerSentEvent<Object>> analyzeStream(String aiProvider, boolean bypassCache, String ticketText) {
+    return Flux.defer(() -> {
+      Prompt prompt = userPromptService.createTicketAnalysisPrompt(ticketText);
+      ObjectNode fields = objectMapper.createObjectNode();
+
+      Flux<StreamingJsonParser.Element> analysisFields = StreamingJsonParser.elements(
+          providerRoutingService.stream(aiProvider, chatClient -> chatClient
+            .prompt()
+            .user(prompt.getContents())
+            .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+            .stream()
+            .content()),
+          StreamingJsonParser.forObject(objectMapper))
+        .doOnNext(element -> fields.set(element.field(), element.value()));
+
+      return analysisFields.publish(shared -> Flux.merge(
+          shared.map(element -> event("field", new TicketAnalysisField(element.field(), fieldValue(element)))),
+          //starts the bespoke stream as soon as its inputs are known, not when the analysis ends
+          shared.filter(ignored -> BESPOKE_RESPONSE_INPUTS.stream().allMatch(fields::hasNonNull))
+            .next()
+            .flatMap(ignored -> Mono.fromCallable(() -> toTicketAnalysis(fields)))
+            .filter(this::requiresBespokeResponses)
+            .flatMapMany(ticketAnalysis -> streamBespokeResponses(bypassCache, ticketAnalysis))
+            .map(bespokeResponse -> event("bespoke", bespokeResponse)),
+          shared.then(Mono.fromCallable(() -> event("analysis", toTicketAnalysis(fields))))))
+        .concatWith(Mono.just(event("done", "")))
+        .onErrorResume(error -> {
+          log.error("Streaming ticket analysis failed", error);
+          return Flux.just(event("error", "Ticket analysis failed"));
+        });
+    });
+  }
+
+  private Flux<BespokeResponse> streamBespokeResponses(boolean bypassCache, TicketAnalysis ticketAnalysis) {
+    Prompt bespokeResponsePrompt = userPromptService
+      .createBespokeResponsePrompt(ticketAnalysis.getCategory(), ticketAnalysis.getKeyIssues());
+    return StreamingJsonParser.elements(
+        providerRoutingService.stream(AIProviderConstants.GEMINI, chatClient -> chatClient
+          .prompt()
+          .user(bespokeResponsePrompt.getContents())
+          .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+          .stream()
+          .content()),
+        StreamingJsonParser.forArray(objectMapper))
+      .handle((element, sink) -> {
+        try {
+          sink.next(objectMapper.treeToValue(element.value(), BespokeResponse.class));
+        } catch (JsonProcessingException e) {
+          log.warn("Skipping malformed bespoke response {}", element.value());
+        }
+      });
+  }
+
+  private TicketAnalysis toTicketAnalysis(ObjectNode fields) throws JsonProcessingException {
+    return objectMapper.treeToValue(fields, TicketAnalysis.class);
+  }
+
+  //the value as the complete TicketAnalysis will carry it, e.g. "P1" becomes "HIGH"
+  private Object fieldValue(StreamingJsonParser.Element element) {
+    ObjectNode single = objectMapper.createObjectNode().set(element.field(), element.value());
+    try {
+      JsonNode typed = objectMapper.valueToTree(toTicketAnalysis(single)).get(element.field());
+      return typed != null ? typed : element.value();
+    } catch (JsonProcessingException | IllegalArgumentException e) {
+      return element.value();
+    }
+  }
+
+  private static ServerSentEvent<Object> event(String name, Object data) {
+    return ServerSentEvent.builder(data).event(name).build();
+  }
+
+  private CompletableFuture<TicketAnalysisResponse> withBespokeResponses(boolean bypassCache,
+      TicketAnalysis ticketAnalysis) {
+    if (ticketAnalysis == null) {
+      return CompletableFuture.completedFuture(TicketAnalysisResponse.builder().build());
+    }
+    TicketAnalysisResponse response = TicketAnalysisResponse.builder().ticketAnalysis(ticketAnalysis).build();
+    if (!requiresBespokeResponses(ticketAnalysis)) {
+      return CompletableFuture.completedFuture(response);
+    }
+    return concurrencyLimiter
+      .submit(AIProviderConstants.GEMINI, () -> generateBespokeResponses(bypassCache, ticketAnalysis), llmTaskExecutor)
+      .thenApply(bespokeResponses -> {
+        response.setBespokeResponses(bespokeResponses);
+        return response;
+      });
+  }
+
+  private static TicketAnalysisResponse failedEntry(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    log.warn("Ticket analysis failed for batch entry", cause);
+    return TicketAnalysisResponse.builder().error(errorCode(cause)).build();
+  }
+
+  //the codes of the matching error responses, without details meant for the logs
+  private static String errorCode(Throwable error) {
+    if (error instanceof TokenBudgetExceededException) {
+      return "TOKEN_BUDGET_EXCEEDED";
+    }
+    if (error instanceof AdmissionRejectedException || error instanceof TaskRejectedException) {
+      return "TOO_MANY_REQUESTS";
+    }
+    if (error instanceof ProviderUnavailableException) {
+      return "PROVIDER_UNAVAILABLE";
+    }
+    return "ANALYSIS_FAILED";
+  }
+
+  private TicketAnalysis analyzeTicket(String aiProvider, boolean bypassCache, String ticketText) {
+    Prompt prompt = userPromptService.createTicketAnalysisPrompt(ticketText);
+    return providerRoutingService.call(aiProvider, chatClient -> convert(TICKET_ANALYSIS_OUTPUT, chatClient
+      .prompt()
+      .user(prompt.getContents())
+      .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+      .call()
+      .content()));
+  }
+
+  private boolean requiresBespokeResponses(TicketAnalysis ticketAnalysis) {
+    return BESPOKE_RESPONSE_TRIGGER.contains(ticketAnalysis.getPriority());
+  }
+
+  private List<BespokeResponse> generateBespokeResponses(boolean bypassCache, TicketAnalysis ticketAnalysis) {
+    Prompt bespokeResponsePrompt = userPromptService
+      .createBespokeResponsePrompt(ticketAnalysis.getCategory(), ticketAnalysis.getKeyIssues());
+    //irrespective of what was the original provider, use gemini for bespoke response
+    List<BespokeResponse> bespokeResponses = providerRoutingService.call(AIProviderConstants.GEMINI,
+      chatClient -> convert(BESPOKE_RESPONSES_OUTPUT, chatClient
+        .prompt()
+        .user(bespokeResponsePrompt.getContents())
+        .advisors(advisorSpec -> advisorSpec.param(ResponseCacheAdvisor.BYPASS, bypassCache))
+        .call()
+        .content()));
+    return CollectionUtils.isEmpty(bespokeResponses) ? null : bespokeResponses;
+  }
+
+  //inside the routing call, so an unparseable answer fails over like .entity() did
+  private static <T> T convert(BeanOutputConverter<T> converter, String content) {
+    return content == null ? null : converter.convert(content);
+  }
+}
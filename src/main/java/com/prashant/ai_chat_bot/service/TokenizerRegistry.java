@@ -0,0 +1,46 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import com.prashant.ai_chat_bot.utils.Tokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The tokenizer for each provider, from spring.ai.providers.<name>.tokenizer
+ * (app.ai.tokenizer.openai for OpenAI, which is configured through Spring AI's
+ * own properties).
+ *
+ * Llama models (groq, ollama) use a tiktoken-style vocabulary close to
+ * cl100k_base; Gemini, Cohere and Mistral have no local tokenizer and use the
+ * calibrated approximation. Providers without a setting count with cl100k_base.
+ */
+@Component
+@Slf4j
+public class TokenizerRegistry {
+
+  private final Map<String, Tokenizer> tokenizers = new HashMap<>();
+  private final Tokenizer defaultTokenizer = TokenCounter.forName(TokenCounter.DEFAULT_ENCODING);
+
+  public TokenizerRegistry(AIProviderProperties properties,
+      @Value("${app.ai.tokenizer.openai:o200k_base}") String openAiTokenizer) {
+    tokenizers.put(AIProviderConstants.OPENAI, TokenCounter.forName(openAiTokenizer));
+    if (properties.getProviders() != null) {
+      properties.getProviders().forEach((name, provider) -> {
+        if (provider.getTokenizer() != null) {
+          tokenizers.put(name, TokenCounter.forName(provider.getTokenizer()));
+        }
+      });
+    }
+    log.info("Tokenizers per provider: {}", tokenizers);
+  }
+
+  public Tokenizer forProvider(String provider) {
+    return tokenizers.getOrDefault(provider, defaultTokenizer);
+  }
+}
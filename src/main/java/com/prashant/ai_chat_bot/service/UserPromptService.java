@@ -1,53 +1,126 @@
 package com.prashant.ai_chat_bot.service;
 
-import com.prashant.ai_chat_bot.utils.PromptReaderUtil;
+import com.prashant.ai_chat_bot.model.BespokeResponse;
+import com.prashant.ai_chat_bot.model.TicketAnalysis;
+import com.prashant.ai_chat_bot.utils.CodeChunker;
+import com.prashant.ai_chat_bot.utils.CompiledPromptTemplate;
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.core.io.ResourceLoader;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class UserPromptService {
-  private final ResourceLoader resourceLoader;
+  static final String CODE_REVIEW_PROMPT = "classpath:/prompts/code-review.txt";
+  static final String CODE_REVIEW_BATCH_PROMPT = "classpath:/prompts/code-review-batch.txt";
+  static final String CODE_REVIEW_CHUNK_PROMPT = "classpath:/prompts/code-review-chunk.txt";
+  static final String CODE_REVIEW_REDUCE_PROMPT = "classpath:/prompts/code-review-reduce.txt";
+  static final String TICKET_ANALYSIS_PROMPT = "classpath:/prompts/ticket-analysis.txt";
+  static final String BESPOKE_RESPONSE_PROMPT = "classpath:/prompts/bespoke-responses.txt";
+
+  static final List<String> TEMPLATES = List.of(CODE_REVIEW_PROMPT, CODE_REVIEW_BATCH_PROMPT,
+    CODE_REVIEW_CHUNK_PROMPT, CODE_REVIEW_REDUCE_PROMPT, TICKET_ANALYSIS_PROMPT, BESPOKE_RESPONSE_PROMPT);
+
+  //output formats are the same for every request, so they are filled in as part of the static prefix
+  static final Map<String, Map<String, String>> CONSTANTS = Map.of(
+    TICKET_ANALYSIS_PROMPT, Map.of("format", new BeanOutputConverter<>(TicketAnalysis.class).getFormat()),
+    BESPOKE_RESPONSE_PROMPT, Map.of("format",
+      new BeanOutputConverter<>(new ParameterizedTypeReference<List<BespokeResponse>>() {}).getFormat()));
+
+  //more literal text than this after the first placeholder means instructions sit behind request content
+  static final int MAX_VARIABLE_SECTION_LITERALS = 200;
+
+  private final PromptTemplateRegistry promptTemplateRegistry;
+
+  /**
+   * Compiles all templates at startup so the first request doesn't pay for classpath reads.
+   *
+   * Prompts are laid out for provider prefix caching: system prompt, then the
+   * template's static instructions, then the request's values at the end. Only the
+   * part before the first value can be served from a provider's prompt cache.
+   */
+  @PostConstruct
+  void preloadTemplates() {
+    for (String location : TEMPLATES) {
+      CompiledPromptTemplate template = template(location);
+      if (template.getVariableSectionLiteralLength() > MAX_VARIABLE_SECTION_LITERALS) {
+        log.warn("Prompt {} has {} chars of instructions after its first placeholder; they are not part of the "
+          + "cacheable prefix", location, template.getVariableSectionLiteralLength());
+      }
+    }
+  }
 
   public Prompt createCodeReviewPrompt(String language, String code, String businessRequirements) {
-    String prompt = PromptReaderUtil.getPrompt(resourceLoader, "classpath:/prompts/code-review.txt");
-    String renderedPrompt = applyPlaceholders(prompt, Map.of(
-      "language", language,
-      "code", code,
-      "businessRequirements", businessRequirements
+    String renderedPrompt = template(CODE_REVIEW_PROMPT).render(Map.of(
+      "language", nullToEmpty(language),
+      "code", nullToEmpty(code),
+      "businessRequirements", nullToEmpty(businessRequirements)
+    ));
+    return new Prompt(renderedPrompt);
+  }
+
+  /**
+   * @param files the files to review, each introduced by its "=== FILE n ===" marker line
+   */
+  public Prompt createBatchCodeReviewPrompt(String files, String businessRequirements) {
+    String renderedPrompt = template(CODE_REVIEW_BATCH_PROMPT).render(Map.of(
+      "files", nullToEmpty(files),
+      "businessRequirements", nullToEmpty(businessRequirements)
+    ));
+    return new Prompt(renderedPrompt);
+  }
+
+  public Prompt createCodeReviewChunkPrompt(String language, CodeChunker.Chunk chunk, int chunkCount,
+      String businessRequirements) {
+    String renderedPrompt = template(CODE_REVIEW_CHUNK_PROMPT).render(Map.of(
+      "language", nullToEmpty(language),
+      "code", chunk.text(),
+      "chunkNumber", chunk.index() + 1,
+      "chunkCount", chunkCount,
+      "startLine", chunk.startLine(),
+      "endLine", chunk.endLine(),
+      "businessRequirements", nullToEmpty(businessRequirements)
+    ));
+    return new Prompt(renderedPrompt);
+  }
+
+  public Prompt createCodeReviewReducePrompt(String language, String findings, String businessRequirements) {
+    String renderedPrompt = template(CODE_REVIEW_REDUCE_PROMPT).render(Map.of(
+      "language", nullToEmpty(language),
+      "findings", nullToEmpty(findings),
+      "businessRequirements", nullToEmpty(businessRequirements)
     ));
     return new Prompt(renderedPrompt);
   }
 
   public Prompt createTicketAnalysisPrompt(String ticketText) {
-    String prompt = PromptReaderUtil.getPrompt(resourceLoader, "classpath:/prompts/ticket-analysis.txt");
-    String renderedPrompt = applyPlaceholders(prompt, Map.of(
-      "ticketText", ticketText
+    String renderedPrompt = template(TICKET_ANALYSIS_PROMPT).render(Map.of(
+      "ticketText", nullToEmpty(ticketText)
     ));
     return new Prompt(renderedPrompt);
   }
 
   public Prompt createBespokeResponsePrompt(String category, String keyIssues) {
-    String prompt = PromptReaderUtil.getPrompt(resourceLoader, "classpath:/prompts/bespoke-responses.txt");
-    String renderedPrompt = applyPlaceholders(prompt, Map.of(
-      "category", category,
-      "issues", keyIssues
+    String renderedPrompt = template(BESPOKE_RESPONSE_PROMPT).render(Map.of(
+      "category", nullToEmpty(category),
+      "issues", nullToEmpty(keyIssues)
     ));
     return new Prompt(renderedPrompt);
   }
 
-  private String applyPlaceholders(String template, Map<String, Object> values) {
-    String rendered = template;
-    for (Map.Entry<String, Object> entry : values.entrySet()) {
-      String replacement = entry.getValue() == null ? "" : entry.getValue().toString();
-      rendered = rendered.replace("{" + entry.getKey() + "}", replacement);
-    }
-    return rendered;
+  CompiledPromptTemplate template(String location) {
+    return promptTemplateRegistry.get(location, CONSTANTS.getOrDefault(location, Map.of()));
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
   }
 }
@@ -0,0 +1,397 @@
+package com.prashant.ai_chat_bot.usage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Token usage per conversation, client (API key) and provider, with token budgets.
+ *
+ * COUNTERS: every entry is a set of LongAdders, which spread concurrent updates
+ * over striped cells, so recording usage never takes a lock and parallel streams
+ * of one client do not fight over one counter. Sums are only taken by budget
+ * checks and the flush.
+ *
+ * BUDGETS (0 = unlimited):
+ * - client-tokens: tokens one client may use per window (e.g. 1d); windows are
+ *   aligned to the epoch (1d resets at UTC midnight)
+ * - conversation-tokens: tokens one conversation may use in total
+ * A request is checked with its estimate (prompt tokens + max-tokens) before it
+ * is sent, and the estimate stays reserved until the provider reports the actual
+ * usage. The check does not lock out other requests in flight, so parallel
+ * requests of one client can overshoot by at most their estimates: a soft cap.
+ *
+ * STORE: a background thread writes the aggregates as JSON every flush-interval
+ * (temp file + atomic move, so a crash leaves the previous snapshot) and they are
+ * read back at startup. Requests never wait for the flush.
+ *
+ * CLIENTS are keyed by a SHA-256 prefix of the API key, so the key itself is
+ * neither kept nor written to disk. Requests without a key share "anonymous".
+ */
+@Component
+@Slf4j
+public class UsageLedger implements DisposableBean {
+
+  public static final String ANONYMOUS = "anonymous";
+
+  static final String BUDGET_REJECTIONS = "llm.usage.budget.rejections";
+
+  private final boolean enabled;
+  private final long clientBudget;
+  private final long conversationBudget;
+  private final long windowMillis;
+  private final Path file;
+  private final ObjectMapper objectMapper;
+  private final MeterRegistry meterRegistry;
+  //providers are a handful of names; clients and conversations are bounded
+  private final Map<String, Totals> providers = new ConcurrentHashMap<>();
+  private final Cache<String, Totals> clients;
+  private final Cache<String, Totals> conversations;
+  private final List<ConversationUsageListener> listeners = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService flusher;
+  private volatile boolean dirty;
+
+  /**
+   * Notified after usage was recorded for a conversation, on the thread that ended the call.
+   */
+  @FunctionalInterface
+  public interface ConversationUsageListener {
+    void recorded(String conversationId, int inputTokens, int outputTokens);
+  }
+
+  public record TokenUsage(long inputTokens, long outputTokens, long requests) {
+    static final TokenUsage NONE = new TokenUsage(0, 0, 0);
+  }
+
+  public UsageLedger(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${app.ai.usage.enabled:false}") boolean enabled,
+      @Value("${app.ai.usage.budget.client-tokens:0}") long clientBudget,
+      @Value("${app.ai.usage.budget.conversation-tokens:0}") long conversationBudget,
+      @Value("${app.ai.usage.budget.window:P1D}") Duration window,
+      @Value("${app.ai.usage.max-clients:100000}") long maxClients,
+      @Value("${app.ai.usage.max-conversations:10000}") long maxConversations,
+      @Value("${app.ai.usage.store.file:data/usage/usage-ledger.json}") Path file,
+      @Value("${app.ai.usage.store.flush-interval:PT30S}") Duration flushInterval) {
+    this.enabled = enabled;
+    this.clientBudget = clientBudget;
+    this.conversationBudget = conversationBudget;
+    this.windowMillis = window.toMillis();
+    this.file = file;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.clients = Caffeine.newBuilder()
+      .maximumSize(maxClients)
+      .expireAfterAccess(window)
+      .build();
+    this.conversations = Caffeine.newBuilder()
+      .maximumSize(maxConversations)
+      .build();
+    if (!enabled) {
+      this.flusher = null;
+      return;
+    }
+    load();
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "usage-ledger-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flushSafely, flushInterval.toMillis(), flushInterval.toMillis(),
+      TimeUnit.MILLISECONDS);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void addConversationListener(ConversationUsageListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @return the client id for an API key: a hash prefix, or {@link #ANONYMOUS} without a key
+   */
+  public static String clientId(String apiKey) {
+    if (apiKey == null || apiKey.isBlank()) {
+      return ANONYMOUS;
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+      return "key-" + HexFormat.of().formatHex(digest, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Checks the budgets and reserves the estimate until the request ends.
+   *
+   * @param conversationId null for requests outside a conversation
+   * @throws TokenBudgetExceededException if the estimate does not fit a budget
+   */
+  public Reservation reserve(String clientId, String conversationId, int estimatedTokens) {
+    long now = System.currentTimeMillis();
+    Totals client = client(clientId, now);
+    Totals conversation = conversationId == null ? null : conversations.get(conversationId, id -> new Totals(0));
+    check(TokenBudgetExceededException.Scope.CLIENT, clientBudget, client, estimatedTokens,
+      (client.window + 1) * windowMillis - now);
+    if (conversation != null) {
+      check(TokenBudgetExceededException.Scope.CONVERSATION, conversationBudget, conversation, estimatedTokens, -1);
+    }
+    client.reserved.add(estimatedTokens);
+    if (conversation != null) {
+      conversation.reserved.add(estimatedTokens);
+    }
+    return new Reservation(client, conversation, conversationId, estimatedTokens);
+  }
+
+  /**
+   * Ends a reservation with the usage the provider reported (or its estimate).
+   */
+  public void record(Reservation reservation, String provider, int inputTokens, int outputTokens) {
+    if (!reservation.release()) {
+      return;
+    }
+    reservation.client.add(inputTokens, outputTokens);
+    if (reservation.conversation != null) {
+      reservation.conversation.add(inputTokens, outputTokens);
+    }
+    providers.computeIfAbsent(provider, name -> new Totals(0)).add(inputTokens, outputTokens);
+    dirty = true;
+    if (reservation.conversationId != null) {
+      for (ConversationUsageListener listener : listeners) {
+        listener.recorded(reservation.conversationId, inputTokens, outputTokens);
+      }
+    }
+  }
+
+  /**
+   * Ends a reservation without usage, e.g. when the call failed.
+   */
+  public void release(Reservation reservation) {
+    reservation.release();
+  }
+
+  public TokenUsage clientUsage(String clientId) {
+    Totals totals = clients.getIfPresent(clientId);
+    return totals == null || totals.window != window(System.currentTimeMillis()) ? TokenUsage.NONE : totals.usage();
+  }
+
+  public TokenUsage conversationUsage(String conversationId) {
+    Totals totals = conversations.getIfPresent(conversationId);
+    return totals == null ? TokenUsage.NONE : totals.usage();
+  }
+
+  public TokenUsage providerUsage(String provider) {
+    Totals totals = providers.get(provider);
+    return totals == null ? TokenUsage.NONE : totals.usage();
+  }
+
+  /**
+   * Writes the aggregates if anything was recorded since the last flush.
+   */
+  public void flush() throws IOException {
+    if (!dirty) {
+      return;
+    }
+    //cleared first: usage recorded while writing makes the next flush write again
+    dirty = false;
+    long window = window(System.currentTimeMillis());
+    Snapshot snapshot = new Snapshot(Instant.now(), Instant.ofEpochMilli(window * windowMillis),
+      usages(clients.asMap(), window), usages(conversations.asMap(), -1), usages(providers, -1));
+    try {
+      if (file.toAbsolutePath().getParent() != null) {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+      }
+      Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      objectMapper.writeValue(temp.toFile(), snapshot);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      dirty = true;
+      throw e;
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (flusher != null) {
+      flusher.shutdownNow();
+      flush();
+    }
+  }
+
+  //resetsInMillis < 0: the budget never resets
+  private void check(TokenBudgetExceededException.Scope scope, long budget, Totals totals, int estimatedTokens,
+      long resetsInMillis) {
+    if (budget <= 0) {
+      return;
+    }
+    long committed = totals.used() + totals.reserved.sum();
+    if (committed + estimatedTokens > budget) {
+      Counter.builder(BUDGET_REJECTIONS)
+        .description("Requests rejected because they would exceed a token budget")
+        .tag("scope", scope.name().toLowerCase())
+        .register(meterRegistry)
+        .increment();
+      throw new TokenBudgetExceededException(scope, budget, committed,
+        resetsInMillis < 0 ? null : Duration.ofMillis(resetsInMillis));
+    }
+  }
+
+  //one entry per client and window: a new window starts from a fresh entry
+  private Totals client(String clientId, long now) {
+    long window = window(now);
+    Totals totals = clients.getIfPresent(clientId);
+    if (totals != null && totals.window == window) {
+      return totals;
+    }
+    return clients.asMap().compute(clientId,
+      (id, current) -> current != null && current.window == window ? current : new Totals(window));
+  }
+
+  private long window(long epochMillis) {
+    return epochMillis / windowMillis;
+  }
+
+  //sorted, so snapshots of the same usage are identical files
+  private static Map<String, TokenUsage> usages(Map<String, Totals> entries, long window) {
+    Map<String, TokenUsage> usages = new TreeMap<>();
+    entries.forEach((key, totals) -> {
+      if (window < 0 || totals.window == window) {
+        usages.put(key, totals.usage());
+      }
+    });
+    return usages;
+  }
+
+  private void load() {
+    if (!Files.exists(file)) {
+      return;
+    }
+    try {
+      Snapshot snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+      long window = window(System.currentTimeMillis());
+      //client budgets only carry over within the same window
+      if (snapshot.windowStart() != null && window(snapshot.windowStart().toEpochMilli()) == window) {
+        restore(snapshot.clients(), window, clients::put);
+      }
+      restore(snapshot.conversations(), 0, conversations::put);
+      restore(snapshot.providers(), 0, providers::put);
+      log.info("Loaded token usage from {}", file);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read token usage from {}, starting empty", file, e);
+    }
+  }
+
+  private static void restore(Map<String, TokenUsage> usages, long window, BiConsumer<String, Totals> target) {
+    if (usages == null) {
+      return;
+    }
+    usages.forEach((id, usage) -> {
+      Totals totals = new Totals(window);
+      totals.inputTokens.add(usage.inputTokens());
+      totals.outputTokens.add(usage.outputTokens());
+      totals.requests.add(usage.requests());
+      target.accept(id, totals);
+    });
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (IOException | RuntimeException e) {
+      log.error("Failed to write token usage to {}", file, e);
+    }
+  }
+
+  /**
+   * Tokens held for one request until it ends. Ended once: by its usage, or released without.
+   */
+  public static final class Reservation {
+
+    private final Totals client;
+    private final Totals conversation;
+    private final String conversationId;
+    private final int estimatedTokens;
+    //a cancel may race the stream's last signal, so ending is claimed once
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private Reservation(Totals client, Totals conversation, String conversationId, int estimatedTokens) {
+      this.client = client;
+      this.conversation = conversation;
+      this.conversationId = conversationId;
+      this.estimatedTokens = estimatedTokens;
+    }
+
+    private boolean release() {
+      if (!ended.compareAndSet(false, true)) {
+        return false;
+      }
+      client.reserved.add(-estimatedTokens);
+      if (conversation != null) {
+        conversation.reserved.add(-estimatedTokens);
+      }
+      return true;
+    }
+  }
+
+  private static final class Totals {
+
+    private final long window;
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder reserved = new LongAdder();
+
+    private Totals(long window) {
+      this.window = window;
+    }
+
+    private void add(int input, int output) {
+      inputTokens.add(input);
+      outputTokens.add(output);
+      requests.increment();
+    }
+
+    private long used() {
+      return inputTokens.sum() + outputTokens.sum();
+    }
+
+    private TokenUsage usage() {
+      return new TokenUsage(inputTokens.sum(), outputTokens.sum(), requests.sum());
+    }
+  }
+
+  private record Snapshot(Instant flushedAt, Instant windowStart, Map<String, TokenUsage> clients,
+      Map<String, TokenUsage> conversations, Map<String, TokenUsage> providers) {
+  }
+}
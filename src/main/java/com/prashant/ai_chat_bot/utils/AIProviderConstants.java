@@ -8,8 +8,13 @@ public final class AIProviderConstants {
   public static final String GROQ = "groq";
   public static final String COHERE = "cohere";
   public static final String MISTRAL = "mistral";
+  //not a provider: lets AdaptiveProviderRouter pick one per request
+  public static final String AUTO = "auto";
 
   public static final String AI_PROVIDER_HEADER = "ai-provider";
+  public static final String CACHE_BYPASS_HEADER = "x-cache-bypass";
+  //identifies the client for token budgets, see UsageLedger
+  public static final String API_KEY_HEADER = "x-api-key";
 
   private AIProviderConstants() {
   }
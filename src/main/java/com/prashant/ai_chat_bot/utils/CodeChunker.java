@@ -0,0 +1,176 @@
+package com.prashant.ai_chat_bot.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits source code into chunks of at most a token budget, cutting at
+ * syntactic boundaries so a chunk holds whole classes and methods where possible.
+ *
+ * No parser per language is needed; boundaries come from two signals computed
+ * in one pass over the code:
+ * - BRACE DEPTH at the start of each line, ignoring braces in strings and comments.
+ *   Depth 0 is top level, depth 1 is a class body (member level).
+ * - INDENTATION, for languages without braces such as Python.
+ *
+ * A line starts a boundary when it is at depth 0 or 1, is not inside a comment
+ * and the previous line finished something: it was blank or ended with } or ;.
+ * Doc comments and annotations therefore stay with the declaration they precede.
+ * Within the lines that fit the budget the chunker cuts at the boundary with the
+ * lowest depth and indentation in the second half of the window (the latest one on
+ * ties), so chunks stay large but prefer class and method edges over statements.
+ * Without any boundary it cuts between lines. A single line larger than the
+ * budget (e.g. minified code) becomes its own chunk.
+ *
+ * OVERLAP: each chunk is prefixed with the last lines of the previous one, up to
+ * overlapTokens, so a finding at a chunk edge keeps its context.
+ */
+public final class CodeChunker {
+
+  /**
+   * @param startLine        first line (1-based) this chunk is responsible for
+   * @param endLine          last line (1-based, inclusive)
+   * @param contextStartLine first line of the text; lines before startLine repeat the previous chunk
+   */
+  public record Chunk(int index, int startLine, int endLine, int contextStartLine, String text) {
+  }
+
+  private CodeChunker() {}
+
+  public static List<Chunk> split(String code, int chunkTokens, int overlapTokens) {
+    if (chunkTokens <= 0) {
+      throw new IllegalArgumentException("chunkTokens must be positive");
+    }
+    String[] lines = (code == null ? "" : code).split("\r?\n", -1);
+    int[] tokens = new int[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      //+1 for the line break
+      tokens[i] = TokenCounter.countTokens(lines[i]) + 1;
+    }
+    int[] rank = boundaryRanks(lines);
+
+    List<Chunk> chunks = new ArrayList<>();
+    int start = 0;
+    while (start < lines.length) {
+      int end = start;
+      int used = 0;
+      while (end < lines.length && (end == start || used + tokens[end] <= chunkTokens)) {
+        used += tokens[end++];
+      }
+      if (end < lines.length) {
+        end = bestCut(rank, start, end);
+      }
+      int contextStart = start;
+      int overlap = 0;
+      while (contextStart > 0 && overlap + tokens[contextStart - 1] <= overlapTokens) {
+        overlap += tokens[--contextStart];
+      }
+      chunks.add(new Chunk(chunks.size(), start + 1, end, contextStart + 1,
+        String.join("\n", Arrays.asList(lines).subList(contextStart, end))));
+      start = end;
+    }
+    return chunks;
+  }
+
+  //cut position in (start, end]: the boundary with the lowest rank in the window's second half
+  private static int bestCut(int[] rank, int start, int end) {
+    int best = -1;
+    int from = start + Math.max(1, (end - start) / 2);
+    for (int i = from; i <= end; i++) {
+      if (rank[i] >= 0 && (best < 0 || rank[i] <= rank[best])) {
+        best = i;
+      }
+    }
+    if (best < 0) {
+      for (int i = start + 1; i < from; i++) {
+        if (rank[i] >= 0 && (best < 0 || rank[i] <= rank[best])) {
+          best = i;
+        }
+      }
+    }
+    return best < 0 ? end : best;
+  }
+
+  /**
+   * @return per line, -1 if no chunk may start there, else a rank where lower is a
+   * better place to cut (depth first, then indentation). One extra entry marks the end.
+   */
+  static int[] boundaryRanks(String[] lines) {
+    int[] rank = new int[lines.length + 1];
+    rank[lines.length] = 0;
+    int depth = 0;
+    boolean inBlockComment = false;
+    String openTextBlock = null;
+    boolean previousComplete = true;
+    for (int i = 0; i < lines.length; i++) {
+      String line = lines[i];
+      String trimmed = line.strip();
+      boolean candidate = i > 0 && depth <= 1 && !inBlockComment && openTextBlock == null
+        && previousComplete && !trimmed.isEmpty() && !startsContinuation(trimmed);
+      rank[i] = candidate ? depth * 1000 + indentation(line) : -1;
+
+      //scan the line for braces outside strings and comments
+      char quote = 0;
+      for (int c = 0; c < line.length(); c++) {
+        char ch = line.charAt(c);
+        if (inBlockComment) {
+          if (ch == '*' && c + 1 < line.length() && line.charAt(c + 1) == '/') {
+            inBlockComment = false;
+            c++;
+          }
+        } else if (openTextBlock != null) {
+          if (line.startsWith(openTextBlock, c)) {
+            c += 2;
+            openTextBlock = null;
+          }
+        } else if (quote != 0) {
+          if (ch == '\\') {
+            c++;
+          } else if (ch == quote) {
+            quote = 0;
+          }
+        } else if (line.startsWith("\"\"\"", c) || line.startsWith("'''", c)) {
+          openTextBlock = line.substring(c, c + 3);
+          c += 2;
+        } else if (ch == '"' || ch == '\'' || ch == '`') {
+          quote = ch;
+        } else if (ch == '/' && c + 1 < line.length() && line.charAt(c + 1) == '/') {
+          break;
+        } else if (ch == '/' && c + 1 < line.length() && line.charAt(c + 1) == '*') {
+          inBlockComment = true;
+          c++;
+        } else if (ch == '{') {
+          depth++;
+        } else if (ch == '}') {
+          depth = Math.max(0, depth - 1);
+        }
+      }
+      //a comment or annotation belongs to the declaration after it, so neither ends a unit
+      previousComplete = trimmed.isEmpty() || trimmed.endsWith("}") || trimmed.endsWith(";");
+    }
+    return rank;
+  }
+
+  //lines that continue the previous statement rather than start a new one
+  private static boolean startsContinuation(String trimmed) {
+    char first = trimmed.charAt(0);
+    return first == '}' || first == ')' || first == ']' || first == '.' || first == ','
+      || first == '+' || first == '&' || first == '|' || first == '?' || first == ':';
+  }
+
+  private static int indentation(String line) {
+    int width = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == ' ') {
+        width++;
+      } else if (c == '\t') {
+        width += 4;
+      } else {
+        break;
+      }
+    }
+    return width;
+  }
+}
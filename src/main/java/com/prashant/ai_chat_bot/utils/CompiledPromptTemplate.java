@@ -0,0 +1,153 @@
+package com.prashant.ai_chat_bot.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prompt template parsed once into literal and placeholder segments.
+ *
+ * Placeholders use the {name} syntax already used by the prompt files. Only
+ * braces wrapping a plain identifier are treated as placeholders, so JSON
+ * examples such as {"category": ...} or {} stay literal text.
+ *
+ * Rendering walks the segments once and writes into a single buffer sized up
+ * front, instead of running one full-string replace per placeholder. Values are
+ * never re-scanned, so user input containing "{code}" is not substituted again.
+ *
+ * PREFIX: the literal text before the first placeholder is the same in every
+ * rendered prompt, so providers can serve it from their prompt cache. Templates
+ * keep instructions there and their placeholders at the end.
+ */
+public final class CompiledPromptTemplate {
+
+  private final String source;
+  private final String[] literals;
+  private final String[] placeholders;
+  private final int literalLength;
+
+  private CompiledPromptTemplate(String source, List<String> literals, List<String> placeholders) {
+    this.source = source;
+    this.literals = literals.toArray(new String[0]);
+    this.placeholders = placeholders.toArray(new String[0]);
+    int length = 0;
+    for (String literal : this.literals) {
+      length += literal.length();
+    }
+    this.literalLength = length;
+  }
+
+  /**
+   * Parses the template text. The resulting segments alternate as
+   * literal[0], placeholder[0], literal[1], ..., literal[n].
+   */
+  public static CompiledPromptTemplate compile(String template) {
+    List<String> literals = new ArrayList<>();
+    List<String> placeholders = new ArrayList<>();
+    int literalStart = 0;
+    int i = 0;
+    int length = template.length();
+
+    while (i < length) {
+      if (template.charAt(i) == '{') {
+        int end = identifierEnd(template, i + 1);
+        if (end > i + 1 && end < length && template.charAt(end) == '}') {
+          literals.add(template.substring(literalStart, i));
+          placeholders.add(template.substring(i + 1, end));
+          i = end + 1;
+          literalStart = i;
+          continue;
+        }
+      }
+      i++;
+    }
+    literals.add(template.substring(literalStart));
+    return new CompiledPromptTemplate(template, literals, placeholders);
+  }
+
+  /**
+   * Renders the template in a single pass. Null values render as an empty
+   * string; placeholders without a value are kept as-is, matching the
+   * previous String.replace based behaviour.
+   */
+  public String render(Map<String, ?> values) {
+    String[] resolved = new String[placeholders.length];
+    int capacity = literalLength;
+    for (int p = 0; p < placeholders.length; p++) {
+      String name = placeholders[p];
+      String value;
+      if (values.containsKey(name)) {
+        Object raw = values.get(name);
+        value = raw == null ? "" : raw.toString();
+      } else {
+        value = "{" + name + "}";
+      }
+      resolved[p] = value;
+      capacity += value.length();
+    }
+
+    StringBuilder out = new StringBuilder(capacity);
+    for (int p = 0; p < placeholders.length; p++) {
+      out.append(literals[p]).append(resolved[p]);
+    }
+    out.append(literals[literals.length - 1]);
+    return out.toString();
+  }
+
+  /**
+   * @return this template with the given placeholders filled in as literal text, e.g. an
+   *         output format that is the same for every request and so belongs to the prefix
+   */
+  public CompiledPromptTemplate bind(Map<String, ?> constants) {
+    List<String> boundLiterals = new ArrayList<>();
+    List<String> remaining = new ArrayList<>();
+    StringBuilder literal = new StringBuilder(literals[0]);
+    for (int p = 0; p < placeholders.length; p++) {
+      if (constants.containsKey(placeholders[p])) {
+        Object value = constants.get(placeholders[p]);
+        literal.append(value == null ? "" : value).append(literals[p + 1]);
+      } else {
+        boundLiterals.add(literal.toString());
+        remaining.add(placeholders[p]);
+        literal = new StringBuilder(literals[p + 1]);
+      }
+    }
+    boundLiterals.add(literal.toString());
+    return new CompiledPromptTemplate(source, boundLiterals, remaining);
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return the literal text before the first placeholder, identical in every rendered prompt
+   */
+  public String getStaticPrefix() {
+    return literals[0];
+  }
+
+  /**
+   * @return the length of the literal text from the first placeholder on, e.g. labels between values
+   */
+  public int getVariableSectionLiteralLength() {
+    return literalLength - literals[0].length();
+  }
+
+  public List<String> getPlaceholders() {
+    return Collections.unmodifiableList(List.of(placeholders));
+  }
+
+  private static int identifierEnd(String template, int start) {
+    int i = start;
+    if (i >= template.length() || !Character.isJavaIdentifierStart(template.charAt(i))) {
+      return start;
+    }
+    i++;
+    while (i < template.length() && Character.isJavaIdentifierPart(template.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+}
@@ -1,32 +1,214 @@
 package com.prashant.ai_chat_bot.utils;
 
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+/**
+ * Sanitizes user input for LLM processing:
+ * - trims leading/trailing whitespace (every char up to ' ', as String.trim does)
+ * - normalizes Windows line endings (\r\n) to \n
+ * - removes ASCII control characters except \n, \r and \t
+ *
+ * SINGLE PASS: the input is scanned once, char by char, instead of trim +
+ * replace + a replaceAll regex that each copy the whole text. Input that needs no
+ * change (the common case) is returned as is, without any copy; otherwise the
+ * runs of text between dropped chars are appended in bulk into one builder.
+ *
+ * LIMITS: the maxChars overloads fail with {@link InputTooLargeException} before
+ * any work is done, and {@link #sanitize(Reader, int)} stops reading as soon as the
+ * limit is passed, so an oversized body is never held in memory as a whole.
+ */
 public final class InputSanitizer {
 
+  private static final int READ_BUFFER_SIZE = 8192;
+
   private InputSanitizer() {
   }
 
-  /**
-   * Sanitizes user input for LLM processing.
-   * - Trims leading/trailing whitespace
-   * - Normalizes line endings
-   * - Removes non-printable control characters (except \n, \r, \t)
-   */
   public static String sanitize(String input) {
-
     if (input == null) {
       return null;
     }
+    int start = 0;
+    int end = input.length();
+    while (start < end && input.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && input.charAt(end - 1) <= ' ') {
+      end--;
+    }
+
+    int firstChange = start;
+    while (firstChange < end && !changes(input, firstChange, end)) {
+      firstChange++;
+    }
+    if (firstChange == end) {
+      return start == 0 && end == input.length() ? input : input.substring(start, end);
+    }
 
-    // Trim leading/trailing whitespace
-    String sanitized = input.trim();
+    //runs of unchanged text between dropped chars are appended in bulk
+    StringBuilder sanitized = new StringBuilder(end - start);
+    int runStart = start;
+    for (int i = firstChange; i < end; i++) {
+      if (changes(input, i, end)) {
+        sanitized.append(input, runStart, i);
+        runStart = i + 1;
+      }
+    }
+    sanitized.append(input, runStart, end);
+    return sanitized.toString();
+  }
 
-    // Normalize Windows line endings to Unix
-    sanitized = sanitized.replace("\r\n", "\n");
+  /**
+   * @throws InputTooLargeException if the input is longer than maxChars
+   */
+  public static String sanitize(String input, int maxChars) {
+    if (input != null && input.length() > maxChars) {
+      throw new InputTooLargeException("characters", maxChars);
+    }
+    return sanitize(input);
+  }
 
-    // Remove control characters except newline, carriage return, tab
-    sanitized = sanitized.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", "");
+  /**
+   * Sanitizes a streamed body while reading it. Only the sanitized text is kept.
+   *
+   * @throws InputTooLargeException as soon as more than maxChars have been read
+   */
+  public static String sanitize(Reader reader, int maxChars) {
+    return sanitize(reader, maxChars, 16);
+  }
 
-    return sanitized;
+  /**
+   * @param expectedChars expected length of the body, e.g. from Content-Length
+   */
+  public static String sanitize(Reader reader, int maxChars, int expectedChars) {
+    Incremental sanitizer = new Incremental(maxChars, expectedChars);
+    char[] buffer = new char[READ_BUFFER_SIZE];
+    try {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        sanitizer.append(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sanitizer.finish();
   }
-}
 
+  //true if the char at index is dropped: a control char, or the \r of a \r\n pair
+  private static boolean changes(String input, int index, int end) {
+    char c = input.charAt(index);
+    if (c == '\r') {
+      return index + 1 < end && input.charAt(index + 1) == '\n';
+    }
+    return isRemoved(c);
+  }
+
+  private static boolean isRemoved(char c) {
+    return (c < ' ' && c != '\n' && c != '\t') || c == '\u007f';
+  }
+
+  /**
+   * The same sanitization for text that arrives in chunks.
+   *
+   * Leading whitespace is skipped; whitespace after the last text of a chunk is
+   * held back until more text follows, since it is trimmed if the input ends there.
+   * The text in between is appended in runs, as in {@link #sanitize(String)}.
+   */
+  public static final class Incremental {
+
+    private final int maxChars;
+    private final StringBuilder sanitized;
+    private final StringBuilder trailing = new StringBuilder();
+    private long read;
+    private boolean started;
+
+    public Incremental(int maxChars) {
+      this(maxChars, 16);
+    }
+
+    /**
+     * @param expectedChars expected input length (e.g. from Content-Length), so the
+     *                      result is built without growing the buffer
+     */
+    public Incremental(int maxChars, int expectedChars) {
+      this.maxChars = maxChars;
+      this.sanitized = new StringBuilder(Math.max(16, Math.min(expectedChars, maxChars)));
+    }
+
+    /**
+     * @throws InputTooLargeException once more than maxChars have been appended in total
+     */
+    public void append(char[] chars, int offset, int length) {
+      read += length;
+      if (read > maxChars) {
+        throw new InputTooLargeException("characters", maxChars);
+      }
+      int end = offset + length;
+      int first = offset;
+      while (first < end && chars[first] <= ' ') {
+        first++;
+      }
+      //leading whitespace of the input is dropped, later whitespace may still be followed by text
+      if (started) {
+        trailing.append(chars, offset, first - offset);
+      }
+      if (first == end) {
+        return;
+      }
+      started = true;
+      int last = end - 1;
+      while (chars[last] <= ' ') {
+        last--;
+      }
+      appendWhitespace();
+      appendText(chars, first, last + 1);
+      trailing.append(chars, last + 1, end - last - 1);
+    }
+
+    /**
+     * @return a live view of the sanitized text so far, without the held back
+     * trailing whitespace
+     */
+    public CharSequence text() {
+      return sanitized;
+    }
+
+    /**
+     * @return the sanitized text, without the held back trailing whitespace
+     */
+    public String finish() {
+      return sanitized.toString();
+    }
+
+    //text follows the held back whitespace, so a \r at its end is not part of a pair
+    private void appendWhitespace() {
+      int length = trailing.length();
+      for (int i = 0; i < length; i++) {
+        char c = trailing.charAt(i);
+        if (c == '\r' ? i + 1 < length && trailing.charAt(i + 1) == '\n' : isRemoved(c)) {
+          continue;
+        }
+        sanitized.append(c);
+      }
+      trailing.setLength(0);
+    }
+
+    //[from, to) starts and ends with text, so \r\n pairs are complete
+    private void appendText(char[] chars, int from, int to) {
+      int runStart = from;
+      for (int i = from; i < to; i++) {
+        char c = chars[i];
+        if ((c >= ' ' && c != '\u007f') || c == '\n' || c == '\t' || (c == '\r' && chars[i + 1] != '\n')) {
+          continue;
+        }
+        sanitized.append(chars, runStart, i - runStart);
+        runStart = i + 1;
+      }
+      sanitized.append(chars, runStart, to - runStart);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.prashant.ai_chat_bot.utils;
+
+import org.springframework.ai.chat.client.ChatClientAttributes;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stable identity of a rendered prompt, used to recognise requests that would
+ * produce the same answer.
+ *
+ * The fingerprint covers the provider, the configured model, the request
+ * options, the requested output format and every message in the prompt
+ * (including history injected by the memory advisor). Whitespace runs are
+ * collapsed so trivially reformatted input maps to the same key.
+ *
+ * @param key          SHA-256 over everything above
+ * @param contextKey   SHA-256 over everything except the last user message
+ * @param lastUserText normalized text of the last user message, or null
+ * @param singleTurn   true when the prompt holds no history besides system messages
+ */
+public record PromptFingerprint(String key, String contextKey, String lastUserText, boolean singleTurn) {
+
+  public static PromptFingerprint of(String provider, String model, ChatClientRequest request) {
+    Prompt prompt = request.prompt();
+    List<Message> messages = prompt.getInstructions();
+
+    int lastUser = -1;
+    int conversational = 0;
+    for (int i = 0; i < messages.size(); i++) {
+      MessageType type = messages.get(i).getMessageType();
+      if (type == MessageType.USER) {
+        lastUser = i;
+      }
+      if (type != MessageType.SYSTEM) {
+        conversational++;
+      }
+    }
+
+    StringBuilder context = new StringBuilder(256)
+      .append(provider).append('\u0000')
+      .append(model).append('\u0000');
+    appendOptions(context, prompt.getOptions());
+    Object outputFormat = request.context().get(ChatClientAttributes.OUTPUT_FORMAT.getKey());
+    if (outputFormat != null) {
+      context.append(outputFormat).append('\u0000');
+    }
+
+    String lastUserText = null;
+    StringBuilder full = new StringBuilder(context);
+    for (int i = 0; i < messages.size(); i++) {
+      Message message = messages.get(i);
+      String normalized = normalize(message.getText());
+      full.append(message.getMessageType().name()).append(':').append(normalized).append('\u0000');
+      if (i == lastUser) {
+        lastUserText = normalized;
+      } else {
+        context.append(message.getMessageType().name()).append(':').append(normalized).append('\u0000');
+      }
+    }
+
+    return new PromptFingerprint(sha256(full), sha256(context), lastUserText, conversational <= 1);
+  }
+
+  /**
+   * Trims and collapses every whitespace run to a single space.
+   */
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    StringBuilder out = new StringBuilder(text.length());
+    boolean pendingSpace = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = out.length() > 0;
+        continue;
+      }
+      if (pendingSpace) {
+        out.append(' ');
+        pendingSpace = false;
+      }
+      out.append(c);
+    }
+    return out.toString();
+  }
+
+  private static void appendOptions(StringBuilder out, ChatOptions options) {
+    if (options == null) {
+      out.append('\u0000');
+      return;
+    }
+    out.append(options.getModel()).append('|')
+      .append(options.getTemperature()).append('|')
+      .append(options.getMaxTokens()).append('|')
+      .append(options.getTopP()).append('|')
+      .append(options.getTopK()).append('|')
+      .append(options.getFrequencyPenalty()).append('|')
+      .append(options.getPresencePenalty()).append('|')
+      .append(options.getStopSequences()).append('\u0000');
+  }
+
+  public static String sha256(CharSequence value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
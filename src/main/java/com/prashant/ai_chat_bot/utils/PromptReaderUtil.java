@@ -17,7 +17,8 @@ public final class PromptReaderUtil {
  public static String getPrompt(ResourceLoader resourceLoader,String path) {
    try {
      Resource resource = resourceLoader.getResource(path);
-     return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8).trim();
+     //LF line endings whatever the checkout, so prompts stay byte-identical across instances (provider prefix caches)
+     return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8).replace("\r\n", "\n").trim();
    } catch (IOException ex) {
      log.error("Failed to load {}", path, ex);
      throw new IllegalStateException("Failed to load "+ path, ex);
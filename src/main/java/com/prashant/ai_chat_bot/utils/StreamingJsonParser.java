@@ -0,0 +1,147 @@
+package com.prashant.ai_chat_bot.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for a JSON object or array that arrives in chunks, such as
+ * a streamed LLM answer.
+ *
+ * KEY CONCEPT: instead of waiting for the whole document, every top-level member
+ * is emitted as soon as its value is complete:
+ * - root object: one {@link Element} per field, in the order the model writes them
+ * - root array: one {@link Element} per array entry
+ *
+ * Chunks are fed to Jackson's non-blocking parser, which keeps its state between
+ * chunks, so each character is scanned once. Text before the root (for example
+ * a ```json fence) and anything after it is ignored.
+ */
+public class StreamingJsonParser {
+
+  /**
+   * A completed top-level member.
+   *
+   * @param field the field name for a root object, null for a root array
+   * @param index position among the emitted elements
+   */
+  public record Element(String field, int index, JsonNode value) {
+  }
+
+  private final ObjectMapper objectMapper;
+  private final char rootStart;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private boolean started;
+  private boolean complete;
+  private int depth;
+  private String field;
+  private int index;
+  private TokenBuffer value;
+
+  private StreamingJsonParser(ObjectMapper objectMapper, boolean array) {
+    this.objectMapper = objectMapper;
+    this.rootStart = array ? '[' : '{';
+    try {
+      this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  public static StreamingJsonParser forObject(ObjectMapper objectMapper) {
+    return new StreamingJsonParser(objectMapper, false);
+  }
+
+  public static StreamingJsonParser forArray(ObjectMapper objectMapper) {
+    return new StreamingJsonParser(objectMapper, true);
+  }
+
+  /**
+   * Parses the chunks of one document and emits its top-level members. Fails if
+   * the chunks end before the root object or array is closed.
+   */
+  public static Flux<Element> elements(Flux<String> chunks, StreamingJsonParser parser) {
+    return chunks
+      .concatMapIterable(parser::feed)
+      .concatWith(Flux.defer(() -> parser.isComplete() ? Flux.empty()
+        : Flux.error(new IllegalStateException("Response ended before the JSON " +
+          (parser.rootStart == '[' ? "array" : "object") + " was complete"))));
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * @return members completed by this chunk
+   */
+  public List<Element> feed(String chunk) {
+    if (complete || chunk == null || chunk.isEmpty()) {
+      return List.of();
+    }
+    String input = chunk;
+    if (!started) {
+      int start = chunk.indexOf(rootStart);
+      if (start < 0) {
+        return List.of();
+      }
+      started = true;
+      input = chunk.substring(start);
+    }
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    List<Element> elements = new ArrayList<>();
+    try {
+      feeder.feedInput(bytes, 0, bytes.length);
+      JsonToken token;
+      while (!complete && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+        onToken(token, elements);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return elements;
+  }
+
+  private void onToken(JsonToken token, List<Element> elements) throws IOException {
+    if (depth == 0) {
+      depth = 1;
+      return;
+    }
+    if (value == null) {
+      if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+        complete = true;
+        parser.close();
+        return;
+      }
+      if (token == JsonToken.FIELD_NAME) {
+        field = parser.currentName();
+        return;
+      }
+      value = new TokenBuffer(objectMapper, false);
+    }
+    value.copyCurrentEvent(parser);
+    if (token.isStructStart()) {
+      depth++;
+    } else if (token.isStructEnd()) {
+      depth--;
+    }
+    if (depth == 1) {
+      JsonNode node = objectMapper.readTree(value.asParser());
+      elements.add(new Element(field, index++, node));
+      value = null;
+      field = null;
+    }
+  }
+}
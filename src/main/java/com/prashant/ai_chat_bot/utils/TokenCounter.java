@@ -4,17 +4,108 @@ import com.knuddels.jtokkit.Encodings;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 
-public class TokenCounter {
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Token counting for prompts, chat memory and admission control.
+ *
+ * {@link #countTokens} counts with cl100k_base, the default wherever the provider
+ * is not known (shared chat memory, chunking). Per-provider tokenizers come from
+ * {@link #forName}: a jtokkit encoding (cl100k_base, o200k_base, ...) or
+ * "approximate" ({@link ApproximateTokenizer}).
+ *
+ * COST: BPE encoding is the expensive part, so encodings count with
+ * countTokensOrdinary (no token list is built, and text that contains special
+ * tokens such as <|endoftext|> is counted instead of rejected), and texts of
+ * CACHE_MIN_LENGTH characters or more are remembered in a small cache:
+ * - keyed by String.hashCode, which a String computes once and keeps, so repeated
+ *   system prompts and memory messages hit without hashing their content again
+ * - direct-mapped, CACHE_SIZE slots per encoding, a colliding text replaces the
+ *   slot; lookups take no lock and allocate nothing
+ * - an entry keeps its text, so a hit is an exact match. Texts longer than
+ *   CACHE_MAX_LENGTH are not kept, and a text is only added while the cache holds
+ *   fewer than CACHE_MAX_CHARS characters per encoding (a few MB; racing inserts
+ *   may overshoot by a text or two)
+ */
+public final class TokenCounter {
+
+  public static final String APPROXIMATE = "approximate";
+  public static final String DEFAULT_ENCODING = "cl100k_base";
+
+  static final int CACHE_SIZE = 1024;
+  static final int CACHE_MIN_LENGTH = 256;
+  static final int CACHE_MAX_LENGTH = 64 * 1024;
+  static final long CACHE_MAX_CHARS = 2 * 1024 * 1024;
 
   private static final EncodingRegistry registry = Encodings.newDefaultEncodingRegistry();
-  private static final Encoding encoding = registry.getEncoding("cl100k_base")
-    .orElseThrow(() -> new IllegalStateException("Encoding not found"));
+  //one tokenizer, and so one cache, per encoding
+  private static final Map<String, Tokenizer> encodings = new ConcurrentHashMap<>();
+  private static final Tokenizer defaultTokenizer = forName(DEFAULT_ENCODING);
 
   private TokenCounter() {}
 
-
   public static int countTokens(String text) {
-    return encoding.countTokens(text);
+    return defaultTokenizer.count(text);
   }
-}
 
+  /**
+   * @param name a jtokkit encoding name, or "approximate" for a new, separately calibrated estimate
+   */
+  public static Tokenizer forName(String name) {
+    if (APPROXIMATE.equalsIgnoreCase(name)) {
+      return new ApproximateTokenizer(1.0);
+    }
+    return encodings.computeIfAbsent(name, n -> new CachingEncodingTokenizer(registry.getEncoding(n)
+      .orElseThrow(() -> new IllegalArgumentException("Unknown tokenizer encoding: " + n))));
+  }
+
+  static final class CachingEncodingTokenizer implements Tokenizer {
+
+    private final Encoding encoding;
+    private final AtomicReferenceArray<CachedCount> cache = new AtomicReferenceArray<>(CACHE_SIZE);
+    private final AtomicLong cachedChars = new AtomicLong();
+
+    CachingEncodingTokenizer(Encoding encoding) {
+      this.encoding = encoding;
+    }
+
+    @Override
+    public int count(String text) {
+      if (text == null || text.isEmpty()) {
+        return 0;
+      }
+      if (text.length() < CACHE_MIN_LENGTH || text.length() > CACHE_MAX_LENGTH) {
+        return encoding.countTokensOrdinary(text);
+      }
+      int hash = text.hashCode();
+      int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+      //the slot holds an immutable entry, so a racy read sees either a complete entry or another one
+      CachedCount cached = cache.get(slot);
+      if (cached != null && cached.hash == hash && (cached.text == text || cached.text.equals(text))) {
+        return cached.tokens;
+      }
+      int tokens = encoding.countTokensOrdinary(text);
+      int replacedLength = cached == null ? 0 : cached.text.length();
+      if (cachedChars.get() + text.length() - replacedLength <= CACHE_MAX_CHARS) {
+        CachedCount replaced = cache.getAndSet(slot, new CachedCount(text, hash, tokens));
+        cachedChars.addAndGet(text.length() - (replaced == null ? 0 : replaced.text.length()));
+      }
+      return tokens;
+    }
+
+    long cachedChars() {
+      return cachedChars.get();
+    }
+
+    @Override
+    public String toString() {
+      return encoding.getName();
+    }
+  }
+
+  private record CachedCount(String text, int hash, int tokens) {
+  }
+}
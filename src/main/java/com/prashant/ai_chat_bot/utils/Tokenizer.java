@@ -0,0 +1,21 @@
+package com.prashant.ai_chat_bot.utils;
+
+/**
+ * Counts the tokens a provider's model would see for a text.
+ *
+ * @see TokenCounter for the implementations
+ */
+public interface Tokenizer {
+
+  /**
+   * @return tokens in the text, 0 for null
+   */
+  int count(String text);
+
+  /**
+   * Feedback from a completed call: the tokens this tokenizer estimated for the
+   * prompt and the prompt tokens the provider reported. Exact tokenizers ignore it.
+   */
+  default void calibrate(int estimated, int reported) {
+  }
+}
@@ -63,16 +63,18 @@ async function startStreaming() {
 
             buffer += decoder.decode(value, { stream: true });
 
-            const lines = buffer.split('\n');
-            buffer = lines.pop();
-
-            for (const line of lines) {
-                if (line.startsWith('data:')) {
-                    const data = line.slice(5);
-                    fullResponse += data;
-                    responseDiv.textContent = fullResponse;
-                    responseDiv.scrollTop = responseDiv.scrollHeight;
-                }
+            // events end with a blank line; a multi-line event has one data: line per line
+            const events = buffer.split('\n\n');
+            buffer = events.pop();
+
+            for (const event of events) {
+                const data = event.split('\n')
+                    .filter(line => line.startsWith('data:'))
+                    .map(line => line.slice(5))
+                    .join('\n');
+                fullResponse += data;
+                responseDiv.textContent = fullResponse;
+                responseDiv.scrollTop = responseDiv.scrollHeight;
             }
         }
 
@@ -0,0 +1,94 @@
+package com.prashant.ai_chat_bot.admission;
+
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.exception.AdmissionRejectedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderAdmissionTest {
+
+  @Test
+  void queuedRequestIsAdmittedOnReleaseAndOverflowIsRejectedImmediately() throws Exception {
+    AIProviderProperties.Admission settings = settings();
+    settings.setMaxConcurrency(1);
+    settings.setInitialConcurrency(1);
+    settings.setMaxQueue(1);
+    ProviderAdmission admission = new ProviderAdmission("groq", settings);
+
+    ProviderAdmission.Permit running = admission.acquire(10);
+    CompletableFuture<ProviderAdmission.Permit> queued = CompletableFuture.supplyAsync(() -> admission.acquire(10));
+    waitFor(() -> admission.queueDepth() == 1);
+
+    long start = System.nanoTime();
+    AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, () -> admission.acquire(10));
+    assertEquals(AdmissionRejectedException.Reason.QUEUE_FULL, rejected.getReason());
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 500);
+
+    assertFalse(queued.isDone());
+    running.succeeded(10, null);
+    queued.get(2, TimeUnit.SECONDS).succeeded(10, null);
+    assertEquals(0, admission.inFlight());
+  }
+
+  @Test
+  void rejectsWithoutWaitingWhenTheRateLimitOutlastsMaxWait() {
+    AIProviderProperties.Admission settings = settings();
+    settings.setRequestsPerSecond(1.0);
+    settings.setMaxWait(Duration.ofMillis(100));
+    ProviderAdmission admission = new ProviderAdmission("gemini", settings);
+
+    admission.acquire(10).succeeded(10, null);
+    AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, () -> admission.acquire(10));
+
+    assertEquals(AdmissionRejectedException.Reason.RATE_LIMITED, rejected.getReason());
+    assertTrue(rejected.getRetryAfter().toMillis() > 500);
+  }
+
+  @Test
+  void returnsOverReservedTokensToTheBucket() {
+    AIProviderProperties.Admission settings = settings();
+    settings.setTokensPerMinute(600);
+    settings.setMaxWait(Duration.ofMillis(100));
+    ProviderAdmission admission = new ProviderAdmission("groq", settings);
+
+    ProviderAdmission.Permit permit = admission.acquire(600);
+    assertThrows(AdmissionRejectedException.class, () -> admission.acquire(400));
+    permit.succeeded(50, 100);
+
+    admission.acquire(400).succeeded(50, 400);
+  }
+
+  @Test
+  void failuresShrinkTheConcurrencyLimit() {
+    ProviderAdmission admission = new ProviderAdmission("groq", settings());
+    int initial = admission.concurrencyLimit();
+
+    for (int i = 0; i < 5; i++) {
+      admission.acquire(10).failed();
+    }
+
+    assertTrue(admission.concurrencyLimit() < initial);
+  }
+
+  private static AIProviderProperties.Admission settings() {
+    AIProviderProperties.Admission settings = new AIProviderProperties.Admission();
+    settings.setMaxWait(Duration.ofSeconds(5));
+    return settings;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.admission.AdmissionControl;
+import com.prashant.ai_chat_bot.admission.ProviderAdmission;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.utils.ApproximateTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.Ordered;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlAdvisorTest {
+
+  private final CountDownLatch waiting = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch admitted = new CountDownLatch(1);
+  private final AdmissionControl admissionControl = new AdmissionControl(new AIProviderProperties(),
+    new SimpleMeterRegistry(), true) {
+    @Override
+    public ProviderAdmission.Permit admit(String provider, int estimatedTokens) {
+      waiting.countDown();
+      awaitUninterruptibly(release);
+      try {
+        return super.admit(provider, estimatedTokens);
+      } finally {
+        admitted.countDown();
+      }
+    }
+  };
+  private final AdmissionControlAdvisor advisor = new AdmissionControlAdvisor(admissionControl, "groq",
+    new ApproximateTokenizer(1.0), 100, Schedulers.boundedElastic());
+
+  @Test
+  void permitAdmittedAfterTheClientLeftIsReleased() throws InterruptedException {
+    AtomicInteger providerCalls = new AtomicInteger();
+    Disposable subscription = stream(Flux.defer(() -> {
+      providerCalls.incrementAndGet();
+      return Flux.never();
+    })).subscribe();
+    assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+    //the client leaves while the request still waits for admission
+    subscription.dispose();
+    release.countDown();
+    assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (admissionControl.admission("groq").inFlight() > 0) {
+      assertTrue(System.nanoTime() < deadline, "permit leaked");
+      Thread.sleep(5);
+    }
+    assertEquals(0, providerCalls.get());
+  }
+
+  @Test
+  void cancelledStreamReleasesItsPermit() throws InterruptedException {
+    release.countDown();
+    CountDownLatch streaming = new CountDownLatch(1);
+    Disposable subscription = stream(Flux.<ChatClientResponse>never().doOnSubscribe(s -> streaming.countDown()))
+      .subscribe();
+    assertTrue(streaming.await(5, TimeUnit.SECONDS));
+    assertEquals(1, admissionControl.admission("groq").inFlight());
+
+    subscription.dispose();
+    assertEquals(0, admissionControl.admission("groq").inFlight());
+  }
+
+  private Flux<ChatClientResponse> stream(Flux<ChatClientResponse> model) {
+    StreamAdvisor terminal = new StreamAdvisor() {
+      @Override
+      public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return model;
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextStream(ChatClientRequest.builder().prompt(new Prompt("What is the answer?")).build());
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await(5, TimeUnit.SECONDS);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
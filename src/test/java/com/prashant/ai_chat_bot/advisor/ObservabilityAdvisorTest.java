@@ -0,0 +1,223 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservabilityAdvisorTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+  private final ObservabilityAdvisor advisor;
+
+  ObservabilityAdvisorTest() {
+    observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+    advisor = new ObservabilityAdvisor(meterRegistry, observationRegistry, "groq", "llama", TokenCounter.forName("cl100k_base"));
+  }
+
+  @Test
+  void recordsStreamLatenciesAndReportedTokens() {
+    ChatResponse last = new ChatResponse(List.of(new Generation(new AssistantMessage(""))),
+      ChatResponseMetadata.builder().usage(new DefaultUsage(12, 3)).build());
+    Flux<ChatClientResponse> chunks = Flux.just(chunk("a"), chunk("b"), chunk("c"))
+      .delayElements(Duration.ofMillis(20))
+      .concatWith(Flux.just(ChatClientResponse.builder().chatResponse(last).build()));
+
+    List<ChatClientResponse> received = stream(request -> chunks).collectList().block();
+
+    assertEquals(4, received.size());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.TIME_TO_FIRST_TOKEN).tag("endpoint", "/test").timer().count());
+    assertTrue(meterRegistry.get(ObservabilityAdvisor.TIME_TO_FIRST_TOKEN).timer().totalTime(
+      TimeUnit.MILLISECONDS) >= 20);
+    //the usage-only chunk carries no text and is not a token
+    assertEquals(2, meterRegistry.get(ObservabilityAdvisor.INTER_TOKEN_LATENCY).timer().count());
+    assertEquals(12, meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "input").counter().count());
+    assertEquals(3, meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "output").counter().count());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS)
+      .tags("provider", "groq", "model", "llama", "mode", "stream", "outcome", "success").timer().count());
+  }
+
+  @Test
+  void estimatesTokensWithoutUsageAndTagsErrors() {
+    ChatResponse answer = new ChatResponse(List.of(new Generation(new AssistantMessage("hello world"))));
+    call(request -> ChatClientResponse.builder().chatResponse(answer).build());
+
+    assertEquals(TokenCounter.forName("cl100k_base").count("How are you?"),
+      (int) meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "input").counter().count());
+    assertEquals(2, meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "output").counter().count());
+
+    assertThrows(IllegalStateException.class, () -> call(request -> {
+      throw new IllegalStateException("provider down");
+    }));
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS)
+      .tags("mode", "call", "outcome", "success").timer().count());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS)
+      .tags("mode", "call", "outcome", "error", "error", "IllegalStateException").timer().count());
+  }
+
+  @Test
+  void tagsCallsCancelledByTheRoutingLayer() {
+    AtomicBoolean cancelled = new AtomicBoolean(true);
+    assertThrows(IllegalStateException.class, () -> CallCancellation.run(cancelled, () -> {
+      call(request -> {
+        throw new IllegalStateException("attempt cancelled");
+      });
+      return null;
+    }));
+    //an interrupt flag alone is no cancellation
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(IllegalStateException.class, () -> call(request -> {
+        throw new IllegalStateException("provider down");
+      }));
+    } finally {
+      Thread.interrupted();
+    }
+
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS)
+      .tags("mode", "call", "outcome", "cancelled").timer().count());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS)
+      .tags("mode", "call", "outcome", "error").timer().count());
+  }
+
+  @Test
+  void recordsCachedPromptTokens() {
+    OpenAiApi.Usage cachedUsage = new OpenAiApi.Usage(5, 1500, 1505,
+      new OpenAiApi.Usage.PromptTokensDetails(null, 1280), null);
+    ChatResponse cached = new ChatResponse(List.of(new Generation(new AssistantMessage("hi"))),
+      ChatResponseMetadata.builder().usage(new DefaultUsage(1500, 5, 1505, cachedUsage)).build());
+    call(request -> ChatClientResponse.builder().chatResponse(cached).build());
+
+    OpenAiApi.Usage uncachedUsage = new OpenAiApi.Usage(5, 1500, 1505,
+      new OpenAiApi.Usage.PromptTokensDetails(null, 0), null);
+    ChatResponse uncached = new ChatResponse(List.of(new Generation(new AssistantMessage("hi"))),
+      ChatResponseMetadata.builder().usage(new DefaultUsage(1500, 5, 1505, uncachedUsage)).build());
+    call(request -> ChatClientResponse.builder().chatResponse(uncached).build());
+
+    assertEquals(1280, meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "cached").counter().count());
+    assertEquals(3000, meterRegistry.get(ObservabilityAdvisor.TOKENS).tag("type", "input").counter().count());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS).tag("prompt_cache", "hit").timer().count());
+    assertEquals(1, meterRegistry.get(ObservabilityAdvisor.REQUESTS).tag("prompt_cache", "miss").timer().count());
+  }
+
+  @Test
+  void streamSpanIsAChildOfTheRequestObservation() {
+    List<Observation.Context> started = new ArrayList<>();
+    observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+      @Override
+      public void onStart(Observation.Context context) {
+        started.add(context);
+      }
+
+      @Override
+      public boolean supportsContext(Observation.Context context) {
+        return true;
+      }
+    });
+    Observation request = Observation.start("http.server.requests", observationRegistry);
+    try (Observation.Scope scope = request.openScope()) {
+      //the memory and admission advisors move the chain to other threads
+      ObservabilityAdvisor.withRequestContext(stream(r -> Flux.just(chunk("a"))).subscribeOn(Schedulers.boundedElastic()))
+        .blockLast();
+    }
+    request.stop();
+
+    Observation.Context llm = started.stream()
+      .filter(context -> ObservabilityAdvisor.REQUESTS.equals(context.getName()))
+      .findFirst().orElseThrow();
+    assertSame(request.getContext(), llm.getParentObservation().getContextView());
+  }
+
+  private static ChatClientResponse chunk(String text) {
+    return ChatClientResponse.builder()
+      .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+      .build();
+  }
+
+  private static ChatClientRequest request() {
+    return ChatClientRequest.builder()
+      .prompt(new Prompt("How are you?"))
+      .context(Map.of(ObservabilityAdvisor.ENDPOINT, "/test"))
+      .build();
+  }
+
+  private void call(Function<ChatClientRequest, ChatClientResponse> model) {
+    CallAdvisor terminal = new CallAdvisor() {
+      @Override
+      public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        return model.apply(request);
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextCall(request());
+  }
+
+  private Flux<ChatClientResponse> stream(Function<ChatClientRequest, Flux<ChatClientResponse>> model) {
+    StreamAdvisor terminal = new StreamAdvisor() {
+      @Override
+      public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return model.apply(request);
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextStream(request());
+  }
+}
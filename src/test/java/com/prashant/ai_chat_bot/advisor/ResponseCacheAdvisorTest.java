@@ -0,0 +1,190 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheAdvisorTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger providerCalls = new AtomicInteger();
+
+  @Test
+  void repeatedPromptsAreAnsweredFromTheCache() {
+    ResponseCacheAdvisor advisor = advisor(cache(100, Duration.ofMinutes(5)));
+
+    assertEquals("42", text(call(advisor, "What is the answer?", Map.of())));
+    assertEquals("42", text(call(advisor, "What is the answer?", Map.of())));
+    call(advisor, "What is the question?", Map.of());
+
+    assertEquals(2, providerCalls.get());
+    assertEquals(1, lookups("hit_exact"));
+    assertEquals(2, lookups("miss"));
+  }
+
+  @Test
+  void bypassedRequestsNeitherReadNorFillTheCache() {
+    ResponseCacheAdvisor advisor = advisor(cache(100, Duration.ofMinutes(5)));
+    Map<String, Object> bypass = Map.of(ResponseCacheAdvisor.BYPASS, true);
+
+    call(advisor, "What is the answer?", Map.of());
+    call(advisor, "What is the answer?", bypass);
+    call(advisor, "What is the question?", bypass);
+    call(advisor, "What is the question?", Map.of());
+
+    assertEquals(3, providerCalls.get());
+    assertEquals(2, lookups("bypass"));
+    assertEquals(2, lookups("miss"));
+  }
+
+  @Test
+  void completedStreamsAreCachedAsOneAnswer() {
+    ResponseCacheAdvisor advisor = advisor(cache(100, Duration.ofMinutes(5)));
+
+    assertEquals(List.of("4", "2"), stream(advisor).map(ResponseCacheAdvisorTest::text).collectList()
+      .block(Duration.ofSeconds(5)));
+    assertEquals(List.of("42"), stream(advisor).map(ResponseCacheAdvisorTest::text).collectList()
+      .block(Duration.ofSeconds(5)));
+    assertEquals(1, providerCalls.get());
+  }
+
+  @Test
+  void cancelledStreamsAreNotCached() {
+    ResponseCacheAdvisor advisor = advisor(cache(100, Duration.ofMinutes(5)));
+
+    stream(advisor).take(1).blockLast(Duration.ofSeconds(5));
+    stream(advisor).blockLast(Duration.ofSeconds(5));
+
+    assertEquals(2, providerCalls.get());
+  }
+
+  @Test
+  void expiredAnswersAreEvicted() throws InterruptedException {
+    ResponseCacheAdvisor advisor = advisor(cache(100, Duration.ofMillis(50)));
+
+    call(advisor, "What is the answer?", Map.of());
+    Thread.sleep(150);
+    call(advisor, "What is the answer?", Map.of());
+
+    assertEquals(2, providerCalls.get());
+    assertEquals(0, meterRegistry.find("llm.cache.lookups").tag("result", "hit_exact").counters().size());
+  }
+
+  @Test
+  void theCacheKeepsAtMostMaxEntries() throws InterruptedException {
+    ResponseCacheAdvisor advisor = advisor(cache(1, Duration.ofMinutes(5)));
+
+    call(advisor, "What is the answer?", Map.of());
+    call(advisor, "What is the question?", Map.of());
+    //size eviction runs in Caffeine's maintenance, which may be deferred to another thread
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (meterRegistry.get("cache.size").tag("cache", "llm-response-cache").gauge().value() > 1) {
+      assertTrue(System.nanoTime() < deadline, "nothing evicted");
+      Thread.sleep(10);
+    }
+    assertEquals(1.0, meterRegistry.get("cache.size").tag("cache", "llm-response-cache").gauge().value());
+  }
+
+  private ResponseCache cache(long maxEntries, Duration ttl) {
+    return new ResponseCache(meterRegistry, new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class),
+      true, maxEntries, ttl, false, 0.95);
+  }
+
+  private static ResponseCacheAdvisor advisor(ResponseCache cache) {
+    return new ResponseCacheAdvisor(cache, "groq", "llama");
+  }
+
+  private double lookups(String result) {
+    return meterRegistry.get("llm.cache.lookups").tags("provider", "groq", "result", result).counter().count();
+  }
+
+  private ChatClientResponse call(ResponseCacheAdvisor advisor, String prompt, Map<String, Object> context) {
+    CallAdvisor terminal = new CallAdvisor() {
+      @Override
+      public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        providerCalls.incrementAndGet();
+        return response("42");
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextCall(request(prompt, context));
+  }
+
+  private Flux<ChatClientResponse> stream(ResponseCacheAdvisor advisor) {
+    StreamAdvisor terminal = new StreamAdvisor() {
+      @Override
+      public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+          providerCalls.incrementAndGet();
+          return Flux.just(response("4"), response("2"));
+        });
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextStream(request("What is the answer?", Map.of()));
+  }
+
+  private static ChatClientRequest request(String prompt, Map<String, Object> context) {
+    return ChatClientRequest.builder()
+      .prompt(new Prompt(prompt))
+      .context(context)
+      .build();
+  }
+
+  private static ChatClientResponse response(String text) {
+    return ChatClientResponse.builder()
+      .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+      .build();
+  }
+
+  private static String text(ChatClientResponse response) {
+    return response.chatResponse().getResult().getOutput().getText();
+  }
+}
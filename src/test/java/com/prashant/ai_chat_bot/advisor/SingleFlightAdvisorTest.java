@@ -0,0 +1,232 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightAdvisorTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SingleFlightAdvisor advisor = new SingleFlightAdvisor(new SingleFlight(meterRegistry, true), "groq",
+    "llama");
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final AtomicInteger providerCalls = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void identicalCallsInFlightShareOneProviderCall() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Function<ChatClientRequest, ChatClientResponse> model = request -> {
+      providerCalls.incrementAndGet();
+      await(release);
+      return response("42");
+    };
+
+    Future<String> leader = executor.submit(() -> text(call(request(Map.of()), model)));
+    awaitCount("call", "leader");
+    Future<String> follower = executor.submit(() -> text(call(request(Map.of()), model)));
+    awaitCount("call", "follower");
+    release.countDown();
+
+    assertEquals("42", leader.get(5, TimeUnit.SECONDS));
+    assertEquals("42", follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, providerCalls.get());
+  }
+
+  @Test
+  void lateStreamSubscribersReceiveTheWholeAnswer() {
+    Function<ChatClientRequest, Flux<ChatClientResponse>> model = request -> Flux.defer(() -> {
+      providerCalls.incrementAndGet();
+      return Flux.just(response("a"), response("b"), response("c")).delayElements(Duration.ofMillis(50));
+    });
+
+    Flux<ChatClientResponse> first = stream(request(Map.of()), model);
+    Flux<ChatClientResponse> second = stream(request(Map.of()), model).delaySubscription(Duration.ofMillis(75));
+    List<List<String>> answers = Flux.merge(first.map(SingleFlightAdvisorTest::text).collectList(),
+      second.map(SingleFlightAdvisorTest::text).collectList()).collectList().block(Duration.ofSeconds(5));
+
+    assertEquals(List.of(List.of("a", "b", "c"), List.of("a", "b", "c")), answers);
+    assertEquals(1, providerCalls.get());
+    assertEquals(1, meterRegistry.get("llm.singleflight.requests").tags("mode", "stream", "role", "follower")
+      .counter().count());
+  }
+
+  @Test
+  void followersCallThemselvesWhenTheLeaderIsOverBudget() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Function<ChatClientRequest, ChatClientResponse> model = request -> {
+      if (providerCalls.incrementAndGet() == 1) {
+        await(release);
+        throw overBudget();
+      }
+      return response("42");
+    };
+
+    Future<String> leader = executor.submit(() -> text(call(request(Map.of()), model)));
+    awaitCount("call", "leader");
+    Future<String> follower = executor.submit(() -> text(call(request(Map.of()), model)));
+    awaitCount("call", "follower");
+    release.countDown();
+
+    ExecutionException rejected = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(TokenBudgetExceededException.class, rejected.getCause());
+    assertEquals("42", follower.get(5, TimeUnit.SECONDS));
+    assertEquals(2, providerCalls.get());
+  }
+
+  @Test
+  void streamFollowersCallThemselvesWhenTheLeaderIsOverBudget() {
+    Function<ChatClientRequest, Flux<ChatClientResponse>> model = request -> Flux.defer(() -> {
+      if (providerCalls.incrementAndGet() == 1) {
+        return Flux.<ChatClientResponse>error(overBudget()).delaySubscription(Duration.ofMillis(100));
+      }
+      return Flux.just(response("a"), response("b"));
+    });
+
+    Flux<ChatClientResponse> leader = stream(request(Map.of()), model);
+    Flux<ChatClientResponse> follower = stream(request(Map.of()), model).delaySubscription(Duration.ofMillis(30));
+    List<String> answer = Flux.merge(leader.onErrorResume(TokenBudgetExceededException.class, e -> Flux.empty()),
+      follower).map(SingleFlightAdvisorTest::text).collectList().block(Duration.ofSeconds(5));
+
+    assertEquals(List.of("a", "b"), answer);
+    assertEquals(2, providerCalls.get());
+    assertEquals(1, meterRegistry.get("llm.singleflight.requests").tags("mode", "stream", "role", "follower")
+      .counter().count());
+  }
+
+  @Test
+  void conversationsAreNotCollapsed() {
+    Function<ChatClientRequest, Flux<ChatClientResponse>> model = request -> Flux.defer(() -> {
+      providerCalls.incrementAndGet();
+      return Flux.just(response("a")).delayElements(Duration.ofMillis(50));
+    });
+    Map<String, Object> conversation = Map.of(ChatMemory.CONVERSATION_ID, "7");
+
+    Flux.merge(stream(request(conversation), model), stream(request(conversation), model))
+      .blockLast(Duration.ofSeconds(5));
+
+    assertEquals(2, providerCalls.get());
+    assertTrue(meterRegistry.find("llm.singleflight.requests").counters().isEmpty());
+  }
+
+  private void awaitCount(String mode, String role) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (meterRegistry.find("llm.singleflight.requests").tags("mode", mode, "role", role).counter() == null) {
+      assertTrue(System.nanoTime() < deadline, "no " + role);
+      Thread.sleep(5);
+    }
+  }
+
+  private static TokenBudgetExceededException overBudget() {
+    return new TokenBudgetExceededException(TokenBudgetExceededException.Scope.CLIENT, 100, 100, Duration.ofHours(1));
+  }
+
+  private static ChatClientRequest request(Map<String, Object> context) {
+    return ChatClientRequest.builder()
+      .prompt(new Prompt("What is the answer?"))
+      .context(context)
+      .build();
+  }
+
+  private static ChatClientResponse response(String text) {
+    return ChatClientResponse.builder()
+      .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+      .build();
+  }
+
+  private static String text(ChatClientResponse response) {
+    return response.chatResponse().getResult().getOutput().getText();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ChatClientResponse call(ChatClientRequest request, Function<ChatClientRequest, ChatClientResponse> model) {
+    CallAdvisor terminal = new CallAdvisor() {
+      @Override
+      public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        return model.apply(request);
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextCall(request);
+  }
+
+  private Flux<ChatClientResponse> stream(ChatClientRequest request,
+      Function<ChatClientRequest, Flux<ChatClientResponse>> model) {
+    StreamAdvisor terminal = new StreamAdvisor() {
+      @Override
+      public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return model.apply(request);
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextStream(request);
+  }
+}
@@ -0,0 +1,120 @@
+package com.prashant.ai_chat_bot.advisor;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.prashant.ai_chat_bot.usage.UsageLedger;
+import com.prashant.ai_chat_bot.utils.ApproximateTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UsageAdvisorTest {
+
+  private static final String CLIENT = UsageLedger.clientId("key-1");
+
+  @TempDir
+  Path directory;
+
+  private UsageLedger ledger;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    ledger.destroy();
+  }
+
+  @Test
+  void streamRecordsTheUsageReportedOnItsLastChunk() {
+    UsageAdvisor advisor = advisor(0, 100);
+
+    stream(advisor, Flux.just(chunk("Hello", null), chunk(" world", null),
+      chunk("", new DefaultUsage(30, 7, 37)))).blockLast(Duration.ofSeconds(5));
+
+    assertEquals(new UsageLedger.TokenUsage(30, 7, 1), ledger.clientUsage(CLIENT));
+  }
+
+  @Test
+  void cancelledStreamRecordsWhatWasStreamed() {
+    UsageAdvisor advisor = advisor(0, 100);
+
+    stream(advisor, Flux.just(chunk("Hello", null), chunk(" world", null)).concatWith(Flux.never()))
+      .take(2)
+      .blockLast(Duration.ofSeconds(5));
+
+    //no usage was reported: the prompt estimate and one token per streamed chunk
+    UsageLedger.TokenUsage usage = ledger.clientUsage(CLIENT);
+    assertEquals(2, usage.outputTokens());
+    assertEquals(1, usage.requests());
+  }
+
+  @Test
+  void failedStreamGivesItsReservationBack() {
+    //each stream reserves its prompt plus 600 response tokens
+    UsageAdvisor advisor = advisor(1000, 600);
+
+    assertThrows(IllegalStateException.class, () -> stream(advisor, Flux.error(new IllegalStateException("provider down")))
+      .blockLast(Duration.ofSeconds(5)));
+    stream(advisor, Flux.just(chunk("Hello", new DefaultUsage(10, 1, 11)))).blockLast(Duration.ofSeconds(5));
+
+    assertEquals(new UsageLedger.TokenUsage(10, 1, 1), ledger.clientUsage(CLIENT));
+  }
+
+  private UsageAdvisor advisor(long clientBudget, int maxTokens) {
+    ledger = new UsageLedger(JsonMapper.builder().findAndAddModules().build(), new SimpleMeterRegistry(), true,
+      clientBudget, 0, Duration.ofDays(1), 1000, 1000, directory.resolve("usage.json"), Duration.ofMinutes(1));
+    return new UsageAdvisor(ledger, "groq", new ApproximateTokenizer(1.0), maxTokens);
+  }
+
+  //the client as the WebFlux filter passes it, in the Reactor context
+  private static Flux<ChatClientResponse> stream(UsageAdvisor advisor, Flux<ChatClientResponse> model) {
+    StreamAdvisor terminal = new StreamAdvisor() {
+      @Override
+      public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return model;
+      }
+
+      @Override
+      public String getName() {
+        return "model";
+      }
+
+      @Override
+      public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+      }
+    };
+    return DefaultAroundAdvisorChain.builder(ObservationRegistry.NOOP)
+      .pushAll(List.of(advisor, terminal))
+      .build()
+      .nextStream(ChatClientRequest.builder().prompt(new Prompt("What is the answer?")).build())
+      .contextWrite(context -> UsageAdvisor.withClient(context, "key-1"));
+  }
+
+  private static ChatClientResponse chunk(String text, DefaultUsage usage) {
+    ChatResponseMetadata metadata = usage == null ? new ChatResponseMetadata()
+      : ChatResponseMetadata.builder().usage(usage).build();
+    return ChatClientResponse.builder()
+      .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata))
+      .build();
+  }
+}
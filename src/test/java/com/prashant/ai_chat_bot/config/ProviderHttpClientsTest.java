@@ -0,0 +1,68 @@
+package com.prashant.ai_chat_bot.config;
+
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderHttpClientsTest {
+
+  private final StubOpenAiServer stub = new StubOpenAiServer();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ProviderHttpClients httpClients = new ProviderHttpClients(meterRegistry, new MockEnvironment());
+
+  @AfterEach
+  void tearDown() {
+    httpClients.destroy();
+    stub.close();
+  }
+
+  @Test
+  void blockingAndStreamingCallsAreCountedOnTheProviderClient() {
+    RestClient.Builder restClient = RestClient.builder();
+    WebClient.Builder webClient = WebClient.builder();
+    httpClients.apply("groq", provider(), restClient, webClient);
+
+    restClient.baseUrl(stub.baseUrl()).build().post().uri(StubOpenAiServer.COMPLETIONS_PATH)
+      .contentType(MediaType.APPLICATION_JSON).body("{}").retrieve().toBodilessEntity();
+    webClient.baseUrl(stub.baseUrl()).build().post().uri(StubOpenAiServer.COMPLETIONS_PATH)
+      .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"stream\":true}").retrieve()
+      .bodyToFlux(String.class).blockLast(Duration.ofSeconds(5));
+
+    assertEquals(2, stub.requests());
+    assertEquals(2, requests());
+  }
+
+  @Test
+  void warmsUpAndPingsAnIdleProvider() throws InterruptedException {
+    AIProviderProperties.Provider provider = provider();
+    provider.getHttp().setWarmUpConnections(2);
+    provider.getHttp().setKeepWarmInterval(Duration.ofMillis(100));
+
+    httpClients.apply("groq", provider, RestClient.builder(), WebClient.builder());
+    assertEquals(2, requests());
+
+    Thread.sleep(450);
+    assertTrue(requests() >= 4, "keep-warm pings: " + requests());
+  }
+
+  private double requests() {
+    return meterRegistry.get(ProviderHttpClients.REQUESTS).tag("provider", "groq").counter().count();
+  }
+
+  private AIProviderProperties.Provider provider() {
+    AIProviderProperties.Provider provider = new AIProviderProperties.Provider();
+    provider.setBaseUrl(stub.baseUrl() + "/v1");
+    provider.setApiKey("test");
+    return provider;
+  }
+}
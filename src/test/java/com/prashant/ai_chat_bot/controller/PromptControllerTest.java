@@ -0,0 +1,101 @@
+package com.prashant.ai_chat_bot.controller;
+
+import com.prashant.ai_chat_bot.advisor.ResponseCache;
+import com.prashant.ai_chat_bot.advisor.ResponseCacheAdvisor;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AutoRoutingProperties;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.model.CodeReviewDTO;
+import com.prashant.ai_chat_bot.service.AdaptiveProviderRouter;
+import com.prashant.ai_chat_bot.service.ChatClientRegistry;
+import com.prashant.ai_chat_bot.service.CodeReviewService;
+import com.prashant.ai_chat_bot.service.MultiModelProviderService;
+import com.prashant.ai_chat_bot.service.PromptTemplateRegistry;
+import com.prashant.ai_chat_bot.service.ProviderConcurrencyLimiter;
+import com.prashant.ai_chat_bot.service.ProviderRoutingService;
+import com.prashant.ai_chat_bot.service.ProviderStatsTracker;
+import com.prashant.ai_chat_bot.service.UserPromptService;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PromptControllerTest {
+
+  private final StubOpenAiServer stub = new StubOpenAiServer().reply("** OVERALL RATING:** 9 - clean");
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final PromptController controller = controller();
+
+  @AfterEach
+  void tearDown() {
+    stub.close();
+  }
+
+  @Test
+  void analyzeCodeSkipsTheResponseCacheWhenAskedTo() {
+    controller.analyzeCode(AIProviderConstants.OLLAMA, false, file());
+    controller.analyzeCode(AIProviderConstants.OLLAMA, false, file());
+    assertEquals(1, stub.requests());
+
+    assertEquals("** OVERALL RATING:** 9 - clean", controller.analyzeCode(AIProviderConstants.OLLAMA, true, file()));
+    assertEquals(2, stub.requests());
+    assertEquals(1, meterRegistry.get("llm.cache.lookups").tags("result", "bypass").counter().count());
+  }
+
+  private static CodeReviewDTO file() {
+    CodeReviewDTO file = new CodeReviewDTO();
+    file.setCode("class Util {}");
+    file.setLanguage("java");
+    return file;
+  }
+
+  private PromptController controller() {
+    ResponseCache cache = new ResponseCache(meterRegistry,
+      new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class), true, 100, Duration.ofMinutes(5), false,
+      0.95);
+    AIProviderProperties properties = new AIProviderProperties();
+    ProviderStatsTracker statsTracker = new ProviderStatsTracker(meterRegistry);
+    AutoRoutingProperties autoRouting = new AutoRoutingProperties();
+    autoRouting.setCandidates(List.of(AIProviderConstants.OLLAMA));
+    ProviderRoutingService routing = new ProviderRoutingService(
+      new MultiModelProviderService(ChatClientRegistry.of(Map.of(AIProviderConstants.OLLAMA, client(cache)))),
+      properties, statsTracker, new AdaptiveProviderRouter(statsTracker, properties, meterRegistry, autoRouting),
+      Schedulers.boundedElastic(), new ConversationTurns(meterRegistry));
+    CodeReviewService codeReviewService = new CodeReviewService(routing,
+      new UserPromptService(new PromptTemplateRegistry(new DefaultResourceLoader(), false)),
+      new ProviderConcurrencyLimiter(2), Schedulers.boundedElastic(), 6000, 3000, 150, 4, 6000);
+    return new PromptController(codeReviewService, null, null);
+  }
+
+  private ChatClient client(ResponseCache cache) {
+    OpenAiApi api = OpenAiApi.builder()
+      .apiKey("test")
+      .baseUrl(stub.baseUrl())
+      .completionsPath(StubOpenAiServer.COMPLETIONS_PATH)
+      .build();
+    OpenAiChatModel model = OpenAiChatModel.builder()
+      .openAiApi(api)
+      .defaultOptions(OpenAiChatOptions.builder().model("stub").build())
+      .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+      .build();
+    return ChatClient.builder(model)
+      .defaultAdvisors(new ResponseCacheAdvisor(cache, AIProviderConstants.OLLAMA, "stub"))
+      .build();
+  }
+}
@@ -0,0 +1,108 @@
+package com.prashant.ai_chat_bot.controller;
+
+import com.prashant.ai_chat_bot.advisor.SingleFlight;
+import com.prashant.ai_chat_bot.advisor.SingleFlightAdvisor;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AutoRoutingProperties;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.memory.WriteBehindChatMemory;
+import com.prashant.ai_chat_bot.service.AdaptiveProviderRouter;
+import com.prashant.ai_chat_bot.service.ChatClientRegistry;
+import com.prashant.ai_chat_bot.service.ConversationIdGenerator;
+import com.prashant.ai_chat_bot.service.MultiModelProviderService;
+import com.prashant.ai_chat_bot.service.ProviderRoutingService;
+import com.prashant.ai_chat_bot.service.ProviderStatsTracker;
+import com.prashant.ai_chat_bot.service.StreamCoalescer;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingChatModelControllerTest {
+
+  private static final String ANSWER = "one two three four five six";
+
+  private final StubOpenAiServer stub = new StubOpenAiServer().reply(ANSWER).tokenInterval(Duration.ofMillis(50));
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final StreamingChatModelController controller = controller();
+
+  @AfterEach
+  void tearDown() {
+    stub.close();
+  }
+
+  @Test
+  void concurrentSseClientsShareOneProviderStream() {
+    Flux<String> first = controller.chat("ollama", false, "What is the answer?");
+    //joins after the first tokens went out and still gets the whole answer
+    Flux<String> second = controller.chat("ollama", false, "What is the answer?").delaySubscription(Duration.ofMillis(120));
+
+    List<String> answers = Flux.merge(first.collectList().map(tokens -> String.join("", tokens)),
+        second.collectList().map(tokens -> String.join("", tokens)))
+      .collectList()
+      .block(Duration.ofSeconds(10));
+
+    assertEquals(List.of(ANSWER, ANSWER), answers);
+    assertEquals(1, stub.requests());
+    assertEquals(1, meterRegistry.get("llm.singleflight.requests").tags("mode", "stream", "role", "follower")
+      .counter().count());
+  }
+
+  @Test
+  void conversationStreamsAreNotShared() {
+    Flux.merge(controller.chatConversation(1, "ollama", false, "What is the answer?"),
+        controller.chatConversation(2, "ollama", false, "What is the answer?"))
+      .blockLast(Duration.ofSeconds(10));
+
+    assertEquals(2, stub.requests());
+  }
+
+  private StreamingChatModelController controller() {
+    OpenAiApi api = OpenAiApi.builder()
+      .apiKey("test")
+      .baseUrl(stub.baseUrl())
+      .completionsPath(StubOpenAiServer.COMPLETIONS_PATH)
+      .build();
+    OpenAiChatModel model = OpenAiChatModel.builder()
+      .openAiApi(api)
+      .defaultOptions(OpenAiChatOptions.builder().model("stub").build())
+      .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+      .build();
+    ChatClient chatClient = ChatClient.builder(model)
+      .defaultAdvisors(new SingleFlightAdvisor(new SingleFlight(meterRegistry, true), "ollama", "stub"))
+      .build();
+
+    AIProviderProperties properties = new AIProviderProperties();
+    ProviderStatsTracker statsTracker = new ProviderStatsTracker(meterRegistry);
+    AutoRoutingProperties autoRouting = new AutoRoutingProperties();
+    autoRouting.setCandidates(List.of("ollama"));
+    autoRouting.setCostWeight(0);
+    autoRouting.setExplorationRate(0);
+    AdaptiveProviderRouter router = new AdaptiveProviderRouter(statsTracker, properties, meterRegistry, autoRouting);
+    ConversationTurns conversationTurns = new ConversationTurns(meterRegistry);
+    ProviderRoutingService routing = new ProviderRoutingService(
+      new MultiModelProviderService(ChatClientRegistry.of(Map.of("ollama", chatClient))), properties, statsTracker,
+      router, Schedulers.boundedElastic(), conversationTurns);
+    MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
+      .chatMemoryRepository(new InMemoryChatMemoryRepository())
+      .build();
+    return new StreamingChatModelController(routing, new ConversationIdGenerator(), chatMemory,
+      new WriteBehindChatMemory(Runnable::run, false, Duration.ofSeconds(1), meterRegistry), conversationTurns,
+      new StreamCoalescer(meterRegistry, false, Duration.ofMillis(30), 512));
+  }
+}
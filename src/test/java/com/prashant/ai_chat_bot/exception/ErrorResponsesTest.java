@@ -0,0 +1,39 @@
+package com.prashant.ai_chat_bot.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorResponsesTest {
+
+  private static final List<String> CHAIN = List.of("groq", "mistral");
+
+  @Test
+  void saturatedProviderEarlierInTheChainMeansTooManyRequests() {
+    AdmissionRejectedException rejected = new AdmissionRejectedException("groq",
+      AdmissionRejectedException.Reason.QUEUE_FULL, Duration.ofMillis(1500));
+    ProviderUnavailableException unavailable = new ProviderUnavailableException(CHAIN,
+      new IllegalStateException("mistral returned 500"), List.of(rejected));
+
+    ResponseEntity<Map<String, Object>> response = ErrorResponses.providerUnavailable(unavailable, "/chat");
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+    assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+  }
+
+  @Test
+  void failingProvidersMeanServiceUnavailable() {
+    ProviderUnavailableException unavailable = new ProviderUnavailableException(CHAIN,
+      new IllegalStateException("mistral returned 500"), List.of(new IllegalStateException("groq returned 500")));
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+      ErrorResponses.providerUnavailable(unavailable, "/chat").getStatusCode());
+  }
+}
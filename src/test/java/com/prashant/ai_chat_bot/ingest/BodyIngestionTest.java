@@ -0,0 +1,109 @@
+package com.prashant.ai_chat_bot.ingest;
+
+import com.prashant.ai_chat_bot.exception.BadRequestException;
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+import com.prashant.ai_chat_bot.utils.ApproximateTokenizer;
+import com.prashant.ai_chat_bot.utils.InputSanitizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BodyIngestionTest {
+
+  private static final String CODE = """
+    \t/** Sums the order lines. */\r
+    \tpublic BigDecimal total(List<OrderLine> lines) {\r
+    \t  return lines.stream().map(OrderLine::price).reduce(BigDecimal.ZERO, BigDecimal::add);   \r
+    \t}\u0007  café 12345 ;;
+    """;
+
+  private final SanitizedBodyReader reader = new SanitizedBodyReader(DataSize.ofMegabytes(1), 100_000);
+
+  @Test
+  void countsChunksLikeTheWholeText() {
+    String body = "  " + CODE.repeat(50) + "\n\n";
+    String sanitized = InputSanitizer.sanitize(body);
+    Random random = new Random(3);
+    for (int run = 0; run < 50; run++) {
+      BodyIngestion ingestion = new BodyIngestion(1_000_000, 100_000, 0);
+      char[] chars = body.toCharArray();
+      for (int offset = 0; offset < chars.length; ) {
+        int length = Math.min(chars.length - offset, 1 + random.nextInt(40));
+        ingestion.append(chars, offset, length);
+        offset += length;
+      }
+
+      assertEquals(sanitized, ingestion.finish());
+      assertEquals(ApproximateTokenizer.rawCount(sanitized, 0, sanitized.length()), ingestion.getTokens());
+    }
+  }
+
+  @Test
+  void rejectsOverBudgetBodiesBeforeReadingThemFully() {
+    CountingReader body = new CountingReader(new StringReader(CODE.repeat(10_000)));
+    SanitizedBody budget = annotation(1000);
+
+    assertThrows(InputTooLargeException.class, () -> reader.read(body, -1, budget));
+    assertEquals(8192, body.read);
+    assertThrows(BadRequestException.class, () -> reader.read(new StringReader(" \r\n\u0000 "), -1, annotation(0)));
+  }
+
+  @Test
+  void decodesCharactersSplitBetweenBuffers() {
+    byte[] bytes = ("  " + CODE + " €, 𝄞 ").getBytes(StandardCharsets.UTF_8);
+    DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+    Flux<DataBuffer> buffers = Flux.range(0, bytes.length)
+      .map(i -> factory.wrap(new byte[] {bytes[i]}));
+
+    String body = reader.read(buffers, StandardCharsets.UTF_8, bytes.length, annotation(0)).block();
+
+    assertEquals(InputSanitizer.sanitize(new String(bytes, StandardCharsets.UTF_8)), body);
+  }
+
+  //0 uses the reader's default budget
+  private static SanitizedBody annotation(int maxTokens) {
+    return new SanitizedBody() {
+      @Override
+      public int maxTokens() {
+        return maxTokens;
+      }
+
+      @Override
+      public Class<SanitizedBody> annotationType() {
+        return SanitizedBody.class;
+      }
+    };
+  }
+
+  private static final class CountingReader extends Reader {
+
+    private final Reader delegate;
+    private long read;
+
+    private CountingReader(Reader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      int n = delegate.read(buffer, offset, length);
+      read += Math.max(0, n);
+      return n;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
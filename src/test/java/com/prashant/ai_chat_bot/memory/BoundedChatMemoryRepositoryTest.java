@@ -0,0 +1,59 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import com.prashant.ai_chat_bot.utils.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundedChatMemoryRepositoryTest {
+
+  //far from what the text encodes to, so a count that was encoded again shows
+  private static final int STORED_TOKENS = 999;
+
+  private final BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(100, Duration.ofHours(1), 16);
+
+  @Test
+  void tokenCountsAreStoredInsteadOfEncodedAgain() {
+    repository.saveAllTokenized("1", List.of(new TokenizedMessage(new UserMessage("hello"), STORED_TOKENS)));
+
+    assertEquals(List.of(STORED_TOKENS), counts(repository.findTokenizedByConversationId("1")));
+    assertEquals("hello", repository.findByConversationId("1").get(0).getText());
+  }
+
+  @Test
+  void plainSavesOnlyCountTheMessagesTheyAdd() {
+    repository.saveAllTokenized("1", List.of(new TokenizedMessage(new UserMessage("hello"), STORED_TOKENS)));
+
+    //as MessageWindowChatMemory does: read, append, save
+    List<Message> messages = new ArrayList<>(repository.findByConversationId("1"));
+    messages.add(new AssistantMessage("hi there"));
+    repository.saveAll("1", messages);
+
+    assertEquals(List.of(STORED_TOKENS, TokenCounter.countTokens("hi there")),
+      counts(repository.findTokenizedByConversationId("1")));
+  }
+
+  @Test
+  void theTokenWindowReadsTheStoredCounts() {
+    TokenWindowChatMemory memory = new TokenWindowChatMemory(repository, 10_000, new SimpleMeterRegistry());
+    repository.saveAllTokenized("1", List.of(new TokenizedMessage(new UserMessage("hello"), STORED_TOKENS)));
+
+    memory.add("1", List.of(new AssistantMessage("hi there")));
+
+    assertEquals(List.of(STORED_TOKENS, TokenCounter.countTokens("hi there")), counts(memory.messages("1")));
+    assertEquals(1, memory.forBudget("groq", STORED_TOKENS).get("1").size());
+  }
+
+  private static List<Integer> counts(List<TokenizedMessage> messages) {
+    return messages.stream().map(TokenizedMessage::getTokenCount).toList();
+  }
+}
@@ -0,0 +1,102 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationCompactorTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TokenWindowChatMemory memory = new TokenWindowChatMemory(
+    new BoundedChatMemoryRepository(100, Duration.ofHours(1), 16), 10_000, meterRegistry);
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicReference<String> summarizedOn = new AtomicReference<>();
+  private final AtomicReference<String> transcript = new AtomicReference<>();
+  private final ConversationCompactor compactor = new ConversationCompactor(memory, text -> {
+    summarizedOn.set(Thread.currentThread().getName());
+    transcript.set(text);
+    started.countDown();
+    await(release);
+    return "The user asked about lorem.";
+  }, 100, 30, 1, 10, meterRegistry);
+
+  @AfterEach
+  void tearDown() {
+    compactor.close();
+  }
+
+  @Test
+  void summarizesOlderTurnsOffTheWritingThread() throws InterruptedException {
+    memory.add("1", turns(6));
+    //the write returned while the summary is still being made
+    assertEquals(12, memory.messages("1").size());
+
+    release.countDown();
+    awaitOutcome("applied");
+
+    List<TokenizedMessage> compacted = memory.messages("1");
+    assertTrue(summarizedOn.get().startsWith("chat-memory-compaction-"));
+    assertTrue(transcript.get().startsWith("User: question 0 "));
+    assertEquals(3, compacted.size());
+    assertEquals(ConversationCompactor.SUMMARY_PREFIX + "The user asked about lorem.",
+      compacted.get(0).getMessage().getText());
+    //the newest turn stays verbatim and whole
+    assertEquals(MessageType.USER, compacted.get(1).getMessage().getMessageType());
+    assertTrue(compacted.get(1).getMessage().getText().startsWith("question 5 "));
+    assertEquals(1, meterRegistry.get("chat.memory.compaction.lag").timer().count());
+    assertTrue(meterRegistry.get("chat.memory.compaction.tokens.saved").summary().totalAmount() > 200);
+  }
+
+  @Test
+  void discardsTheSummaryWhenTheHistoryChangedAtItsStart() throws InterruptedException {
+    memory.add("1", turns(6));
+    await(started);
+    memory.clear("1");
+    memory.add("1", turns(1));
+
+    release.countDown();
+    awaitOutcome("stale");
+    assertEquals(2, memory.messages("1").size());
+  }
+
+  private static List<Message> turns(int count) {
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(new UserMessage("question " + i + " " + "lorem ".repeat(30)));
+      messages.add(new AssistantMessage("answer " + i + " " + "ipsum ".repeat(30)));
+    }
+    return messages;
+  }
+
+  private void awaitOutcome(String outcome) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (meterRegistry.find("chat.memory.compactions").tag("outcome", outcome).counter() == null) {
+      assertTrue(System.nanoTime() < deadline, "no " + outcome + " compaction");
+      Thread.sleep(10);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.prashant.ai_chat_bot.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationLockingChatMemoryTest {
+
+  //"1" and "2" hash to neighbouring stripes out of 1024
+  private final BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(100, Duration.ofHours(1), 1024);
+  private final ChatMemory memory = new ConversationLockingChatMemory(MessageWindowChatMemory.builder()
+    .chatMemoryRepository(repository)
+    .maxMessages(1_000)
+    .build(), repository);
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentWritesToOneConversationAreAllKept() throws Exception {
+    List<Future<?>> writers = new ArrayList<>();
+    for (int writer = 0; writer < 8; writer++) {
+      int id = writer;
+      writers.add(executor.submit(() -> {
+        for (int i = 0; i < 50; i++) {
+          memory.add("1", List.of(new UserMessage(id + "-" + i)));
+        }
+      }));
+    }
+    for (Future<?> writer : writers) {
+      writer.get(10, TimeUnit.SECONDS);
+    }
+
+    List<Message> stored = memory.get("1");
+    assertEquals(400, stored.size());
+    assertEquals(400, stored.stream().map(Message::getText).distinct().count());
+  }
+
+  @Test
+  void writesWaitForTheirConversationsLock() throws Exception {
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> holder = executor.submit(() -> repository.withConversationLock("1", () -> {
+      locked.countDown();
+      await(release);
+      return null;
+    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    Future<?> write = executor.submit(() -> memory.add("1", List.of(new UserMessage("hello"))));
+    assertThrows(TimeoutException.class, () -> write.get(100, TimeUnit.MILLISECONDS));
+    release.countDown();
+
+    write.get(5, TimeUnit.SECONDS);
+    holder.get(5, TimeUnit.SECONDS);
+    assertEquals(1, memory.get("1").size());
+  }
+
+  @Test
+  void otherConversationsDoNotWaitForALockedOne() throws Exception {
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> holder = executor.submit(() -> repository.withConversationLock("1", () -> {
+      locked.countDown();
+      await(release);
+      return null;
+    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    executor.submit(() -> memory.add("2", List.of(new UserMessage("hello")))).get(5, TimeUnit.SECONDS);
+    //reads never lock
+    assertTrue(memory.get("1").isEmpty());
+    release.countDown();
+
+    holder.get(5, TimeUnit.SECONDS);
+    assertEquals(1, memory.get("2").size());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
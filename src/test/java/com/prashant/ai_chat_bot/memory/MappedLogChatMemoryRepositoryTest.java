@@ -0,0 +1,121 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedLogChatMemoryRepositoryTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void restoresWindowedConversationsAfterRestart() {
+    MappedLogChatMemoryRepository repository = open(1 << 20);
+    List<Message> window = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      window.add(i % 2 == 0 ? new UserMessage("question " + i) : new AssistantMessage("answer " + i));
+      if (window.size() > 10) {
+        window.remove(0);
+      }
+      repository.saveAll("1", window);
+    }
+    repository.saveAll("2", List.of(new UserMessage("hello")));
+    repository.deleteByConversationId("2");
+    repository.destroy();
+
+    MappedLogChatMemoryRepository reopened = open(1 << 20);
+    assertEquals(List.of("1"), reopened.findConversationIds());
+    assertEquals(texts(window), texts(reopened.findByConversationId("1")));
+    List<TokenizedMessage> tokenized = reopened.findTokenizedByConversationId("1");
+    assertTrue(tokenized.stream().allMatch(message -> message.getTokenCount() > 0));
+    reopened.destroy();
+  }
+
+  @Test
+  void compactionKeepsLiveMessagesAcrossSegments() throws IOException {
+    //small segments so the history spans several files
+    MappedLogChatMemoryRepository repository = open(4096);
+    List<Message> window = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      window.add(new UserMessage("message number " + i));
+      if (window.size() > 5) {
+        window.remove(0);
+      }
+      repository.saveAll("conversation", window);
+      repository.saveAll("scratch-" + i, List.of(new UserMessage("temporary " + i)));
+      repository.deleteByConversationId("scratch-" + i);
+    }
+
+    long segmentsBefore = segmentFiles();
+    repository.compactIfNeeded();
+    assertTrue(segmentFiles() < segmentsBefore);
+    assertEquals(texts(window), texts(repository.findByConversationId("conversation")));
+    repository.destroy();
+
+    MappedLogChatMemoryRepository reopened = open(4096);
+    assertEquals(List.of("conversation"), reopened.findConversationIds());
+    assertEquals(texts(window), texts(reopened.findByConversationId("conversation")));
+    reopened.destroy();
+  }
+
+  @Test
+  void messagesWithCollidingHashesAreNotTakenForStoredOnes() {
+    MappedLogChatMemoryRepository repository = open(1 << 20);
+    //"Aa" and "BB" have the same String hash
+    repository.saveAll("1", List.of(new UserMessage("Aa")));
+    repository.saveAll("1", List.of(new UserMessage("BB")));
+
+    assertEquals(List.of("BB"), texts(repository.findByConversationId("1")));
+    repository.destroy();
+  }
+
+  @Test
+  void newSegmentsDoNotOverwriteUnreadableOnes() throws IOException {
+    Path foreign = directory.resolve("segment-0000000001.log");
+    Files.write(foreign, "not a segment".getBytes(StandardCharsets.UTF_8));
+
+    MappedLogChatMemoryRepository repository = open(4096);
+    for (int i = 0; i < 50; i++) {
+      repository.saveAll("conversation-" + i, List.of(new UserMessage("message number " + i)));
+    }
+    repository.destroy();
+
+    byte[] header = Arrays.copyOf(Files.readAllBytes(foreign), 13);
+    assertEquals("not a segment", new String(header, StandardCharsets.UTF_8));
+    MappedLogChatMemoryRepository reopened = open(4096);
+    assertEquals(List.of("message number 49"), texts(reopened.findByConversationId("conversation-49")));
+    reopened.destroy();
+  }
+
+  private MappedLogChatMemoryRepository open(int segmentSize) {
+    return new MappedLogChatMemoryRepository(directory, segmentSize, 1000, Duration.ofHours(1), 16,
+      0.5, Duration.ofHours(1), Duration.ofHours(1));
+  }
+
+  private long segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private static List<String> texts(List<Message> messages) {
+    return messages.stream().map(Message::getText).toList();
+  }
+}
@@ -0,0 +1,106 @@
+package com.prashant.ai_chat_bot.memory;
+
+import com.prashant.ai_chat_bot.model.TokenizedMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenWindowChatMemoryTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(100, Duration.ofHours(1), 16);
+  private final TokenWindowChatMemory memory = new TokenWindowChatMemory(repository, 10_000, meterRegistry);
+
+  @Test
+  void providerViewsOnlyReturnTheNewestMessagesThatFitTheirBudget() {
+    memory.add("1", turns(4));
+    List<TokenizedMessage> stored = memory.messages("1");
+    int lastTurnTokens = stored.get(6).getTokenCount() + stored.get(7).getTokenCount();
+
+    List<Message> window = memory.forBudget("groq", lastTurnTokens).get("1");
+
+    assertEquals(2, window.size());
+    assertTrue(window.get(0).getText().startsWith("question 3 "));
+    assertEquals(8, memory.get("1").size());
+    assertEquals(lastTurnTokens, (int) meterRegistry.get("chat.memory.tokens.sent").tag("provider", "groq")
+      .summary().totalAmount());
+  }
+
+  @Test
+  void countsComeFromTheRepositoryEntries() {
+    memory.add("1", turns(2));
+    int storedTokens = memory.messages("1").stream().mapToInt(TokenizedMessage::getTokenCount).sum();
+    AtomicInteger notified = new AtomicInteger();
+    memory.addHistoryListener((conversationId, tokens) -> notified.set(tokens));
+
+    memory.add("1", List.of(new UserMessage("one more")));
+
+    List<TokenizedMessage> entries = repository.findTokenizedByConversationId("1");
+    assertEquals(5, entries.size());
+    assertEquals(entries.stream().mapToInt(TokenizedMessage::getTokenCount).sum(), notified.get());
+    assertTrue(notified.get() > storedTokens);
+  }
+
+  @Test
+  void aConversationDroppedByTheRepositoryStaysGone() {
+    memory.add("1", turns(2));
+
+    repository.deleteByConversationId("1");
+    assertTrue(memory.get("1").isEmpty());
+
+    memory.add("1", List.of(new UserMessage("hello again")));
+    assertEquals(1, repository.findTokenizedByConversationId("1").size());
+  }
+
+  @Test
+  void replacesTheOldestMessagesWhenTheyMatchByContent() {
+    memory.add("1", turns(3));
+    List<TokenizedMessage> oldest = new ArrayList<>();
+    //as read back from a store that builds new messages on every read
+    for (TokenizedMessage stored : memory.messages("1").subList(0, 4)) {
+      Message message = stored.getMessage() instanceof UserMessage
+        ? new UserMessage(stored.getMessage().getText())
+        : new AssistantMessage(stored.getMessage().getText());
+      oldest.add(new TokenizedMessage(message, stored.getTokenCount()));
+    }
+
+    assertTrue(memory.replaceOldest("1", oldest, new TokenizedMessage(new SystemMessage("summary"), 2)));
+
+    List<TokenizedMessage> replaced = repository.findTokenizedByConversationId("1");
+    assertEquals(3, replaced.size());
+    assertEquals("summary", replaced.get(0).getMessage().getText());
+    assertTrue(replaced.get(1).getMessage().getText().startsWith("question 2 "));
+  }
+
+  @Test
+  void keepsTheHistoryWhenItsStartChanged() {
+    memory.add("1", turns(3));
+    List<TokenizedMessage> oldest = memory.messages("1").subList(0, 4);
+    memory.clear("1");
+    memory.add("1", turns(1));
+
+    assertFalse(memory.replaceOldest("1", oldest, new TokenizedMessage(new SystemMessage("summary"), 2)));
+    assertEquals(2, repository.findTokenizedByConversationId("1").size());
+  }
+
+  private static List<Message> turns(int count) {
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(new UserMessage("question " + i + " " + "lorem ".repeat(10)));
+      messages.add(new AssistantMessage("answer " + i + " " + "ipsum ".repeat(10)));
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,88 @@
+package com.prashant.ai_chat_bot.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindChatMemoryTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ChatMemory delegate = MessageWindowChatMemory.builder()
+    .chatMemoryRepository(new InMemoryChatMemoryRepository())
+    .maxMessages(10)
+    .build();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void addReturnsBeforeTheWriteAndReadsSeeIt() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    //first task on the executor blocks until released, holding back the write
+    WriteBehindChatMemory writeBehind = new WriteBehindChatMemory(task -> executor.execute(() -> {
+      await(release);
+      task.run();
+    }), true, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    ChatMemory memory = writeBehind.wrap(delegate);
+
+    memory.add("1", List.of(new UserMessage("question")));
+    memory.add("1", List.of(new AssistantMessage("answer")));
+    assertTrue(delegate.get("1").isEmpty());
+
+    release.countDown();
+    assertEquals(List.of("question", "answer"), texts(memory.get("1")));
+  }
+
+  @Test
+  void closeFlushesPendingWrites() {
+    WriteBehindChatMemory writeBehind = new WriteBehindChatMemory(executor, true, Duration.ofSeconds(5),
+      new SimpleMeterRegistry());
+    ChatMemory memory = writeBehind.wrap(delegate);
+    for (int i = 0; i < 50; i++) {
+      memory.add("conversation-" + (i % 5), List.of(new UserMessage("message " + i)));
+    }
+
+    writeBehind.close();
+
+    for (int c = 0; c < 5; c++) {
+      assertEquals(10, delegate.get("conversation-" + c).size());
+    }
+  }
+
+  @Test
+  void disabledReturnsTheDelegate() {
+    WriteBehindChatMemory writeBehind = new WriteBehindChatMemory(executor, false, Duration.ofSeconds(5),
+      new SimpleMeterRegistry());
+    assertSame(delegate, writeBehind.wrap(delegate));
+  }
+
+  private static List<String> texts(List<Message> messages) {
+    return messages.stream().map(Message::getText).toList();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
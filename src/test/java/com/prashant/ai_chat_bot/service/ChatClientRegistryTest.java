@@ -0,0 +1,93 @@
+package com.prashant.ai_chat_bot.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChatClientRegistryTest {
+
+  private static final ChatModel MODEL = prompt -> null;
+
+  @Test
+  void buildsEachClientOnceOnFirstUse() throws InterruptedException {
+    AtomicInteger builds = new AtomicInteger();
+    ChatClientRegistry registry = new ChatClientRegistry(Map.of("groq", () -> {
+      builds.incrementAndGet();
+      return ChatClient.builder(MODEL).build();
+    }));
+    assertEquals(0, builds.get());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<ChatClient> clients = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < 32; i++) {
+      executor.execute(() -> clients.add(registry.get("groq")));
+    }
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    assertEquals(1, builds.get());
+    assertEquals(32, clients.size());
+    clients.forEach(client -> assertSame(clients.get(0), client));
+  }
+
+  @Test
+  void retriesAFactoryThatFailed() {
+    AtomicInteger attempts = new AtomicInteger();
+    ChatClientRegistry registry = new ChatClientRegistry(Map.of("gemini", () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new IllegalStateException("prompt missing");
+      }
+      return ChatClient.builder(MODEL).build();
+    }));
+
+    assertThrows(IllegalStateException.class, () -> registry.get("gemini"));
+    registry.get("gemini");
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void initializesAllProvidersInParallel() {
+    AtomicInteger builds = new AtomicInteger();
+    Map<String, Supplier<ChatClient>> factories = new LinkedHashMap<>();
+    for (String provider : List.of("groq", "mistral", "ollama")) {
+      factories.put(provider, () -> {
+        builds.incrementAndGet();
+        return ChatClient.builder(MODEL).build();
+      });
+    }
+    ChatClientRegistry registry = new ChatClientRegistry(factories);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    registry.initializeAll(executor);
+    executor.shutdown();
+
+    assertEquals(3, builds.get());
+    assertEquals(List.of("groq", "mistral", "ollama"), List.copyOf(registry.providers()));
+    registry.get("groq");
+    assertEquals(3, builds.get());
+  }
+
+  @Test
+  void unknownProvidersAreAbsent() {
+    ChatClientRegistry registry = ChatClientRegistry.of(Map.of());
+
+    assertFalse(registry.contains("cohere"));
+    assertNull(registry.get("cohere"));
+  }
+}
@@ -0,0 +1,112 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.model.CodeReviewDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeReviewBatchServiceTest {
+
+  //pack budget of 100 tokens, at most 3 files per pack; packing needs none of the collaborators
+  private final CodeReviewBatchService service = new CodeReviewBatchService(null, null, null, null, null, 500, 100, 3);
+
+  @Test
+  void splitsPackedAnswerOnFileMarkers() {
+    String answer = """
+      Here are the reviews.
+      **=== FILE 1 k3x9q2 ===**
+      ** OVERALL RATING:** 7 - fine
+      ### === FILE 2 k3x9q2 ===
+      ** BUGS & LOGICAL ERRORS:** off by one
+      """;
+
+    Map<Integer, String> reviews = CodeReviewBatchService.splitByFile(answer, "k3x9q2");
+
+    assertEquals(Map.of(1, "** OVERALL RATING:** 7 - fine", 2, "** BUGS & LOGICAL ERRORS:** off by one"), reviews);
+  }
+
+  @Test
+  void markersWithoutThePacksTagDoNotSplit() {
+    //a file whose code carries a marker of its own, echoed by the model
+    String answer = """
+      === FILE 1 k3x9q2 ===
+      ** SUGGESTIONS:** the comment
+      === FILE 2 ===
+      looks like a marker
+      === FILE 2 k3x9q2 ===
+      ** OVERALL RATING:** 9 - clean
+      """;
+
+    Map<Integer, String> reviews = CodeReviewBatchService.splitByFile(answer, "k3x9q2");
+
+    assertTrue(reviews.get(1).contains("=== FILE 2 ==="));
+    assertEquals("** OVERALL RATING:** 9 - clean", reviews.get(2));
+  }
+
+  @Test
+  void answerWithoutMarkersHasNoReviews() {
+    assertTrue(CodeReviewBatchService.splitByFile("I reviewed everything, looks good.", "k3x9q2").isEmpty());
+  }
+
+  @Test
+  void identicalFilesAreReviewedOnceForEveryPath() {
+    List<CodeReviewBatchService.ReviewUnit> units = new ArrayList<>(service.deduplicate(List.of(
+      file("a/Util.java", "class Util {}", "java", "none"),
+      file("b/Util.java", "class Util {}", "java", "none"),
+      file("c/Util.java", "class Util {}", "java", "must log"),
+      file(null, "class Other {}", "java", "none"))));
+
+    assertEquals(3, units.size());
+    assertEquals(List.of("a/Util.java", "b/Util.java"), units.get(0).paths());
+    assertEquals(List.of("c/Util.java"), units.get(1).paths());
+    //unnamed files are named by their position in the request
+    assertEquals(List.of("file-4"), units.get(2).paths());
+  }
+
+  @Test
+  void packsSmallFilesWithTheSameRequirementsUpToTheLimits() {
+    String small = "int x = 1;";
+    String large = "int value = 1;\n".repeat(60);
+    List<List<CodeReviewBatchService.ReviewUnit>> packs = service.pack(service.deduplicate(List.of(
+      file("1", small + 1, "java", "none"),
+      file("2", small + 2, "java", "none"),
+      file("3", small + 3, "java", "must log"),
+      file("4", large, "java", "none"),
+      file("5", small + 5, "java", "none"),
+      file("6", small + 6, "java", "none"),
+      file("7", small + 7, "java", "none"))));
+
+    assertEquals(List.of(List.of("1", "2", "5"), List.of("3"), List.of("4"), List.of("6", "7")), paths(packs));
+  }
+
+  @Test
+  void startsANewPackWhenTheTokenBudgetIsReached() {
+    String half = "int value = 1;\n".repeat(7);
+    List<List<CodeReviewBatchService.ReviewUnit>> packs = service.pack(service.deduplicate(List.of(
+      file("1", half + 1, "java", "none"),
+      file("2", half + 2, "java", "none"),
+      file("3", half + 3, "java", "none"))));
+
+    assertEquals(List.of(List.of("1", "2"), List.of("3")), paths(packs));
+  }
+
+  private static List<List<String>> paths(List<List<CodeReviewBatchService.ReviewUnit>> packs) {
+    return packs.stream()
+      .map(pack -> pack.stream().map(unit -> unit.paths().get(0)).toList())
+      .toList();
+  }
+
+  private static CodeReviewDTO file(String path, String code, String language, String requirements) {
+    CodeReviewDTO file = new CodeReviewDTO();
+    file.setPath(path);
+    file.setCode(code);
+    file.setLanguage(language);
+    file.setBusinessRequirements(requirements);
+    return file;
+  }
+}
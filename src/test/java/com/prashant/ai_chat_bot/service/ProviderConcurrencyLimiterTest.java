@@ -0,0 +1,83 @@
+package com.prashant.ai_chat_bot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ProviderConcurrencyLimiterTest {
+
+  private final ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(2);
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void callsWaitingForAPermitHoldNoWorkerThread() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<CompletableFuture<Integer>> calls = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      int call = i;
+      calls.add(limiter.submit("groq", () -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        await(release);
+        running.decrementAndGet();
+        return call;
+      }, executor));
+    }
+
+    //two threads are busy with groq and the four waiting calls hold none, so another provider still runs
+    assertEquals("free", limiter.submit("mistral", () -> "free", executor).get(5, TimeUnit.SECONDS));
+    release.countDown();
+
+    for (int i = 0; i < calls.size(); i++) {
+      assertEquals(i, calls.get(i).get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  void blockingAndSubmittedCallsShareThePermits() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = limiter.submit("groq", () -> {
+      await(release);
+      return "first";
+    }, executor);
+    CompletableFuture<String> second = limiter.submit("groq", () -> {
+      await(release);
+      return "second";
+    }, executor);
+    CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> limiter.withPermit("groq", () -> "third"));
+
+    Thread.sleep(100);
+    assertFalse(blocking.isDone(), "the blocking call ran without a permit");
+    release.countDown();
+
+    assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    assertEquals("third", blocking.get(5, TimeUnit.SECONDS));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
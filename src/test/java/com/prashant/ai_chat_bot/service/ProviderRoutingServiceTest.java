@@ -0,0 +1,358 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.advisor.CallCancellation;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AutoRoutingProperties;
+import com.prashant.ai_chat_bot.exception.ProviderUnavailableException;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import com.prashant.ai_chat_bot.memory.ConversationOnlyChatMemory;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRoutingServiceTest {
+
+  private final StubOpenAiServer primary = new StubOpenAiServer().reply("from primary");
+  private final StubOpenAiServer secondary = new StubOpenAiServer().reply("from secondary");
+  private final StubOpenAiServer tertiary = new StubOpenAiServer().reply("from tertiary");
+
+  private final Map<String, AIProviderProperties.Provider> policies = new LinkedHashMap<>();
+  private final ChatMemory chatMemory = MessageWindowChatMemory.builder()
+    .chatMemoryRepository(new InMemoryChatMemoryRepository())
+    .build();
+  private final ConversationTurns conversationTurns = new ConversationTurns(new SimpleMeterRegistry());
+  private ProviderRoutingService routing;
+
+  @BeforeEach
+  void setUp() {
+    Map<String, ChatClient> clients = new LinkedHashMap<>();
+    clients.put("ollama", client(primary, memory()));
+    clients.put("groq", client(secondary, memory()));
+    clients.put("mistral", client(tertiary, memory()));
+    AIProviderProperties properties = new AIProviderProperties();
+    properties.setProviders(policies);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ProviderStatsTracker statsTracker = new ProviderStatsTracker(meterRegistry);
+    AutoRoutingProperties autoRouting = new AutoRoutingProperties();
+    autoRouting.setCandidates(List.of("ollama", "groq"));
+    autoRouting.setCostWeight(0);
+    autoRouting.setExplorationRate(0);
+    AdaptiveProviderRouter router = new AdaptiveProviderRouter(statsTracker, properties, meterRegistry, autoRouting);
+    routing = new ProviderRoutingService(new MultiModelProviderService(ChatClientRegistry.of(clients)), properties,
+      statsTracker, router, Schedulers.boundedElastic(), conversationTurns);
+  }
+
+  @AfterEach
+  void tearDown() {
+    primary.close();
+    secondary.close();
+    tertiary.close();
+  }
+
+  @Test
+  void failsOverInOrderWhenProvidersError() {
+    primary.status(500);
+    secondary.status(503);
+    policy("ollama").setFailover(List.of("groq", "mistral"));
+
+    assertEquals("from tertiary", routing.call("ollama", this::content));
+    assertEquals(1, primary.requests());
+    assertEquals(1, secondary.requests());
+  }
+
+  @Test
+  void failsOverWhenPrimaryTimesOut() {
+    primary.firstTokenDelay(Duration.ofSeconds(3));
+    policy("ollama").setTimeout(Duration.ofMillis(300));
+    policy("ollama").setFailover(List.of("groq"));
+
+    long start = System.nanoTime();
+    assertEquals("from secondary", routing.call("ollama", this::content));
+    assertTrue(elapsedSince(start).compareTo(Duration.ofSeconds(2)) < 0);
+  }
+
+  @Test
+  void hedgedCallReturnsTheFasterProvider() {
+    primary.firstTokenDelay(Duration.ofSeconds(3));
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofMillis(100));
+
+    long start = System.nanoTime();
+    assertEquals("from secondary", routing.call("ollama", this::content));
+    assertTrue(elapsedSince(start).compareTo(Duration.ofSeconds(2)) < 0);
+    assertEquals(1, secondary.requests());
+  }
+
+  @Test
+  void conversationCallsAreNotHedged() {
+    primary.firstTokenDelay(Duration.ofMillis(500));
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofMillis(50));
+
+    assertEquals("from primary", routing.callConversation("ollama", "1", client -> conversationContent(client, "1")));
+    assertEquals(0, secondary.requests());
+  }
+
+  @Test
+  void conversationFailoverStoresTheTurnOnce() {
+    primary.status(500);
+    policy("ollama").setFailover(List.of("groq"));
+
+    assertEquals("from secondary", routing.callConversation("ollama", "1", client -> conversationContent(client, "1")));
+    assertEquals(List.of("hello", "from secondary"), texts(chatMemory.get("1")));
+
+    List<String> chunks = routing.streamConversation("ollama", "2", client -> client.prompt().user("hello")
+        .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, "2"))
+        .stream().content())
+      .collectList().block();
+    assertEquals("from secondary", String.join("", chunks));
+    assertEquals(List.of("hello", "from secondary"), texts(chatMemory.get("2")));
+  }
+
+  @Test
+  void timedOutConversationAttemptDoesNotStoreItsLateAnswer() throws InterruptedException {
+    policy("ollama").setTimeout(Duration.ofMillis(100));
+    policy("ollama").setFailover(List.of("groq"));
+    AtomicInteger attempts = new AtomicInteger();
+    CountDownLatch primaryEnded = new CountDownLatch(1);
+    ChatMemory memory = memory();
+
+    assertEquals("from secondary", routing.callConversation("ollama", "1", client -> {
+      if (attempts.incrementAndGet() > 1) {
+        return conversationContent(client, "1");
+      }
+      memory.add("1", List.of(new UserMessage("hello")));
+      try {
+        Thread.sleep(3000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      //what the memory advisor does when the provider answers after the timeout
+      memory.add("1", List.of(new AssistantMessage("late")));
+      primaryEnded.countDown();
+      return "late";
+    }));
+    assertTrue(primaryEnded.await(10, TimeUnit.SECONDS));
+
+    assertEquals(List.of("hello", "from secondary"), texts(chatMemory.get("1")));
+  }
+
+  @Test
+  void timedOutCallAttemptIsFlaggedAsCancelled() throws InterruptedException {
+    policy("ollama").setTimeout(Duration.ofMillis(100));
+    policy("ollama").setFailover(List.of("groq"));
+    AtomicInteger attempts = new AtomicInteger();
+    AtomicBoolean primaryCancelled = new AtomicBoolean();
+    CountDownLatch primaryEnded = new CountDownLatch(1);
+
+    assertEquals("from secondary", routing.call("ollama", client -> {
+      if (attempts.incrementAndGet() > 1) {
+        return content(client);
+      }
+      try {
+        Thread.sleep(3000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      primaryCancelled.set(CallCancellation.isCancelled());
+      primaryEnded.countDown();
+      return "late";
+    }));
+    assertTrue(primaryEnded.await(10, TimeUnit.SECONDS));
+    assertTrue(primaryCancelled.get());
+  }
+
+  @Test
+  void budgetRejectionIsNotFailedOverOrWrapped() {
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq", "mistral"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofMillis(100));
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(TokenBudgetExceededException.class, () -> routing.call("ollama", client -> {
+      attempts.incrementAndGet();
+      throw new TokenBudgetExceededException(TokenBudgetExceededException.Scope.CLIENT, 100, 100, Duration.ofHours(1));
+    }));
+    //the primary and its hedge, but not the failover
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void streamFailsOverBeforeFirstToken() {
+    primary.status(500);
+    policy("ollama").setFailover(List.of("groq"));
+
+    List<String> chunks = routing.stream("ollama", this::streamContent).collectList().block();
+
+    assertEquals("from secondary", String.join("", chunks));
+  }
+
+  @Test
+  void hedgedStreamCancelsTheSlowerProvider() {
+    secondary.reply("one two three four").tokenInterval(Duration.ofMillis(50));
+    primary.firstTokenDelay(Duration.ofMillis(400))
+      .reply("a b c d e f g h i j k l m n o p q r s t u v w x y z")
+      .tokenInterval(Duration.ofMillis(50));
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofMillis(50));
+
+    AtomicInteger cancelled = new AtomicInteger();
+    List<String> chunks = routing.stream("ollama", chatClient -> streamContent(chatClient)
+        .doOnCancel(cancelled::incrementAndGet))
+      .collectList().block();
+
+    assertEquals("one two three four", String.join("", chunks));
+    assertEquals(1, cancelled.get());
+    assertEquals(1, primary.requests());
+  }
+
+  @Test
+  void reportsUnavailableWhenEveryProviderFails() {
+    primary.status(500);
+    secondary.status(500);
+    policy("ollama").setFailover(List.of("groq"));
+
+    ProviderUnavailableException error = assertThrows(ProviderUnavailableException.class,
+      () -> routing.call("ollama", this::content));
+    assertTrue(error.getMessage().contains("[ollama, groq]"));
+  }
+
+  @Test
+  void emptyAnswersAreFailedOver() {
+    policy("ollama").setFailover(List.of("groq"));
+    AtomicInteger calls = new AtomicInteger();
+    AtomicInteger streams = new AtomicInteger();
+
+    assertEquals("from secondary", routing.call("ollama",
+      client -> calls.incrementAndGet() == 1 ? null : content(client)));
+    List<String> chunks = routing.stream("ollama",
+        client -> streams.incrementAndGet() == 1 ? Flux.<String>empty() : streamContent(client))
+      .collectList().block();
+
+    assertEquals("from secondary", String.join("", chunks));
+  }
+
+  @Test
+  void hedgeStartsAtOnceWhenThePrimaryAnswersEmpty() {
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofSeconds(3));
+    AtomicInteger attempts = new AtomicInteger();
+
+    long start = System.nanoTime();
+    assertEquals("from secondary", routing.call("ollama",
+      client -> attempts.incrementAndGet() == 1 ? null : content(client)));
+    assertTrue(elapsedSince(start).compareTo(Duration.ofSeconds(2)) < 0);
+  }
+
+  @Test
+  void reportsUnavailableWhenEveryProviderAnswersEmpty() {
+    AIProviderProperties.Provider policy = policy("ollama");
+    policy.setFailover(List.of("groq", "mistral"));
+    policy.getHedge().setEnabled(true);
+    policy.getHedge().setInitialDelay(Duration.ofMillis(100));
+
+    ProviderUnavailableException error = assertThrows(ProviderUnavailableException.class,
+      () -> routing.call("ollama", client -> null));
+    assertTrue(error.getMessage().contains("[ollama, groq, mistral]"));
+    assertThrows(ProviderUnavailableException.class,
+      () -> routing.stream("ollama", client -> Flux.<String>empty()).blockLast());
+    //nothing to route to: the failure is not wrapped, but the answer is not null either
+    assertThrows(IllegalStateException.class, () -> routing.call("groq", client -> null));
+  }
+
+  @Test
+  void autoRoutesAwayFromFailingProvider() {
+    primary.status(500);
+
+    assertEquals("from secondary", routing.call("auto", this::content));
+    assertEquals("from secondary", routing.call("auto", this::content));
+    assertEquals(1, primary.requests());
+    assertEquals(2, secondary.requests());
+  }
+
+  private String content(ChatClient chatClient) {
+    return chatClient.prompt().user("hello").call().content();
+  }
+
+  private static String conversationContent(ChatClient chatClient, String conversationId) {
+    return chatClient.prompt().user("hello")
+      .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+      .call().content();
+  }
+
+  private static List<String> texts(List<Message> messages) {
+    return messages.stream().map(Message::getText).toList();
+  }
+
+  //the memory view the provider clients get in MultiModelConfig
+  private ChatMemory memory() {
+    return new ConversationOnlyChatMemory(conversationTurns.wrap(chatMemory));
+  }
+
+  private Flux<String> streamContent(ChatClient chatClient) {
+    return chatClient.prompt().user("hello").stream().content();
+  }
+
+  private AIProviderProperties.Provider policy(String provider) {
+    return policies.computeIfAbsent(provider, p -> new AIProviderProperties.Provider());
+  }
+
+  private static Duration elapsedSince(long startNanos) {
+    return Duration.ofNanos(System.nanoTime() - startNanos);
+  }
+
+  private static ChatClient client(StubOpenAiServer server, ChatMemory memory) {
+    OpenAiApi api = OpenAiApi.builder()
+      .apiKey("test")
+      .baseUrl(server.baseUrl())
+      .completionsPath(StubOpenAiServer.COMPLETIONS_PATH)
+      .build();
+    OpenAiChatModel model = OpenAiChatModel.builder()
+      .openAiApi(api)
+      .defaultOptions(OpenAiChatOptions.builder().model("stub").build())
+      .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+      .build();
+    return ChatClient.builder(model)
+      .defaultAdvisors(MessageChatMemoryAdvisor.builder(memory).build())
+      .build();
+  }
+}
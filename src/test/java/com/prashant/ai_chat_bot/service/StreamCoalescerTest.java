@@ -0,0 +1,86 @@
+package com.prashant.ai_chat_bot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamCoalescerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void sendsFirstTokenAloneAndBatchesTheRest() {
+    StreamCoalescer coalescer = new StreamCoalescer(meterRegistry, true, Duration.ofMillis(50), 512);
+    //40 tokens, 5ms apart: about 4 windows after the first token
+    Flux<String> tokens = Flux.range(0, 40).delayElements(Duration.ofMillis(5)).map(i -> "t" + i + " ");
+
+    List<String> events = coalescer.coalesce(tokens, "test").collectList().block();
+
+    assertEquals("t0 ", events.get(0));
+    assertEquals(String.join("", tokens.collectList().block()), String.join("", events));
+    assertTrue(events.size() < 15, "expected batched events, got " + events.size());
+    assertEquals(40, meterRegistry.get("llm.stream.chunks").summary().totalAmount());
+    assertEquals(events.size(), (int) meterRegistry.get("llm.stream.flushes").summary().totalAmount());
+  }
+
+  @Test
+  void flushesWhenMaxBytesArePending() {
+    StreamCoalescer coalescer = new StreamCoalescer(meterRegistry, true, Duration.ofSeconds(10), 8);
+
+    List<String> events = coalescer.coalesce(Flux.just("a", "bbbb", "cccc", "dd", "e"), "test")
+      .collectList().block();
+
+    assertEquals(List.of("a", "bbbbcccc", "dde"), events);
+  }
+
+  @Test
+  void flushesPendingTokensBeforeAnError() {
+    StreamCoalescer coalescer = new StreamCoalescer(meterRegistry, true, Duration.ofSeconds(10), 512);
+    Flux<String> tokens = Flux.just("a", "b", "c").concatWith(Flux.error(new IllegalStateException("boom")));
+
+    List<String> events = coalescer.coalesce(tokens, "test")
+      .onErrorResume(error -> Flux.just("!"))
+      .collectList().block();
+
+    assertEquals(List.of("a", "bc", "!"), events);
+  }
+
+  @Test
+  void stopsReadingWhileASlowClientHoldsAFullBatch() throws InterruptedException {
+    StreamCoalescer coalescer = new StreamCoalescer(meterRegistry, true, Duration.ofMillis(10), 8);
+    AtomicLong requested = new AtomicLong();
+    Flux<String> tokens = Flux.range(0, 1000).map(i -> "abcd").doOnRequest(requested::addAndGet);
+    List<String> events = new CopyOnWriteArrayList<>();
+
+    coalescer.coalesce(tokens, "test").subscribe(new BaseSubscriber<>() {
+      @Override
+      protected void hookOnSubscribe(Subscription subscription) {
+        request(1);
+      }
+
+      @Override
+      protected void hookOnNext(String event) {
+        events.add(event);
+      }
+    });
+    Thread.sleep(100);
+
+    assertEquals(List.of("abcd"), events);
+    assertTrue(requested.get() <= 4, "read " + requested.get() + " chunks for one event");
+  }
+
+  @Test
+  void countsMultiByteCharacters() {
+    assertEquals(1 + 2 + 3 + 4, StreamCoalescer.utf8Length("aé€😀"));
+  }
+}
@@ -0,0 +1,156 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prashant.ai_chat_bot.config.AIProviderProperties;
+import com.prashant.ai_chat_bot.config.AutoRoutingProperties;
+import com.prashant.ai_chat_bot.memory.ConversationTurns;
+import com.prashant.ai_chat_bot.model.BespokeResponse;
+import com.prashant.ai_chat_bot.model.TicketAnalysis;
+import com.prashant.ai_chat_bot.model.TicketAnalysisField;
+import com.prashant.ai_chat_bot.model.TicketAnalysisResponse;
+import com.prashant.ai_chat_bot.stub.StubOpenAiServer;
+import com.prashant.ai_chat_bot.utils.AIProviderConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketAnalysisServiceTest {
+
+  private static final String ANALYSIS = "{\"category\": \"Technical\", \"priority\": \"Low\", "
+    + "\"keyIssues\": \"printer\", \"sentiment\": \"Neutral\", \"summary\": \"Printer is offline\", "
+    + "\"suggestedResolution\": \"Restart it\", \"estimatedResolutionTime\": 2}";
+
+  private final StubOpenAiServer analysis = new StubOpenAiServer().reply(ANALYSIS);
+  private final StubOpenAiServer gemini = new StubOpenAiServer().reply("[]");
+  private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("llm-");
+  private final TicketAnalysisService service = service(2);
+
+  @AfterEach
+  void tearDown() {
+    analysis.close();
+    gemini.close();
+  }
+
+  @Test
+  void failedBatchEntriesCarryAnErrorAndTheRestTheirAnalysis() throws Exception {
+    analysis.replies(body -> body.contains("printer") ? ANALYSIS : "not json");
+
+    List<TicketAnalysisResponse> responses = service
+      .analyzeBatch(AIProviderConstants.OLLAMA, false, List.of("The printer is offline", "Something else entirely"))
+      .get(10, TimeUnit.SECONDS);
+
+    assertEquals(2, responses.size());
+    assertEquals("Technical", responses.get(0).getTicketAnalysis().getCategory());
+    assertEquals(TicketAnalysis.TicketPriority.LOW, responses.get(0).getTicketAnalysis().getPriority());
+    assertNull(responses.get(0).getError());
+    assertNull(responses.get(1).getTicketAnalysis());
+    assertEquals("PROVIDER_UNAVAILABLE", responses.get(1).getError());
+  }
+
+  @Test
+  void batchKeepsAtMostThePermittedCallsOpenPerProvider() throws Exception {
+    analysis.firstTokenDelay(Duration.ofMillis(100));
+
+    List<TicketAnalysisResponse> responses = service
+      .analyzeBatch(AIProviderConstants.OLLAMA, false, List.of("printer 1", "printer 2", "printer 3", "printer 4", "printer 5"))
+      .get(10, TimeUnit.SECONDS);
+
+    assertEquals(5, responses.size());
+    assertTrue(responses.stream().allMatch(response -> response.getTicketAnalysis() != null));
+    assertEquals(5, analysis.requests());
+    assertTrue(analysis.maxConcurrent() <= 2, "max concurrent " + analysis.maxConcurrent());
+  }
+
+  @Test
+  void streamsEveryFieldThenTheAnalysisThenDone() {
+    List<ServerSentEvent<Object>> events = service.analyzeStream(AIProviderConstants.OLLAMA, false, "The printer is offline")
+      .collectList()
+      .block(Duration.ofSeconds(10));
+
+    assertEquals(List.of("field", "field", "field", "field", "field", "field", "field", "analysis", "done"),
+      events.stream().map(ServerSentEvent::event).toList());
+    assertEquals(List.of("category", "priority", "keyIssues", "sentiment", "summary", "suggestedResolution",
+      "estimatedResolutionTime"), events.subList(0, 7).stream()
+      .map(event -> ((TicketAnalysisField) event.data()).getName()).toList());
+    TicketAnalysis ticketAnalysis = (TicketAnalysis) events.get(7).data();
+    assertEquals(TicketAnalysis.TicketPriority.LOW, ticketAnalysis.getPriority());
+    assertEquals(0, gemini.requests());
+  }
+
+  @Test
+  void streamsBespokeResponsesBeforeDoneForHighPriorityTickets() {
+    analysis.reply(ANALYSIS.replace("Low", "High"));
+    gemini.reply("[{\"tone\": \"Formal\", \"responseText\": \"We are on it\"}]");
+
+    List<ServerSentEvent<Object>> events = service.analyzeStream(AIProviderConstants.OLLAMA, false, "The printer is offline")
+      .collectList()
+      .block(Duration.ofSeconds(10));
+
+    List<String> names = events.stream().map(ServerSentEvent::event).toList();
+    assertEquals("done", names.get(names.size() - 1));
+    BespokeResponse bespokeResponse = (BespokeResponse) events.get(names.indexOf("bespoke")).data();
+    assertEquals("We are on it", bespokeResponse.getResponseText());
+    assertEquals(1, names.stream().filter("analysis"::equals).count());
+  }
+
+  @Test
+  void aFailedStreamEndsWithAnErrorEventInsteadOfDone() {
+    analysis.status(500);
+
+    List<ServerSentEvent<Object>> events = service.analyzeStream(AIProviderConstants.OLLAMA, false, "The printer is offline")
+      .collectList()
+      .block(Duration.ofSeconds(10));
+
+    assertEquals(List.of("error"), events.stream().map(ServerSentEvent::event).toList());
+    assertEquals("Ticket analysis failed", events.get(0).data());
+  }
+
+  private TicketAnalysisService service(int maxConcurrencyPerProvider) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AIProviderProperties properties = new AIProviderProperties();
+    ProviderStatsTracker statsTracker = new ProviderStatsTracker(meterRegistry);
+    AutoRoutingProperties autoRouting = new AutoRoutingProperties();
+    autoRouting.setCandidates(List.of(AIProviderConstants.OLLAMA));
+    ProviderRoutingService routing = new ProviderRoutingService(
+      new MultiModelProviderService(ChatClientRegistry.of(Map.of(
+        AIProviderConstants.OLLAMA, client(analysis),
+        AIProviderConstants.GEMINI, client(gemini)))),
+      properties, statsTracker, new AdaptiveProviderRouter(statsTracker, properties, meterRegistry, autoRouting),
+      Schedulers.boundedElastic(), new ConversationTurns(meterRegistry));
+    return new TicketAnalysisService(routing,
+      new UserPromptService(new PromptTemplateRegistry(new DefaultResourceLoader(), false)),
+      new ProviderConcurrencyLimiter(maxConcurrencyPerProvider), executor, new ObjectMapper(), 50);
+  }
+
+  private static ChatClient client(StubOpenAiServer server) {
+    OpenAiApi api = OpenAiApi.builder()
+      .apiKey("test")
+      .baseUrl(server.baseUrl())
+      .completionsPath(StubOpenAiServer.COMPLETIONS_PATH)
+      .build();
+    OpenAiChatModel model = OpenAiChatModel.builder()
+      .openAiApi(api)
+      .defaultOptions(OpenAiChatOptions.builder().model("stub").build())
+      .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+      .build();
+    return ChatClient.builder(model).build();
+  }
+}
@@ -0,0 +1,55 @@
+package com.prashant.ai_chat_bot.service;
+
+import com.prashant.ai_chat_bot.utils.CompiledPromptTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserPromptServiceTest {
+
+  private final PromptTemplateRegistry registry = new PromptTemplateRegistry(new DefaultResourceLoader(), false);
+  private final UserPromptService userPromptService = new UserPromptService(registry);
+
+  @Test
+  void templatesKeepTheirInstructionsBeforeTheFirstPlaceholder() {
+    for (String location : UserPromptService.TEMPLATES) {
+      CompiledPromptTemplate template = userPromptService.template(location);
+      assertTrue(template.getVariableSectionLiteralLength() <= UserPromptService.MAX_VARIABLE_SECTION_LITERALS,
+        location + " has " + template.getVariableSectionLiteralLength() + " chars after its first placeholder");
+      assertTrue(template.getStaticPrefix().length() > template.getVariableSectionLiteralLength(), location);
+    }
+  }
+
+  @Test
+  void promptsForDifferentRequestsShareTheStaticPrefix() {
+    String prefix = registry.get(UserPromptService.CODE_REVIEW_PROMPT).getStaticPrefix();
+
+    String java = userPromptService.createCodeReviewPrompt("Java", "class A {}", "none").getContents();
+    String python = userPromptService.createCodeReviewPrompt("Python", "print(1)", "validate input").getContents();
+
+    assertTrue(java.startsWith(prefix));
+    assertTrue(python.startsWith(prefix));
+    assertEquals(prefix.length(), commonPrefixLength(java, python));
+  }
+
+  @Test
+  void ticketAnalysisFormatComesBeforeTheTicket() {
+    String format = UserPromptService.CONSTANTS.get(UserPromptService.TICKET_ANALYSIS_PROMPT).get("format");
+
+    String prompt = userPromptService.createTicketAnalysisPrompt("printer on fire").getContents();
+
+    assertTrue(userPromptService.template(UserPromptService.TICKET_ANALYSIS_PROMPT).getStaticPrefix().contains(format));
+    assertTrue(prompt.indexOf(format) < prompt.indexOf("printer on fire"));
+    assertTrue(prompt.strip().endsWith("printer on fire"));
+  }
+
+  private static int commonPrefixLength(String a, String b) {
+    int i = 0;
+    while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+}
@@ -0,0 +1,178 @@
+package com.prashant.ai_chat_bot.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Minimal OpenAI-compatible chat completions endpoint for tests and load runs.
+ *
+ * Answers POST /v1/chat/completions with a fixed reply (or one picked from the
+ * request body), either as one JSON
+ * completion or, when the request asks for "stream": true, as SSE chunks (one per
+ * word) followed by [DONE]. Latency and failures are configurable at any time.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+  public static final String COMPLETIONS_PATH = "/v1/chat/completions";
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+  private volatile String reply = "stub reply";
+  //null: always the fixed reply
+  private volatile Function<String, String> replies;
+  private volatile Duration firstTokenDelay = Duration.ZERO;
+  private volatile Duration tokenInterval = Duration.ZERO;
+  private volatile int status = 200;
+
+  public StubOpenAiServer() {
+    try {
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot start stub server", e);
+    }
+    server.createContext(COMPLETIONS_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  public StubOpenAiServer reply(String reply) {
+    this.reply = reply;
+    return this;
+  }
+
+  /**
+   * @param replyForRequest the reply to a request, given its JSON body
+   */
+  public StubOpenAiServer replies(Function<String, String> replyForRequest) {
+    this.replies = replyForRequest;
+    return this;
+  }
+
+  public StubOpenAiServer firstTokenDelay(Duration delay) {
+    this.firstTokenDelay = delay;
+    return this;
+  }
+
+  public StubOpenAiServer tokenInterval(Duration interval) {
+    this.tokenInterval = interval;
+    return this;
+  }
+
+  public StubOpenAiServer status(int status) {
+    this.status = status;
+    return this;
+  }
+
+  public int requests() {
+    return requests.get();
+  }
+
+  //highest number of requests the stub was serving at the same time
+  public int maxConcurrent() {
+    return maxConcurrent.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    maxConcurrent.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      respond(exchange);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    boolean stream = body.replace(" ", "").contains("\"stream\":true");
+    Function<String, String> replyForRequest = replies;
+    String answer = replyForRequest != null ? replyForRequest.apply(body) : reply;
+    try (exchange) {
+      sleep(firstTokenDelay);
+      if (status != 200) {
+        byte[] error = "{\"error\":{\"message\":\"stub failure\",\"type\":\"server_error\"}}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, error.length);
+        exchange.getResponseBody().write(error);
+        return;
+      }
+      if (stream) {
+        writeStream(exchange, answer);
+      } else {
+        byte[] completion = completion(answer).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, completion.length);
+        exchange.getResponseBody().write(completion);
+      }
+    }
+  }
+
+  private void writeStream(HttpExchange exchange, String answer) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream out = exchange.getResponseBody();
+    String[] words = answer.split("(?<= )");
+    for (int i = 0; i < words.length; i++) {
+      if (i > 0) {
+        sleep(tokenInterval);
+      }
+      out.write(("data: " + chunk(words[i]) + "\n\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    }
+    out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  private static String completion(String answer) {
+    return """
+      {"id":"chatcmpl-stub","object":"chat.completion","created":0,"model":"stub",
+       "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+       "usage":{"prompt_tokens":1,"completion_tokens":1,"total_tokens":2}}
+      """.formatted(escape(answer));
+  }
+
+  private static String chunk(String text) {
+    return "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"stub\","
+      + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"" + escape(text)
+      + "\"},\"finish_reason\":null}]}";
+  }
+
+  private static String escape(String text) {
+    return text.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static void sleep(Duration duration) {
+    if (duration.isZero()) {
+      return;
+    }
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
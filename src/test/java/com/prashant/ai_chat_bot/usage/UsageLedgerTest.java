@@ -0,0 +1,92 @@
+package com.prashant.ai_chat_bot.usage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.prashant.ai_chat_bot.exception.TokenBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsageLedgerTest {
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void reservedEstimatesCountAgainstTheBudgetUntilUsageIsRecorded() throws Exception {
+    UsageLedger ledger = ledger(1000, 0);
+    String client = UsageLedger.clientId("secret-key");
+
+    UsageLedger.Reservation first = ledger.reserve(client, null, 600);
+    TokenBudgetExceededException rejected = assertThrows(TokenBudgetExceededException.class,
+      () -> ledger.reserve(client, null, 600));
+    assertEquals(TokenBudgetExceededException.Scope.CLIENT, rejected.getScope());
+    assertNotNull(rejected.getRetryAfter());
+
+    //the provider reported less than the estimate, so the difference is free again
+    ledger.record(first, "groq", 150, 50);
+    ledger.release(ledger.reserve(client, null, 600));
+
+    assertEquals(new UsageLedger.TokenUsage(150, 50, 1), ledger.clientUsage(client));
+    assertEquals(1, meterRegistry.get(UsageLedger.BUDGET_REJECTIONS).tag("scope", "client").counter().count());
+    ledger.destroy();
+  }
+
+  @Test
+  void conversationBudgetNeverResetsAndNotifiesListeners() throws Exception {
+    UsageLedger ledger = ledger(0, 300);
+    List<String> recorded = new ArrayList<>();
+    ledger.addConversationListener((conversationId, input, output) -> recorded.add(conversationId + ":" + (input + output)));
+
+    ledger.record(ledger.reserve(UsageLedger.ANONYMOUS, "42", 100), "ollama", 200, 80);
+    TokenBudgetExceededException rejected = assertThrows(TokenBudgetExceededException.class,
+      () -> ledger.reserve(UsageLedger.ANONYMOUS, "42", 100));
+
+    assertEquals(TokenBudgetExceededException.Scope.CONVERSATION, rejected.getScope());
+    assertNull(rejected.getRetryAfter());
+    assertEquals(List.of("42:280"), recorded);
+    //other conversations have their own budget
+    ledger.release(ledger.reserve(UsageLedger.ANONYMOUS, "43", 100));
+    ledger.destroy();
+  }
+
+  @Test
+  void flushedTotalsAreLoadedOnStartWithoutTheApiKey() throws Exception {
+    UsageLedger ledger = ledger(0, 0);
+    String client = UsageLedger.clientId("secret-key");
+    ledger.record(ledger.reserve(client, "7", 10), "groq", 12, 3);
+    ledger.destroy();
+
+    String stored = Files.readString(directory.resolve("usage.json"));
+    assertTrue(stored.contains(client));
+    assertNotEquals(-1, stored.indexOf("\"groq\""));
+    assertEquals(-1, stored.indexOf("secret-key"));
+
+    UsageLedger restarted = ledger(0, 0);
+    assertEquals(new UsageLedger.TokenUsage(12, 3, 1), restarted.clientUsage(client));
+    assertEquals(new UsageLedger.TokenUsage(12, 3, 1), restarted.conversationUsage("7"));
+    assertEquals(new UsageLedger.TokenUsage(12, 3, 1), restarted.providerUsage("groq"));
+    restarted.destroy();
+  }
+
+  private UsageLedger ledger(long clientBudget, long conversationBudget) {
+    return new UsageLedger(objectMapper, meterRegistry, true, clientBudget, conversationBudget, Duration.ofDays(1),
+      1000, 1000, directory.resolve("usage.json"), Duration.ofMinutes(1));
+  }
+}
@@ -0,0 +1,143 @@
+package com.prashant.ai_chat_bot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeChunkerTest {
+
+  private static final int CHUNK_TOKENS = 600;
+  private static final int OVERLAP_TOKENS = 40;
+  private static final Pattern JAVA_MEMBER_START = Pattern.compile("^  (/\\*\\*|public |private |static class |})");
+
+  @Test
+  void largeJavaClassIsCutAtMethodBoundaries() {
+    String code = javaClass(300);
+    String[] lines = code.split("\n", -1);
+
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(code, CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    assertTrue(chunks.size() > 10);
+    assertCoversAllLines(chunks, lines.length);
+    for (CodeChunker.Chunk chunk : chunks) {
+      assertTrue(TokenCounter.countTokens(chunk.text()) <= CHUNK_TOKENS + OVERLAP_TOKENS + 10,
+        "chunk " + chunk.index() + " over budget");
+      if (chunk.index() > 0) {
+        String firstLine = lines[chunk.startLine() - 1];
+        assertTrue(JAVA_MEMBER_START.matcher(firstLine).find(), "cut inside a member: " + firstLine);
+      }
+    }
+  }
+
+  @Test
+  void bracesInStringsAndCommentsDoNotShiftBoundaries() {
+    StringBuilder code = new StringBuilder("class Braces {\n");
+    for (int i = 0; i < 200; i++) {
+      code.append("  /** returns \"{\" for } cases */\n")
+        .append("  String open").append(i).append("() {\n")
+        .append("    String s = \"{{{\" + '{'; // }}}\n")
+        .append("    /* { */ return s + \"}\\\"{\";\n")
+        .append("  }\n\n");
+    }
+    code.append("}\n");
+
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(code.toString(), CHUNK_TOKENS, 0);
+    String[] lines = code.toString().split("\n", -1);
+
+    assertTrue(chunks.size() > 3);
+    for (CodeChunker.Chunk chunk : chunks.subList(1, chunks.size())) {
+      assertTrue(lines[chunk.startLine() - 1].startsWith("  /**"), "cut inside a method at line " + chunk.startLine());
+    }
+  }
+
+  @Test
+  void largePythonModuleIsCutBetweenFunctions() {
+    StringBuilder code = new StringBuilder("import os\n\n");
+    for (int i = 0; i < 250; i++) {
+      code.append("def handler_").append(i).append("(event):\n")
+        .append("    total = 0\n")
+        .append("    for item in event['items']:\n")
+        .append("        total += item['price'] * ").append(i).append("\n\n")
+        .append("    return {'total': total}\n\n\n");
+    }
+    String[] lines = code.toString().split("\n", -1);
+
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(code.toString(), CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    assertCoversAllLines(chunks, lines.length);
+    for (CodeChunker.Chunk chunk : chunks.subList(1, chunks.size())) {
+      assertTrue(lines[chunk.startLine() - 1].startsWith("def "), "cut inside a function at line " + chunk.startLine());
+    }
+  }
+
+  @Test
+  void methodLargerThanTheBudgetIsCutBetweenLines() {
+    StringBuilder code = new StringBuilder("class Huge {\n  void run() {\n");
+    for (int i = 0; i < 2000; i++) {
+      code.append("    call(").append(i).append(", \"value-").append(i).append("\");\n");
+    }
+    code.append("  }\n}\n");
+
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(code.toString(), CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    assertCoversAllLines(chunks, code.toString().split("\n", -1).length);
+    chunks.forEach(chunk -> assertTrue(TokenCounter.countTokens(chunk.text()) <= CHUNK_TOKENS + OVERLAP_TOKENS + 10));
+  }
+
+  @Test
+  void overlapRepeatsTheEndOfThePreviousChunk() {
+    List<CodeChunker.Chunk> chunks = CodeChunker.split(javaClass(100), CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    for (int i = 1; i < chunks.size(); i++) {
+      CodeChunker.Chunk chunk = chunks.get(i);
+      assertTrue(chunk.contextStartLine() < chunk.startLine());
+      String previous = chunks.get(i - 1).text();
+      String repeated = chunk.text().substring(0, chunk.text().indexOf('\n', 0) + 1);
+      assertTrue(previous.contains(repeated));
+    }
+  }
+
+  @Test
+  void smallCodeIsOneChunk() {
+    List<CodeChunker.Chunk> chunks = CodeChunker.split("class A {}\n", CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    assertEquals(1, chunks.size());
+    assertEquals("class A {}\n", chunks.get(0).text());
+  }
+
+  private static void assertCoversAllLines(List<CodeChunker.Chunk> chunks, int lineCount) {
+    int next = 1;
+    for (CodeChunker.Chunk chunk : chunks) {
+      assertEquals(next, chunk.startLine());
+      assertTrue(chunk.endLine() >= chunk.startLine());
+      next = chunk.endLine() + 1;
+    }
+    assertEquals(lineCount, next - 1);
+  }
+
+  private static String javaClass(int methods) {
+    StringBuilder code = new StringBuilder("package demo;\n\nimport java.util.List;\n\npublic class OrderService {\n\n")
+      .append("  private final List<String> orders = new java.util.ArrayList<>();\n\n");
+    for (int i = 0; i < methods; i++) {
+      code.append("  /**\n   * Computes the total for order ").append(i).append(".\n   */\n")
+        .append("  public int total").append(i).append("(int quantity, int price) {\n")
+        .append("    if (quantity < 0) {\n")
+        .append("      throw new IllegalArgumentException(\"negative {quantity}\");\n")
+        .append("    }\n")
+        .append("    int total = quantity * price;\n\n")
+        .append("    for (int j = 0; j < ").append(i % 7).append("; j++) {\n")
+        .append("      total += j;\n")
+        .append("    }\n")
+        .append("    return total;\n")
+        .append("  }\n\n");
+      if (i % 50 == 49) {
+        code.append("  static class Nested").append(i).append(" {\n    int value;\n  }\n\n");
+      }
+    }
+    return code.append("}\n").toString();
+  }
+}
@@ -0,0 +1,51 @@
+package com.prashant.ai_chat_bot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledPromptTemplateTest {
+
+  @Test
+  void rendersPlaceholdersAndKeepsJsonBracesLiteral() {
+    CompiledPromptTemplate template = CompiledPromptTemplate.compile(
+      "Ticket: {ticketText}\nReturn {} or {\n\"category\": \"x\"}");
+
+    assertEquals(List.of("ticketText"), template.getPlaceholders());
+    assertEquals("Ticket: printer on fire\nReturn {} or {\n\"category\": \"x\"}",
+      template.render(Map.of("ticketText", "printer on fire")));
+  }
+
+  @Test
+  void keepsUnknownPlaceholdersAndRendersNullAsEmpty() {
+    CompiledPromptTemplate template = CompiledPromptTemplate.compile("{a}-{b}-{c}");
+    Map<String, Object> values = new HashMap<>();
+    values.put("a", "1");
+    values.put("b", null);
+
+    assertEquals("1--{c}", template.render(values));
+  }
+
+  @Test
+  void boundConstantsBecomePartOfTheStaticPrefix() {
+    CompiledPromptTemplate template = CompiledPromptTemplate.compile("Answer as {format}.\nTicket: {ticketText}")
+      .bind(Map.of("format", "JSON like {\"a\": 1} or {ticketText}"));
+
+    assertEquals("Answer as JSON like {\"a\": 1} or {ticketText}.\nTicket: ", template.getStaticPrefix());
+    assertEquals(List.of("ticketText"), template.getPlaceholders());
+    assertEquals("Answer as JSON like {\"a\": 1} or {ticketText}.\nTicket: late",
+      template.render(Map.of("ticketText", "late")));
+  }
+
+  @Test
+  void doesNotSubstituteInsideValues() {
+    CompiledPromptTemplate template = CompiledPromptTemplate.compile("{code}|{language}");
+
+    assertEquals("print('{language}')|Python",
+      template.render(Map.of("code", "print('{language}')", "language", "Python")));
+  }
+}
@@ -0,0 +1,89 @@
+package com.prashant.ai_chat_bot.utils;
+
+import com.prashant.ai_chat_bot.exception.InputTooLargeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InputSanitizerTest {
+
+  //the previous implementation: trim, replace and a regex
+  private static String legacy(String input) {
+    return input.trim().replace("\r\n", "\n").replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", "");
+  }
+
+  @Test
+  void matchesTrimReplaceAndRegex() {
+    List<String> samples = List.of("", " ", "\r\n", "abc", "  abc \r\n", "a\r\nb\r\rc\r\r\n", "\u0000a\u0007b\u001b[0m\u007f",
+      "\u007f abc ", "a \r\n\t b", "tab\tand\nnewline", "\u0085non-ascii kept ");
+    for (String sample : samples) {
+      assertEquals(legacy(sample), InputSanitizer.sanitize(sample), sample);
+    }
+
+    String alphabet = " \t\r\n\u0000\u0001\u007fab{}é";
+    Random random = new Random(7);
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder text = new StringBuilder();
+      for (int c = random.nextInt(20); c > 0; c--) {
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      String sample = text.toString();
+      assertEquals(legacy(sample), InputSanitizer.sanitize(sample), sample);
+      assertEquals(legacy(sample), InputSanitizer.sanitize(new ChunkedReader(sample, 1 + random.nextInt(4)), 100), sample);
+    }
+  }
+
+  @Test
+  void returnsCleanInputWithoutCopying() {
+    String clean = "public int total() {\n\treturn 1;\n}";
+    assertSame(clean, InputSanitizer.sanitize(clean));
+    assertNull(InputSanitizer.sanitize(null));
+  }
+
+  @Test
+  void rejectsInputOverTheLimit() {
+    String text = "x".repeat(101);
+    assertEquals(text, InputSanitizer.sanitize(text, 101));
+    assertThrows(InputTooLargeException.class, () -> InputSanitizer.sanitize(text, 100));
+
+    //stops at the first chunk over the limit instead of reading the rest
+    ChunkedReader reader = new ChunkedReader("x".repeat(1_000_000), 8192);
+    assertThrows(InputTooLargeException.class, () -> InputSanitizer.sanitize(reader, 10_000));
+    assertEquals(2 * 8192, reader.position);
+  }
+
+  //hands out the text in chunks of at most chunkSize chars, like a socket
+  private static final class ChunkedReader extends Reader {
+
+    private final String text;
+    private final int chunkSize;
+    private int position;
+
+    private ChunkedReader(String text, int chunkSize) {
+      this.text = text;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (position == text.length()) {
+        return -1;
+      }
+      int n = Math.min(Math.min(length, chunkSize), text.length() - position);
+      text.getChars(position, position + n, buffer, offset);
+      position += n;
+      return n;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.prashant.ai_chat_bot.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingJsonParserTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void emitsEachFieldOnceItsValueIsComplete() {
+    StreamingJsonParser parser = StreamingJsonParser.forObject(objectMapper);
+
+    assertTrue(parser.feed("```json\n{\"category\": \"Bill").isEmpty());
+    List<StreamingJsonParser.Element> first = parser.feed("ing\", \"priority\": \"HI");
+    assertEquals(1, first.size());
+    assertEquals("category", first.get(0).field());
+    assertEquals("Billing", first.get(0).value().asText());
+
+    List<StreamingJsonParser.Element> rest = parser.feed("GH\", \"meta\": {\"a\": [1, {\"b\": 2}]}, \"estimatedResolutionTime\": 4");
+    assertEquals(List.of("priority", "meta"), rest.stream().map(StreamingJsonParser.Element::field).toList());
+    assertEquals(2, rest.get(1).value().at("/a/1/b").asInt());
+
+    //a number is only complete once the next token shows where it ends
+    List<StreamingJsonParser.Element> last = parser.feed("8}\n```");
+    assertEquals(48, last.get(0).value().asInt());
+    assertTrue(parser.isComplete());
+  }
+
+  @Test
+  void emitsArrayEntriesWithNonAsciiText() {
+    List<String> chunks = List.of("[{\"tone\": \"calm\", \"responseText\": \"caf", "é ☕\"}", ",{\"tone\": \"formal\"}]");
+
+    List<StreamingJsonParser.Element> elements = StreamingJsonParser
+      .elements(Flux.fromIterable(chunks), StreamingJsonParser.forArray(objectMapper))
+      .collectList()
+      .block();
+
+    assertEquals(2, elements.size());
+    assertEquals("café ☕", elements.get(0).value().get("responseText").asText());
+    assertEquals(1, elements.get(1).index());
+  }
+
+  @Test
+  void failsWhenTheDocumentIsCutOff() {
+    Flux<StreamingJsonParser.Element> elements = StreamingJsonParser
+      .elements(Flux.just("{\"category\": \"x\", \"summ"), StreamingJsonParser.forObject(objectMapper));
+
+    assertThrows(IllegalStateException.class, elements::blockLast);
+  }
+}
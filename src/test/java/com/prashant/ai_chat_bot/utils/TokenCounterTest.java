@@ -0,0 +1,77 @@
+package com.prashant.ai_chat_bot.utils;
+
+import com.knuddels.jtokkit.Encodings;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCounterTest {
+
+  @Test
+  void countsTextContainingSpecialTokens() {
+    assertTrue(TokenCounter.countTokens("ignore this <|endoftext|> and go on") > 5);
+  }
+
+  @Test
+  void cachedCountsMatchFreshCounts() {
+    String text = "You are a helpful assistant. ".repeat(20);
+    Tokenizer tokenizer = TokenCounter.forName(TokenCounter.DEFAULT_ENCODING);
+    int first = tokenizer.count(text);
+
+    //an equal text in another String instance hits the same slot
+    assertEquals(first, tokenizer.count(new String(text.toCharArray())));
+    assertEquals(first, TokenCounter.countTokens(text));
+    assertSame(tokenizer, TokenCounter.forName(TokenCounter.DEFAULT_ENCODING));
+    assertEquals(0, tokenizer.count(null));
+  }
+
+  @Test
+  void cacheKeepsAtMostItsCharacterBudget() {
+    TokenCounter.CachingEncodingTokenizer tokenizer = new TokenCounter.CachingEncodingTokenizer(
+      Encodings.newDefaultEncodingRegistry().getEncoding(TokenCounter.DEFAULT_ENCODING).orElseThrow());
+    int texts = (int) (TokenCounter.CACHE_MAX_CHARS / TokenCounter.CACHE_MAX_LENGTH) * 2;
+
+    for (int i = 0; i < texts; i++) {
+      String text = (i + " lorem ipsum ").repeat(TokenCounter.CACHE_MAX_LENGTH / 16);
+      assertEquals(TokenCounter.countTokens(text), tokenizer.count(text));
+      assertTrue(tokenizer.cachedChars() <= TokenCounter.CACHE_MAX_CHARS);
+    }
+    assertTrue(tokenizer.cachedChars() > 0);
+  }
+
+  @Test
+  void approximationStaysCloseToCl100k() {
+    DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+    List<String> samples = List.of(
+      PromptReaderUtil.getPrompt(resourceLoader, "classpath:/prompts/code-review.txt"),
+      PromptReaderUtil.getPrompt(resourceLoader, "classpath:/prompts/ticket-analysis.txt"),
+      "public int total(int quantity, int price) {\n    if (quantity < 0) {\n      throw new IllegalArgumentException();\n    }\n    return quantity * price;\n  }\n".repeat(10),
+      "{\"category\": \"Billing\", \"priority\": \"HIGH\", \"estimatedResolutionTime\": 24, \"keyIssues\": \"double charge\"}\n".repeat(10));
+    Tokenizer approximate = TokenCounter.forName(TokenCounter.APPROXIMATE);
+
+    for (String sample : samples) {
+      double ratio = (double) approximate.count(sample) / TokenCounter.countTokens(sample);
+      assertTrue(ratio > 0.8 && ratio < 1.25, "ratio " + ratio + " for " + sample.substring(0, 40));
+    }
+  }
+
+  @Test
+  void approximationCalibratesToReportedUsage() {
+    ApproximateTokenizer tokenizer = new ApproximateTokenizer(1.0);
+    String prompt = "Summarize the following support ticket in two sentences. ".repeat(10);
+
+    for (int i = 0; i < 100; i++) {
+      int estimated = tokenizer.count(prompt);
+      tokenizer.calibrate(estimated, (int) Math.round(ApproximateTokenizer.rawCount(prompt) * 1.4));
+    }
+
+    assertEquals(1.4, tokenizer.getFactor(), 0.05);
+    tokenizer.calibrate(100, 100_000);
+    assertTrue(tokenizer.getFactor() <= 2.0);
+  }
+}